@@ -23,8 +23,11 @@
 
 package au.csiro.pathling.config;
 
+import jakarta.annotation.Nullable;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import lombok.Builder;
 import lombok.Data;
@@ -74,4 +77,47 @@ public class EncodingConfiguration {
       "Reference"
   );
 
+  /**
+   * Setting this option to {@code true} will build the encoders for all resource types in
+   * parallel when the encoders are created, rather than building each encoder upon its first use.
+   */
+  @NotNull
+  @Builder.Default
+  private boolean warmUp = false;
+
+  /**
+   * The location of a directory that holds snapshots of the encoders built during warm-up. If
+   * there is a snapshot matching the encoding configuration and library version, the encoders are
+   * loaded from it rather than being built again.
+   */
+  @Nullable
+  private String snapshotPath;
+
+  /**
+   * The paths of the elements to encode, keyed by resource type, e.g. {@code code.coding}. Each
+   * path selects an element along with all of its descendants. Resource types that are not listed
+   * have all of their elements encoded.
+   */
+  @NotNull
+  @Builder.Default
+  private Map<String, Set<String>> elements = Map.of();
+
+  /**
+   * The locations of StructureDefinition resources (or directories containing them) that describe
+   * the profiles the data will be queried with. The elements used by these profiles are added to
+   * the {@link #elements} that are encoded.
+   */
+  @NotNull
+  @Builder.Default
+  private List<String> profiles = List.of();
+
+  /**
+   * The URLs of extensions that are promoted to their own columns within resources. Queries that
+   * retrieve these extensions from a resource read the column directly, rather than searching the
+   * extension container. Only applies when extensions are enabled.
+   */
+  @NotNull
+  @Builder.Default
+  private Set<String> promotedExtensions = Set.of();
+
 }
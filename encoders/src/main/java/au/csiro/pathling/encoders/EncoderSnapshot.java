@@ -0,0 +1,363 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.encoders;
+
+import au.csiro.pathling.encoders.FhirEncoders.EncodersKey;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputFilter.FilterInfo;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.spark.sql.catalyst.encoders.ExpressionEncoder;
+
+/**
+ * Reads and writes snapshots of the encoders that have been built by a {@link FhirEncoders}
+ * instance. Loading a snapshot allows a new JVM to reuse the schemas and the serializer and
+ * deserializer expressions built by an earlier one, rather than building them again from the HAPI
+ * definitions.
+ * <p>
+ * Each snapshot is specific to the configuration of the encoders and to the build of the library
+ * that wrote it, and both are reflected in its file name. Snapshots can be read from and written to
+ * any location supported by Hadoop, such as the local file system or an object store.
+ *
+ * @author John Grimes
+ */
+@Slf4j
+public final class EncoderSnapshot {
+
+  static final int MAGIC = 0x50454e43;
+  static final byte FORMAT_VERSION = 1;
+  private static final String FILE_PREFIX = "encoders-";
+  private static final String FILE_SUFFIX = ".bin.gz";
+  private static final String VERSION_PROPERTIES_FILE_NAME = "pathling-version.properties";
+  private static final String BUILD_VERSION_PROPERTY = "git.build.version";
+  private static final String GIT_SHA_PROPERTY = "git.commit.id.abbrev";
+
+  /**
+   * The classes that can be read from a snapshot. These are limited to the classes that make up
+   * the expressions of an encoder, including the FHIR model classes that the expressions refer to,
+   * so that a snapshot cannot be used to instantiate arbitrary classes.
+   */
+  private static final ObjectInputFilter ALLOWED_CLASSES = ObjectInputFilter.Config.createFilter(
+      "java.**;scala.**;org.apache.spark.sql.catalyst.**;org.apache.spark.sql.types.**;"
+          + "org.apache.spark.unsafe.types.**;au.csiro.pathling.**;org.hl7.fhir.**;"
+          + "ca.uhn.fhir.**;!*");
+
+  private EncoderSnapshot() {
+  }
+
+  /**
+   * Loads the encoders from a snapshot within the given directory, if there is one that matches
+   * the configuration of the encoders, builds any remaining encoders in parallel, and then saves a
+   * new snapshot if any encoders needed to be built. If the directory is null, the encoders are
+   * built without the use of a snapshot.
+   *
+   * @param encoders the encoders to warm up
+   * @param directory the directory containing snapshots, or null
+   * @param hadoopConfiguration the Hadoop configuration to use to access the directory
+   */
+  public static void warmUp(@Nonnull final FhirEncoders encoders,
+      @Nullable final String directory, @Nonnull final Configuration hadoopConfiguration) {
+    if (directory != null) {
+      try {
+        load(encoders, directory, hadoopConfiguration);
+      } catch (final IOException | RuntimeException e) {
+        // A snapshot that cannot be read only means that the encoders need to be built again.
+        log.warn("Unable to load encoder snapshot from: {}", directory, e);
+      }
+    }
+    final int built = encoders.warmUp();
+    if (directory != null && built > 0) {
+      try {
+        save(encoders, directory, hadoopConfiguration);
+      } catch (final IOException e) {
+        log.warn("Unable to save encoder snapshot to: {}", directory, e);
+      }
+    }
+  }
+
+  /**
+   * Writes a snapshot of the encoders that have been built so far to the given directory, replacing
+   * any existing snapshot for the same configuration.
+   *
+   * @param encoders the encoders to take the snapshot from
+   * @param directory the directory to write the snapshot to
+   * @param hadoopConfiguration the Hadoop configuration to use to access the directory
+   * @return the number of encoders written
+   * @throws IOException if the snapshot cannot be written
+   */
+  public static int save(@Nonnull final FhirEncoders encoders, @Nonnull final String directory,
+      @Nonnull final Configuration hadoopConfiguration) throws IOException {
+    final Optional<String> descriptor = descriptorFor(encoders);
+    if (descriptor.isEmpty()) {
+      log.warn("Encoder snapshots are not supported without a library version");
+      return 0;
+    }
+    final Path snapshotPath = new Path(directory, fileName(descriptor.get()));
+    final Path tempPath = new Path(directory, "." + UUID.randomUUID() + FILE_SUFFIX);
+    final FileSystem fileSystem = snapshotPath.getFileSystem(hadoopConfiguration);
+    final int count;
+    try (final OutputStream output = fileSystem.create(tempPath, true)) {
+      count = write(descriptor.get(), encoders.getEncoderCache(), output);
+    }
+    // Write to a temporary file first, so that a concurrent reader never sees a partial snapshot.
+    fileSystem.delete(snapshotPath, false);
+    if (!fileSystem.rename(tempPath, snapshotPath)) {
+      fileSystem.delete(tempPath, false);
+      throw new IOException("Unable to move encoder snapshot into place: " + snapshotPath);
+    }
+    log.info("Wrote {} encoders to snapshot: {}", count, snapshotPath);
+    return count;
+  }
+
+  /**
+   * Loads the encoders from a snapshot within the given directory that matches the configuration
+   * of the encoders. Encoders that have already been built are not replaced.
+   *
+   * @param encoders the encoders to load the snapshot into
+   * @param directory the directory containing snapshots
+   * @param hadoopConfiguration the Hadoop configuration to use to access the directory
+   * @return the number of encoders loaded, which is zero if there is no matching snapshot
+   * @throws IOException if the snapshot cannot be read
+   */
+  public static int load(@Nonnull final FhirEncoders encoders, @Nonnull final String directory,
+      @Nonnull final Configuration hadoopConfiguration) throws IOException {
+    final Optional<String> descriptor = descriptorFor(encoders);
+    if (descriptor.isEmpty()) {
+      return 0;
+    }
+    final Path snapshotPath = new Path(directory, fileName(descriptor.get()));
+    final FileSystem fileSystem = snapshotPath.getFileSystem(hadoopConfiguration);
+    if (!fileSystem.exists(snapshotPath)) {
+      log.debug("No encoder snapshot found at: {}", snapshotPath);
+      return 0;
+    }
+    try (final InputStream input = fileSystem.open(snapshotPath)) {
+      final int count = read(descriptor.get(), input, encoders.getEncoderCache());
+      log.info("Loaded {} encoders from snapshot: {}", count, snapshotPath);
+      return count;
+    }
+  }
+
+  /**
+   * Writes a snapshot of the given encoders to a stream.
+   *
+   * @param descriptor the descriptor of the configuration and library version
+   * @param encoders the encoders to write, keyed by resource type
+   * @param stream the stream to write to
+   * @return the number of encoders written
+   * @throws IOException if the snapshot cannot be written
+   */
+  static int write(@Nonnull final String descriptor,
+      @Nonnull final Map<String, ExpressionEncoder<?>> encoders,
+      @Nonnull final OutputStream stream) throws IOException {
+    int count = 0;
+    final GZIPOutputStream compressed = new GZIPOutputStream(new BufferedOutputStream(stream));
+    final DataOutputStream output = new DataOutputStream(compressed);
+    output.writeInt(MAGIC);
+    output.writeByte(FORMAT_VERSION);
+    output.writeUTF(descriptor);
+    for (final Map.Entry<String, ExpressionEncoder<?>> entry : encoders.entrySet()) {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (final ObjectOutputStream objectOutput = new ObjectOutputStream(bytes)) {
+        objectOutput.writeObject(SerializableEncoder.of(entry.getValue()));
+      }
+      output.writeBoolean(true);
+      output.writeUTF(entry.getKey());
+      output.writeInt(bytes.size());
+      bytes.writeTo(output);
+      count++;
+    }
+    output.writeBoolean(false);
+    output.flush();
+    // Finish the compressed stream without closing the stream that was passed in.
+    compressed.finish();
+    compressed.flush();
+    return count;
+  }
+
+  /**
+   * Reads a snapshot from a stream into the given encoders. Encoders that are already present are
+   * not replaced.
+   *
+   * @param descriptor the descriptor of the configuration and library version, which must match
+   * the one within the snapshot
+   * @param stream the stream to read from
+   * @param encoders the encoders to load the snapshot into, keyed by resource type
+   * @return the number of encoders loaded
+   * @throws IOException if the snapshot cannot be read
+   */
+  static int read(@Nonnull final String descriptor, @Nonnull final InputStream stream,
+      @Nonnull final Map<String, ExpressionEncoder<?>> encoders) throws IOException {
+    int count = 0;
+    final DataInputStream input = new DataInputStream(
+        new GZIPInputStream(new BufferedInputStream(stream)));
+    if (input.readInt() != MAGIC) {
+      throw new IOException("Not an encoder snapshot");
+    }
+    final byte version = input.readByte();
+    if (version != FORMAT_VERSION) {
+      throw new IOException("Unsupported encoder snapshot version: " + version);
+    }
+    final String snapshotDescriptor = input.readUTF();
+    if (!descriptor.equals(snapshotDescriptor)) {
+      throw new IOException("Encoder snapshot does not match configuration: " + snapshotDescriptor);
+    }
+    while (input.readBoolean()) {
+      final String resourceType = input.readUTF();
+      final byte[] bytes = new byte[input.readInt()];
+      input.readFully(bytes);
+      try (final ObjectInputStream objectInput = new ContextObjectInputStream(
+          new ByteArrayInputStream(bytes))) {
+        objectInput.setObjectInputFilter(EncoderSnapshot::checkClass);
+        if (!(objectInput.readObject() instanceof final SerializableEncoder serializable)) {
+          throw new IOException("Unexpected object for resource type: " + resourceType);
+        }
+        if (encoders.putIfAbsent(resourceType, serializable.toEncoder()) == null) {
+          count++;
+        }
+      } catch (final ClassNotFoundException e) {
+        throw new IOException("Unable to read encoder for resource type: " + resourceType, e);
+      }
+    }
+    return count;
+  }
+
+  @Nonnull
+  private static ObjectInputFilter.Status checkClass(@Nonnull final FilterInfo filterInfo) {
+    final ObjectInputFilter.Status status = ALLOWED_CLASSES.checkInput(filterInfo);
+    if (status == ObjectInputFilter.Status.REJECTED) {
+      log.warn("Rejected class within encoder snapshot: {}", filterInfo.serialClass());
+    }
+    return status;
+  }
+
+  /**
+   * Describes the configuration of the encoders and the build of the library, both of which affect
+   * the encoders that are built.
+   */
+  @Nonnull
+  static Optional<String> descriptorFor(@Nonnull final FhirEncoders encoders) {
+    final EncodersKey key = encoders.getKey();
+    return libraryVersion()
+        .map(libraryVersion -> String.join("|", libraryVersion,
+            key.getFhirVersion().name(),
+            String.valueOf(key.getMaxNestingLevel()),
+            String.join(",", new TreeSet<>(key.getOpenTypes())),
+            String.valueOf(key.isEnableExtensions()),
+            describeElements(key.getElements()),
+            String.join(",", new TreeSet<>(key.getPromotedExtensions()))));
+  }
+
+  @Nonnull
+  private static String describeElements(@Nonnull final Map<String, Set<String>> elements) {
+    return new TreeMap<>(elements).entrySet().stream()
+        .map(entry -> entry.getKey() + "=" + String.join(",", new TreeSet<>(entry.getValue())))
+        .collect(Collectors.joining(";"));
+  }
+
+  /**
+   * Gets the version of the library, including the Git commit SHA at the time of the build.
+   */
+  @Nonnull
+  private static Optional<String> libraryVersion() {
+    try (final InputStream stream = EncoderSnapshot.class.getClassLoader()
+        .getResourceAsStream(VERSION_PROPERTIES_FILE_NAME)) {
+      if (stream == null) {
+        return Optional.empty();
+      }
+      final Properties properties = new Properties();
+      properties.load(stream);
+      final String buildVersion = properties.getProperty(BUILD_VERSION_PROPERTY);
+      final String gitSha = properties.getProperty(GIT_SHA_PROPERTY);
+      return buildVersion != null && gitSha != null
+             ? Optional.of(buildVersion + "+" + gitSha)
+             : Optional.empty();
+    } catch (final IOException e) {
+      log.warn("Unable to read library version", e);
+      return Optional.empty();
+    }
+  }
+
+  @Nonnull
+  static String fileName(@Nonnull final String descriptor) {
+    try {
+      final byte[] digest = MessageDigest.getInstance("SHA-256")
+          .digest(descriptor.getBytes(StandardCharsets.UTF_8));
+      return FILE_PREFIX + HexFormat.of().formatHex(digest, 0, 16) + FILE_SUFFIX;
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /**
+   * Resolves classes using the context class loader, which is able to see the library classes
+   * when they have been added to the classpath of a running application, e.g. by Spark.
+   */
+  private static class ContextObjectInputStream extends ObjectInputStream {
+
+    ContextObjectInputStream(@Nonnull final InputStream input) throws IOException {
+      super(input);
+    }
+
+    @Override
+    protected Class<?> resolveClass(@Nonnull final ObjectStreamClass desc)
+        throws IOException, ClassNotFoundException {
+      final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+      if (classLoader != null) {
+        try {
+          return Class.forName(desc.getName(), false, classLoader);
+        } catch (final ClassNotFoundException e) {
+          // Fall back to the default resolution below.
+        }
+      }
+      return super.resolveClass(desc);
+    }
+
+  }
+
+}
@@ -27,11 +27,17 @@ import au.csiro.pathling.encoders.datatypes.DataTypeMappings;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.FhirVersionEnum;
 import ca.uhn.fhir.context.RuntimeResourceDefinition;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.spark.sql.catalyst.encoders.ExpressionEncoder;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import scala.collection.JavaConverters;
@@ -39,6 +45,7 @@ import scala.collection.JavaConverters;
 /**
  * Spark Encoders for FHIR Resources. This object is thread safe.
  */
+@Slf4j
 public class FhirEncoders {
 
   /**
@@ -51,6 +58,12 @@ public class FhirEncoders {
    */
   private static final Map<FhirVersionEnum, DataTypeMappings> DATA_TYPE_MAPPINGS = new HashMap<>();
 
+  /**
+   * The resource types for which encoders have been created that only encode a selection of their
+   * elements.
+   */
+  private static final Set<String> SELECTIVELY_ENCODED_TYPES = ConcurrentHashMap.newKeySet();
+
   /**
    * Cache of FHIR contexts.
    */
@@ -67,9 +80,15 @@ public class FhirEncoders {
   private final DataTypeMappings mappings;
 
   /**
-   * Cached encoders to avoid having to re-create them.
+   * Cached encoders to avoid having to re-create them, keyed by resource type. Encoders for
+   * different resource types can be built concurrently.
+   */
+  private final Map<String, ExpressionEncoder<?>> encoderCache = new ConcurrentHashMap<>();
+
+  /**
+   * Locks used to ensure that each encoder is only built once, keyed by resource type.
    */
-  private final Map<Integer, ExpressionEncoder<?>> encoderCache = new HashMap<>();
+  private final Map<String, Object> buildLocks = new ConcurrentHashMap<>();
 
   /**
    * The maximum nesting level for expansion of recursive data types.
@@ -86,6 +105,22 @@ public class FhirEncoders {
    */
   private final boolean enableExtensions;
 
+  /**
+   * The paths of the elements to encode, keyed by resource type. Resource types that are not
+   * present in this map have all of their elements encoded.
+   */
+  private final Map<String, Set<String>> elements;
+
+  /**
+   * The selections of elements to encode, derived from {@link #elements}.
+   */
+  private final scala.collection.immutable.Map<String, ElementSelection> elementSelections;
+
+  /**
+   * The URLs of the extensions that are promoted to their own columns within resources.
+   */
+  private final Set<String> promotedExtensions;
+
   /**
    * Consumers should generally use the {@link #forR4()} method, but this is made available for test
    * purposes and additional experimental mappings.
@@ -98,11 +133,75 @@ public class FhirEncoders {
    */
   public FhirEncoders(final FhirContext context, final DataTypeMappings mappings,
       final int maxNestingLevel, final Set<String> openTypes, final boolean enableExtensions) {
+    this(context, mappings, maxNestingLevel, openTypes, enableExtensions, Collections.emptyMap());
+  }
+
+  /**
+   * Creates encoders that only encode the selected elements of each resource type.
+   *
+   * @param context the FHIR context to use.
+   * @param mappings mappings between Spark and FHIR data types.
+   * @param maxNestingLevel maximum nesting level for expansion of recursive data types.
+   * @param openTypes the list of types that are encoded within open types, such as extensions.
+   * @param enableExtensions true if FHIR extension should be enabled.
+   * @param elements the paths of the elements to encode, keyed by resource type.
+   */
+  public FhirEncoders(final FhirContext context, final DataTypeMappings mappings,
+      final int maxNestingLevel, final Set<String> openTypes, final boolean enableExtensions,
+      final Map<String, Set<String>> elements) {
+    this(context, mappings, maxNestingLevel, openTypes, enableExtensions, elements,
+        Collections.emptySet());
+  }
+
+  /**
+   * Creates encoders that only encode the selected elements of each resource type, and promote
+   * the given extensions to their own columns.
+   *
+   * @param context the FHIR context to use.
+   * @param mappings mappings between Spark and FHIR data types.
+   * @param maxNestingLevel maximum nesting level for expansion of recursive data types.
+   * @param openTypes the list of types that are encoded within open types, such as extensions.
+   * @param enableExtensions true if FHIR extension should be enabled.
+   * @param elements the paths of the elements to encode, keyed by resource type.
+   * @param promotedExtensions the URLs of the extensions to promote to their own columns.
+   */
+  public FhirEncoders(final FhirContext context, final DataTypeMappings mappings,
+      final int maxNestingLevel, final Set<String> openTypes, final boolean enableExtensions,
+      final Map<String, Set<String>> elements, final Set<String> promotedExtensions) {
     this.context = context;
     this.mappings = mappings;
     this.maxNestingLevel = maxNestingLevel;
     this.openTypes = openTypes;
     this.enableExtensions = enableExtensions;
+    this.elements = elements;
+    this.elementSelections = ElementSelection.forResources(elements);
+    this.promotedExtensions = effectivePromotedExtensions(enableExtensions, promotedExtensions);
+    SELECTIVELY_ENCODED_TYPES.addAll(elements.keySet());
+  }
+
+  /**
+   * @param enableExtensions true if FHIR extension should be enabled.
+   * @param promotedExtensions the URLs of the extensions requested for promotion.
+   * @return the URLs of the extensions that are actually promoted
+   */
+  private static Set<String> effectivePromotedExtensions(final boolean enableExtensions,
+      final Set<String> promotedExtensions) {
+    // Extensions can only be promoted when extension support is enabled.
+    return enableExtensions
+           ? promotedExtensions
+           : Collections.emptySet();
+  }
+
+  /**
+   * Checks whether any encoders have been created that only encode a selection of the elements of
+   * the given resource type. If not, datasets of the resource type that were encoded within this
+   * JVM contain all of its elements.
+   *
+   * @param resourceType the name of the resource type
+   * @return true if the resource type may have been encoded with a selection of its elements
+   */
+  public static boolean isSelectivelyEncoded(final String resourceType) {
+    return SELECTIVELY_ENCODED_TYPES.contains(resourceType);
   }
 
   /**
@@ -220,17 +319,68 @@ public class FhirEncoders {
     final RuntimeResourceDefinition definition =
         context.getResourceDefinition(type);
 
-    final int key = type.getName().hashCode();
-
-    synchronized (encoderCache) {
-      return (ExpressionEncoder<T>) encoderCache.computeIfAbsent(key, k ->
-          EncoderBuilder.of(definition,
-              context,
-              mappings,
-              maxNestingLevel,
-              JavaConverters.asScalaSet(openTypes).toSet(),
-              enableExtensions));
+    final String resourceType = definition.getName();
+    final ExpressionEncoder<?> cached = encoderCache.get(resourceType);
+    if (cached != null) {
+      return (ExpressionEncoder<T>) cached;
     }
+    // The encoder is built outside the lock of the cache, so that encoders for different resource
+    // types can be built at the same time, while concurrent requests for the same resource type
+    // wait for a single build.
+    synchronized (buildLocks.computeIfAbsent(resourceType, key -> new Object())) {
+      final ExpressionEncoder<?> existing = encoderCache.get(resourceType);
+      if (existing != null) {
+        return (ExpressionEncoder<T>) existing;
+      }
+      final ExpressionEncoder<?> built = EncoderBuilder.of(definition,
+          context,
+          mappings,
+          maxNestingLevel,
+          JavaConverters.asScalaSet(openTypes).toSet(),
+          enableExtensions,
+          elementSelections,
+          // The columns of the promoted extensions are ordered by URL.
+          JavaConverters.asScalaBuffer(new ArrayList<>(new TreeSet<>(promotedExtensions)))
+              .toList());
+      // An encoder may have been loaded from a snapshot while this one was being built.
+      final ExpressionEncoder<?> loaded = encoderCache.putIfAbsent(resourceType, built);
+      return (ExpressionEncoder<T>) (loaded == null
+                                     ? built
+                                     : loaded);
+    }
+  }
+
+  /**
+   * Builds the encoders for all the resource types that can be encoded, in parallel. This can be
+   * used to avoid the cost of building each encoder upon its first use.
+   *
+   * @return the number of encoders that were built, not counting those that were already cached
+   */
+  public int warmUp() {
+    final List<String> resourceTypes = context.getResourceTypes().stream()
+        .filter(type -> !EncoderBuilder.UNSUPPORTED_RESOURCES().contains(type))
+        .filter(type -> !encoderCache.containsKey(type))
+        .collect(Collectors.toList());
+    final long start = System.nanoTime();
+    resourceTypes.parallelStream().forEach(this::of);
+    log.debug("Built {} encoders in {} ms", resourceTypes.size(),
+        (System.nanoTime() - start) / 1_000_000);
+    return resourceTypes.size();
+  }
+
+  /**
+   * @return the encoders that have been built so far, keyed by resource type
+   */
+  Map<String, ExpressionEncoder<?>> getEncoderCache() {
+    return encoderCache;
+  }
+
+  /**
+   * @return the key that identifies the configuration of this encoders instance
+   */
+  EncodersKey getKey() {
+    return new EncodersKey(getFhirVersion(), maxNestingLevel, openTypes, enableExtensions,
+        elements, promotedExtensions);
   }
 
   /**
@@ -256,12 +406,14 @@ public class FhirEncoders {
    * Immutable key to look up a matching encoders instance by configuration.
    */
   @Value
-  private static class EncodersKey {
+  static class EncodersKey {
 
     FhirVersionEnum fhirVersion;
     int maxNestingLevel;
     Set<String> openTypes;
     boolean enableExtensions;
+    Map<String, Set<String>> elements;
+    Set<String> promotedExtensions;
   }
 
   /**
@@ -277,12 +429,16 @@ public class FhirEncoders {
     private int maxNestingLevel;
     private Set<String> openTypes;
     private boolean enableExtensions;
+    private Map<String, Set<String>> elements;
+    private Set<String> promotedExtensions;
 
     Builder(final FhirVersionEnum fhirVersion) {
       this.fhirVersion = fhirVersion;
       this.maxNestingLevel = DEFAULT_MAX_NESTING_LEVEL;
       this.openTypes = Collections.emptySet();
       this.enableExtensions = DEFAULT_ENABLE_EXTENSIONS;
+      this.elements = Collections.emptyMap();
+      this.promotedExtensions = Collections.emptySet();
     }
 
     /**
@@ -319,6 +475,32 @@ public class FhirEncoders {
       return this;
     }
 
+    /**
+     * Restricts the elements that are encoded for some resource types. Each path selects an element
+     * along with all of its descendants, e.g. {@code code.coding}. The {@code id} element is always
+     * encoded. Resource types that are not present in the map have all of their elements encoded.
+     *
+     * @param elements the paths of the elements to encode, keyed by resource type
+     * @return this builder
+     */
+    public Builder withElements(final Map<String, Set<String>> elements) {
+      this.elements = elements;
+      return this;
+    }
+
+    /**
+     * Promotes resource-level extensions with the given URLs to their own columns, in addition to
+     * encoding them within the extension container. This has no effect unless extensions are
+     * enabled.
+     *
+     * @param promotedExtensions the URLs of the extensions to promote
+     * @return this builder
+     */
+    public Builder withPromotedExtensions(final Set<String> promotedExtensions) {
+      this.promotedExtensions = promotedExtensions;
+      return this;
+    }
+
     /**
      * Get or create an {@link FhirEncoders} instance that matches the builder's configuration.
      *
@@ -326,8 +508,11 @@ public class FhirEncoders {
      */
     public FhirEncoders getOrCreate() {
 
+      // The key must match the key of the instance that is created, which only promotes extensions
+      // when extension support is enabled.
       final EncodersKey key = new EncodersKey(fhirVersion, maxNestingLevel,
-          openTypes, enableExtensions);
+          openTypes, enableExtensions, elements,
+          effectivePromotedExtensions(enableExtensions, promotedExtensions));
 
       synchronized (ENCODERS) {
 
@@ -340,7 +525,7 @@ public class FhirEncoders {
           final FhirContext context = contextFor(fhirVersion);
           final DataTypeMappings mappings = mappingsFor(fhirVersion);
           encoders = new FhirEncoders(context, mappings, maxNestingLevel, openTypes,
-              enableExtensions);
+              enableExtensions, elements, promotedExtensions);
           ENCODERS.put(key, encoders);
         }
         return encoders;
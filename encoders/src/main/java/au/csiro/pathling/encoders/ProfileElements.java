@@ -0,0 +1,152 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.encoders;
+
+import au.csiro.pathling.config.EncodingConfiguration;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import jakarta.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.hl7.fhir.r4.model.ElementDefinition;
+import org.hl7.fhir.r4.model.StructureDefinition;
+
+/**
+ * Derives the elements that need to be encoded from a set of profiles. The elements that are
+ * constrained within the differential of a profile are selected, along with any elements that are
+ * flagged as "must support" within its snapshot.
+ *
+ * @author John Grimes
+ */
+@Slf4j
+public final class ProfileElements {
+
+  private ProfileElements() {
+  }
+
+  /**
+   * Gets the paths of the elements that are used by the given profiles.
+   *
+   * @param profiles the profiles, which must be constraints on resource types
+   * @return the element paths, keyed by resource type, suitable for passing to
+   * {@link FhirEncoders.Builder#withElements(Map)}
+   */
+  @Nonnull
+  public static Map<String, Set<String>> fromProfiles(
+      @Nonnull final Collection<StructureDefinition> profiles) {
+    final Map<String, Set<String>> result = new HashMap<>();
+    for (final StructureDefinition profile : profiles) {
+      if (profile.getKind() != StructureDefinition.StructureDefinitionKind.RESOURCE
+          || !profile.hasType()) {
+        continue;
+      }
+      final String resourceType = profile.getType();
+      final Set<String> paths = result.computeIfAbsent(resourceType, key -> new HashSet<>());
+      final Stream<ElementDefinition> differential = profile.getDifferential().getElement()
+          .stream();
+      final Stream<ElementDefinition> mustSupport = profile.getSnapshot().getElement().stream()
+          .filter(ElementDefinition::getMustSupport);
+      Stream.concat(differential, mustSupport)
+          .map(ElementDefinition::getPath)
+          .filter(path -> path != null && path.startsWith(resourceType + "."))
+          .map(path -> path.substring(resourceType.length() + 1))
+          .forEach(paths::add);
+    }
+    return result;
+  }
+
+  /**
+   * Gets the elements to encode for an encoding configuration, combining the elements that are
+   * listed explicitly with those used by the configured profiles.
+   *
+   * @param configuration the encoding configuration
+   * @param fhirContext the FHIR context used to parse the profiles
+   * @param hadoopConfiguration the Hadoop configuration used to access the profiles
+   * @return the element paths, keyed by resource type
+   */
+  @Nonnull
+  public static Map<String, Set<String>> forConfiguration(
+      @Nonnull final EncodingConfiguration configuration, @Nonnull final FhirContext fhirContext,
+      @Nonnull final Configuration hadoopConfiguration) {
+    final Map<String, Set<String>> result = new HashMap<>();
+    configuration.getElements().forEach((resourceType, paths) ->
+        result.computeIfAbsent(resourceType, key -> new HashSet<>()).addAll(paths));
+    if (!configuration.getProfiles().isEmpty()) {
+      final List<StructureDefinition> profiles = load(configuration.getProfiles(), fhirContext,
+          hadoopConfiguration);
+      fromProfiles(profiles).forEach((resourceType, paths) ->
+          result.computeIfAbsent(resourceType, key -> new HashSet<>()).addAll(paths));
+    }
+    return result;
+  }
+
+  /**
+   * Reads StructureDefinition resources in JSON format. Each location may be a file, or a directory
+   * in which case all the files within it with a {@code .json} extension are read.
+   *
+   * @param locations the locations of the files or directories
+   * @param fhirContext the FHIR context used to parse the resources
+   * @param hadoopConfiguration the Hadoop configuration used to access the files
+   * @return the StructureDefinition resources that were read
+   */
+  @Nonnull
+  public static List<StructureDefinition> load(@Nonnull final Collection<String> locations,
+      @Nonnull final FhirContext fhirContext, @Nonnull final Configuration hadoopConfiguration) {
+    final IParser parser = fhirContext.newJsonParser();
+    final List<StructureDefinition> result = new ArrayList<>();
+    for (final String location : locations) {
+      final Path path = new Path(location);
+      try {
+        final FileSystem fileSystem = path.getFileSystem(hadoopConfiguration);
+        final List<Path> files = new ArrayList<>();
+        if (fileSystem.getFileStatus(path).isDirectory()) {
+          for (final FileStatus status : fileSystem.listStatus(path)) {
+            if (status.isFile() && status.getPath().getName().endsWith(".json")) {
+              files.add(status.getPath());
+            }
+          }
+        } else {
+          files.add(path);
+        }
+        for (final Path file : files) {
+          try (final InputStream input = fileSystem.open(file)) {
+            result.add(parser.parseResource(StructureDefinition.class, input));
+          }
+        }
+      } catch (final IOException e) {
+        throw new RuntimeException("Problem reading profiles: " + location, e);
+      }
+    }
+    log.debug("Read {} profiles from: {}", result.size(), locations);
+    return result;
+  }
+
+}
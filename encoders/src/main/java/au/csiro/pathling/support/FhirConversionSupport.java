@@ -77,6 +77,20 @@ public abstract class FhirConversionSupport implements Serializable {
   @Nonnull
   public abstract IBaseBundle resolveReferences(@Nonnull final IBaseBundle bundle);
 
+  /**
+   * Resolves URN references in the given resource using a mapping from URNs to relative references.
+   * This allows the references within the entries of a bundle to be resolved without the whole
+   * bundle being held in memory. URN references that are not present within the mapping are left
+   * unchanged. The references are resolved in-place.
+   *
+   * @param resource the resource
+   * @param references the relative references, keyed by URN
+   * @return the resource with references resolved
+   */
+  @Nonnull
+  public abstract IBaseResource resolveReferences(@Nonnull final IBaseResource resource,
+      @Nonnull final Map<String, String> references);
+
   /**
    * Cache of FHIR contexts.
    */
@@ -26,6 +26,7 @@ package au.csiro.pathling.support.r4;
 import au.csiro.pathling.support.FhirConversionSupport;
 import jakarta.annotation.Nonnull;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import org.hl7.fhir.instance.model.api.IBase;
 import org.hl7.fhir.instance.model.api.IBaseBundle;
@@ -96,4 +97,23 @@ public class R4FhirConversionSupport extends FhirConversionSupport {
     return r4Bundle;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Nonnull
+  @Override
+  public IBaseResource resolveReferences(@Nonnull final IBaseResource resource,
+      @Nonnull final Map<String, String> references) {
+    FhirTraversal.processRecursive((Resource) resource, base -> {
+      if (base instanceof Reference && isURNReference((Reference) base)) {
+        final Reference reference = (Reference) base;
+        final String resolved = references.get(reference.getReference());
+        if (resolved != null) {
+          reference.setReference(resolved);
+        }
+      }
+    });
+    return resource;
+  }
+
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.encoders
+
+import scala.collection.JavaConverters._
+
+/**
+ * A selection of the elements of a resource that are to be encoded. Each selected element is
+ * encoded along with all of its descendants, subject to the usual limits on nesting.
+ *
+ * @param children the selections for each selected child element, or None if all the children
+ *                 are selected
+ */
+case class ElementSelection(children: Option[Map[String, ElementSelection]]) {
+
+  /**
+   * Gets the selection for a child element.
+   *
+   * @param name the name of the child element
+   * @return the selection for the child, or None if the child is not selected
+   */
+  def child(name: String): Option[ElementSelection] = children match {
+    case None => Some(ElementSelection.ALL)
+    case Some(selected) => selected.get(name)
+  }
+}
+
+object ElementSelection {
+
+  /**
+   * The selection of all elements.
+   */
+  val ALL: ElementSelection = ElementSelection(None)
+
+  /**
+   * The elements that are always encoded, as they are required to identify a resource.
+   */
+  val REQUIRED_ELEMENTS: Set[String] = Set("id")
+
+  private val CHOICE_SUFFIX = "[x]"
+
+  /**
+   * Creates a selection from a list of element paths, e.g. `code.coding.system`. Paths may be
+   * prefixed with the resource type, and choice elements are referred to using their name without
+   * a type suffix, e.g. `value` or `value[x]`.
+   *
+   * @param resourceType the type of the resource
+   * @param paths        the paths of the selected elements
+   * @return a new [[ElementSelection]]
+   */
+  def of(resourceType: String, paths: Iterable[String]): ElementSelection = {
+    val segments = (paths ++ REQUIRED_ELEMENTS).map { path =>
+      val relative = if (path.startsWith(resourceType + ".")) {
+        path.substring(resourceType.length + 1)
+      } else {
+        path
+      }
+      relative.split('.').map(_.trim.stripSuffix(CHOICE_SUFFIX)).toList
+    }
+    fromSegments(segments)
+  }
+
+  /**
+   * Creates selections for a number of resource types.
+   *
+   * @param elements the element paths to select, keyed by resource type
+   * @return the selections, keyed by resource type
+   */
+  def forResources(
+      elements: java.util.Map[String, _ <: java.util.Collection[String]]): Map[String, ElementSelection] = {
+    elements.asScala.map { case (resourceType, paths) =>
+      resourceType -> of(resourceType, paths.asScala)
+    }.toMap
+  }
+
+  private def fromSegments(paths: Iterable[List[String]]): ElementSelection = {
+    val children = paths.filter(_.nonEmpty).groupBy(_.head).map { case (name, childPaths) =>
+      val remainders = childPaths.map(_.tail)
+      // Selecting an element selects all of its descendants.
+      name -> (if (remainders.exists(_.isEmpty)) ALL else fromSegments(remainders))
+    }
+    ElementSelection(Some(children))
+  }
+}
@@ -55,6 +55,33 @@ object EncoderBuilder {
          maxNestingLevel: Int,
          openTypes: Set[String],
          enableExtensions: Boolean): ExpressionEncoder[_] = {
+    of(resourceDefinition, fhirContext, mappings, maxNestingLevel, openTypes, enableExtensions,
+      Map.empty, Nil)
+  }
+
+  /**
+   * Returns an encoder for the FHIR resource implemented by the given class, which only encodes
+   * the selected elements of the resource and promotes the given extensions to their own columns.
+   *
+   * @param resourceDefinition the FHIR resource definition
+   * @param fhirContext        the FHIR context to use
+   * @param mappings           the data type mappings to use
+   * @param maxNestingLevel    the max nesting level to use to expand recursive data types.
+   *                           Zero means that fields of type T are skipped in a composite od type T.
+   * @param enableExtensions   true if support for extensions should be enabled.
+   * @param openTypes          the list of types that are encoded within open types, such as extensions.
+   * @param elementSelections  the selections of the elements to encode, keyed by resource type.
+   * @param promotedExtensions the URLs of the extensions to promote to their own columns.
+   * @return an ExpressionEncoder for the resource
+   */
+  def of(resourceDefinition: RuntimeResourceDefinition,
+         fhirContext: FhirContext,
+         mappings: DataTypeMappings,
+         maxNestingLevel: Int,
+         openTypes: Set[String],
+         enableExtensions: Boolean,
+         elementSelections: Map[String, ElementSelection],
+         promotedExtensions: Seq[String]): ExpressionEncoder[_] = {
 
     if (UNSUPPORTED_RESOURCES.contains(resourceDefinition.getName)) {
       throw new UnsupportedResourceError(
@@ -64,7 +91,8 @@ object EncoderBuilder {
     val fhirClass = resourceDefinition
       .asInstanceOf[BaseRuntimeElementDefinition[_]].getImplementingClass
     val schemaConverter = new SchemaConverter(fhirContext, mappings,
-      EncoderConfig(maxNestingLevel, openTypes, enableExtensions))
+      EncoderConfig(maxNestingLevel, openTypes, enableExtensions, generateFid = true,
+        elementSelections, promotedExtensions))
     val serializerBuilder = SerializerBuilder(schemaConverter)
     val deserializerBuilder = DeserializerBuilder(schemaConverter)
     new ExpressionEncoder(
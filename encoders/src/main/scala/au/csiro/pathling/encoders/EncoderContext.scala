@@ -60,6 +60,23 @@ trait EncoderSettings {
    * @return if unique field ids (_fid) should be added to the schema.
    */
   def generateFid: Boolean
+
+  /**
+   * The selections of the elements to encode, keyed by resource type. Resource types without a
+   * selection have all their elements encoded.
+   *
+   * @return the selections of the elements to encode.
+   */
+  def elementSelections: Map[String, ElementSelection]
+
+  /**
+   * The URLs of the extensions that are promoted to their own columns within resources, in
+   * addition to being encoded within the extension container. Only resource-level extensions are
+   * promoted.
+   *
+   * @return the URLs of the promoted extensions, in the order of their columns.
+   */
+  def promotedExtensions: Seq[String]
 }
 
 /**
@@ -80,6 +97,10 @@ trait EncoderContext extends EncoderSettings {
   override def supportsExtensions: Boolean = config.supportsExtensions
 
   override def generateFid: Boolean = config.generateFid
+
+  override def elementSelections: Map[String, ElementSelection] = config.elementSelections
+
+  override def promotedExtensions: Seq[String] = config.promotedExtensions
 }
 
 /**
@@ -89,12 +110,21 @@ trait EncoderContext extends EncoderSettings {
  * @param openTypes          @see [[EncoderSettings.openTypes]]
  * @param supportsExtensions @see [[EncoderSettings.supportsExtensions]]
  * @param generateFid        @see [[EncoderSettings.generateFid]]
+ * @param elementSelections  @see [[EncoderSettings.elementSelections]]
+ * @param promotedExtensions @see [[EncoderSettings.promotedExtensions]]
  */
 case class EncoderConfig(override val maxNestingLevel: Int,
                          override val openTypes: Set[String],
                          override val supportsExtensions: Boolean,
-                         override val generateFid: Boolean) extends EncoderSettings {
+                         override val generateFid: Boolean,
+                         override val elementSelections: Map[String, ElementSelection] = Map.empty,
+                         override val promotedExtensions: Seq[String] = Nil)
+  extends EncoderSettings {
   assert(generateFid || !supportsExtensions, "includeFid must be enabled to support extensions")
+  assert(promotedExtensions.isEmpty || supportsExtensions,
+    "supportsExtensions must be enabled to promote extensions")
+  assert(promotedExtensions.map(ExtensionSupport.promotedExtensionFieldName).distinct.size ==
+    promotedExtensions.size, "Promoted extension URLs must map to distinct column names")
 }
 
 object EncoderConfig {
@@ -31,6 +31,8 @@ private[encoders] class EncodingContext {
 
   private val definitionCounters = new mutable.HashMap[Any, Int]()
 
+  private var selections: List[ElementSelection] = Nil
+
   private def pushDefinition(definition: BaseRuntimeElementCompositeDefinition[_]): Unit = {
     val lastCounter = definitionCounters.getOrElseUpdate(definition, 0)
     definitionCounters.update(definition, lastCounter + 1)
@@ -49,6 +51,10 @@ private[encoders] class EncodingContext {
   private def nestingLevel(definition: BaseRuntimeElementDefinition[_]): Int = {
     definitionCounters.getOrElse(definition, 0)
   }
+
+  private def selection: ElementSelection = {
+    selections.headOption.getOrElse(ElementSelection.ALL)
+  }
 }
 
 /**
@@ -104,6 +110,7 @@ object EncodingContext {
       val result = body
       // on successful exit current should be empty
       assert(CONTEXT_STORAGE.get().definitionCounters.isEmpty, "All nesting levels should be 0")
+      assert(CONTEXT_STORAGE.get().selections.isEmpty, "All selections should be removed")
       result
     } finally
       CONTEXT_STORAGE.remove()
@@ -126,4 +133,32 @@ object EncodingContext {
       currentContext().popDefinition(definition)
     }
   }
+
+  /**
+   * Obtains the selection of elements that applies to the composite currently being traversed.
+   * If no selection has been made, all elements are selected.
+   *
+   * @return the current element selection
+   */
+  def currentSelection: ElementSelection = {
+    currentContext().selection
+  }
+
+  /**
+   * Evaluates given code in the context of the given element selection.
+   *
+   * @param selection the selection of the elements to traverse
+   * @param body      the code to evaluate
+   * @tparam T the return type for the code to evaluate
+   * @return the results of the code evaluation
+   */
+  def withSelection[T](selection: ElementSelection)(body: => T): T = {
+    val context = currentContext()
+    try {
+      context.selections = selection :: context.selections
+      body
+    } finally {
+      context.selections = context.selections.tail
+    }
+  }
 }
@@ -32,4 +32,17 @@ object ExtensionSupport {
   val EXTENSIONS_FIELD_NAME: String = "_extension"
 
   val EXTENSION_ELEMENT_NAME: String = "extension"
+
+  val PROMOTED_EXTENSION_PREFIX: String = "_extension_"
+
+  /**
+   * Returns the name of the column that holds the resource-level extensions with the given URL,
+   * when that URL has been promoted.
+   *
+   * @param url the URL of the extension
+   * @return the name of the promoted extension column
+   */
+  def promotedExtensionFieldName(url: String): String = {
+    PROMOTED_EXTENSION_PREFIX + url.replaceAll("[^A-Za-z0-9]+", "_")
+  }
 }
@@ -23,7 +23,7 @@
 
 package au.csiro.pathling.encoders
 
-import au.csiro.pathling.encoders.ExtensionSupport.{EXTENSIONS_FIELD_NAME, FID_FIELD_NAME}
+import au.csiro.pathling.encoders.ExtensionSupport.{EXTENSIONS_FIELD_NAME, FID_FIELD_NAME, promotedExtensionFieldName}
 import au.csiro.pathling.encoders.datatypes.DataTypeMappings
 import au.csiro.pathling.schema.SchemaVisitor
 import au.csiro.pathling.schema.SchemaVisitor.isCollection
@@ -49,8 +49,11 @@ private[encoders] class SchemaConverterProcessor(override val fhirContext: FhirC
     definition match {
       case _: RuntimeResourceDefinition if supportsExtensions =>
         val extensionSchema = buildExtensionValue()
+        // Promoted extensions share the schema of the values in the extension container.
+        val promotedFields = promotedExtensions.map(url =>
+          StructField(promotedExtensionFieldName(url), extensionSchema))
         StructField(EXTENSIONS_FIELD_NAME,
-          MapType(IntegerType, extensionSchema, valueContainsNull = false)) :: Nil
+          MapType(IntegerType, extensionSchema, valueContainsNull = false)) +: promotedFields
       case _ => Nil
     }
   }
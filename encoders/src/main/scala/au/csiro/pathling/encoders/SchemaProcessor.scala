@@ -124,10 +124,24 @@ trait SchemaProcessor[DT, SF] extends SchemaVisitor[DT, SF] with EncoderSettings
     combineChoiceOptions(ctx.choiceChildDefinition, seq)
   }
 
+  override def visitResource(resourceCtx: ResourceCtx[DT, SF]): DT = {
+    val selection = elementSelections.getOrElse(resourceCtx.resourceDefinition.getName,
+      ElementSelection.ALL)
+    EncodingContext.withSelection(selection) {
+      super.visitResource(resourceCtx)
+    }
+  }
+
   override def visitChild(childCtx: ChildCtx[DT, SF]): Seq[SF] = {
     // Inject filtering
     if (shouldExpandChild(childCtx.compositeDefinition, childCtx.childDefinition)) {
-      super.visitChild(childCtx)
+      // Only the selected elements are traversed, along with all of their descendants.
+      EncodingContext.currentSelection.child(childCtx.childDefinition.getElementName) match {
+        case Some(selection) => EncodingContext.withSelection(selection) {
+          super.visitChild(childCtx)
+        }
+        case None => Nil
+      }
     } else {
       Nil
     }
@@ -161,7 +161,10 @@ abstract class SchemaProcessorWithTypeMappings[DT, SF]
    */
   def buildExtensionValue(): DT = {
     val extensionNode = ElementCtx.forExtension(fhirContext)
-    buildArrayValue(extensionNode.childDefinition, extensionNode.elementDefinition,
-      extensionNode.elementName)
+    // Extensions are always encoded in full, regardless of the selection of resource elements.
+    EncodingContext.withSelection(ElementSelection.ALL) {
+      buildArrayValue(extensionNode.childDefinition, extensionNode.elementDefinition,
+        extensionNode.elementName)
+    }
   }
 }
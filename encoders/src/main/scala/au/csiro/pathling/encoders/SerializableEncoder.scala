@@ -0,0 +1,148 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.encoders
+
+import org.apache.spark.sql.catalyst.encoders.ExpressionEncoder
+import org.apache.spark.sql.catalyst.expressions.objects.{UnresolvedCatalystToExternalMap, UnresolvedMapObjects}
+import org.apache.spark.sql.catalyst.expressions.{Expression, LeafExpression, NonSQLExpression, Unevaluable}
+import org.apache.spark.sql.types.{DataType, NullType}
+
+import java.util.concurrent.atomic.AtomicInteger
+import scala.reflect.ClassTag
+
+/**
+ * A form of an [[ExpressionEncoder]] that can be written using Java serialization.
+ *
+ * The unresolved object expressions used within deserializers hold the functions that build the
+ * expressions for their elements in transient fields. These are replaced with the expressions
+ * that result from applying each function to a placeholder, and the functions are rebuilt from
+ * these expressions when the encoder is restored.
+ *
+ * @param objSerializer   the serializer of the encoder
+ * @param objDeserializer the deserializer of the encoder, with functions replaced
+ * @param clsTag          the class tag of the encoder
+ */
+case class SerializableEncoder(objSerializer: Expression,
+                               objDeserializer: Expression,
+                               clsTag: ClassTag[_]) {
+
+  /**
+   * @return the encoder that this was created from
+   */
+  def toEncoder: ExpressionEncoder[_] = {
+    new ExpressionEncoder(objSerializer, SerializableEncoder.restore(objDeserializer),
+      clsTag.asInstanceOf[ClassTag[Any]])
+  }
+}
+
+object SerializableEncoder {
+
+  /**
+   * Creates a serializable form of an encoder.
+   *
+   * @param encoder the encoder
+   * @return the serializable form of the encoder
+   */
+  def of(encoder: ExpressionEncoder[_]): SerializableEncoder = {
+    SerializableEncoder(encoder.objSerializer, replace(encoder.objDeserializer, new AtomicInteger()),
+      encoder.clsTag)
+  }
+
+  private def replace(expression: Expression, ids: AtomicInteger): Expression = {
+    expression.transform {
+      case UnresolvedMapObjects(function, child, customCollectionCls) =>
+        val placeholder = FunctionPlaceholder(ids.incrementAndGet())
+        MapObjectsTemplate(replace(child, ids), placeholder,
+          replace(function(placeholder), ids), customCollectionCls)
+      case UnresolvedCatalystToExternalMap(child, keyFunction, valueFunction, collClass) =>
+        val keyPlaceholder = FunctionPlaceholder(ids.incrementAndGet())
+        val valuePlaceholder = FunctionPlaceholder(ids.incrementAndGet())
+        ExternalMapTemplate(replace(child, ids), keyPlaceholder,
+          replace(keyFunction(keyPlaceholder), ids), valuePlaceholder,
+          replace(valueFunction(valuePlaceholder), ids), collClass)
+    }
+  }
+
+  private def restore(expression: Expression): Expression = {
+    // The templates within each body are restored when the function is applied, so that they can
+    // refer to the placeholders of the enclosing functions.
+    expression.transformDown {
+      case MapObjectsTemplate(child, placeholder, body, customCollectionCls) =>
+        UnresolvedMapObjects(functionOf(placeholder, body), child, customCollectionCls)
+      case ExternalMapTemplate(child, keyPlaceholder, keyBody, valuePlaceholder, valueBody,
+      collClass) =>
+        UnresolvedCatalystToExternalMap(child, functionOf(keyPlaceholder, keyBody),
+          functionOf(valuePlaceholder, valueBody), collClass)
+    }
+  }
+
+  private def functionOf(placeholder: Expression, body: Expression): Expression => Expression = {
+    input => restore(body.transform { case p if p == placeholder => input })
+  }
+
+  /**
+   * Stands in for the argument of a function within a template.
+   */
+  case class FunctionPlaceholder(id: Int) extends LeafExpression with Unevaluable
+    with NonSQLExpression {
+
+    override def nullable: Boolean = true
+
+    override def dataType: DataType = NullType
+  }
+
+  /**
+   * Stands in for an [[UnresolvedMapObjects]] expression.
+   */
+  case class MapObjectsTemplate(child: Expression, placeholder: Expression, body: Expression,
+                                customCollectionCls: Option[Class[_]])
+    extends Expression with Unevaluable with NonSQLExpression {
+
+    override def nullable: Boolean = true
+
+    override def dataType: DataType = NullType
+
+    override def children: Seq[Expression] = child :: placeholder :: body :: Nil
+
+    override protected def withNewChildrenInternal(
+        newChildren: IndexedSeq[Expression]): Expression =
+      copy(child = newChildren(0), placeholder = newChildren(1), body = newChildren(2))
+  }
+
+  /**
+   * Stands in for an [[UnresolvedCatalystToExternalMap]] expression.
+   */
+  case class ExternalMapTemplate(child: Expression, keyPlaceholder: Expression,
+                                 keyBody: Expression, valuePlaceholder: Expression,
+                                 valueBody: Expression, collClass: Class[_])
+    extends Expression with Unevaluable with NonSQLExpression {
+
+    override def nullable: Boolean = true
+
+    override def dataType: DataType = NullType
+
+    override def children: Seq[Expression] =
+      child :: keyPlaceholder :: keyBody :: valuePlaceholder :: valueBody :: Nil
+
+    override protected def withNewChildrenInternal(
+        newChildren: IndexedSeq[Expression]): Expression =
+      copy(child = newChildren(0), keyPlaceholder = newChildren(1), keyBody = newChildren(2),
+        valuePlaceholder = newChildren(3), valueBody = newChildren(4))
+  }
+
+}
@@ -23,7 +23,7 @@
 
 package au.csiro.pathling.encoders
 
-import au.csiro.pathling.encoders.ExtensionSupport.{EXTENSIONS_FIELD_NAME, FID_FIELD_NAME}
+import au.csiro.pathling.encoders.ExtensionSupport.{EXTENSIONS_FIELD_NAME, FID_FIELD_NAME, promotedExtensionFieldName}
 import au.csiro.pathling.encoders.SerializerBuilderProcessor.{dataTypeToUtf8Expr, getChildExpression, objectTypeFor}
 import au.csiro.pathling.encoders.datatypes.DataTypeMappings
 import au.csiro.pathling.schema.SchemaVisitor.isCollection
@@ -107,13 +107,25 @@ private[encoders] class SerializerBuilderProcessor(expression: Expression,
           obj => this.withExpression(obj).buildExtensionValue(),
           valueNullable = false
         )
-        (EXTENSIONS_FIELD_NAME, mappingExpression) :: Nil
+        // The promoted extensions are the same objects as those in the extension container, so
+        // they have the same _fid values and any nested extensions can still be resolved.
+        val promotedFields = promotedExtensions.map { url =>
+          val promotedExtensionsExpression = Catalyst.staticInvoke(
+            classOf[SerializerBuilderProcessor],
+            ObjectType(classOf[java.util.List[Extension]]),
+            "promotedExtensions",
+            expression :: Literal(url) :: Nil
+          )
+          (promotedExtensionFieldName(url),
+            this.withExpression(promotedExtensionsExpression).buildExtensionValue())
+        }
+        (EXTENSIONS_FIELD_NAME, mappingExpression) +: promotedFields
       case _ => Nil
     }
     // append _fid serializer
     (FID_FIELD_NAME, Catalyst.staticInvoke(
       classOf[System], IntegerType, "identityHashCode",
-      expression :: Nil)) :: maybeExtensionValueField
+      expression :: Nil)) +: maybeExtensionValueField
   }
 
   private def createSyntheticSerializers(value: CompositeCtx[Expression, (String, Expression)]): Seq[(String, Expression)] = {
@@ -317,6 +329,18 @@ private[encoders] object SerializerBuilderProcessor {
     flattenBase(composite).toMap
   }
 
+  def promotedExtensions(resource: Base, url: UTF8String): java.util.List[Extension] = {
+    val matching = resource match {
+      case hasExt: IBaseHasExtensions if hasExt.hasExtension =>
+        val urlString = url.toString
+        hasExt.getExtension.asInstanceOf[java.util.List[Extension]]
+          .filter(extension => urlString == extension.getUrl)
+          .toList
+      case _ => Nil
+    }
+    if (matching.isEmpty) null else java.util.Arrays.asList(matching: _*)
+  }
+
 }
 
 /**
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.encoders;
+
+import static au.csiro.pathling.encoders.SchemaConverterTest.OPEN_TYPES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ca.uhn.fhir.context.FhirVersionEnum;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.spark.sql.catalyst.InternalRow;
+import org.apache.spark.sql.catalyst.encoders.ExpressionEncoder;
+import org.apache.spark.sql.types.StructType;
+import org.hl7.fhir.r4.model.Condition;
+import org.hl7.fhir.r4.model.ElementDefinition;
+import org.hl7.fhir.r4.model.StructureDefinition;
+import org.hl7.fhir.r4.model.StructureDefinition.StructureDefinitionKind;
+import org.junit.jupiter.api.Test;
+
+class ElementSelectionTest {
+
+  private static FhirEncoders newEncoders(final Map<String, Set<String>> elements) {
+    return new FhirEncoders(FhirEncoders.contextFor(FhirVersionEnum.R4),
+        FhirEncoders.mappingsFor(FhirVersionEnum.R4), 0, OPEN_TYPES, true, elements);
+  }
+
+  @Test
+  void encodesOnlySelectedElements() {
+    final ExpressionEncoder<Condition> encoder = newEncoders(
+        Map.of("Condition", Set.of("code.coding", "Condition.onset[x]"))).of(Condition.class);
+    final List<String> fields = Arrays.asList(encoder.schema().fieldNames());
+
+    assertTrue(fields.containsAll(List.of("id", "code", "onsetDateTime", "onsetRange",
+        ExtensionSupport.FID_FIELD_NAME(), ExtensionSupport.EXTENSIONS_FIELD_NAME())));
+    assertFalse(fields.contains("subject"));
+    assertFalse(fields.contains("severity"));
+
+    // Only the selected children of a partially selected element are encoded.
+    final List<String> codeFields = Arrays.asList(
+        ((StructType) encoder.schema().apply("code").dataType()).fieldNames());
+    assertTrue(codeFields.contains("coding"));
+    assertFalse(codeFields.contains("text"));
+  }
+
+  @Test
+  void resourceTypesWithoutSelectionAreEncodedInFull() {
+    final FhirEncoders encoders = newEncoders(Map.of("Patient", Set.of("gender")));
+    assertEquals(newEncoders(Map.of()).of(Condition.class).schema(),
+        encoders.of(Condition.class).schema());
+  }
+
+  @Test
+  void recordsSelectivelyEncodedResourceTypes() {
+    newEncoders(Map.of("MedicationDispense", Set.of("status")));
+    assertTrue(FhirEncoders.isSelectivelyEncoded("MedicationDispense"));
+    assertFalse(FhirEncoders.isSelectivelyEncoded("ImmunizationRecommendation"));
+  }
+
+  @Test
+  void roundTripsSelectedElementsWithExtensions() {
+    final Condition condition = TestData.newConditionWithExtensions();
+
+    final ExpressionEncoder<Condition> fullSelection = newEncoders(Map.of("Condition",
+        Set.of("meta", "onset[x]", "severity", "identifier", "stage"))).of(Condition.class);
+    LightweightFhirEncodersTest.assertSerDeIsIdentity(fullSelection, condition);
+
+    final ExpressionEncoder<Condition> partialSelection = EncoderUtils.defaultResolveAndBind(
+        newEncoders(Map.of("Condition", Set.of("identifier"))).of(Condition.class));
+    final InternalRow row = partialSelection.createSerializer().apply(condition);
+    final Condition decoded = partialSelection.createDeserializer().apply(row);
+
+    assertEquals(condition.getIdElement().getIdPart(), decoded.getIdElement().getIdPart());
+    assertFalse(decoded.hasSeverity());
+    assertFalse(decoded.hasStage());
+    assertEquals(3, decoded.getExtension().size());
+    assertEquals(2, decoded.getIdentifierFirstRep().getExtension().size());
+  }
+
+  @Test
+  void derivesElementsFromProfiles() {
+    final StructureDefinition profile = new StructureDefinition();
+    profile.setKind(StructureDefinitionKind.RESOURCE);
+    profile.setType("Observation");
+    profile.getDifferential().addElement(new ElementDefinition().setPath("Observation"));
+    profile.getDifferential().addElement(new ElementDefinition().setPath("Observation.code"));
+    profile.getDifferential().addElement(
+        new ElementDefinition().setPath("Observation.value[x]"));
+    profile.getSnapshot().addElement(
+        new ElementDefinition().setPath("Observation.status").setMustSupport(true));
+    profile.getSnapshot().addElement(new ElementDefinition().setPath("Observation.note"));
+
+    final Map<String, Set<String>> elements = ProfileElements.fromProfiles(List.of(profile));
+    assertEquals(Map.of("Observation", Set.of("code", "value[x]", "status")), elements);
+  }
+
+}
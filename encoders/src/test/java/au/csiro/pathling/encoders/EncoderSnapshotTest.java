@@ -0,0 +1,140 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.encoders;
+
+import static au.csiro.pathling.encoders.SchemaConverterTest.OPEN_TYPES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ca.uhn.fhir.context.FhirVersionEnum;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+import javax.management.BadAttributeValueExpException;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.spark.sql.catalyst.encoders.ExpressionEncoder;
+import org.hl7.fhir.r4.model.Condition;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EncoderSnapshotTest {
+
+  @TempDir
+  Path tempDir;
+
+  private static FhirEncoders newEncoders(final int maxNestingLevel,
+      final boolean enableExtensions) {
+    return new FhirEncoders(FhirEncoders.contextFor(FhirVersionEnum.R4),
+        FhirEncoders.mappingsFor(FhirVersionEnum.R4), maxNestingLevel, OPEN_TYPES,
+        enableExtensions);
+  }
+
+  @Test
+  void warmUpBuildsAllSupportedEncoders() {
+    final FhirEncoders encoders = newEncoders(0, false);
+    final int built = encoders.warmUp();
+
+    final Set<String> resourceTypes = encoders.getContext().getResourceTypes();
+    assertEquals(resourceTypes.size() - EncoderBuilder.UNSUPPORTED_RESOURCES().size(), built);
+    assertEquals(built, encoders.getEncoderCache().size());
+    // Encoders that have already been built are not built again.
+    assertEquals(0, encoders.warmUp());
+
+    // Encoders built in parallel are the same as those built on demand.
+    final FhirEncoders reference = newEncoders(0, false);
+    assertEquals(reference.of(Patient.class).schema(), encoders.of(Patient.class).schema());
+  }
+
+  @Test
+  void savesAndLoadsEncoders() throws IOException {
+    final String directory = tempDir.toString();
+    final FhirEncoders source = newEncoders(1, true);
+    source.of(Patient.class);
+    source.of(Condition.class);
+    assertEquals(2, EncoderSnapshot.save(source, directory, new Configuration()));
+
+    final FhirEncoders target = newEncoders(1, true);
+    assertEquals(2, EncoderSnapshot.load(target, directory, new Configuration()));
+    assertTrue(target.getEncoderCache().containsKey("Patient"));
+    final ExpressionEncoder<Condition> loaded = target.of(Condition.class);
+    assertEquals(source.of(Condition.class).schema(), loaded.schema());
+    LightweightFhirEncodersTest.assertSerDeIsIdentity(loaded, TestData.newConditionWithExtensions());
+
+    // A snapshot is not loaded into encoders with a different configuration.
+    assertEquals(0, EncoderSnapshot.load(newEncoders(2, true), directory, new Configuration()));
+  }
+
+  @Test
+  void warmUpSavesSnapshotForLaterUse() throws IOException {
+    final String directory = tempDir.resolve("snapshots").toString();
+    EncoderSnapshot.warmUp(newEncoders(0, false), directory, new Configuration());
+
+    final FhirEncoders target = newEncoders(0, false);
+    final int loaded = EncoderSnapshot.load(target, directory, new Configuration());
+    assertEquals(target.getContext().getResourceTypes().size()
+        - EncoderBuilder.UNSUPPORTED_RESOURCES().size(), loaded);
+    assertEquals(0, target.warmUp());
+  }
+
+  @Test
+  void rejectsSnapshotWithDifferentDescriptor() throws IOException {
+    final FhirEncoders source = newEncoders(0, false);
+    source.of(Patient.class);
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    EncoderSnapshot.write("one", source.getEncoderCache(), output);
+
+    final IOException error = assertThrows(IOException.class,
+        () -> EncoderSnapshot.read("two", new ByteArrayInputStream(output.toByteArray()),
+            newEncoders(0, false).getEncoderCache()));
+    assertEquals("Encoder snapshot does not match configuration: one", error.getMessage());
+  }
+
+  @Test
+  void rejectsSnapshotContainingDisallowedClass() throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (final ObjectOutputStream objectOutput = new ObjectOutputStream(bytes)) {
+      objectOutput.writeObject(new BadAttributeValueExpException("value"));
+    }
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (final DataOutputStream snapshot = new DataOutputStream(new GZIPOutputStream(output))) {
+      snapshot.writeInt(EncoderSnapshot.MAGIC);
+      snapshot.writeByte(EncoderSnapshot.FORMAT_VERSION);
+      snapshot.writeUTF("descriptor");
+      snapshot.writeBoolean(true);
+      snapshot.writeUTF("Patient");
+      snapshot.writeInt(bytes.size());
+      bytes.writeTo(snapshot);
+      snapshot.writeBoolean(false);
+    }
+
+    final FhirEncoders target = newEncoders(0, false);
+    assertThrows(InvalidClassException.class,
+        () -> EncoderSnapshot.read("descriptor", new ByteArrayInputStream(output.toByteArray()),
+            target.getEncoderCache()));
+    assertTrue(target.getEncoderCache().isEmpty());
+  }
+
+}
@@ -39,6 +39,7 @@ import java.nio.file.Path;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -546,6 +547,25 @@ public class FhirEncodersTest {
         ENCODERS_L0.of(Patient.class));
   }
 
+  @Test
+  public void testPromotedExtensionsIndependentOfBuilderOrder() {
+    final Set<String> promoted = Set.of("uuid:ext1");
+    final FhirEncoders promotedFirst = FhirEncoders.forR4()
+        .withPromotedExtensions(promoted)
+        .withExtensionsEnabled(true)
+        .getOrCreate();
+    final FhirEncoders enabledFirst = FhirEncoders.forR4()
+        .withExtensionsEnabled(true)
+        .withPromotedExtensions(promoted)
+        .getOrCreate();
+
+    assertSame(promotedFirst, enabledFirst);
+    assertEquals(promoted, promotedFirst.getKey().getPromotedExtensions());
+
+    // Promoted extensions are ignored when extensions are disabled.
+    assertSame(ENCODERS_L0, FhirEncoders.forR4().withPromotedExtensions(promoted).getOrCreate());
+  }
+
   @Test
   public void testPrimitiveClassDecoding() {
     assertEquals(encounter.getClass_().getCode(),
@@ -37,6 +37,7 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.catalyst.InternalRow;
@@ -295,6 +296,45 @@ public class LightweightFhirEncodersTest implements JsonMethods {
     assertStringExtension("uuid:ext12", "ext12", (Row) stageTypeExtensions.apply(0));
   }
 
+  @Test
+  public void testEncodesPromotedExtensions() {
+    final ExpressionEncoder<Condition> encoder = FhirEncoders.forR4()
+        .withOpenTypes(OPEN_TYPES)
+        .withExtensionsEnabled(true)
+        .withPromotedExtensions(Set.of("uuid:ext4", "uuid:ext1", "uuid:missing"))
+        .getOrCreate()
+        .of(Condition.class);
+    final Condition conditionWithExtension = TestData.newConditionWithExtensions();
+
+    // The promoted extensions are not used when decoding.
+    assertSerDeIsIdentity(encoder, conditionWithExtension);
+
+    final ExpressionEncoder<Condition> resolvedEncoder = EncoderUtils
+        .defaultResolveAndBind(encoder);
+    final InternalRow serializedRow = resolvedEncoder.createSerializer()
+        .apply(conditionWithExtension);
+    final ExpressionEncoder<Row> rowEncoder = EncoderUtils
+        .defaultResolveAndBind(ExpressionEncoder.apply(encoder.schema()));
+    final Row conditionRow = rowEncoder.createDeserializer().apply(serializedRow);
+    final Map<Object, Object> extensionMap = conditionRow
+        .getJavaMap(conditionRow.fieldIndex("_extension"));
+
+    final WrappedArray<?> ext1 = (WrappedArray<?>) conditionRow.get(
+        conditionRow.fieldIndex(ExtensionSupport.promotedExtensionFieldName("uuid:ext1")));
+    assertEquals(1, ext1.length());
+    assertStringExtension("uuid:ext1", "ext1", (Row) ext1.apply(0));
+
+    // Nested extensions of a promoted extension are still resolved through the container.
+    final WrappedArray<?> ext4 = (WrappedArray<?>) conditionRow.get(
+        conditionRow.fieldIndex(ExtensionSupport.promotedExtensionFieldName("uuid:ext4")));
+    assertEquals(1, ext4.length());
+    assertSingletNestedExtension("uuid:ext4", (Row) ext4.apply(0), extensionMap,
+        ext -> assertStringExtension("uuid:nested", "nested", ext));
+
+    assertTrue(conditionRow.isNullAt(
+        conditionRow.fieldIndex(ExtensionSupport.promotedExtensionFieldName("uuid:missing"))));
+  }
+
   @Test
   public void testQuantityCanonicalization() {
     final ExpressionEncoder<Observation> encoder = fhirEncoders.of(Observation.class);
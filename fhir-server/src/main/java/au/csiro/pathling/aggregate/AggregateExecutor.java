@@ -22,14 +22,20 @@ import au.csiro.pathling.fhirpath.FhirPath;
 import au.csiro.pathling.fhirpath.Materializable;
 import au.csiro.pathling.io.Database;
 import au.csiro.pathling.io.source.DataSource;
+import au.csiro.pathling.query.QueryFingerprint;
+import au.csiro.pathling.query.QueryMetrics;
+import au.csiro.pathling.query.SlowQueryLog;
 import au.csiro.pathling.terminology.TerminologyServiceFactory;
 import ca.uhn.fhir.context.FhirContext;
 import jakarta.annotation.Nonnull;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.spark.sql.Row;
@@ -49,6 +55,9 @@ import org.springframework.stereotype.Component;
 @Slf4j
 public class AggregateExecutor extends AggregateQueryExecutor {
 
+  @Nonnull
+  private final Optional<SlowQueryLog> slowQueryLog;
+
   /**
    * @param configuration A {@link QueryConfiguration} object to control the behaviour of the
    * executor
@@ -56,13 +65,16 @@ public class AggregateExecutor extends AggregateQueryExecutor {
    * @param sparkSession A {@link SparkSession} for resolving Spark queries
    * @param dataSource A {@link Database} for retrieving resources
    * @param terminologyServiceFactory A {@link TerminologyServiceFactory} for resolving terminology
+   * @param slowQueryLog A {@link SlowQueryLog} for recording slow queries, if enabled
    */
   public AggregateExecutor(@Nonnull final QueryConfiguration configuration,
       @Nonnull final FhirContext fhirContext, @Nonnull final SparkSession sparkSession,
       @Nonnull final DataSource dataSource,
-      @Nonnull final Optional<TerminologyServiceFactory> terminologyServiceFactory) {
+      @Nonnull final Optional<TerminologyServiceFactory> terminologyServiceFactory,
+      @Nonnull final Optional<SlowQueryLog> slowQueryLog) {
     super(configuration, fhirContext, sparkSession, dataSource,
         terminologyServiceFactory);
+    this.slowQueryLog = slowQueryLog;
   }
 
   /**
@@ -75,11 +87,11 @@ public class AggregateExecutor extends AggregateQueryExecutor {
         query);
 
     // Translate the result into a response object to be passed back to the user.
-    return buildResponse(resultWithExpressions);
+    return buildResponse(query, resultWithExpressions);
   }
 
   @Nonnull
-  private AggregateResponse buildResponse(
+  private AggregateResponse buildResponse(@Nonnull final AggregateRequest query,
       @Nonnull final ResultWithExpressions resultWithExpressions) {
     // If explain queries is on, print out a query plan to the log.
     if (getConfiguration().getExplainQueries()) {
@@ -88,7 +100,13 @@ public class AggregateExecutor extends AggregateQueryExecutor {
     }
 
     // Execute the query.
-    final List<Row> rows = resultWithExpressions.getDataset().collectAsList();
+    final Supplier<List<Row>> execution = () -> QueryMetrics.timeExecution("aggregate",
+        () -> resultWithExpressions.getDataset().collectAsList());
+    final List<Row> rows = slowQueryLog
+        .map(queryLog -> queryLog.record(fingerprint(query), resultWithExpressions.getDataset(),
+            execution))
+        .orElseGet(execution);
+    QueryMetrics.recordRows("aggregate", rows.size());
 
     // Map each of the rows in the result to a grouping in the response object.
     final List<AggregateResponse.Grouping> groupings = rows.stream()
@@ -100,6 +118,15 @@ public class AggregateExecutor extends AggregateQueryExecutor {
     return new AggregateResponse(groupings);
   }
 
+  @Nonnull
+  private static QueryFingerprint fingerprint(@Nonnull final AggregateRequest query) {
+    final Map<String, List<String>> expressions = new LinkedHashMap<>();
+    expressions.put("aggregations", query.getAggregations());
+    expressions.put("groupings", query.getGroupings());
+    return QueryFingerprint.of("aggregate", query.getSubjectResource().toCode(), expressions,
+        query.getFilters());
+  }
+
   @Nonnull
   @SuppressWarnings("unchecked")
   private Function<Row, AggregateResponse.Grouping> mapRowToGrouping(
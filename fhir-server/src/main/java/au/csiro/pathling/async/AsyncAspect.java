@@ -22,8 +22,11 @@ import static au.csiro.pathling.security.SecurityAspect.getCurrentUserId;
 import au.csiro.pathling.errors.DiagnosticContext;
 import au.csiro.pathling.errors.ErrorHandlingInterceptor;
 import au.csiro.pathling.errors.ErrorReportingInterceptor;
+import au.csiro.pathling.query.SlowQueryLog;
+import au.csiro.pathling.utilities.Tracing;
 import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
 import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import io.opentelemetry.context.Context;
 import jakarta.annotation.Nonnull;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -89,22 +92,28 @@ public class AsyncAspect {
   @Nonnull
   private final SparkSession spark;
 
+  @Nonnull
+  private final Optional<SlowQueryLog> slowQueryLog;
+
   /**
    * @param executor used to run asynchronous jobs in the background
    * @param requestTagFactory used to create {@link RequestTag} instances
    * @param jobRegistry the {@link JobRegistry} used to keep track of running jobs
    * @param stageMap the {@link StageMap} used to map stages to job IDs
    * @param spark used for updating the Spark Context with job identity
+   * @param slowQueryLog used to record the queries executed by the job along with the rest of the
+   * request, if enabled
    */
   public AsyncAspect(@Nonnull final ThreadPoolTaskExecutor executor,
       @Nonnull final RequestTagFactory requestTagFactory,
       @Nonnull final JobRegistry jobRegistry, @Nonnull final StageMap stageMap,
-      @Nonnull final SparkSession spark) {
+      @Nonnull final SparkSession spark, @Nonnull final Optional<SlowQueryLog> slowQueryLog) {
     this.executor = executor;
     this.requestTagFactory = requestTagFactory;
     this.jobRegistry = jobRegistry;
     this.stageMap = stageMap;
     this.spark = spark;
+    this.slowQueryLog = slowQueryLog;
   }
 
   @Around("@annotation(asyncSupported)")
@@ -133,11 +142,18 @@ public class AsyncAspect {
     final Job job = jobRegistry.getOrCreate(requestTag, jobId -> {
       final DiagnosticContext diagnosticContext = DiagnosticContext.fromSentryScope();
       final String operation = requestDetails.getOperation().replaceFirst("\\$", "");
-      final Future<IBaseResource> result = executor.submit(() -> {
+      // Carry the trace context of the request over to the thread that runs the job.
+      final Context traceContext = Context.current();
+      // The queries executed by the job are recorded within the slow query log as part of the
+      // request, so the request is held open until the job has completed.
+      final String requestId = requestDetails.getRequestId();
+      slowQueryLog.ifPresent(l -> l.startRequest(requestId));
+      final Future<IBaseResource> result = executor.submit(traceContext.wrap(() -> {
         try {
           diagnosticContext.configureScope(true);
           SecurityContextHolder.getContext().setAuthentication(authentication);
           spark.sparkContext().setJobGroup(jobId, jobId, true);
+          Tracing.propagateToSpark(spark.sparkContext());
           return (IBaseResource) joinPoint.proceed();
         } catch (final Throwable e) {
           // Unwrap the actual exception from the aspect proxy wrapper, if needed.
@@ -157,8 +173,9 @@ public class AsyncAspect {
           throw new RuntimeException("Problem processing request asynchronously", actualEx);
         } finally {
           cleanUpAfterJob(spark, jobId);
+          slowQueryLog.ifPresent(l -> l.completeRequest(requestId));
         }
-      });
+      }));
       final Optional<String> ownerId = getCurrentUserId(authentication);
       return new Job(jobId, operation, result, ownerId);
     });
@@ -188,6 +205,14 @@ public class AsyncAspect {
 
   private void cleanUpAfterJob(@Nonnull final SparkSession spark, @Nonnull final String requestId) {
     spark.sparkContext().clearJobGroup();
+    Tracing.clearFromSpark(spark.sparkContext());
+    // Record the resources consumed by the job.
+    final Job job = jobRegistry.get(requestId);
+    if (job != null) {
+      job.finish();
+      final JobAccounting accounting = job.getAccounting();
+      log.info("Job accounting: {}", accounting);
+    }
     // Clean up the stage mappings.
     final List<Integer> keys = stageMap.entrySet().stream()
         .filter(e -> requestId.equals(e.getValue()))
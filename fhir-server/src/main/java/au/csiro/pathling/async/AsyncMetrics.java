@@ -0,0 +1,59 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.async;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.Nonnull;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registers metrics that describe the state of the asynchronous job queue.
+ *
+ * @author John Grimes
+ */
+@Component
+@Profile("server")
+@ConditionalOnProperty(prefix = "pathling", name = "async.enabled", havingValue = "true")
+public class AsyncMetrics implements MeterBinder {
+
+  @Nonnull
+  private final ThreadPoolTaskExecutor executor;
+
+  /**
+   * @param executor the executor used to run asynchronous jobs
+   */
+  public AsyncMetrics(@Nonnull final ThreadPoolTaskExecutor executor) {
+    this.executor = executor;
+  }
+
+  @Override
+  public void bindTo(@Nonnull final MeterRegistry registry) {
+    Gauge.builder("pathling.async.queued", executor,
+            e -> e.getThreadPoolExecutor().getQueue().size())
+        .description("Number of asynchronous jobs waiting to be executed")
+        .register(registry);
+    Gauge.builder("pathling.async.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+        .description("Number of asynchronous jobs currently executing")
+        .register(registry);
+  }
+
+}
@@ -18,6 +18,7 @@
 package au.csiro.pathling.async;
 
 import jakarta.annotation.Nonnull;
+import java.time.Duration;
 import java.util.Optional;
 import java.util.concurrent.Future;
 import lombok.Getter;
@@ -53,10 +54,34 @@ public class Job {
   @Nonnull
   private final Optional<String> ownerId;
 
+  private final long startTime;
+
   private int totalStages;
 
   private int completedStages;
 
+  private long totalTasks;
+
+  private long completedTasks;
+
+  private long inputBytes;
+
+  private long shuffleReadBytes;
+
+  private long shuffleWriteBytes;
+
+  private long memoryBytesSpilled;
+
+  private long diskBytesSpilled;
+
+  private long executorCpuTime;
+
+  @Getter(lombok.AccessLevel.NONE)
+  private double progress;
+
+  @Getter(lombok.AccessLevel.NONE)
+  private long finishTime;
+
   /**
    * @param operation the operation that initiated the job, used for enforcing authorization
    * @param result the {@link Future} result
@@ -69,23 +94,119 @@ public class Job {
     this.operation = operation;
     this.result = result;
     this.ownerId = ownerId;
+    this.startTime = System.currentTimeMillis();
   }
 
   /**
    * Increment the number of total stages within the job, used to calculate progress.
    */
-  public void incrementTotalStages() {
+  public synchronized void incrementTotalStages() {
     totalStages++;
   }
 
   /**
    * Increment the number of completed stages within the job, used to calculate progress.
    */
-  public void incrementCompletedStages() {
+  public synchronized void incrementCompletedStages() {
+    final long outstanding = totalStages - completedStages;
     completedStages++;
+    // Stages are only used to measure progress when there is no task information.
+    if (totalTasks == 0) {
+      advanceProgress(outstanding);
+    }
+  }
+
+  /**
+   * Add to the number of total tasks within the job, used to calculate progress.
+   *
+   * @param numTasks the number of tasks in a newly submitted stage
+   */
+  public synchronized void addTotalTasks(final int numTasks) {
+    totalTasks += numTasks;
+  }
+
+  /**
+   * Record the completion of a task within the job, along with the resources that it consumed.
+   *
+   * @param successful whether the task completed successfully, only successful tasks count
+   * towards progress
+   * @param metrics the resources consumed by the task
+   */
+  public synchronized void recordTask(final boolean successful,
+      @Nonnull final JobAccounting.TaskUsage metrics) {
+    if (successful) {
+      final long outstanding = totalTasks - completedTasks;
+      completedTasks++;
+      advanceProgress(outstanding);
+    }
+    inputBytes += metrics.getInputBytes();
+    shuffleReadBytes += metrics.getShuffleReadBytes();
+    shuffleWriteBytes += metrics.getShuffleWriteBytes();
+    memoryBytesSpilled += metrics.getMemoryBytesSpilled();
+    diskBytesSpilled += metrics.getDiskBytesSpilled();
+    executorCpuTime += metrics.getExecutorCpuTime();
   }
 
-  public int getProgressPercentage() {
-    return (completedStages * 100) / totalStages;
+  /**
+   * Gets the progress of the job as a percentage. This is based upon the number of completed tasks
+   * where task information is available, and falls back to the number of completed stages.
+   * <p>
+   * The total amount of work is not known in advance, as the stages of a job are submitted as it
+   * runs. Each completed unit of work therefore moves the progress towards 100% in proportion to
+   * the work that is outstanding, plus one unit for the work that has not yet been submitted. This
+   * means that the progress never decreases, and remains below 100% until the job is complete, even
+   * when a small stage is followed by a large one.
+   *
+   * @return the progress percentage, between 0 and 100
+   */
+  public synchronized int getProgressPercentage() {
+    return (int) Math.min(100, Math.floor(progress * 100));
+  }
+
+  private void advanceProgress(final long outstanding) {
+    progress += (1.0 - progress) / (Math.max(outstanding, 1) + 1);
+  }
+
+  /**
+   * Estimates the time remaining until the job completes, based upon the elapsed time and the
+   * progress.
+   *
+   * @return the estimated time remaining, or empty if there is not yet enough information to make
+   * an estimate
+   */
+  @Nonnull
+  public synchronized Optional<Duration> getEstimatedTimeRemaining() {
+    final int progress = getProgressPercentage();
+    if (progress <= 0 || progress >= 100) {
+      return Optional.empty();
+    }
+    final long elapsed = System.currentTimeMillis() - startTime;
+    final long remaining = elapsed * (100 - progress) / progress;
+    return Optional.of(Duration.ofMillis(remaining));
   }
+
+  /**
+   * Marks the job as finished, so that the elapsed time within its accounting record no longer
+   * increases.
+   */
+  public synchronized void finish() {
+    if (finishTime == 0) {
+      finishTime = System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * @return a snapshot of the resources consumed by this job so far, or in total if it has finished
+   */
+  @Nonnull
+  public synchronized JobAccounting getAccounting() {
+    final long endTime = finishTime == 0
+                         ? System.currentTimeMillis()
+                         : finishTime;
+    return new JobAccounting(id, operation, ownerId.orElse(null), startTime,
+        endTime - startTime, completedStages, completedTasks,
+        new JobAccounting.TaskUsage(inputBytes, shuffleReadBytes, shuffleWriteBytes,
+            memoryBytesSpilled, diskBytesSpilled, executorCpuTime));
+  }
+
 }
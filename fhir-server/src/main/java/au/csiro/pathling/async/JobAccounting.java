@@ -0,0 +1,97 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.async;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import lombok.Value;
+
+/**
+ * A record of the resources consumed by an asynchronous job, used for accounting and for
+ * identifying expensive queries.
+ *
+ * @author John Grimes
+ */
+@Value
+public class JobAccounting {
+
+  /**
+   * The resources consumed by one or more Spark tasks.
+   */
+  @Value
+  public static class TaskUsage {
+
+    /**
+     * The number of bytes read from input sources.
+     */
+    long inputBytes;
+
+    /**
+     * The number of bytes read during shuffles.
+     */
+    long shuffleReadBytes;
+
+    /**
+     * The number of bytes written during shuffles.
+     */
+    long shuffleWriteBytes;
+
+    /**
+     * The number of in-memory bytes spilled.
+     */
+    long memoryBytesSpilled;
+
+    /**
+     * The number of bytes spilled to disk.
+     */
+    long diskBytesSpilled;
+
+    /**
+     * The CPU time used by executors, in nanoseconds.
+     */
+    long executorCpuTime;
+
+  }
+
+  @Nonnull
+  String jobId;
+
+  @Nonnull
+  String operation;
+
+  @Nullable
+  String ownerId;
+
+  /**
+   * The time at which the job was started, in milliseconds since the epoch.
+   */
+  long startTime;
+
+  /**
+   * The elapsed wall time of the job, in milliseconds.
+   */
+  long elapsedTime;
+
+  int completedStages;
+
+  long completedTasks;
+
+  @Nonnull
+  TaskUsage usage;
+
+}
@@ -23,6 +23,7 @@ import static au.csiro.pathling.security.SecurityAspect.checkHasAuthority;
 import static au.csiro.pathling.security.SecurityAspect.getCurrentUserId;
 import static java.util.Objects.requireNonNull;
 
+import au.csiro.pathling.async.JobAccounting.TaskUsage;
 import au.csiro.pathling.config.ServerConfiguration;
 import au.csiro.pathling.errors.AccessDeniedError;
 import au.csiro.pathling.errors.ErrorHandlingInterceptor;
@@ -37,6 +38,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import lombok.extern.slf4j.Slf4j;
 import org.hl7.fhir.instance.model.api.IBaseResource;
@@ -65,6 +67,8 @@ public class JobProvider {
   private static final Pattern ID_PATTERN = Pattern.compile(
       "^[0-9a-f]{8}-[0-9a-f]{4}-[1-5][0-9a-f]{3}-[89ab][0-9a-f]{3}-[0-9a-f]{12}$");
   private static final String PROGRESS_HEADER = "X-Progress";
+  private static final String ETA_HEADER = "X-Progress-ETA";
+  private static final String USAGE_HEADER = "X-Resource-Usage";
 
   @Nonnull
   private final ServerConfiguration configuration;
@@ -120,7 +124,11 @@ public class JobProvider {
     }
 
     if (job.getResult().isDone()) {
-      // If the job is done, we return the Parameters resource.
+      // If the job is done, we return the Parameters resource along with the resources that the job
+      // consumed.
+      if (response != null) {
+        response.setHeader(USAGE_HEADER, formatUsage(job.getAccounting()));
+      }
       try {
         return job.getResult().get();
       } catch (final InterruptedException e) {
@@ -139,17 +147,35 @@ public class JobProvider {
       }
       // Add progress information to the response.
       if (job.getTotalStages() > 0) {
-        final int progress = job.getProgressPercentage();
-        if (progress != 100) {
-          // We don't bother showing 100%, this usually means that there are outstanding stages
-          // which have not yet been submitted.
-          response.setHeader(PROGRESS_HEADER, progress + "%");
-        }
+        // The progress stays below 100% until the job is complete.
+        response.setHeader(PROGRESS_HEADER, job.getProgressPercentage() + "%");
+        // The estimated time remaining is expressed in whole seconds.
+        job.getEstimatedTimeRemaining().ifPresent(
+            eta -> response.setHeader(ETA_HEADER, String.valueOf(eta.toSeconds())));
       }
+      response.setHeader(USAGE_HEADER, formatUsage(job.getAccounting()));
       throw new ProcessingNotCompletedException("Processing", buildProcessingOutcome());
     }
   }
 
+  /**
+   * Formats the resources consumed by a job as a list of key-value pairs. Times are expressed in
+   * milliseconds and sizes in bytes.
+   */
+  @Nonnull
+  static String formatUsage(@Nonnull final JobAccounting accounting) {
+    final TaskUsage usage = accounting.getUsage();
+    return "elapsed=" + accounting.getElapsedTime()
+        + "; stages=" + accounting.getCompletedStages()
+        + "; tasks=" + accounting.getCompletedTasks()
+        + "; cpu=" + TimeUnit.NANOSECONDS.toMillis(usage.getExecutorCpuTime())
+        + "; input=" + usage.getInputBytes()
+        + "; shuffle-read=" + usage.getShuffleReadBytes()
+        + "; shuffle-write=" + usage.getShuffleWriteBytes()
+        + "; spill-memory=" + usage.getMemoryBytesSpilled()
+        + "; spill-disk=" + usage.getDiskBytesSpilled();
+  }
+
   @Nonnull
   private static OperationOutcome buildProcessingOutcome() {
     final OperationOutcome opOutcome = new OperationOutcome();
@@ -22,8 +22,10 @@ import static java.util.Objects.requireNonNull;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.spark.executor.TaskMetrics;
 import org.apache.spark.scheduler.SparkListenerStageCompleted;
 import org.apache.spark.scheduler.SparkListenerStageSubmitted;
+import org.apache.spark.scheduler.SparkListenerTaskEnd;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
@@ -79,7 +81,37 @@ public class SparkListener extends org.apache.spark.scheduler.SparkListener {
     if (job != null) {
       stageMap.put(stageSubmitted.stageInfo().stageId(), jobGroupId);
       job.incrementTotalStages();
+      job.addTotalTasks(stageSubmitted.stageInfo().numTasks());
     }
   }
 
+  @Override
+  public void onTaskEnd(final SparkListenerTaskEnd taskEnd) {
+    requireNonNull(taskEnd);
+    @Nullable final String jobGroupId = stageMap.get(taskEnd.stageId());
+    if (jobGroupId == null) {
+      return;
+    }
+    @Nullable final Job job = jobRegistry.get(jobGroupId);
+    if (job != null) {
+      final boolean successful = taskEnd.taskInfo() != null && taskEnd.taskInfo().successful();
+      job.recordTask(successful, toTaskUsage(taskEnd.taskMetrics()));
+    }
+  }
+
+  @Nonnull
+  private static JobAccounting.TaskUsage toTaskUsage(@Nullable final TaskMetrics metrics) {
+    if (metrics == null) {
+      // Metrics may be missing for failed tasks.
+      return new JobAccounting.TaskUsage(0, 0, 0, 0, 0, 0);
+    }
+    return new JobAccounting.TaskUsage(
+        metrics.inputMetrics().bytesRead(),
+        metrics.shuffleReadMetrics().totalBytesRead(),
+        metrics.shuffleWriteMetrics().bytesWritten(),
+        metrics.memoryBytesSpilled(),
+        metrics.diskBytesSpilled(),
+        metrics.executorCpuTime());
+  }
+
 }
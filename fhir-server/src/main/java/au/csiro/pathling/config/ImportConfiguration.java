@@ -17,6 +17,7 @@
 
 package au.csiro.pathling.config;
 
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import java.util.List;
 import lombok.Data;
@@ -33,4 +34,12 @@ public class ImportConfiguration {
   @NotNull
   private List<String> allowableSources;
 
+  /**
+   * The maximum number of sources that are imported at the same time. Sources that contain the
+   * same resource type are always imported one after another.
+   */
+  @NotNull
+  @Min(1)
+  private Integer parallelism;
+
 }
@@ -104,6 +104,12 @@ public class ServerConfiguration {
   @NotNull
   private AsyncConfiguration async;
 
+  @NotNull
+  private TracingConfiguration tracing;
+
+  @NotNull
+  private SlowQueryLogConfiguration slowQueryLog;
+
   @Nonnull
   public ImportConfiguration getImport() {
     return import_;
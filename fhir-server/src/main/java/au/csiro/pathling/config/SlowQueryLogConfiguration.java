@@ -0,0 +1,60 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.config;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * Represents configuration relating to the logging of slow queries.
+ */
+@Data
+public class SlowQueryLogConfiguration {
+
+  /**
+   * Enables the recording of slow queries.
+   */
+  @NotNull
+  private boolean enabled;
+
+  /**
+   * The minimum duration of a query, in milliseconds, before it is considered slow.
+   */
+  @NotNull
+  @Min(0)
+  private Long threshold;
+
+  /**
+   * The proportion of slow queries that are recorded, between 0 and 1.
+   */
+  @NotNull
+  @DecimalMin("0.0")
+  @DecimalMax("1.0")
+  private Double sampleRate;
+
+  /**
+   * The maximum number of slow queries retained in memory. When this is exceeded, the oldest
+   * entries are discarded.
+   */
+  @NotNull
+  @Min(1)
+  private Integer maxEntries;
+
+}
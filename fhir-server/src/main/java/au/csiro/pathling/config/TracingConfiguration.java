@@ -0,0 +1,68 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.config;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * Represents configuration relating to tracing using OpenTelemetry.
+ */
+@Data
+public class TracingConfiguration {
+
+  /**
+   * The method used to export spans.
+   */
+  public enum Exporter {
+    /**
+     * Spans are sent to an OpenTelemetry collector using the OTLP protocol over gRPC.
+     */
+    OTLP,
+
+    /**
+     * Spans are written to the log in OTLP JSON format.
+     */
+    LOGGING
+  }
+
+  /**
+   * Enables tracing of requests.
+   */
+  @NotNull
+  private boolean enabled;
+
+  /**
+   * The method used to export spans.
+   */
+  @NotNull
+  private Exporter exporter;
+
+  /**
+   * The endpoint of the OpenTelemetry collector, used when the exporter is {@link Exporter#OTLP}.
+   */
+  @NotBlank
+  private String endpoint;
+
+  /**
+   * The service name that spans are reported under.
+   */
+  @NotBlank
+  private String serviceName;
+
+}
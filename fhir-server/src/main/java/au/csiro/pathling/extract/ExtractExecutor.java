@@ -22,10 +22,15 @@ import static au.csiro.pathling.security.SecurityAspect.getCurrentUserId;
 import au.csiro.pathling.config.QueryConfiguration;
 import au.csiro.pathling.io.Database;
 import au.csiro.pathling.io.ResultWriter;
+import au.csiro.pathling.query.QueryFingerprint;
+import au.csiro.pathling.query.QueryMetrics;
+import au.csiro.pathling.query.SlowQueryLog;
 import au.csiro.pathling.terminology.TerminologyServiceFactory;
 import ca.uhn.fhir.context.FhirContext;
 import jakarta.annotation.Nonnull;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.spark.sql.Dataset;
@@ -51,6 +56,9 @@ public class ExtractExecutor extends ExtractQueryExecutor {
   @Nonnull
   private final ResultRegistry resultRegistry;
 
+  @Nonnull
+  private final Optional<SlowQueryLog> slowQueryLog;
+
   /**
    * @param configuration a {@link QueryConfiguration} object to control the behaviour of the
    * executor
@@ -61,17 +69,20 @@ public class ExtractExecutor extends ExtractQueryExecutor {
    * @param resultWriter a {@link ResultWriter} for writing results for later retrieval
    * @param resultRegistry a {@link ResultRegistry} for storing the mapping between request ID and
    * result URL
+   * @param slowQueryLog a {@link SlowQueryLog} for recording slow queries, if enabled
    */
   public ExtractExecutor(@Nonnull final QueryConfiguration configuration,
       @Nonnull final FhirContext fhirContext, @Nonnull final SparkSession sparkSession,
       @Nonnull final Database database,
       @Nonnull final Optional<TerminologyServiceFactory> terminologyClientFactory,
       @Nonnull final ResultWriter resultWriter,
-      @Nonnull final ResultRegistry resultRegistry) {
+      @Nonnull final ResultRegistry resultRegistry,
+      @Nonnull final Optional<SlowQueryLog> slowQueryLog) {
     super(configuration, fhirContext, sparkSession, database,
         terminologyClientFactory);
     this.resultWriter = resultWriter;
     this.resultRegistry = resultRegistry;
+    this.slowQueryLog = slowQueryLog;
   }
 
   /**
@@ -89,7 +100,11 @@ public class ExtractExecutor extends ExtractQueryExecutor {
     final Dataset<Row> result = buildQuery(query);
 
     // Write the result and get the URL.
-    final String resultUrl = resultWriter.write(result, requestId);
+    final Supplier<String> execution = () -> QueryMetrics.timeExecution("extract",
+        () -> resultWriter.write(result, requestId));
+    final String resultUrl = slowQueryLog
+        .map(queryLog -> queryLog.record(fingerprint(query), result, execution))
+        .orElseGet(execution);
 
     // Get the current user, if authenticated, and store alongside the result for later 
     // authorization.
@@ -102,4 +117,11 @@ public class ExtractExecutor extends ExtractQueryExecutor {
 
     return new ExtractResponse(serverBase + "/$result?id=" + requestId);
   }
+
+  @Nonnull
+  private static QueryFingerprint fingerprint(@Nonnull final ExtractRequest query) {
+    return QueryFingerprint.of("extract", query.getSubjectResource().toCode(),
+        Map.of("columns", query.getColumns()), query.getFilters());
+  }
+
 }
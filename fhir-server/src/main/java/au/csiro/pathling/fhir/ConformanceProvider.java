@@ -98,11 +98,16 @@ public class ConformanceProvider implements IServerConformanceProvider<Capabilit
    * The base URI for canonical URIs.
    */
   public static final String URI_BASE = "https://pathling.csiro.au/fhir";
+  /**
+   * The name of the operation for retrieving the entries of the slow query log.
+   */
+  public static final String SLOW_QUERIES_OPERATION = "slow-queries";
+
   /**
    * All system-level operations available within Pathling.
    */
   public static final List<String> SYSTEM_LEVEL_OPERATIONS = Arrays.asList("import", "result",
-      "job");
+      "job", SLOW_QUERIES_OPERATION);
 
   private static final String FHIR_RESOURCE_BASE = "http://hl7.org/fhir/StructureDefinition/";
   private static final String RESTFUL_SECURITY_URI = "http://terminology.hl7.org/CodeSystem/restful-security-service";
@@ -326,6 +331,10 @@ public class ConformanceProvider implements IServerConformanceProvider<Capabilit
     final List<CapabilityStatementRestResourceOperationComponent> operations = new ArrayList<>();
 
     for (final String name : SYSTEM_LEVEL_OPERATIONS) {
+      // The slow queries operation is only available when the slow query log is enabled.
+      if (name.equals(SLOW_QUERIES_OPERATION) && !configuration.getSlowQueryLog().isEnabled()) {
+        continue;
+      }
       final CanonicalType operationUri = new CanonicalType(getOperationUri(name));
       final CapabilityStatementRestResourceOperationComponent operation =
           new CapabilityStatementRestResourceOperationComponent(new StringType(name),
@@ -22,13 +22,17 @@ import au.csiro.pathling.config.QueryConfiguration;
 import au.csiro.pathling.config.ServerConfiguration;
 import au.csiro.pathling.config.StorageConfiguration;
 import au.csiro.pathling.config.TerminologyConfiguration;
+import au.csiro.pathling.encoders.EncoderSnapshot;
 import au.csiro.pathling.encoders.FhirEncoders;
+import au.csiro.pathling.encoders.ProfileElements;
 import au.csiro.pathling.terminology.DefaultTerminologyServiceFactory;
 import au.csiro.pathling.terminology.TerminologyServiceFactory;
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.FhirVersionEnum;
 import ca.uhn.fhir.parser.IParser;
 import jakarta.annotation.Nonnull;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.conf.Configuration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Profile;
@@ -90,11 +94,19 @@ public class Dependencies {
     final boolean enableExtensions = configuration.getEncoding().isEnableExtensions();
     log.debug("Creating R4 FHIR encoders (max nesting level of: {}, and extensions enabled: {})",
         maxNestingLevel, enableExtensions);
-    return FhirEncoders.forR4()
+    final FhirEncoders encoders = FhirEncoders.forR4()
         .withMaxNestingLevel(maxNestingLevel)
         .withOpenTypes(configuration.getEncoding().getOpenTypes())
         .withExtensionsEnabled(enableExtensions)
+        .withElements(ProfileElements.forConfiguration(configuration.getEncoding(),
+            FhirEncoders.contextFor(FhirVersionEnum.R4), new Configuration()))
+        .withPromotedExtensions(configuration.getEncoding().getPromotedExtensions())
         .getOrCreate();
+    if (configuration.getEncoding().isWarmUp()) {
+      EncoderSnapshot.warmUp(encoders, configuration.getEncoding().getSnapshotPath(),
+          new Configuration());
+    }
+    return encoders;
   }
 
   @Bean
@@ -27,7 +27,10 @@ import au.csiro.pathling.errors.ErrorHandlingInterceptor;
 import au.csiro.pathling.errors.ErrorReportingInterceptor;
 import au.csiro.pathling.extract.ResultProvider;
 import au.csiro.pathling.fhirpath.ResourcePath;
+import au.csiro.pathling.query.SlowQueryLog;
+import au.csiro.pathling.query.SlowQueryLogProvider;
 import au.csiro.pathling.security.OidcConfiguration;
+import au.csiro.pathling.tracing.RequestTracingInterceptor;
 import au.csiro.pathling.update.BatchProvider;
 import au.csiro.pathling.update.ImportProvider;
 import ca.uhn.fhir.context.FhirContext;
@@ -88,9 +91,18 @@ public class FhirServer extends RestfulServer {
   @Nonnull
   private final ResultProvider resultProvider;
 
+  @Nonnull
+  private final Optional<SlowQueryLogProvider> slowQueryLogProvider;
+
+  @Nonnull
+  private final Optional<SlowQueryLog> slowQueryLog;
+
   @Nonnull
   private final DiagnosticContextInterceptor diagnosticContextInterceptor;
 
+  @Nonnull
+  private final Optional<RequestTracingInterceptor> requestTracingInterceptor;
+
   @Nonnull
   private final ErrorReportingInterceptor errorReportingInterceptor;
 
@@ -115,8 +127,12 @@ public class FhirServer extends RestfulServer {
    * @param importProvider a {@link ImportProvider} for receiving requests to the import operation
    * @param jobProvider a {@link JobProvider} for checking on the status of jobs
    * @param resultProvider {@link ResultProvider} for retrieving the result of extract requests
+   * @param slowQueryLogProvider a {@link SlowQueryLogProvider} for retrieving slow queries
+   * @param slowQueryLog a {@link SlowQueryLog} for recording slow queries, if enabled
    * @param diagnosticContextInterceptor a {@link DiagnosticContextInterceptor} for adding request
    * IDs to logging
+   * @param requestTracingInterceptor a {@link RequestTracingInterceptor} for creating a span for
+   * each request, if tracing is enabled
    * @param errorReportingInterceptor a {@link ErrorReportingInterceptor} for reporting errors to
    * Sentry
    * @param entityTagInterceptor a {@link EntityTagInterceptor} validating and returning ETags
@@ -131,7 +147,10 @@ public class FhirServer extends RestfulServer {
       @Nonnull final ImportProvider importProvider,
       @Nonnull final Optional<JobProvider> jobProvider,
       @Nonnull final ResultProvider resultProvider,
+      @Nonnull final Optional<SlowQueryLogProvider> slowQueryLogProvider,
+      @Nonnull final Optional<SlowQueryLog> slowQueryLog,
       @Nonnull final DiagnosticContextInterceptor diagnosticContextInterceptor,
+      @Nonnull final Optional<RequestTracingInterceptor> requestTracingInterceptor,
       @Nonnull final ErrorReportingInterceptor errorReportingInterceptor,
       @Nonnull final EntityTagInterceptor entityTagInterceptor,
       @Nonnull final ConformanceProvider conformanceProvider,
@@ -143,7 +162,10 @@ public class FhirServer extends RestfulServer {
     this.importProvider = importProvider;
     this.jobProvider = jobProvider;
     this.resultProvider = resultProvider;
+    this.slowQueryLogProvider = slowQueryLogProvider;
+    this.slowQueryLog = slowQueryLog;
     this.diagnosticContextInterceptor = diagnosticContextInterceptor;
+    this.requestTracingInterceptor = requestTracingInterceptor;
     this.errorReportingInterceptor = errorReportingInterceptor;
     this.entityTagInterceptor = entityTagInterceptor;
     this.conformanceProvider = conformanceProvider;
@@ -186,6 +208,9 @@ public class FhirServer extends RestfulServer {
       // Register extract result provider.
       registerProvider(resultProvider);
 
+      // Register slow query log provider, if the slow query log is enabled.
+      slowQueryLogProvider.ifPresent(this::registerProvider);
+
       // Configure interceptors.
       configureRequestLogging();
 
@@ -275,6 +300,12 @@ public class FhirServer extends RestfulServer {
     // Add the request ID to the logging context before each request.
     registerInterceptor(diagnosticContextInterceptor);
 
+    // Start a span for each request, if tracing is enabled.
+    requestTracingInterceptor.ifPresent(this::registerInterceptor);
+
+    // Group the queries executed by each request within the slow query log, if it is enabled.
+    slowQueryLog.ifPresent(this::registerInterceptor);
+
     // Create a dedicated logger, so that we can control it independently through logging
     // configuration.
     final Logger requestLogger = LoggerFactory.getLogger("requestLogger");
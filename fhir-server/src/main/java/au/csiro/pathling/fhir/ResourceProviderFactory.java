@@ -24,6 +24,7 @@ import au.csiro.pathling.encoders.FhirEncoders;
 import au.csiro.pathling.extract.ExtractExecutor;
 import au.csiro.pathling.extract.ExtractProvider;
 import au.csiro.pathling.io.Database;
+import au.csiro.pathling.query.SlowQueryLog;
 import au.csiro.pathling.search.SearchProvider;
 import au.csiro.pathling.terminology.TerminologyServiceFactory;
 import au.csiro.pathling.update.UpdateProvider;
@@ -74,6 +75,9 @@ public class ResourceProviderFactory {
   @Nonnull
   private final FhirEncoders fhirEncoders;
 
+  @Nonnull
+  private final Optional<SlowQueryLog> slowQueryLog;
+
   /**
    * @param applicationContext the Spring {@link ApplicationContext}
    * @param fhirContext a {@link FhirContext} for doing FHIR stuff
@@ -88,6 +92,7 @@ public class ResourceProviderFactory {
    * @param aggregateExecutor a {@link AggregateExecutor} for processing requests to the aggregate
    * operation
    * @param extractExecutor a {@link ExtractExecutor} for processing requests to the extract
+   * @param slowQueryLog a {@link SlowQueryLog} for recording slow search queries, if enabled
    */
   public ResourceProviderFactory(
       @Nonnull final ApplicationContext applicationContext,
@@ -98,7 +103,8 @@ public class ResourceProviderFactory {
       @Nonnull final Optional<TerminologyServiceFactory> terminologyServiceFactory,
       @Nonnull final FhirEncoders fhirEncoders,
       @Nonnull final AggregateExecutor aggregateExecutor,
-      @Nonnull final ExtractExecutor extractExecutor) {
+      @Nonnull final ExtractExecutor extractExecutor,
+      @Nonnull final Optional<SlowQueryLog> slowQueryLog) {
     this.applicationContext = applicationContext;
     this.fhirContext = fhirContext;
     this.configuration = configuration;
@@ -108,6 +114,7 @@ public class ResourceProviderFactory {
     this.fhirEncoders = fhirEncoders;
     this.aggregateExecutor = aggregateExecutor;
     this.extractExecutor = extractExecutor;
+    this.slowQueryLog = slowQueryLog;
   }
 
   /**
@@ -152,7 +159,8 @@ public class ResourceProviderFactory {
         .getResourceDefinition(resourceType.name()).getImplementingClass();
 
     return applicationContext.getBean(SearchProvider.class, configuration, fhirContext,
-        sparkSession, database, terminologyServiceFactory, fhirEncoders, resourceTypeClass);
+        sparkSession, database, terminologyServiceFactory, fhirEncoders, resourceTypeClass,
+        slowQueryLog);
   }
 
   @Nonnull
@@ -58,7 +58,7 @@ public class CacheableFileSystemPersistence extends FileSystemPersistence implem
 
   @Nonnull
   @Getter
-  private Optional<String> cacheKey;
+  private volatile Optional<String> cacheKey;
 
   public CacheableFileSystemPersistence(@Nonnull final SparkSession spark,
       @Nonnull final String path, @Nonnull final ThreadPoolTaskExecutor executor,
@@ -172,20 +172,24 @@ public class CacheableFileSystemPersistence extends FileSystemPersistence implem
   private void invalidateCache(@Nonnull final ResourceType resourceType) {
     executor.execute(() -> {
       final DeltaTable table = read(resourceType);
-      cacheKey = buildCacheKeyFromTable(table);
+      latestUpdateToTable(table).ifPresent(this::advanceCacheKey);
       this.spark.sqlContext().clearCache();
     });
   }
 
   /**
-   * Generates a new cache key based upon the latest update time of the specified table.
+   * Updates the cache key to reflect an update made at the specified time. Tables for different
+   * resource types can be updated concurrently, so the key is only ever moved forward.
    *
-   * @param table the table to generate the cache key for
-   * @return the cache key, or empty if no update time could be determined
+   * @param timestamp the time of the update
    */
-  @Nonnull
-  private Optional<String> buildCacheKeyFromTable(@Nonnull final DeltaTable table) {
-    return latestUpdateToTable(table).map(this::cacheKeyFromTimestamp);
+  private synchronized void advanceCacheKey(final long timestamp) {
+    final boolean newer = cacheKey
+        .map(key -> Long.parseLong(key, Character.MAX_RADIX) < timestamp)
+        .orElse(true);
+    if (newer) {
+      cacheKey = Optional.of(cacheKeyFromTimestamp(timestamp));
+    }
   }
 
   /**
@@ -0,0 +1,327 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.query;
+
+import au.csiro.pathling.config.ServerConfiguration;
+import au.csiro.pathling.config.SlowQueryLogConfiguration;
+import ca.uhn.fhir.interceptor.api.Hook;
+import ca.uhn.fhir.interceptor.api.Interceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.spark.SparkContext;
+import org.apache.spark.scheduler.SparkListener;
+import org.apache.spark.scheduler.SparkListenerJobStart;
+import org.apache.spark.sql.Dataset;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records queries that take longer than a configured threshold to execute, along with structural
+ * statistics about their query plans. This is also a Spark listener, which is used to capture the
+ * IDs of the Spark jobs that were run on behalf of each query.
+ * <p>
+ * It is also a HAPI interceptor, so that the queries executed while processing a request, such as
+ * the count and the page of a search, can be recorded as a single entry once the request has
+ * completed. Requests that are processed asynchronously hold on to their entry until the job has
+ * also completed, so that they are recorded in the same way.
+ *
+ * @author John Grimes
+ */
+@Component
+@Profile("core")
+@ConditionalOnProperty(prefix = "pathling", name = "slowQueryLog.enabled", havingValue = "true")
+@Interceptor
+@Slf4j
+public class SlowQueryLog extends SparkListener {
+
+  /**
+   * The name of the Spark local property used to associate jobs with a query.
+   */
+  public static final String QUERY_ID_PROPERTY = "pathling.queryId";
+
+  private static final Logger SLOW_QUERY_LOGGER = LoggerFactory.getLogger("slowQueryLog");
+
+  @Nonnull
+  private final SlowQueryLogConfiguration configuration;
+
+  @Nonnull
+  private final Map<String, List<Integer>> jobIds = new ConcurrentHashMap<>();
+
+  @Nonnull
+  private final Deque<SlowQueryLogEntry> entries = new ConcurrentLinkedDeque<>();
+
+  /**
+   * The queries that have been executed by each request that is still being processed, keyed by
+   * request ID.
+   */
+  @Nonnull
+  private final Map<String, RequestExecutions> requestExecutions = new ConcurrentHashMap<>();
+
+  /**
+   * @param configuration a {@link ServerConfiguration} object which controls the behaviour of the
+   * log
+   */
+  public SlowQueryLog(@Nonnull final ServerConfiguration configuration) {
+    this.configuration = configuration.getSlowQueryLog();
+  }
+
+  /**
+   * Executes a query, and records it within the log if it exceeds the configured threshold. The
+   * queries executed while processing a request are recorded together once the request has
+   * completed, and are compared to the threshold using their combined duration.
+   *
+   * @param fingerprint the {@link QueryFingerprint} of the request
+   * @param dataset the dataset that is being executed, used to collect plan statistics
+   * @param execution the function that executes the query
+   * @param <T> the type of the result
+   * @return the result of the execution
+   */
+  public <T> T record(@Nonnull final QueryFingerprint fingerprint,
+      @Nonnull final Dataset<?> dataset, @Nonnull final Supplier<T> execution) {
+    final SparkContext sparkContext = dataset.sparkSession().sparkContext();
+    final String queryId = UUID.randomUUID().toString();
+    @Nullable final String previousQueryId = sparkContext.getLocalProperty(QUERY_ID_PROPERTY);
+    jobIds.put(queryId, Collections.synchronizedList(new ArrayList<>()));
+    sparkContext.setLocalProperty(QUERY_ID_PROPERTY, queryId);
+    final Instant start = Instant.now();
+    final long startNanos = System.nanoTime();
+    try {
+      return execution.get();
+    } finally {
+      final Duration duration = Duration.ofNanos(System.nanoTime() - startNanos);
+      sparkContext.setLocalProperty(QUERY_ID_PROPERTY, previousQueryId);
+      final Execution executed = new Execution(queryId, start, duration, fingerprint,
+          List.copyOf(jobIds.remove(queryId)), dataset);
+      @Nullable final String requestId = MDC.get("requestId");
+      @Nullable final RequestExecutions executions = requestId != null
+                                                     ? requestExecutions.get(requestId)
+                                                     : null;
+      if (executions != null) {
+        // The execution is recorded along with the others of the request once it has completed.
+        executions.getExecutions().add(executed);
+      } else {
+        recordIfSlow(Optional.ofNullable(requestId), List.of(executed));
+      }
+    }
+  }
+
+  /**
+   * HAPI hook that starts collecting the queries that are executed by the incoming request.
+   *
+   * @param requestDetails the details of the current request
+   */
+  @Hook(Pointcut.SERVER_INCOMING_REQUEST_PRE_HANDLED)
+  @SuppressWarnings("unused")
+  public void startRequest(@Nullable final RequestDetails requestDetails) {
+    if (requestDetails != null) {
+      startRequest(requestDetails.getRequestId());
+    }
+  }
+
+  /**
+   * HAPI hook that records the queries that were executed by a request as a single entry, once
+   * processing of the request has completed.
+   *
+   * @param requestDetails the details of the current request
+   */
+  @Hook(Pointcut.SERVER_PROCESSING_COMPLETED)
+  @SuppressWarnings("unused")
+  public void completeRequest(@Nullable final RequestDetails requestDetails) {
+    if (requestDetails != null) {
+      completeRequest(requestDetails.getRequestId());
+    }
+  }
+
+  /**
+   * Starts collecting the queries that are executed on behalf of a request. This can be called more
+   * than once for the same request, e.g. by an asynchronous job that outlives the request, in which
+   * case the queries are recorded once {@link #completeRequest(String)} has been called the same
+   * number of times.
+   *
+   * @param requestId the ID of the request
+   */
+  public void startRequest(@Nonnull final String requestId) {
+    requestExecutions.compute(requestId, (id, executions) -> executions == null
+                                                             ? new RequestExecutions()
+                                                             : executions.retain());
+  }
+
+  /**
+   * Stops collecting the queries that are executed on behalf of a request, and records them as a
+   * single entry if nothing else is still collecting them.
+   *
+   * @param requestId the ID of the request
+   */
+  public void completeRequest(@Nonnull final String requestId) {
+    final List<Execution> completed = new ArrayList<>();
+    requestExecutions.computeIfPresent(requestId, (id, executions) -> {
+      if (executions.release()) {
+        return executions;
+      }
+      completed.addAll(executions.getExecutions());
+      return null;
+    });
+    if (!completed.isEmpty()) {
+      recordIfSlow(Optional.of(requestId), completed);
+    }
+  }
+
+  /**
+   * @return the entries within the log, most recent first
+   */
+  @Nonnull
+  public List<SlowQueryLogEntry> getEntries() {
+    final List<SlowQueryLogEntry> result = new ArrayList<>(entries);
+    Collections.reverse(result);
+    return result;
+  }
+
+  /**
+   * @param fingerprint a query fingerprint
+   * @return the entries within the log that have the specified fingerprint, most recent first
+   */
+  @Nonnull
+  public List<SlowQueryLogEntry> getEntries(@Nonnull final String fingerprint) {
+    return getEntries().stream()
+        .filter(entry -> entry.getFingerprint().getValue().equals(fingerprint))
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  public void onJobStart(@Nonnull final SparkListenerJobStart jobStart) {
+    @Nullable final String queryId = Optional.ofNullable(jobStart.properties())
+        .map(p -> p.getProperty(QUERY_ID_PROPERTY))
+        .orElse(null);
+    if (queryId != null) {
+      @Nullable final List<Integer> queryJobIds = jobIds.get(queryId);
+      if (queryJobIds != null) {
+        queryJobIds.add(jobStart.jobId());
+      }
+    }
+  }
+
+  private void recordIfSlow(@Nonnull final Optional<String> requestId,
+      @Nonnull final List<Execution> executions) {
+    final Duration duration = executions.stream()
+        .map(Execution::getDuration)
+        .reduce(Duration.ZERO, Duration::plus);
+    if (duration.toMillis() >= configuration.getThreshold() && isSampled()) {
+      // The entry is identified by the first query of the request, and the plan statistics are
+      // summed across all of its queries.
+      final Execution first = executions.get(0);
+      final List<Integer> executionJobIds = executions.stream()
+          .flatMap(execution -> execution.getJobIds().stream())
+          .collect(Collectors.toList());
+      final PlanStatistics statistics = executions.stream()
+          .map(execution -> PlanStatistics.of(execution.getDataset()))
+          .reduce(PlanStatistics::plus)
+          .orElseThrow();
+      add(new SlowQueryLogEntry(first.getQueryId(), requestId, first.getStart(), duration,
+          first.getFingerprint(), executionJobIds, statistics));
+    }
+  }
+
+  private boolean isSampled() {
+    return configuration.getSampleRate() >= 1.0
+        || ThreadLocalRandom.current().nextDouble() < configuration.getSampleRate();
+  }
+
+  private void add(@Nonnull final SlowQueryLogEntry entry) {
+    SLOW_QUERY_LOGGER.warn("Slow query: {}", entry);
+    entries.addLast(entry);
+    while (entries.size() > configuration.getMaxEntries()) {
+      entries.pollFirst();
+    }
+  }
+
+  @Value
+  private static class Execution {
+
+    @Nonnull
+    String queryId;
+
+    @Nonnull
+    Instant start;
+
+    @Nonnull
+    Duration duration;
+
+    @Nonnull
+    QueryFingerprint fingerprint;
+
+    @Nonnull
+    List<Integer> jobIds;
+
+    @Nonnull
+    Dataset<?> dataset;
+
+  }
+
+  /**
+   * The queries executed on behalf of a request, along with the number of callers that are still
+   * collecting them. This is only modified while holding the lock of the map entry.
+   */
+  private static class RequestExecutions {
+
+    @Nonnull
+    private final List<Execution> executions = Collections.synchronizedList(new ArrayList<>());
+
+    private int holders = 1;
+
+    @Nonnull
+    List<Execution> getExecutions() {
+      return executions;
+    }
+
+    @Nonnull
+    RequestExecutions retain() {
+      holders++;
+      return this;
+    }
+
+    /**
+     * @return true if there are still other callers collecting the queries
+     */
+    boolean release() {
+      return --holders > 0;
+    }
+
+  }
+
+}
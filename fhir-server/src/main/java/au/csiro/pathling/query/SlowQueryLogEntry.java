@@ -0,0 +1,76 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.query;
+
+import jakarta.annotation.Nonnull;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import lombok.Value;
+
+/**
+ * An entry within the {@link SlowQueryLog}.
+ *
+ * @author John Grimes
+ */
+@Value
+public class SlowQueryLogEntry {
+
+  /**
+   * A unique identifier for this execution of the query.
+   */
+  @Nonnull
+  String queryId;
+
+  /**
+   * The ID of the request that caused the query to be executed, if known.
+   */
+  @Nonnull
+  Optional<String> requestId;
+
+  /**
+   * The time at which execution of the query started.
+   */
+  @Nonnull
+  Instant startTime;
+
+  /**
+   * The time taken to execute the query.
+   */
+  @Nonnull
+  Duration duration;
+
+  /**
+   * The fingerprint of the request.
+   */
+  @Nonnull
+  QueryFingerprint fingerprint;
+
+  /**
+   * The IDs of the Spark jobs that were run to execute the query.
+   */
+  @Nonnull
+  List<Integer> jobIds;
+
+  /**
+   * Structural statistics about the query plans, summed across the queries of the request.
+   */
+  @Nonnull
+  PlanStatistics statistics;
+
+}
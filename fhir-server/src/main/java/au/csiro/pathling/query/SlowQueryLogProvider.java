@@ -0,0 +1,119 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.query;
+
+import au.csiro.pathling.security.OperationAccess;
+import ca.uhn.fhir.rest.annotation.Operation;
+import ca.uhn.fhir.rest.annotation.OperationParam;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.hl7.fhir.r4.model.DecimalType;
+import org.hl7.fhir.r4.model.InstantType;
+import org.hl7.fhir.r4.model.IntegerType;
+import org.hl7.fhir.r4.model.Parameters;
+import org.hl7.fhir.r4.model.Parameters.ParametersParameterComponent;
+import org.hl7.fhir.r4.model.StringType;
+import org.hl7.fhir.r4.model.Type;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Enables the retrieval of the contents of the {@link SlowQueryLog}.
+ *
+ * @author John Grimes
+ */
+@Component
+@Profile("server")
+@ConditionalOnProperty(prefix = "pathling", name = "slowQueryLog.enabled", havingValue = "true")
+@Slf4j
+public class SlowQueryLogProvider {
+
+  @Nonnull
+  private final SlowQueryLog slowQueryLog;
+
+  /**
+   * @param slowQueryLog the {@link SlowQueryLog} to retrieve entries from
+   */
+  public SlowQueryLogProvider(@Nonnull final SlowQueryLog slowQueryLog) {
+    this.slowQueryLog = slowQueryLog;
+  }
+
+  /**
+   * Retrieves the slow queries that have been recorded, most recent first.
+   *
+   * @param fingerprint if present, only queries with this fingerprint are returned
+   * @param limit if present, the maximum number of queries to return
+   * @return a {@link Parameters} resource containing a "query" parameter for each slow query
+   */
+  @SuppressWarnings("unused")
+  @OperationAccess("slow-queries")
+  @Operation(name = "$slow-queries", idempotent = true)
+  public Parameters slowQueries(
+      @Nullable @OperationParam(name = "fingerprint") final String fingerprint,
+      @Nullable @OperationParam(name = "limit") final IntegerType limit) {
+    log.debug("Retrieving slow queries: fingerprint={}, limit={}", fingerprint,
+        limit == null
+        ? null
+        : limit.getValue());
+    final List<SlowQueryLogEntry> entries = fingerprint == null
+                                            ? slowQueryLog.getEntries()
+                                            : slowQueryLog.getEntries(fingerprint);
+    final Parameters parameters = new Parameters();
+    entries.stream()
+        .limit(limit == null || limit.getValue() == null
+               ? Long.MAX_VALUE
+               : Math.max(0, limit.getValue()))
+        .map(SlowQueryLogProvider::toParameter)
+        .forEach(parameters::addParameter);
+    return parameters;
+  }
+
+  @Nonnull
+  private static ParametersParameterComponent toParameter(@Nonnull final SlowQueryLogEntry entry) {
+    final ParametersParameterComponent parameter = new ParametersParameterComponent();
+    parameter.setName("query");
+    addPart(parameter, "queryId", new StringType(entry.getQueryId()));
+    entry.getRequestId().ifPresent(id -> addPart(parameter, "requestId", new StringType(id)));
+    addPart(parameter, "fingerprint", new StringType(entry.getFingerprint().getValue()));
+    addPart(parameter, "normalizedQuery",
+        new StringType(entry.getFingerprint().getNormalizedQuery()));
+    addPart(parameter, "startTime", new InstantType(Date.from(entry.getStartTime())));
+    addPart(parameter, "duration", new DecimalType(entry.getDuration().toMillis()));
+    for (final Integer jobId : entry.getJobIds()) {
+      addPart(parameter, "jobId", new IntegerType(jobId));
+    }
+    final PlanStatistics statistics = entry.getStatistics();
+    addPart(parameter, "joins", new IntegerType(statistics.getJoins()));
+    addPart(parameter, "exchanges", new IntegerType(statistics.getExchanges()));
+    addPart(parameter, "explodes", new IntegerType(statistics.getExplodes()));
+    addPart(parameter, "udfs", new IntegerType(statistics.getUdfs()));
+    addPart(parameter, "scannedBytes",
+        new DecimalType(BigDecimal.valueOf(statistics.getScannedBytes())));
+    return parameter;
+  }
+
+  private static void addPart(@Nonnull final ParametersParameterComponent parameter,
+      @Nonnull final String name, @Nonnull final Type value) {
+    parameter.addPart().setName(name).setValue(value);
+  }
+
+}
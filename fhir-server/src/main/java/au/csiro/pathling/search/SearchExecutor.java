@@ -33,6 +33,9 @@ import au.csiro.pathling.fhirpath.literal.BooleanLiteralPath;
 import au.csiro.pathling.fhirpath.parser.Parser;
 import au.csiro.pathling.fhirpath.parser.ParserContext;
 import au.csiro.pathling.io.Database;
+import au.csiro.pathling.query.QueryFingerprint;
+import au.csiro.pathling.query.QueryMetrics;
+import au.csiro.pathling.query.SlowQueryLog;
 import au.csiro.pathling.terminology.TerminologyServiceFactory;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.model.api.IQueryParameterAnd;
@@ -48,6 +51,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.spark.sql.Column;
@@ -81,6 +85,12 @@ public class SearchExecutor extends QueryExecutor implements IBundleProvider {
   @Nonnull
   private final Dataset<Row> result;
 
+  @Nonnull
+  private final Optional<SlowQueryLog> slowQueryLog;
+
+  @Nonnull
+  private final QueryFingerprint fingerprint;
+
   @Nonnull
   private Optional<Integer> count;
 
@@ -96,18 +106,22 @@ public class SearchExecutor extends QueryExecutor implements IBundleProvider {
    * objects
    * @param subjectResource The type of resource that is the subject for this query
    * @param filters A list of filters that should be applied within queries
+   * @param slowQueryLog A {@link SlowQueryLog} for recording slow queries, if enabled
    */
   public SearchExecutor(@Nonnull final QueryConfiguration configuration,
       @Nonnull final FhirContext fhirContext, @Nonnull final SparkSession sparkSession,
       @Nonnull final Database database,
       @Nonnull final Optional<TerminologyServiceFactory> terminologyServiceFactory,
       @Nonnull final FhirEncoders fhirEncoders, @Nonnull final ResourceType subjectResource,
-      @Nonnull final Optional<StringAndListParam> filters) {
+      @Nonnull final Optional<StringAndListParam> filters,
+      @Nonnull final Optional<SlowQueryLog> slowQueryLog) {
     super(configuration, fhirContext, sparkSession, database, terminologyServiceFactory);
     this.fhirEncoders = fhirEncoders;
     this.subjectResource = subjectResource;
     this.filters = filters;
-    this.result = initializeDataset();
+    this.slowQueryLog = slowQueryLog;
+    this.fingerprint = fingerprint(subjectResource, filters);
+    this.result = QueryMetrics.timePlanning("search", this::initializeDataset);
     this.count = Optional.empty();
 
     final String filterStrings = filters
@@ -238,7 +252,11 @@ public class SearchExecutor extends QueryExecutor implements IBundleProvider {
     requireNonNull(encoder);
     reportQueryPlan(resources);
 
-    return resources.as(encoder).collectAsList();
+    final Dataset<IBaseResource> encoded = resources.as(encoder);
+    final List<IBaseResource> collected = recordIfSlow(encoded,
+        () -> QueryMetrics.timeExecution("search", encoded::collectAsList));
+    QueryMetrics.recordRows("search", collected.size());
+    return collected;
   }
 
   private void reportQueryPlan(@Nonnull final Dataset<Row> resources) {
@@ -265,11 +283,37 @@ public class SearchExecutor extends QueryExecutor implements IBundleProvider {
   public Integer size() {
     if (count.isEmpty()) {
       reportQueryPlan(result);
-      count = Optional.of(Math.toIntExact(result.count()));
+      count = Optional.of(Math.toIntExact(recordIfSlow(result,
+          () -> QueryMetrics.timeExecution("search", result::count))));
     }
     return count.get();
   }
 
+  private <T> T recordIfSlow(@Nonnull final Dataset<?> dataset,
+      @Nonnull final Supplier<T> execution) {
+    return slowQueryLog
+        .map(queryLog -> queryLog.record(fingerprint, dataset, execution))
+        .orElseGet(execution);
+  }
+
+  @Nonnull
+  private static QueryFingerprint fingerprint(@Nonnull final ResourceType subjectResource,
+      @Nonnull final Optional<StringAndListParam> filters) {
+    // Each filter parameter is a set of expressions that are combined using OR logic, so we sort
+    // them to make the fingerprint independent of their order.
+    final List<String> filterExpressions = filters
+        .map(f -> f.getValuesAsQueryTokens().stream()
+            .map(orParam -> orParam.getValuesAsQueryTokens().stream()
+                .map(StringParam::getValue)
+                .map(QueryFingerprint::normalize)
+                .sorted()
+                .collect(Collectors.joining(" or ")))
+            .collect(Collectors.toList()))
+        .orElse(Collections.emptyList());
+    return QueryFingerprint.of("search", subjectResource.toCode(), Collections.emptyMap(),
+        filterExpressions);
+  }
+
   @Nonnull
   private static String filtersToString(
       @Nonnull final IQueryParameterAnd<StringOrListParam> stringAndListParam) {
@@ -23,6 +23,7 @@ import au.csiro.pathling.config.ServerConfiguration;
 import au.csiro.pathling.encoders.FhirEncoders;
 import au.csiro.pathling.fhirpath.ResourceDefinition;
 import au.csiro.pathling.io.Database;
+import au.csiro.pathling.query.SlowQueryLog;
 import au.csiro.pathling.security.OperationAccess;
 import au.csiro.pathling.terminology.TerminologyServiceFactory;
 import ca.uhn.fhir.context.FhirContext;
@@ -88,6 +89,9 @@ public class SearchProvider implements IResourceProvider {
   @Nonnull
   private final ResourceType resourceType;
 
+  @Nonnull
+  private final Optional<SlowQueryLog> slowQueryLog;
+
   /**
    * @param configuration A {@link ServerConfiguration} object to control the behaviour of the
    * executor
@@ -100,13 +104,15 @@ public class SearchProvider implements IResourceProvider {
    * objects
    * @param resourceClass A Class that extends {@link IBaseResource} that represents the type of
    * resource to be searched
+   * @param slowQueryLog A {@link SlowQueryLog} for recording slow queries, if enabled
    */
   public SearchProvider(@Nonnull final ServerConfiguration configuration,
       @Nonnull final FhirContext fhirContext, @Nonnull final SparkSession sparkSession,
       @Nonnull final Database database,
       @Nonnull final Optional<TerminologyServiceFactory> terminologyServiceFactory,
       @Nonnull final FhirEncoders fhirEncoders,
-      @Nonnull final Class<? extends IBaseResource> resourceClass) {
+      @Nonnull final Class<? extends IBaseResource> resourceClass,
+      @Nonnull final Optional<SlowQueryLog> slowQueryLog) {
     this.configuration = configuration;
     this.fhirContext = fhirContext;
     this.sparkSession = sparkSession;
@@ -114,6 +120,7 @@ public class SearchProvider implements IResourceProvider {
     this.terminologyServiceFactory = terminologyServiceFactory;
     this.fhirEncoders = fhirEncoders;
     this.resourceClass = resourceClass;
+    this.slowQueryLog = slowQueryLog;
     resourceType = resourceTypeFromClass(resourceClass);
   }
 
@@ -156,7 +163,7 @@ public class SearchProvider implements IResourceProvider {
   private IBundleProvider buildSearchExecutor(@Nonnull final ResourceType subjectResource,
       @Nonnull final Optional<StringAndListParam> filters) {
     return new SearchExecutor(configuration.getQuery(), fhirContext, sparkSession, database,
-        terminologyServiceFactory, fhirEncoders, subjectResource, filters);
+        terminologyServiceFactory, fhirEncoders, subjectResource, filters, slowQueryLog);
   }
 
 }
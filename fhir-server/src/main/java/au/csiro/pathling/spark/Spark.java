@@ -21,6 +21,9 @@ import static java.util.Objects.requireNonNull;
 
 import au.csiro.pathling.async.SparkListener;
 import au.csiro.pathling.config.ServerConfiguration;
+import au.csiro.pathling.query.SlowQueryLog;
+import au.csiro.pathling.tracing.TracingPlugin;
+import au.csiro.pathling.tracing.TracingSparkListener;
 import jakarta.annotation.Nonnull;
 import java.util.Arrays;
 import java.util.List;
@@ -53,6 +56,10 @@ public class Spark {
    * the creation
    * @param environment Spring {@link Environment} from which to harvest Spark configuration
    * @param sparkListener a {@link SparkListener} that is used to monitor progress of jobs
+   * @param tracingSparkListener a {@link TracingSparkListener} that is used to create spans for
+   * jobs, if tracing is enabled
+   * @param slowQueryLog a {@link SlowQueryLog} that is used to associate jobs with slow queries, if
+   * enabled
    * @param sparkConfigurers a list of {@link SparkConfigurer} that should use to configure spark
    * session
    * @return A shiny new {@link SparkSession}
@@ -63,6 +70,8 @@ public class Spark {
   public static SparkSession build(@Nonnull final ServerConfiguration configuration,
       @Nonnull final Environment environment,
       @Nonnull final Optional<SparkListener> sparkListener,
+      @Nonnull final Optional<TracingSparkListener> tracingSparkListener,
+      @Nonnull final Optional<SlowQueryLog> slowQueryLog,
       @Nonnull final List<SparkConfigurer> sparkConfigurers) {
     log.debug("Creating Spark session");
 
@@ -71,10 +80,18 @@ public class Spark {
         property -> System.setProperty(property,
             requireNonNull(environment.getProperty(property))));
 
+    // Pass through the tracing configuration, so that the TracingPlugin can configure tracing on
+    // the executors.
+    if (configuration.getTracing().isEnabled()) {
+      TracingPlugin.toSparkProperties(configuration.getTracing()).forEach(System::setProperty);
+    }
+
     final SparkSession spark = SparkSession.builder()
         .appName(configuration.getSpark().getAppName())
         .getOrCreate();
     sparkListener.ifPresent(l -> spark.sparkContext().addSparkListener(l));
+    tracingSparkListener.ifPresent(l -> spark.sparkContext().addSparkListener(l));
+    slowQueryLog.ifPresent(l -> spark.sparkContext().addSparkListener(l));
 
     // Configure user defined strategy and functions.
     for (final SparkConfigurer configurer : sparkConfigurers) {
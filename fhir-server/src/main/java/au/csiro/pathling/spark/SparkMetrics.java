@@ -0,0 +1,72 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.spark;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.function.ToLongFunction;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.storage.RDDInfo;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registers metrics that describe the residency of cached datasets within Spark.
+ *
+ * @author John Grimes
+ */
+@Component
+@Profile("core")
+public class SparkMetrics implements MeterBinder {
+
+  @Nonnull
+  private final SparkSession spark;
+
+  /**
+   * @param spark the {@link SparkSession} to report on
+   */
+  public SparkMetrics(@Nonnull final SparkSession spark) {
+    this.spark = spark;
+  }
+
+  @Override
+  public void bindTo(@Nonnull final MeterRegistry registry) {
+    Gauge.builder("pathling.cache.datasets", spark,
+            s -> s.sparkContext().getRDDStorageInfo().length)
+        .description("Number of datasets that are cached within Spark")
+        .register(registry);
+    Gauge.builder("pathling.cache.memory", spark, s -> sumStorage(s, RDDInfo::memSize))
+        .description("Size of cached datasets held in memory")
+        .baseUnit("bytes")
+        .register(registry);
+    Gauge.builder("pathling.cache.disk", spark, s -> sumStorage(s, RDDInfo::diskSize))
+        .description("Size of cached datasets held on disk")
+        .baseUnit("bytes")
+        .register(registry);
+  }
+
+  private static double sumStorage(@Nonnull final SparkSession spark,
+      @Nonnull final ToLongFunction<RDDInfo> size) {
+    return Arrays.stream(spark.sparkContext().getRDDStorageInfo())
+        .mapToLong(size)
+        .sum();
+  }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.tracing;
+
+import au.csiro.pathling.utilities.Tracing;
+import ca.uhn.fhir.interceptor.api.Hook;
+import ca.uhn.fhir.interceptor.api.Interceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.spark.sql.SparkSession;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates a span for each incoming request, continuing any trace that was propagated by the client
+ * using the W3C Trace Context headers. The span is made current for the duration of the request,
+ * and is also propagated to any Spark jobs that are submitted while processing it.
+ *
+ * @author John Grimes
+ */
+@Component
+@Profile("server")
+@ConditionalOnProperty(prefix = "pathling", name = "tracing.enabled", havingValue = "true")
+@Interceptor
+public class RequestTracingInterceptor {
+
+  private static final String SPAN_KEY = RequestTracingInterceptor.class.getName() + ".span";
+  private static final String SCOPE_KEY = RequestTracingInterceptor.class.getName() + ".scope";
+
+  @Nonnull
+  private final SparkSession spark;
+
+  /**
+   * @param spark the {@link SparkSession} that the trace context is propagated to
+   */
+  public RequestTracingInterceptor(@Nonnull final SparkSession spark) {
+    this.spark = spark;
+  }
+
+  /**
+   * HAPI hook that starts a span for the incoming request.
+   *
+   * @param requestDetails the details of the current servlet request
+   */
+  @Hook(value = Pointcut.SERVER_INCOMING_REQUEST_POST_PROCESSED, order = 0)
+  @SuppressWarnings("unused")
+  public void startSpan(@Nullable final ServletRequestDetails requestDetails) {
+    if (requestDetails == null) {
+      return;
+    }
+    final HttpServletRequest request = requestDetails.getServletRequest();
+    final Context parent = Tracing.extract(getHeaders(request));
+    final Span span = Tracing.getTracer()
+        .spanBuilder(request.getMethod() + " " + request.getRequestURI())
+        .setParent(parent)
+        .setSpanKind(SpanKind.SERVER)
+        .setAttribute("http.request.method", request.getMethod())
+        .setAttribute("url.path", request.getRequestURI())
+        .setAttribute("pathling.requestId", requestDetails.getRequestId())
+        .startSpan();
+    final Scope scope = span.makeCurrent();
+    requestDetails.getUserData().put(SPAN_KEY, span);
+    requestDetails.getUserData().put(SCOPE_KEY, scope);
+    Tracing.propagateToSpark(spark.sparkContext());
+  }
+
+  /**
+   * HAPI hook that names the span after the operation, once it has been identified.
+   *
+   * @param requestDetails the details of the current request
+   */
+  @Hook(Pointcut.SERVER_INCOMING_REQUEST_PRE_HANDLED)
+  @SuppressWarnings("unused")
+  public void nameSpan(@Nullable final RequestDetails requestDetails) {
+    if (requestDetails == null) {
+      return;
+    }
+    @Nullable final Span span = (Span) requestDetails.getUserData().get(SPAN_KEY);
+    if (span != null && requestDetails.getRestOperationType() != null) {
+      final String operation = requestDetails.getOperation() != null
+                               ? requestDetails.getOperation()
+                               : requestDetails.getRestOperationType().getCode();
+      final String resourceType = requestDetails.getResourceName();
+      span.updateName(resourceType != null
+                      ? resourceType + " " + operation
+                      : operation);
+    }
+  }
+
+  /**
+   * HAPI hook that ends the span once processing of the request has completed.
+   *
+   * @param requestDetails the details of the current servlet request
+   */
+  @Hook(Pointcut.SERVER_PROCESSING_COMPLETED)
+  @SuppressWarnings("unused")
+  public void endSpan(@Nullable final ServletRequestDetails requestDetails) {
+    if (requestDetails == null) {
+      return;
+    }
+    @Nullable final Scope scope = (Scope) requestDetails.getUserData().remove(SCOPE_KEY);
+    @Nullable final Span span = (Span) requestDetails.getUserData().remove(SPAN_KEY);
+    if (span != null) {
+      final int status = requestDetails.getServletResponse().getStatus();
+      span.setAttribute("http.response.status_code", status);
+      if (status >= 500) {
+        span.setStatus(StatusCode.ERROR);
+      }
+      span.end();
+    }
+    if (scope != null) {
+      scope.close();
+    }
+    Tracing.clearFromSpark(spark.sparkContext());
+  }
+
+  @Nonnull
+  private static Map<String, String> getHeaders(@Nonnull final HttpServletRequest request) {
+    final Map<String, String> headers = new HashMap<>();
+    for (final String name : Collections.list(request.getHeaderNames())) {
+      headers.put(name.toLowerCase(), request.getHeader(name));
+    }
+    return headers;
+  }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.tracing;
+
+import au.csiro.pathling.config.ServerConfiguration;
+import au.csiro.pathling.config.TracingConfiguration;
+import au.csiro.pathling.utilities.Tracing;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.exporter.logging.otlp.OtlpJsonLoggingSpanExporter;
+import io.opentelemetry.exporter.otlp.trace.OtlpGrpcSpanExporter;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the OpenTelemetry SDK and makes it available to the tracing instrumentation throughout
+ * Pathling.
+ * <p>
+ * This configures the SDK within the server JVM, which includes the executors when Spark runs in
+ * local mode. Executors that run in other JVMs (e.g. on a cluster) are configured by the
+ * {@link TracingPlugin}.
+ *
+ * @author John Grimes
+ */
+@Component
+@Profile("core")
+@ConditionalOnProperty(prefix = "pathling", name = "tracing.enabled", havingValue = "true")
+@Slf4j
+public class TracingInitializer {
+
+  private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+
+  @Nonnull
+  private final OpenTelemetrySdk openTelemetry;
+
+  /**
+   * @param configuration a {@link ServerConfiguration} object which controls the behaviour of the
+   * server
+   */
+  public TracingInitializer(@Nonnull final ServerConfiguration configuration) {
+    final TracingConfiguration tracing = configuration.getTracing();
+    openTelemetry = buildSdk(tracing);
+    Tracing.configure(openTelemetry);
+    log.info("Tracing enabled, exporting spans using {}", tracing.getExporter());
+  }
+
+  /**
+   * Builds an OpenTelemetry SDK that exports spans as described by the supplied configuration.
+   *
+   * @param tracing the tracing configuration
+   * @return a new {@link OpenTelemetrySdk}
+   */
+  @Nonnull
+  static OpenTelemetrySdk buildSdk(@Nonnull final TracingConfiguration tracing) {
+    final Resource resource = Resource.getDefault()
+        .merge(Resource.create(Attributes.of(SERVICE_NAME, tracing.getServiceName())));
+    final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+        .setResource(resource)
+        .addSpanProcessor(BatchSpanProcessor.builder(buildExporter(tracing)).build())
+        .build();
+    return OpenTelemetrySdk.builder()
+        .setTracerProvider(tracerProvider)
+        .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+        .build();
+  }
+
+  @Nonnull
+  private static SpanExporter buildExporter(@Nonnull final TracingConfiguration tracing) {
+    return switch (tracing.getExporter()) {
+      case OTLP -> OtlpGrpcSpanExporter.builder()
+          .setEndpoint(tracing.getEndpoint())
+          .build();
+      case LOGGING -> OtlpJsonLoggingSpanExporter.create();
+    };
+  }
+
+  /**
+   * Flushes any outstanding spans and shuts down the SDK.
+   */
+  @PreDestroy
+  public void shutdown() {
+    openTelemetry.close();
+  }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.tracing;
+
+import au.csiro.pathling.config.TracingConfiguration;
+import au.csiro.pathling.config.TracingConfiguration.Exporter;
+import au.csiro.pathling.utilities.Tracing;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.spark.SparkConf;
+import org.apache.spark.api.plugin.DriverPlugin;
+import org.apache.spark.api.plugin.ExecutorPlugin;
+import org.apache.spark.api.plugin.PluginContext;
+import org.apache.spark.api.plugin.SparkPlugin;
+
+/**
+ * A Spark plugin that configures the OpenTelemetry SDK on remote executors, so that spans created
+ * within UDFs (e.g. terminology requests) are recorded and linked to the request that caused them.
+ * The trace context of the request is received by the tasks through the
+ * {@link Tracing#TRACE_CONTEXT_PROPERTY} local property.
+ * <p>
+ * The executors are configured using the {@code spark.pathling.tracing.*} properties, which the
+ * server sets from its own tracing configuration. Enable this plugin by adding its class name to
+ * the {@code spark.plugins} configuration property.
+ *
+ * @author John Grimes
+ */
+@Slf4j
+public class TracingPlugin implements SparkPlugin {
+
+  /**
+   * The configuration property that enables tracing on the executors.
+   */
+  public static final String ENABLED_PROPERTY = "spark.pathling.tracing.enabled";
+
+  /**
+   * The configuration property that holds the method used to export spans.
+   */
+  public static final String EXPORTER_PROPERTY = "spark.pathling.tracing.exporter";
+
+  /**
+   * The configuration property that holds the endpoint of the OpenTelemetry collector.
+   */
+  public static final String ENDPOINT_PROPERTY = "spark.pathling.tracing.endpoint";
+
+  /**
+   * The configuration property that holds the service name that spans are reported under.
+   */
+  public static final String SERVICE_NAME_PROPERTY = "spark.pathling.tracing.serviceName";
+
+  /**
+   * The executor ID used by Spark for the executor that runs within the driver JVM, e.g. in local
+   * mode.
+   */
+  private static final String DRIVER_EXECUTOR_ID = "driver";
+
+  /**
+   * Converts a tracing configuration into the Spark configuration properties that are read by this
+   * plugin.
+   *
+   * @param tracing the tracing configuration of the server
+   * @return a map of Spark configuration properties
+   */
+  @Nonnull
+  public static Map<String, String> toSparkProperties(@Nonnull final TracingConfiguration tracing) {
+    return Map.of(
+        ENABLED_PROPERTY, String.valueOf(tracing.isEnabled()),
+        EXPORTER_PROPERTY, tracing.getExporter().name(),
+        ENDPOINT_PROPERTY, tracing.getEndpoint(),
+        SERVICE_NAME_PROPERTY, tracing.getServiceName());
+  }
+
+  @Nullable
+  @Override
+  public DriverPlugin driverPlugin() {
+    // The driver is configured by the TracingInitializer.
+    return null;
+  }
+
+  @Override
+  public ExecutorPlugin executorPlugin() {
+    return new TracingExecutorPlugin();
+  }
+
+  @Nonnull
+  static TracingConfiguration fromSparkConf(@Nonnull final SparkConf conf) {
+    final TracingConfiguration tracing = new TracingConfiguration();
+    tracing.setEnabled(conf.getBoolean(ENABLED_PROPERTY, false));
+    tracing.setExporter(Exporter.valueOf(conf.get(EXPORTER_PROPERTY, Exporter.OTLP.name())));
+    tracing.setEndpoint(conf.get(ENDPOINT_PROPERTY, "http://localhost:4317"));
+    tracing.setServiceName(conf.get(SERVICE_NAME_PROPERTY, "pathling"));
+    return tracing;
+  }
+
+  private static class TracingExecutorPlugin implements ExecutorPlugin {
+
+    @Nullable
+    private OpenTelemetrySdk openTelemetry;
+
+    @Override
+    public void init(@Nonnull final PluginContext ctx,
+        @Nonnull final Map<String, String> extraConf) {
+      if (DRIVER_EXECUTOR_ID.equals(ctx.executorID())) {
+        // The executor within the driver JVM shares the SDK that was configured by the server.
+        return;
+      }
+      final TracingConfiguration tracing = fromSparkConf(ctx.conf());
+      if (!tracing.isEnabled()) {
+        return;
+      }
+      openTelemetry = TracingInitializer.buildSdk(tracing);
+      Tracing.configure(openTelemetry);
+      log.info("Tracing enabled on executor {}, exporting spans using {}", ctx.executorID(),
+          tracing.getExporter());
+    }
+
+    @Override
+    public void shutdown() {
+      if (openTelemetry != null) {
+        // Flush any outstanding spans before the executor exits.
+        openTelemetry.close();
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.tracing;
+
+import static java.util.Objects.requireNonNull;
+
+import au.csiro.pathling.utilities.Tracing;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.spark.scheduler.JobSucceeded$;
+import org.apache.spark.scheduler.SparkListener;
+import org.apache.spark.scheduler.SparkListenerJobEnd;
+import org.apache.spark.scheduler.SparkListenerJobStart;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates a span for each Spark job, as a child of the span that was current on the thread that
+ * submitted the job.
+ *
+ * @author John Grimes
+ */
+@Component
+@Profile("core")
+@ConditionalOnProperty(prefix = "pathling", name = "tracing.enabled", havingValue = "true")
+public class TracingSparkListener extends SparkListener {
+
+  @Nonnull
+  private final Map<Integer, Span> jobSpans = new ConcurrentHashMap<>();
+
+  @Override
+  public void onJobStart(final SparkListenerJobStart jobStart) {
+    requireNonNull(jobStart);
+    @Nullable final String traceContext = Optional.ofNullable(jobStart.properties())
+        .map(p -> p.getProperty(Tracing.TRACE_CONTEXT_PROPERTY))
+        .orElse(null);
+    if (traceContext == null) {
+      return;
+    }
+    final Context parent = Tracing.deserialize(traceContext);
+    @Nullable final String jobGroupId = jobStart.properties().getProperty("spark.jobGroup.id");
+    final Span span = Tracing.getTracer().spanBuilder("spark.job")
+        .setParent(parent)
+        .setStartTimestamp(jobStart.time(), TimeUnit.MILLISECONDS)
+        .setAttribute("spark.job.id", jobStart.jobId())
+        .setAttribute("spark.job.stages", jobStart.stageIds().size())
+        .startSpan();
+    if (jobGroupId != null) {
+      span.setAttribute("spark.job.group", jobGroupId);
+    }
+    jobSpans.put(jobStart.jobId(), span);
+  }
+
+  @Override
+  public void onJobEnd(final SparkListenerJobEnd jobEnd) {
+    requireNonNull(jobEnd);
+    @Nullable final Span span = jobSpans.remove(jobEnd.jobId());
+    if (span == null) {
+      return;
+    }
+    if (!JobSucceeded$.MODULE$.equals(jobEnd.jobResult())) {
+      span.setStatus(StatusCode.ERROR);
+    }
+    span.end(jobEnd.time(), TimeUnit.MILLISECONDS);
+  }
+
+}
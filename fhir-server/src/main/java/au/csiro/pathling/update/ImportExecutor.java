@@ -18,7 +18,9 @@
 package au.csiro.pathling.update;
 
 import static au.csiro.pathling.utilities.Preconditions.checkUserInput;
+import static org.apache.spark.sql.functions.col;
 
+import au.csiro.pathling.config.ServerConfiguration;
 import au.csiro.pathling.encoders.FhirEncoders;
 import au.csiro.pathling.encoders.UnsupportedResourceError;
 import au.csiro.pathling.errors.InvalidUserInputError;
@@ -28,17 +30,25 @@ import au.csiro.pathling.io.AccessRules;
 import au.csiro.pathling.io.Database;
 import au.csiro.pathling.io.FileSystemPersistence;
 import au.csiro.pathling.io.ImportMode;
+import au.csiro.pathling.utilities.ConcurrentJobRunner;
 import ca.uhn.fhir.rest.annotation.ResourceParam;
+import com.google.common.base.Throwables;
 import jakarta.annotation.Nonnull;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.spark.api.java.function.FilterFunction;
 import org.apache.spark.api.java.function.MapFunction;
 import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SparkSession;
 import org.apache.spark.sql.catalyst.encoders.ExpressionEncoder;
 import org.hl7.fhir.instance.model.api.IBaseResource;
@@ -52,6 +62,7 @@ import org.hl7.fhir.r4.model.Parameters;
 import org.hl7.fhir.r4.model.Parameters.ParametersParameterComponent;
 import org.hl7.fhir.r4.model.UrlType;
 import org.springframework.context.annotation.Profile;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
 import org.springframework.stereotype.Component;
 
 /**
@@ -80,6 +91,9 @@ public class ImportExecutor {
   @Nonnull
   private final Optional<AccessRules> accessRules;
 
+  @Nonnull
+  private final ServerConfiguration configuration;
+
   /**
    * @param spark a {@link SparkSession} for resolving Spark queries
    * @param database a {@link Database} for writing resources
@@ -87,21 +101,29 @@ public class ImportExecutor {
    * @param fhirContextFactory a {@link FhirContextFactory} for constructing FhirContext objects in
    * the context of parallel processing
    * @param accessRules a {@link AccessRules} for validating access to URLs
+   * @param configuration a {@link ServerConfiguration} for determining the import parallelism
    */
   public ImportExecutor(@Nonnull final SparkSession spark,
       @Nonnull final Database database,
       @Nonnull final FhirEncoders fhirEncoders,
       @Nonnull final FhirContextFactory fhirContextFactory,
-      @Nonnull final Optional<AccessRules> accessRules) {
+      @Nonnull final Optional<AccessRules> accessRules,
+      @Nonnull final ServerConfiguration configuration) {
     this.spark = spark;
     this.database = database;
     this.fhirEncoders = fhirEncoders;
     this.fhirContextFactory = fhirContextFactory;
     this.accessRules = accessRules;
+    this.configuration = configuration;
   }
 
   /**
    * Executes an import request.
+   * <p>
+   * All sources are validated before any of them are imported. Sources that contain the same
+   * resource type write to the same table, so they are imported one after another in the order in
+   * which they appear within the request. Sources for different resource types write to
+   * independent tables, and are imported concurrently.
    *
    * @param inParams a FHIR {@link Parameters} object describing the import request
    * @return a FHIR {@link OperationOutcome} resource describing the result
@@ -116,52 +138,11 @@ public class ImportExecutor {
     }
     log.info("Received $import request");
 
-    // For each input within the request, read the resources of the declared type and create
-    // the corresponding table in the warehouse.
-    for (final ParametersParameterComponent sourceParam : sourceParams) {
-      final ParametersParameterComponent resourceTypeParam = sourceParam.getPart().stream()
-          .filter(param -> "resourceType".equals(param.getName()))
-          .findFirst()
-          .orElseThrow(
-              () -> new InvalidUserInputError("Must provide resourceType for each source"));
-      final ParametersParameterComponent urlParam = sourceParam.getPart().stream()
-          .filter(param -> "url".equals(param.getName()))
-          .findFirst()
-          .orElseThrow(
-              () -> new InvalidUserInputError("Must provide url for each source"));
-      // The mode parameter defaults to 'overwrite'.
-      final ImportMode importMode = sourceParam.getPart().stream()
-          .filter(param -> "mode".equals(param.getName()) &&
-              param.getValue() instanceof CodeType)
-          .findFirst()
-          .map(param -> ImportMode.fromCode(
-              ((CodeType) param.getValue()).asStringValue()))
-          .orElse(ImportMode.OVERWRITE);
-      final String resourceCode = ((CodeType) resourceTypeParam.getValue()).getCode();
-      final ResourceType resourceType = ResourceType.fromCode(resourceCode);
-
-      // Get an encoder based on the declared resource type within the source parameter.
-      final ExpressionEncoder<IBaseResource> fhirEncoder;
-      try {
-        fhirEncoder = fhirEncoders.of(resourceType.toCode());
-      } catch (final UnsupportedResourceError e) {
-        throw new InvalidUserInputError("Unsupported resource type: " + resourceCode);
-      }
-
-      // Read the resources from the source URL into a dataset of strings.
-      final Dataset<String> jsonStrings = readStringsFromUrl(urlParam);
-
-      // Parse each line into a HAPI FHIR object, then encode to a Spark dataset.
-      final Dataset<IBaseResource> resources = jsonStrings.map(jsonToResourceConverter(),
-          fhirEncoder);
-
-      log.info("Importing {} resources (mode: {})", resourceType.toCode(), importMode.getCode());
-      if (importMode == ImportMode.OVERWRITE) {
-        database.overwrite(resourceType, resources.toDF());
-      } else {
-        database.merge(resourceType, resources.toDF());
-      }
-    }
+    final Map<ResourceType, List<ImportSource>> sourcesByType = sourceParams.stream()
+        .map(this::parseSource)
+        .collect(Collectors.groupingBy(ImportSource::getResourceType, LinkedHashMap::new,
+            Collectors.toList()));
+    importConcurrently(sourcesByType);
 
     // We return 200, as this operation is currently synchronous.
     log.info("Import complete");
@@ -177,22 +158,192 @@ public class ImportExecutor {
   }
 
   @Nonnull
-  private Dataset<String> readStringsFromUrl(@Nonnull final ParametersParameterComponent urlParam) {
+  private ImportSource parseSource(@Nonnull final ParametersParameterComponent sourceParam) {
+    final ParametersParameterComponent resourceTypeParam = sourceParam.getPart().stream()
+        .filter(param -> "resourceType".equals(param.getName()))
+        .findFirst()
+        .orElseThrow(
+            () -> new InvalidUserInputError("Must provide resourceType for each source"));
+    final ParametersParameterComponent urlParam = sourceParam.getPart().stream()
+        .filter(param -> "url".equals(param.getName()))
+        .findFirst()
+        .orElseThrow(
+            () -> new InvalidUserInputError("Must provide url for each source"));
+    // The mode parameter defaults to 'overwrite'.
+    final ImportMode importMode = sourceParam.getPart().stream()
+        .filter(param -> "mode".equals(param.getName()) &&
+            param.getValue() instanceof CodeType)
+        .findFirst()
+        .map(param -> ImportMode.fromCode(
+            ((CodeType) param.getValue()).asStringValue()))
+        .orElse(ImportMode.OVERWRITE);
+    // The format parameter defaults to 'ndjson'.
+    final ImportFormat importFormat = sourceParam.getPart().stream()
+        .filter(param -> "format".equals(param.getName()) &&
+            param.getValue() instanceof CodeType)
+        .findFirst()
+        .map(param -> parseFormat(((CodeType) param.getValue()).asStringValue()))
+        .orElse(ImportFormat.NDJSON);
+    final String resourceCode = ((CodeType) resourceTypeParam.getValue()).getCode();
+    final ResourceType resourceType = ResourceType.fromCode(resourceCode);
+
+    // Get an encoder based on the declared resource type within the source parameter.
+    final ExpressionEncoder<IBaseResource> fhirEncoder;
+    try {
+      fhirEncoder = fhirEncoders.of(resourceType.toCode());
+    } catch (final UnsupportedResourceError e) {
+      throw new InvalidUserInputError("Unsupported resource type: " + resourceCode);
+    }
+
+    return new ImportSource(resourceType, resolveUrl(urlParam), importFormat, importMode,
+        fhirEncoder);
+  }
+
+  /**
+   * Imports each group of sources, running the groups concurrently up to the configured level of
+   * parallelism using a {@link ConcurrentJobRunner}. Failures are collected for all sources and
+   * reported together once every group has finished.
+   */
+  private void importConcurrently(
+      @Nonnull final Map<ResourceType, List<ImportSource>> sourcesByType) {
+    // The security context is bound to the request thread, so it needs to be carried across to the
+    // thread that performs the import.
+    final ConcurrentJobRunner runner = new ConcurrentJobRunner(spark.sparkContext(), "import",
+        configuration.getImport().getParallelism(), DelegatingSecurityContextRunnable::new);
+    final Map<ImportSource, Throwable> failures = Collections.synchronizedMap(
+        new LinkedHashMap<>());
+    try {
+      runner.run(sourcesByType.keySet(), ResourceType::toCode,
+          resourceType -> importGroup(sourcesByType.get(resourceType), failures));
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while importing sources", e);
+    }
+    throwFailures(failures);
+  }
+
+  /**
+   * Imports a group of sources for the same resource type in order, stopping at the first failure
+   * so that later sources are not applied to a table that is missing an earlier one. The failure is
+   * recorded against its source before it is rethrown.
+   */
+  private void importGroup(@Nonnull final List<ImportSource> sources,
+      @Nonnull final Map<ImportSource, Throwable> failures) {
+    for (int i = 0; i < sources.size(); i++) {
+      final ImportSource source = sources.get(i);
+      try {
+        importSource(source);
+      } catch (final RuntimeException e) {
+        log.warn("Failed to import source: {}", source.getUrl(), e);
+        failures.put(source, e);
+        if (i + 1 < sources.size()) {
+          log.warn("Skipped {} remaining {} source(s) following failure", sources.size() - i - 1,
+              source.getResourceType().toCode());
+        }
+        throw e;
+      }
+    }
+  }
+
+  private static void throwFailures(@Nonnull final Map<ImportSource, Throwable> failures) {
+    if (failures.isEmpty()) {
+      return;
+    }
+    if (failures.size() == 1) {
+      // A single failure is rethrown as it is, so that it is reported in the same way as when the
+      // sources are imported sequentially.
+      Throwables.throwIfUnchecked(failures.values().iterator().next());
+      throw new RuntimeException(failures.values().iterator().next());
+    }
+    final String message = "Failed to import " + failures.size() + " sources: "
+        + failures.entrySet().stream()
+        .map(entry -> entry.getKey().getResourceType().toCode() + " (" + entry.getKey().getUrl()
+            + "): " + entry.getValue().getMessage())
+        .collect(Collectors.joining("; "));
+    // The failures are only reported as user errors if that is what each of them was.
+    final boolean userErrors = failures.values().stream()
+        .allMatch(InvalidUserInputError.class::isInstance);
+    final RuntimeException error = userErrors
+                                   ? new InvalidUserInputError(message)
+                                   : new RuntimeException(message);
+    failures.values().forEach(error::addSuppressed);
+    throw error;
+  }
+
+  private void importSource(@Nonnull final ImportSource source) {
+    final ImportFormat importFormat = source.getFormat();
+    final ExpressionEncoder<IBaseResource> fhirEncoder = source.getEncoder();
+    final Dataset<Row> resources;
+    if (importFormat == ImportFormat.NDJSON) {
+      // Read the resources from the source URL into a dataset of strings, then parse each line
+      // into a HAPI FHIR object and encode it to a Spark dataset.
+      resources = readStringsFromUrl(source.getUrl()).map(jsonToResourceConverter(), fhirEncoder)
+          .toDF();
+    } else {
+      // Data that has already been encoded is reconciled with the schema of the current encoder,
+      // and written without being parsed.
+      resources = SchemaReconciler.reconcile(readEncodedFromUrl(source.getUrl(), importFormat),
+          fhirEncoder.schema());
+    }
+
+    final ResourceType resourceType = source.getResourceType();
+    log.info("Importing {} resources (format: {}, mode: {})", resourceType.toCode(),
+        importFormat.getCode(), source.getMode().getCode());
+    if (source.getMode() == ImportMode.OVERWRITE) {
+      database.overwrite(resourceType, resources);
+    } else {
+      database.merge(resourceType, resources);
+    }
+  }
+
+  @Nonnull
+  private static ImportFormat parseFormat(@Nonnull final String code) {
+    try {
+      return ImportFormat.fromCode(code);
+    } catch (final IllegalArgumentException e) {
+      throw new InvalidUserInputError(e.getMessage());
+    }
+  }
+
+  @Nonnull
+  private String resolveUrl(@Nonnull final ParametersParameterComponent urlParam) {
     final String url = ((UrlType) urlParam.getValue()).getValueAsString();
     final String decodedUrl = URLDecoder.decode(url, StandardCharsets.UTF_8);
     final String convertedUrl = FileSystemPersistence.convertS3ToS3aUrl(decodedUrl);
-    final Dataset<String> jsonStrings;
     try {
       // Check that the user is authorized to execute the operation.
       accessRules.ifPresent(ar -> ar.checkCanImportFrom(convertedUrl));
-      final FilterFunction<String> nonBlanks = s -> !s.isBlank();
-      jsonStrings = spark.read().textFile(convertedUrl).filter(nonBlanks);
     } catch (final SecurityError e) {
       throw new InvalidUserInputError("Not allowed to import from URL: " + convertedUrl, e);
+    }
+    return convertedUrl;
+  }
+
+  @Nonnull
+  private Dataset<String> readStringsFromUrl(@Nonnull final String url) {
+    try {
+      final FilterFunction<String> nonBlanks = s -> !s.isBlank();
+      return spark.read().textFile(url).filter(nonBlanks);
     } catch (final Exception e) {
-      throw new InvalidUserInputError("Error reading from URL: " + convertedUrl, e);
+      throw new InvalidUserInputError("Error reading from URL: " + url, e);
     }
-    return jsonStrings;
+  }
+
+  @Nonnull
+  private Dataset<Row> readEncodedFromUrl(@Nonnull final String url,
+      @Nonnull final ImportFormat importFormat) {
+    final Dataset<Row> dataset;
+    try {
+      dataset = spark.read().format(importFormat.getCode()).load(url);
+    } catch (final Exception e) {
+      throw new InvalidUserInputError("Error reading from URL: " + url, e);
+    }
+    // All imported resources must have an ID set.
+    checkUserInput(Arrays.asList(dataset.columns()).contains("id"),
+        "Source does not contain an id column: " + url);
+    checkUserInput(dataset.filter(col("id").isNull()).isEmpty(),
+        "Encountered a resource with no ID");
+    return dataset;
   }
 
   @Nonnull
@@ -207,4 +358,27 @@ public class ImportExecutor {
     };
   }
 
+  /**
+   * A single source within an import request, which has been validated but not yet read.
+   */
+  @Value
+  private static class ImportSource {
+
+    @Nonnull
+    ResourceType resourceType;
+
+    @Nonnull
+    String url;
+
+    @Nonnull
+    ImportFormat format;
+
+    @Nonnull
+    ImportMode mode;
+
+    @Nonnull
+    ExpressionEncoder<IBaseResource> encoder;
+
+  }
+
 }
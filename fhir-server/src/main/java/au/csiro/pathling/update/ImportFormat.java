@@ -0,0 +1,66 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package au.csiro.pathling.update;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import lombok.Getter;
+
+/**
+ * The formats of source data that are supported by the import operation.
+ *
+ * @author John Grimes
+ */
+public enum ImportFormat {
+  /**
+   * FHIR resources encoded as JSON, one per line. Each resource is parsed and then encoded.
+   */
+  NDJSON("ndjson"),
+
+  /**
+   * Parquet files containing resources that have already been encoded, e.g. by the Pathling
+   * library. The data is reconciled with the schema of the current encoders and written directly.
+   */
+  PARQUET("parquet"),
+
+  /**
+   * A Delta table containing resources that have already been encoded. The data is reconciled with
+   * the schema of the current encoders and written directly.
+   */
+  DELTA("delta");
+
+  @Nonnull
+  @Getter
+  private final String code;
+
+  ImportFormat(@Nonnull final String code) {
+    this.code = code;
+  }
+
+  @Nonnull
+  public static ImportFormat fromCode(@Nullable final String code) {
+    for (final ImportFormat format : values()) {
+      if (format.code.equals(code)) {
+        return format;
+      }
+    }
+    throw new IllegalArgumentException("Unknown import format: " + code);
+  }
+
+}
@@ -19,13 +19,24 @@ package au.csiro.pathling.update;
 
 import ca.uhn.fhir.rest.server.exceptions.UnclassifiedServerFailureException;
 import jakarta.annotation.Nonnull;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.Enumerations.ResourceType;
+import org.hl7.fhir.r4.model.Parameters;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 /**
+ * Prevents an import from starting while another import is writing to any of the same resource
+ * types. Imports of disjoint sets of resource types write to independent tables, and are allowed to
+ * run at the same time.
+ *
  * @author John Grimes
  */
 @Aspect
@@ -33,21 +44,58 @@ import org.springframework.stereotype.Component;
 @Profile("core")
 public class ImportLock {
 
-  private static boolean locked = false;
+  @Nonnull
+  private final Set<ResourceType> locked = new HashSet<>();
 
   @Around("execution(* au.csiro.pathling.update.ImportExecutor.execute(..))")
-  private synchronized Object enforce(@Nonnull final ProceedingJoinPoint joinPoint)
-      throws Throwable {
-    if (locked) {
-      throw new UnclassifiedServerFailureException(503,
-          "Another import operation is currently in progress");
-    }
+  private Object enforce(@Nonnull final ProceedingJoinPoint joinPoint) throws Throwable {
+    final Set<ResourceType> resourceTypes = resourceTypes(joinPoint.getArgs());
+    acquire(resourceTypes);
     try {
-      locked = true;
       return joinPoint.proceed();
     } finally {
-      locked = false;
+      release(resourceTypes);
+    }
+  }
+
+  private synchronized void acquire(@Nonnull final Set<ResourceType> resourceTypes) {
+    if (resourceTypes.stream().anyMatch(locked::contains)) {
+      throw new UnclassifiedServerFailureException(503,
+          "Another import operation is currently in progress");
+    }
+    locked.addAll(resourceTypes);
+  }
+
+  private synchronized void release(@Nonnull final Set<ResourceType> resourceTypes) {
+    locked.removeAll(resourceTypes);
+  }
+
+  /**
+   * Gets the resource types declared by the sources within the import request. Sources that do not
+   * declare a valid resource type are ignored, as they will be rejected by the executor.
+   */
+  @Nonnull
+  private static Set<ResourceType> resourceTypes(@Nonnull final Object[] args) {
+    final Set<ResourceType> resourceTypes = EnumSet.noneOf(ResourceType.class);
+    for (final Object arg : args) {
+      if (arg instanceof final Parameters parameters) {
+        parameters.getParameter().stream()
+            .filter(param -> "source".equals(param.getName()))
+            .flatMap(param -> param.getPart().stream())
+            .filter(part -> "resourceType".equals(part.getName())
+                && part.getValue() instanceof CodeType)
+            .map(part -> ((CodeType) part.getValue()).getCode())
+            .filter(code -> code != null && !code.isBlank())
+            .forEach(code -> {
+              try {
+                resourceTypes.add(ResourceType.fromCode(code));
+              } catch (final FHIRException e) {
+                // Invalid resource types are reported by the executor.
+              }
+            });
+      }
     }
+    return resourceTypes;
   }
 
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package au.csiro.pathling.update;
+
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.lit;
+import static org.apache.spark.sql.functions.struct;
+import static org.apache.spark.sql.functions.transform;
+import static org.apache.spark.sql.functions.transform_keys;
+import static org.apache.spark.sql.functions.transform_values;
+import static org.apache.spark.sql.functions.when;
+
+import au.csiro.pathling.errors.InvalidUserInputError;
+import jakarta.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.types.ArrayType;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.MapType;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+
+/**
+ * Reconciles a dataset of previously encoded resources with the schema produced by the current
+ * encoders. Fields that are not part of the target schema are dropped, fields that are missing
+ * from the source are added as nulls, and primitive values are cast to the target type. This
+ * allows data that was encoded with a different version or configuration of the encoders to be
+ * imported without being parsed again.
+ *
+ * @author John Grimes
+ */
+@Slf4j
+final class SchemaReconciler {
+
+  private SchemaReconciler() {
+  }
+
+  /**
+   * @param dataset the dataset of encoded resources
+   * @param target the schema of the current encoder for the resource type
+   * @return a dataset with the target schema
+   * @throws InvalidUserInputError if the structure of the dataset is not compatible with the
+   * target schema
+   */
+  @Nonnull
+  static Dataset<Row> reconcile(@Nonnull final Dataset<Row> dataset,
+      @Nonnull final StructType target) {
+    if (dataset.schema().equals(target)) {
+      return dataset;
+    }
+    final StructType source = dataset.schema();
+    Arrays.stream(source.fieldNames())
+        .filter(name -> findField(target, name).isEmpty())
+        .forEach(name -> log.debug("Dropping field not present in encoder schema: {}", name));
+    final Column[] columns = Arrays.stream(target.fields())
+        .map(field -> findField(source, field.name())
+            .map(sourceField -> reconcile(col(field.name()), sourceField.dataType(),
+                field.dataType(), field.name()))
+            .orElseGet(() -> lit(null).cast(field.dataType()))
+            .alias(field.name()))
+        .toArray(Column[]::new);
+    return dataset.select(columns);
+  }
+
+  @Nonnull
+  private static Column reconcile(@Nonnull final Column column, @Nonnull final DataType source,
+      @Nonnull final DataType target, @Nonnull final String path) {
+    if (source.equals(target)) {
+      return column;
+    } else if (target instanceof final StructType targetStruct) {
+      if (!(source instanceof final StructType sourceStruct)) {
+        throw incompatible(path, source, target);
+      }
+      final Column[] fields = Arrays.stream(targetStruct.fields())
+          .map(field -> findField(sourceStruct, field.name())
+              .map(sourceField -> reconcile(column.getField(field.name()),
+                  sourceField.dataType(), field.dataType(), path + "." + field.name()))
+              .orElseGet(() -> lit(null).cast(field.dataType()))
+              .alias(field.name()))
+          .toArray(Column[]::new);
+      // A null struct needs to stay null, rather than becoming a struct of null fields.
+      return when(column.isNotNull(), struct(fields));
+    } else if (target instanceof final ArrayType targetArray) {
+      if (!(source instanceof final ArrayType sourceArray)) {
+        throw incompatible(path, source, target);
+      }
+      return transform(column, element -> reconcile(element, sourceArray.elementType(),
+          targetArray.elementType(), path));
+    } else if (target instanceof final MapType targetMap) {
+      if (!(source instanceof final MapType sourceMap)) {
+        throw incompatible(path, source, target);
+      }
+      final Column keys = transform_keys(column,
+          (key, value) -> reconcile(key, sourceMap.keyType(), targetMap.keyType(), path));
+      return transform_values(keys,
+          (key, value) -> reconcile(value, sourceMap.valueType(), targetMap.valueType(), path));
+    } else if (source instanceof StructType || source instanceof ArrayType
+        || source instanceof MapType) {
+      throw incompatible(path, source, target);
+    } else {
+      return column.cast(target);
+    }
+  }
+
+  @Nonnull
+  private static Optional<StructField> findField(@Nonnull final StructType struct,
+      @Nonnull final String name) {
+    return Arrays.stream(struct.fields())
+        .filter(field -> field.name().equals(name))
+        .findFirst();
+  }
+
+  @Nonnull
+  private static InvalidUserInputError incompatible(@Nonnull final String path,
+      @Nonnull final DataType source, @Nonnull final DataType target) {
+    return new InvalidUserInputError(
+        "Field " + path + " has type " + source.simpleString()
+            + ", which cannot be converted to " + target.simpleString());
+  }
+
+}
@@ -85,7 +85,7 @@ abstract class AggregateExecutorTest {
   void setUp() {
     SharedMocks.resetAll();
     executor = new AggregateExecutor(configuration, fhirContext, spark, database,
-        Optional.of(terminologyServiceFactory));
+        Optional.of(terminologyServiceFactory), Optional.empty());
   }
 
   /**
@@ -108,7 +108,7 @@ abstract class AggregateExecutorTest {
         filters.addAnd(new StringParam(drillDown));
         final IBundleProvider searchExecutor = new SearchExecutor(configuration, fhirContext, spark,
             database, Optional.of(terminologyServiceFactory),
-            fhirEncoders, subjectResource, Optional.of(filters));
+            fhirEncoders, subjectResource, Optional.of(filters), Optional.empty());
         final List<IBaseResource> resources = searchExecutor.getResources(0, 100);
         assertTrue(resources.size() > 0);
       }
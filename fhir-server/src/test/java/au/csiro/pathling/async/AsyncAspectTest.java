@@ -96,7 +96,7 @@ public class AsyncAspectTest {
         serverConfiguration);
     jobRegistry = new JobRegistry();
     asyncAspect = new AsyncAspect(threadPoolTaskExecutor, requestTagFactory, jobRegistry, stageMap,
-        spark);
+        spark, Optional.empty());
 
     // Initialise mock request and response
     requestDetails = new ServletRequestDetails();
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.async;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import au.csiro.pathling.async.JobAccounting.TaskUsage;
+import java.util.Optional;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("UnitTest")
+class JobTest {
+
+  private static final TaskUsage USAGE = new TaskUsage(100, 20, 30, 4, 5, 60);
+
+  @SuppressWarnings("unchecked")
+  private final Job job = new Job("id", "operation", mock(Future.class), Optional.of("owner"));
+
+  @Test
+  void progressIsBasedOnTasks() {
+    job.incrementTotalStages();
+    job.addTotalTasks(4);
+    assertEquals(0, job.getProgressPercentage());
+    assertTrue(job.getEstimatedTimeRemaining().isEmpty());
+
+    // One unit of work is reserved for stages that have not yet been submitted.
+    job.recordTask(true, USAGE);
+    assertEquals(20, job.getProgressPercentage());
+    assertTrue(job.getEstimatedTimeRemaining().isPresent());
+
+    // Failed tasks do not contribute to progress.
+    job.recordTask(false, USAGE);
+    assertEquals(20, job.getProgressPercentage());
+  }
+
+  @Test
+  void progressNeverDecreases() {
+    job.incrementTotalStages();
+    job.addTotalTasks(2);
+    job.recordTask(true, USAGE);
+    assertEquals(33, job.getProgressPercentage());
+
+    // Submitting a new stage increases the total, but the reported progress is retained.
+    job.incrementTotalStages();
+    job.addTotalTasks(8);
+    assertEquals(33, job.getProgressPercentage());
+
+    job.recordTask(true, USAGE);
+    assertEquals(40, job.getProgressPercentage());
+  }
+
+  @Test
+  void progressAdvancesThroughLargeStageAfterSmallStage() {
+    job.incrementTotalStages();
+    job.addTotalTasks(1);
+    job.recordTask(true, USAGE);
+    job.incrementCompletedStages();
+    // Completing every known task does not report the job as complete.
+    assertEquals(50, job.getProgressPercentage());
+    assertTrue(job.getEstimatedTimeRemaining().isPresent());
+
+    job.incrementTotalStages();
+    job.addTotalTasks(100);
+    for (int i = 0; i < 50; i++) {
+      job.recordTask(true, USAGE);
+    }
+    assertEquals(74, job.getProgressPercentage());
+    assertTrue(job.getEstimatedTimeRemaining().isPresent());
+
+    for (int i = 0; i < 50; i++) {
+      job.recordTask(true, USAGE);
+    }
+    job.incrementCompletedStages();
+    assertEquals(99, job.getProgressPercentage());
+    assertTrue(job.getEstimatedTimeRemaining().isPresent());
+  }
+
+  @Test
+  void accountingAccumulatesTaskUsage() {
+    job.incrementTotalStages();
+    job.addTotalTasks(2);
+    job.recordTask(true, USAGE);
+    job.recordTask(true, USAGE);
+    job.incrementCompletedStages();
+
+    final JobAccounting accounting = job.getAccounting();
+    assertEquals("id", accounting.getJobId());
+    assertEquals("operation", accounting.getOperation());
+    assertEquals("owner", accounting.getOwnerId());
+    assertEquals(1, accounting.getCompletedStages());
+    assertEquals(2, accounting.getCompletedTasks());
+    assertEquals(new TaskUsage(200, 40, 60, 8, 10, 120), accounting.getUsage());
+  }
+
+  @Test
+  void accountingIsFormattedForJobStatus() {
+    final JobAccounting accounting = new JobAccounting("id", "operation", null, 0, 1500, 2, 40,
+        new TaskUsage(1024, 20, 30, 4, 5, 3_000_000));
+    assertEquals("elapsed=1500; stages=2; tasks=40; cpu=3; input=1024; shuffle-read=20; "
+        + "shuffle-write=30; spill-memory=4; spill-disk=5", JobProvider.formatUsage(accounting));
+  }
+
+}
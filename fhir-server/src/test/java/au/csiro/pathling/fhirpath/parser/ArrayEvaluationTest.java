@@ -0,0 +1,110 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.fhirpath.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import au.csiro.pathling.fhirpath.FhirPath;
+import au.csiro.pathling.fhirpath.ResourcePath;
+import au.csiro.pathling.test.builders.ParserContextBuilder;
+import jakarta.annotation.Nonnull;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import org.apache.spark.sql.Row;
+import org.hl7.fhir.r4.model.Enumerations.ResourceType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Checks that array evaluation of FHIRPath expressions produces the same results as the exploded
+ * evaluation, without the need for explode or shuffle operations.
+ *
+ * @author John Grimes
+ */
+class ArrayEvaluationTest extends AbstractParserTest {
+
+  static Stream<String> expressions() {
+    return Stream.of(
+        "name.given.first()",
+        "name.given.count()",
+        "name.prefix.empty()",
+        "name.given.exists()",
+        "name.where(use = 'official').given.first()",
+        "name.where(use != 'official').family.count()",
+        "name.where($this.use = 'maiden' or family.empty()).exists()",
+        "name.where(use = 'official' and given.exists()).given.count()",
+        "name.where(prefix.exists().not()).count()",
+        "telecom.where(system = 'phone').value.first()",
+        "address.line.count()",
+        "identifier.type.coding.code.first()",
+        "name.exists(use = 'official')",
+        // Criteria that cannot be compiled fall back to the exploded evaluation.
+        "name.where(given.count() > 1).family.first()",
+        "name.where(given contains 'Guy979').count()"
+    );
+  }
+
+  @ParameterizedTest
+  @MethodSource("expressions")
+  void producesSameResultAsExplodedEvaluation(@Nonnull final String expression) {
+    final List<Row> expected = evaluate(expression, false);
+    final List<Row> actual = evaluate(expression, true);
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  void avoidsExplodeAndShuffle() {
+    final FhirPath arrayResult = parse("name.where(use = 'official').given.first()", true);
+    final String arrayPlan = arrayResult.getDataset().queryExecution().executedPlan().toString();
+    assertFalse(arrayPlan.contains("Generate"), arrayPlan);
+    assertFalse(arrayPlan.contains("Exchange"), arrayPlan);
+
+    final FhirPath explodedResult = parse("name.where(use = 'official').given.first()", false);
+    final String explodedPlan = explodedResult.getDataset().queryExecution().executedPlan()
+        .toString();
+    assertTrue(explodedPlan.contains("Generate"), explodedPlan);
+  }
+
+  @Nonnull
+  private List<Row> evaluate(@Nonnull final String expression, final boolean arrayEvaluation) {
+    final FhirPath result = parse(expression, arrayEvaluation);
+    return result.getDataset()
+        .select(result.getIdColumn(), result.getValueColumn())
+        .orderBy(result.getIdColumn())
+        .collectAsList();
+  }
+
+  @Nonnull
+  private FhirPath parse(@Nonnull final String expression, final boolean arrayEvaluation) {
+    final ResourcePath subjectResource = ResourcePath
+        .build(fhirContext, dataSource, ResourceType.PATIENT, ResourceType.PATIENT.toCode(), true);
+    final ParserContext parserContext = new ParserContextBuilder(spark, fhirContext)
+        .terminologyClientFactory(terminologyServiceFactory)
+        .database(dataSource)
+        .inputContext(subjectResource)
+        .groupingColumns(Collections.singletonList(subjectResource.getIdColumn()))
+        .build();
+    parserContext.setArrayEvaluation(arrayEvaluation);
+    return new Parser(parserContext).parse(expression);
+  }
+
+}
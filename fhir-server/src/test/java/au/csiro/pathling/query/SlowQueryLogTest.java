@@ -0,0 +1,176 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.query;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import au.csiro.pathling.config.ServerConfiguration;
+import au.csiro.pathling.config.SlowQueryLogConfiguration;
+import au.csiro.pathling.test.SpringBootUnitTest;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+
+@SpringBootUnitTest
+class SlowQueryLogTest {
+
+  private static final QueryFingerprint FINGERPRINT = QueryFingerprint.of("extract", "Patient",
+      Map.of("columns", List.of("id")), List.of());
+
+  @Autowired
+  SparkSession spark;
+
+  private SlowQueryLog slowQueryLog;
+
+  @AfterEach
+  void tearDown() {
+    if (slowQueryLog != null) {
+      spark.sparkContext().removeSparkListener(slowQueryLog);
+    }
+  }
+
+  @Test
+  void recordsQueriesAboveThreshold() {
+    slowQueryLog = buildLog(0L, 2);
+    final Dataset<Row> dataset = spark.range(10).toDF();
+    for (int i = 0; i < 3; i++) {
+      assertEquals(10, slowQueryLog.record(FINGERPRINT, dataset, dataset::count));
+    }
+
+    // Only the most recent entries are retained.
+    final List<SlowQueryLogEntry> entries = slowQueryLog.getEntries();
+    assertEquals(2, entries.size());
+    assertTrue(entries.get(0).getStartTime().isAfter(entries.get(1).getStartTime())
+        || entries.get(0).getStartTime().equals(entries.get(1).getStartTime()));
+    assertEquals(FINGERPRINT, entries.get(0).getFingerprint());
+    assertEquals(2, slowQueryLog.getEntries(FINGERPRINT.getValue()).size());
+    assertTrue(slowQueryLog.getEntries("unknown").isEmpty());
+
+    // The query ID property is removed once execution has finished.
+    assertNull(spark.sparkContext().getLocalProperty(SlowQueryLog.QUERY_ID_PROPERTY));
+  }
+
+  @Test
+  void ignoresQueriesBelowThreshold() {
+    slowQueryLog = buildLog(60_000L, 10);
+    final Dataset<Row> dataset = spark.range(10).toDF();
+    slowQueryLog.record(FINGERPRINT, dataset, dataset::count);
+    assertTrue(slowQueryLog.getEntries().isEmpty());
+  }
+
+  @Test
+  void recordsQueriesWithinRequestOnce() {
+    slowQueryLog = buildLog(0L, 10);
+    final RequestDetails requestDetails = mock(RequestDetails.class);
+    when(requestDetails.getRequestId()).thenReturn("request-1");
+    final Dataset<Row> dataset = spark.range(10).toDF();
+
+    slowQueryLog.startRequest(requestDetails);
+    MDC.put("requestId", "request-1");
+    try {
+      slowQueryLog.record(FINGERPRINT, dataset, dataset::count);
+      slowQueryLog.record(FINGERPRINT, dataset, dataset::collectAsList);
+    } finally {
+      MDC.remove("requestId");
+    }
+    // Nothing is recorded until the request has completed.
+    assertTrue(slowQueryLog.getEntries().isEmpty());
+
+    slowQueryLog.completeRequest(requestDetails);
+    final List<SlowQueryLogEntry> entries = slowQueryLog.getEntries();
+    assertEquals(1, entries.size());
+    assertEquals(Optional.of("request-1"), entries.get(0).getRequestId());
+  }
+
+  @Test
+  void aggregatesPlanStatisticsAcrossQueriesOfRequest() {
+    slowQueryLog = buildLog(0L, 10);
+    // An aggregate request executes a query for its result, followed by a separate query for each
+    // of its drill-down expressions.
+    final Dataset<Row> grouping = spark.range(10).toDF()
+        .join(spark.range(5).toDF(), "id")
+        .groupBy("id").count();
+    final Dataset<Row> drillDown = spark.range(10).toDF().filter("id > 5");
+
+    slowQueryLog.startRequest("request-2");
+    MDC.put("requestId", "request-2");
+    try {
+      slowQueryLog.record(FINGERPRINT, grouping, grouping::collectAsList);
+      slowQueryLog.record(FINGERPRINT, drillDown, drillDown::collectAsList);
+    } finally {
+      MDC.remove("requestId");
+    }
+    slowQueryLog.completeRequest("request-2");
+
+    final List<SlowQueryLogEntry> entries = slowQueryLog.getEntries();
+    assertEquals(1, entries.size());
+    final PlanStatistics expected = PlanStatistics.of(grouping)
+        .plus(PlanStatistics.of(drillDown));
+    assertEquals(expected, entries.get(0).getStatistics());
+    assertEquals(1, expected.getJoins());
+  }
+
+  @Test
+  void recordsAsynchronousQueriesOnceJobHasCompleted() {
+    slowQueryLog = buildLog(0L, 10);
+    final Dataset<Row> dataset = spark.range(10).toDF();
+
+    // The request is held open by both the HTTP request and the asynchronous job that it started.
+    slowQueryLog.startRequest("request-3");
+    slowQueryLog.startRequest("request-3");
+    slowQueryLog.completeRequest("request-3");
+    MDC.put("requestId", "request-3");
+    try {
+      slowQueryLog.record(FINGERPRINT, dataset, dataset::count);
+      slowQueryLog.record(FINGERPRINT, dataset, dataset::collectAsList);
+    } finally {
+      MDC.remove("requestId");
+    }
+    assertTrue(slowQueryLog.getEntries().isEmpty());
+
+    slowQueryLog.completeRequest("request-3");
+    final List<SlowQueryLogEntry> entries = slowQueryLog.getEntries();
+    assertEquals(1, entries.size());
+    assertEquals(Optional.of("request-3"), entries.get(0).getRequestId());
+  }
+
+  private SlowQueryLog buildLog(final long threshold, final int maxEntries) {
+    final SlowQueryLogConfiguration logConfiguration = new SlowQueryLogConfiguration();
+    logConfiguration.setEnabled(true);
+    logConfiguration.setThreshold(threshold);
+    logConfiguration.setSampleRate(1.0);
+    logConfiguration.setMaxEntries(maxEntries);
+    final ServerConfiguration configuration = new ServerConfiguration();
+    configuration.setSlowQueryLog(logConfiguration);
+    final SlowQueryLog log = new SlowQueryLog(configuration);
+    spark.sparkContext().addSparkListener(log);
+    return log;
+  }
+
+}
@@ -90,7 +90,8 @@ class SearchExecutorBuilder {
   SearchExecutor build() {
     requireNonNull(subjectResource);
     return new SearchExecutor(configuration, fhirContext, sparkSession, database,
-        Optional.of(terminologyServiceFactory), fhirEncoders, subjectResource, filters);
+        Optional.of(terminologyServiceFactory), fhirEncoders, subjectResource, filters,
+        Optional.empty());
   }
 
 }
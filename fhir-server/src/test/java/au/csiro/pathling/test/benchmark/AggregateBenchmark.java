@@ -102,7 +102,7 @@ public class AggregateBenchmark {
           ResourceType.CAREPLAN);
 
       executor = new AggregateExecutor(configuration, fhirContext, spark, database,
-          Optional.of(terminologyServiceFactory));
+          Optional.of(terminologyServiceFactory), Optional.empty());
     }
 
     public AggregateResponse execute(@Nonnull final AggregateRequest query) {
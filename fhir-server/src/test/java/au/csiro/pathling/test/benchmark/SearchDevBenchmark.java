@@ -100,7 +100,7 @@ public class SearchDevBenchmark {
     public List<IBaseResource> execute(@Nonnull final Optional<StringAndListParam> filters) {
       final IBundleProvider executor = new SearchExecutor(configuration, fhirContext, spark,
           database, Optional.of(terminologyServiceFactory), fhirEncoders, ResourceType.ENCOUNTER,
-          filters);
+          filters, Optional.empty());
       executor.size();
       return executor.getResources(0, PAGE_SIZE);
     }
@@ -90,7 +90,7 @@ public class TerminologyBenchmarkTest {
         ResourceType.CAREPLAN);
 
     defaultExecutor = new AggregateExecutor(configuration, fhirContext, spark, database,
-        Optional.of(terminologyServiceFactory));
+        Optional.of(terminologyServiceFactory), Optional.empty());
 
   }
 
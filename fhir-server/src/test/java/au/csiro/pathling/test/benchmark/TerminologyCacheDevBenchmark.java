@@ -0,0 +1,173 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.test.benchmark;
+
+import au.csiro.pathling.fhirpath.encoding.ImmutableCoding;
+import au.csiro.pathling.terminology.TerminologyParameters;
+import au.csiro.pathling.terminology.TerminologyResult;
+import au.csiro.pathling.terminology.TerminologyService.Designation;
+import au.csiro.pathling.terminology.TerminologyService.Property;
+import au.csiro.pathling.terminology.TerminologyService.PropertyOrDesignation;
+import au.csiro.pathling.terminology.caching.CacheKey;
+import au.csiro.pathling.terminology.caching.TerminologyCacheMarshaller;
+import au.csiro.pathling.terminology.lookup.LookupParameters;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.commons.io.FileUtils;
+import org.hl7.fhir.r4.model.BooleanType;
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.StringType;
+import org.infinispan.Cache;
+import org.infinispan.commons.marshall.JavaSerializationMarshaller;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.eviction.EvictionStrategy;
+import org.infinispan.manager.DefaultCacheManager;
+import org.junit.jupiter.api.Tag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the throughput and disk footprint of a persistent terminology cache using Java
+ * serialization and hash code keys, with one using {@link TerminologyCacheMarshaller} and
+ * {@link CacheKey} keys. The size of the store is printed at the end of each trial.
+ *
+ * @author John Grimes
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Tag("UnitTest")
+@Fork(0)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class TerminologyCacheDevBenchmark {
+
+  private static final int ENTRIES = 10_000;
+  private static final String SNOMED_URI = "http://snomed.info/sct";
+
+  @State(Scope.Benchmark)
+  public static class CacheState {
+
+    @Param({"java", "binary"})
+    String encoding;
+
+    Path storagePath;
+    DefaultCacheManager cacheManager;
+    Cache<Object, Object> cache;
+    List<Object> keys;
+    TerminologyResult<ArrayList<PropertyOrDesignation>> value;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+      storagePath = Files.createTempDirectory("terminology-cache-benchmark");
+      final GlobalConfigurationBuilder globalConfig = new GlobalConfigurationBuilder();
+      if (encoding.equals("java")) {
+        globalConfig.serialization()
+            .marshaller(new JavaSerializationMarshaller())
+            .allowList()
+            .addRegexp(".*");
+      } else {
+        globalConfig.serialization().marshaller(new TerminologyCacheMarshaller());
+      }
+      cacheManager = new DefaultCacheManager(globalConfig.build());
+      cacheManager.defineConfiguration("lookup", new ConfigurationBuilder()
+          .memory()
+          .maxCount(ENTRIES / 10)
+          .whenFull(EvictionStrategy.REMOVE)
+          .persistence()
+          .addSoftIndexFileStore()
+          .dataLocation(storagePath.resolve("data").toString())
+          .indexLocation(storagePath.resolve("index").toString())
+          .build());
+      cache = cacheManager.getCache("lookup");
+
+      keys = new ArrayList<>(ENTRIES);
+      for (int i = 0; i < ENTRIES; i++) {
+        final TerminologyParameters parameters = new LookupParameters(
+            ImmutableCoding.of(SNOMED_URI, String.valueOf(100000000 + i), null),
+            "designation", "en");
+        keys.add(encoding.equals("java")
+                 ? parameters.hashCode()
+                 : CacheKey.of(parameters));
+      }
+
+      final Coding use = new Coding(SNOMED_URI, "900000000000003001", "Fully specified name");
+      final ArrayList<PropertyOrDesignation> data = new ArrayList<>(List.of(
+          Property.of("parent", new CodeType("73211009")),
+          Property.of("inactive", new BooleanType(false)),
+          Property.of("display", new StringType("Type 2 diabetes mellitus")),
+          Designation.of(use, "en", "Type 2 diabetes mellitus (disorder)")));
+      value = new TerminologyResult<>(data, "W/\"1\"", System.currentTimeMillis() + 600_000L,
+          false);
+
+      // Populate the cache once, and report the size of the store. The store is append-only, so it
+      // is measured before the benchmark iterations overwrite any entries.
+      for (final Object key : keys) {
+        cache.put(key, value);
+      }
+      try (final Stream<Path> files = Files.walk(storagePath.resolve("data"))) {
+        final long size = files.filter(Files::isRegularFile)
+            .mapToLong(file -> file.toFile().length())
+            .sum();
+        // Printed alongside the JMH output, as the size is not something that JMH can measure.
+        System.out.printf("%nTerminology cache store size (%s encoding, %d entries): %d bytes%n",
+            encoding, ENTRIES, size);
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+      cacheManager.stop();
+      FileUtils.deleteDirectory(storagePath.toFile());
+    }
+
+  }
+
+  @Benchmark
+  public void get_Benchmark(final Blackhole bh, final CacheState state) {
+    for (final Object key : state.keys) {
+      bh.consume(state.cache.get(key));
+    }
+  }
+
+  @Benchmark
+  public void put_Benchmark(final CacheState state) {
+    for (final Object key : state.keys) {
+      state.cache.put(key, state.value);
+    }
+  }
+
+}
@@ -102,7 +102,7 @@ public class TerminologyDevBenchmark {
           ResourceType.CAREPLAN);
 
       defaultExecutor = new AggregateExecutor(configuration, fhirContext, spark, database,
-          Optional.of(terminologyServiceFactory));
+          Optional.of(terminologyServiceFactory), Optional.empty());
 
     }
 
@@ -48,7 +48,7 @@ class OperationDefinitionTest extends IntegrationTest {
   TestRestTemplate restTemplate;
 
   private static final List<String> OPERATIONS = List.of("aggregate", "search", "extract", "import",
-      "result", "job");
+      "result", "job", "slow-queries");
   private static final String SUFFIX = "7";
 
   @Test
@@ -21,6 +21,7 @@ import static au.csiro.pathling.test.TestResources.getResourceAsUrl;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import au.csiro.pathling.errors.ErrorHandlingInterceptor;
 import au.csiro.pathling.errors.InvalidUserInputError;
@@ -29,10 +30,14 @@ import au.csiro.pathling.io.ImportMode;
 import au.csiro.pathling.test.assertions.DatasetAssert;
 import au.csiro.pathling.test.builders.DatasetBuilder;
 import au.csiro.pathling.update.ImportExecutor;
+import au.csiro.pathling.update.ImportFormat;
 import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import jakarta.annotation.Nonnull;
+import java.io.IOException;
+import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 import org.apache.spark.sql.Dataset;
@@ -47,6 +52,7 @@ import org.hl7.fhir.r4.model.Parameters;
 import org.hl7.fhir.r4.model.Parameters.ParametersParameterComponent;
 import org.hl7.fhir.r4.model.UrlType;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.TestPropertySource;
 
@@ -93,6 +99,17 @@ class ImportTest extends ModificationTest {
     return parameters;
   }
 
+  @Nonnull
+  Parameters buildImportParameters(@Nonnull final URL sourceURL,
+      @Nonnull final ResourceType resourceType, @Nonnull final ImportFormat format) {
+    final Parameters parameters = buildImportParameters(sourceURL, resourceType);
+    final ParametersParameterComponent sourceParam = parameters.getParameter().stream()
+        .filter(p -> p.getName().equals("source")).findFirst()
+        .orElseThrow();
+    sourceParam.addPart().setName("format").setValue(new CodeType(format.getCode()));
+    return parameters;
+  }
+
   @Test
   void importJsonFile() {
     final URL jsonURL = getResourceAsUrl("import/Patient.ndjson");
@@ -182,6 +199,93 @@ class ImportTest extends ModificationTest {
     DatasetAssert.of(expandedItemsDataset).hasRows(expectedDataset);
   }
 
+  @Test
+  void importParquetFileWithMissingColumn(@TempDir final Path tempDir) throws IOException {
+    importExecutor.execute(
+        buildImportParameters(getResourceAsUrl("import/Patient.ndjson"), ResourceType.PATIENT));
+
+    // Write the encoded patients out to Parquet, without the gender column.
+    final Path parquetPath = tempDir.resolve("Patient.parquet");
+    database.read(ResourceType.PATIENT).drop("gender").write().parquet(parquetPath.toString());
+
+    importExecutor.execute(buildImportParameters(parquetPath.toUri().toURL(),
+        ResourceType.PATIENT, ImportFormat.PARQUET));
+
+    final Dataset<Row> result = database.read(ResourceType.PATIENT);
+    assertEquals(9, result.count());
+    assertEquals(0, result.filter(functions.col("gender").isNotNull()).count());
+  }
+
+  @Test
+  void mergeDeltaTable(@TempDir final Path tempDir) throws IOException {
+    importExecutor.execute(
+        buildImportParameters(getResourceAsUrl("import/Patient.ndjson"), ResourceType.PATIENT));
+
+    // Write an updated copy of one patient out to a Delta table.
+    final Path deltaPath = tempDir.resolve("Patient");
+    database.read(ResourceType.PATIENT)
+        .filter(functions.col("id").equalTo("beff242e-580b-47c0-9844-c1a68c36c5bf"))
+        .withColumn("birthDate", functions.lit("2022-01-01"))
+        .write().format("delta").save(deltaPath.toString());
+
+    final Parameters parameters = buildImportParameters(deltaPath.toUri().toURL(),
+        ResourceType.PATIENT, ImportFormat.DELTA);
+    parameters.getParameter().get(0).addPart().setName("mode")
+        .setValue(new CodeType(ImportMode.MERGE.getCode()));
+    importExecutor.execute(parameters);
+
+    final Dataset<Row> result = database.read(ResourceType.PATIENT);
+    assertEquals(9, result.count());
+    assertEquals("2022-01-01", result
+        .filter(functions.col("id").equalTo("beff242e-580b-47c0-9844-c1a68c36c5bf"))
+        .select("birthDate").head().getString(0));
+  }
+
+  @Test
+  void throwsOnIncompatibleParquetSchema(@TempDir final Path tempDir) throws IOException {
+    importExecutor.execute(
+        buildImportParameters(getResourceAsUrl("import/Patient.ndjson"), ResourceType.PATIENT));
+
+    final Path parquetPath = tempDir.resolve("Patient.parquet");
+    database.read(ResourceType.PATIENT)
+        .withColumn("gender", functions.array(functions.col("gender")))
+        .write().parquet(parquetPath.toString());
+
+    final URL parquetUrl = parquetPath.toUri().toURL();
+    final InvalidUserInputError error = assertThrows(InvalidUserInputError.class,
+        () -> importExecutor.execute(
+            buildImportParameters(parquetUrl, ResourceType.PATIENT, ImportFormat.PARQUET)));
+    assertEquals("Field gender has type array<string>, which cannot be converted to string",
+        error.getMessage());
+  }
+
+  @Test
+  void importMultipleSourcesConcurrently() {
+    final Parameters parameters = buildImportParameters(getResourceAsUrl("import/Patient.ndjson"),
+        ResourceType.PATIENT);
+    parameters.getParameter()
+        .addAll(buildImportParameters(getResourceAsUrl("import/Questionnaire.ndjson"),
+            ResourceType.QUESTIONNAIRE).getParameter());
+    importExecutor.execute(parameters);
+
+    assertEquals(9, database.read(ResourceType.PATIENT).count());
+    assertEquals(1, database.read(ResourceType.QUESTIONNAIRE).count());
+  }
+
+  @Test
+  void reportsFailuresFromAllSources(@TempDir final Path tempDir) throws MalformedURLException {
+    final Parameters parameters = buildImportParameters(
+        tempDir.resolve("Patient.ndjson").toUri().toURL(), ResourceType.PATIENT);
+    parameters.getParameter()
+        .addAll(buildImportParameters(tempDir.resolve("Condition.ndjson").toUri().toURL(),
+            ResourceType.CONDITION).getParameter());
+
+    final InvalidUserInputError error = assertThrows(InvalidUserInputError.class,
+        () -> importExecutor.execute(parameters));
+    assertTrue(error.getMessage().startsWith("Failed to import 2 sources: "));
+    assertEquals(2, error.getSuppressed().length);
+  }
+
   @Test
   void throwsOnUnsupportedResourceType() {
     final List<ResourceType> resourceTypes = Arrays.asList(ResourceType.PARAMETERS,
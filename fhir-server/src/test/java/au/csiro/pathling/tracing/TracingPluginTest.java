@@ -0,0 +1,51 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.tracing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import au.csiro.pathling.config.TracingConfiguration;
+import au.csiro.pathling.config.TracingConfiguration.Exporter;
+import org.apache.spark.SparkConf;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("UnitTest")
+class TracingPluginTest {
+
+  @Test
+  void executorConfigurationMatchesServerConfiguration() {
+    final TracingConfiguration server = new TracingConfiguration();
+    server.setEnabled(true);
+    server.setExporter(Exporter.LOGGING);
+    server.setEndpoint("http://collector:4317");
+    server.setServiceName("pathling-test");
+
+    final SparkConf conf = new SparkConf(false);
+    TracingPlugin.toSparkProperties(server).forEach(conf::set);
+
+    assertEquals(server, TracingPlugin.fromSparkConf(conf));
+  }
+
+  @Test
+  void tracingIsDisabledOnExecutorsByDefault() {
+    assertFalse(TracingPlugin.fromSparkConf(new SparkConf(false)).isEnabled());
+  }
+
+}
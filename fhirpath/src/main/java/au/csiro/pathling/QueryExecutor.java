@@ -91,8 +91,12 @@ public abstract class QueryExecutor {
 
   protected ParserContext buildParserContext(@Nonnull final FhirPath inputContext,
       @Nonnull final List<Column> groupingColumns) {
-    return new ParserContext(inputContext, fhirContext, sparkSession, dataSource,
-        terminologyServiceFactory, groupingColumns, new HashMap<>());
+    final ParserContext parserContext = new ParserContext(inputContext, fhirContext, sparkSession,
+        dataSource, terminologyServiceFactory, groupingColumns, new HashMap<>());
+    parserContext.setArrayEvaluation(configuration.getArrayEvaluation());
+    parserContext.setSubsumesClosureMaxSize(configuration.getSubsumesClosureMaxSize());
+    parserContext.setDistinctCodingLookup(configuration.getDistinctCodingLookup());
+    return parserContext;
   }
 
   @Nonnull
@@ -105,6 +109,9 @@ public abstract class QueryExecutor {
               parserContext.getFhirContext(), parserContext.getSparkSession(),
               parserContext.getDataSource(), parserContext.getTerminologyServiceFactory(),
               parserContext.getGroupingColumns(), new HashMap<>());
+          currentContext.setArrayEvaluation(parserContext.isArrayEvaluation());
+          currentContext.setSubsumesClosureMaxSize(parserContext.getSubsumesClosureMaxSize());
+          currentContext.setDistinctCodingLookup(parserContext.isDistinctCodingLookup());
           final Parser parser = new Parser(currentContext);
           final FhirPath result = parser.parse(expression);
           // Each expression must evaluate to a Materializable path, or a user error will be thrown.
@@ -31,8 +31,10 @@ import au.csiro.pathling.fhirpath.parser.Parser;
 import au.csiro.pathling.fhirpath.parser.ParserContext;
 import au.csiro.pathling.io.Database;
 import au.csiro.pathling.io.source.DataSource;
+import au.csiro.pathling.query.QueryMetrics;
 import au.csiro.pathling.sql.SqlExpressions;
 import au.csiro.pathling.terminology.TerminologyServiceFactory;
+import au.csiro.pathling.utilities.Tracing;
 import ca.uhn.fhir.context.FhirContext;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -77,6 +79,12 @@ public class AggregateQueryExecutor extends QueryExecutor {
   @Nonnull
   public ResultWithExpressions buildQuery(@Nonnull final AggregateRequest query) {
     log.info("Executing request: {}", query);
+    return Tracing.inSpan("aggregate.buildQuery",
+        () -> QueryMetrics.timePlanning("aggregate", () -> planQuery(query)));
+  }
+
+  @Nonnull
+  private ResultWithExpressions planQuery(@Nonnull final AggregateRequest query) {
 
     // Build a new expression parser, and parse all of the filter and grouping expressions within
     // the query.
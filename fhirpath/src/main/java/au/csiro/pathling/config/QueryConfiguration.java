@@ -17,6 +17,7 @@
 
 package au.csiro.pathling.config;
 
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import lombok.Builder;
 import lombok.Data;
@@ -45,4 +46,35 @@ public class QueryConfiguration {
   @NotNull
   @Builder.Default
   private Boolean cacheResults = true;
+
+  /**
+   * Setting this option to {@code true} will evaluate supported FHIRPath expressions over
+   * repeating elements using Spark higher-order functions on arrays, rather than exploding the
+   * elements out into rows and grouping them back together again. Expressions that are not
+   * supported by this mode are evaluated in the usual way.
+   */
+  @NotNull
+  @Builder.Default
+  private Boolean arrayEvaluation = false;
+
+  /**
+   * The maximum number of distinct pairs of codings for which a {@code subsumes} or
+   * {@code subsumedBy} expression will resolve subsumption up front, rather than calling the
+   * terminology service for each pair of codings within each resource. The resolved pairs are then
+   * evaluated as a lookup within the query. Expressions involving more distinct pairs than this are
+   * evaluated in the usual way. A value of {@code 0} disables this behaviour.
+   */
+  @NotNull
+  @Min(0)
+  @Builder.Default
+  private Integer subsumesClosureMaxSize = 0;
+
+  /**
+   * Setting this option to {@code true} will evaluate the {@code display}, {@code property} and
+   * {@code designation} functions once for each distinct coding within the input, rather than once
+   * for each row. The results are then joined back to the rows that contain each coding.
+   */
+  @NotNull
+  @Builder.Default
+  private Boolean distinctCodingLookup = false;
 }
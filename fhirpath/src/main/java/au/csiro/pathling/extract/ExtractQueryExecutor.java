@@ -13,7 +13,9 @@ import au.csiro.pathling.fhirpath.Materializable;
 import au.csiro.pathling.fhirpath.ResourcePath;
 import au.csiro.pathling.fhirpath.parser.ParserContext;
 import au.csiro.pathling.io.source.DataSource;
+import au.csiro.pathling.query.QueryMetrics;
 import au.csiro.pathling.terminology.TerminologyServiceFactory;
+import au.csiro.pathling.utilities.Tracing;
 import ca.uhn.fhir.context.FhirContext;
 import jakarta.annotation.Nonnull;
 import java.util.ArrayList;
@@ -27,6 +29,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.spark.sql.Column;
@@ -53,6 +56,29 @@ public class ExtractQueryExecutor extends QueryExecutor {
   @SuppressWarnings("WeakerAccess")
   @Nonnull
   public Dataset<Row> buildQuery(@Nonnull final ExtractRequest query) {
+    return Tracing.inSpan("extract.buildQuery",
+        () -> QueryMetrics.timePlanning("extract", () -> planQuery(query, Optional.empty())));
+  }
+
+  /**
+   * Builds up the query for an extract request, adding a leading column that contains the ID of
+   * the subject resource that each row was extracted from.
+   *
+   * @param query an {@link ExtractRequest}
+   * @param keyColumn the name of the column that will contain the subject resource ID
+   * @return an uncollected {@link Dataset}
+   */
+  @Nonnull
+  public Dataset<Row> buildKeyedQuery(@Nonnull final ExtractRequest query,
+      @Nonnull final String keyColumn) {
+    return Tracing.inSpan("extract.buildQuery",
+        () -> QueryMetrics.timePlanning("extract",
+            () -> planQuery(query, Optional.of(keyColumn))));
+  }
+
+  @Nonnull
+  private Dataset<Row> planQuery(@Nonnull final ExtractRequest query,
+      @Nonnull final Optional<String> keyColumn) {
     // Build a new expression parser, and parse all the column expressions within the query.
     final ResourcePath inputContext = ResourcePath
         .build(getFhirContext(), getDataSource(), query.getSubjectResource(),
@@ -79,10 +105,14 @@ public class ExtractQueryExecutor extends QueryExecutor {
 
     // Select the column values.
     final Column idColumn = inputContext.getIdColumn();
-    final Column[] columnValues = labelColumns(
+    final Stream<Column> labelledColumns = labelColumns(
         columnPaths.stream().map(path -> ((Materializable<?>) path).getExtractableColumn()),
         labelsAsStream(query.getColumnsWithLabels())
-    ).toArray(Column[]::new);
+    );
+    final Column[] columnValues = keyColumn
+        .map(key -> Stream.concat(Stream.of(idColumn.alias(key)), labelledColumns))
+        .orElse(labelledColumns)
+        .toArray(Column[]::new);
     final Dataset<Row> selectedDataset = filteredDataset.select(columnValues)
         .filter(idColumn.isNotNull());
 
@@ -0,0 +1,479 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.extract;
+
+import static au.csiro.pathling.fhir.FhirUtils.getResourceType;
+import static au.csiro.pathling.io.FileSystemPersistence.convertS3ToS3aUrl;
+import static au.csiro.pathling.utilities.Preconditions.checkUserInput;
+import static org.apache.spark.sql.functions.array;
+import static org.apache.spark.sql.functions.coalesce;
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.concat;
+import static org.apache.spark.sql.functions.explode;
+import static org.apache.spark.sql.functions.flatten;
+import static org.apache.spark.sql.functions.lit;
+import static org.apache.spark.sql.functions.transform;
+
+import au.csiro.pathling.config.QueryConfiguration;
+import au.csiro.pathling.io.source.ChangeTrackingDataSource;
+import au.csiro.pathling.io.source.DataSource;
+import au.csiro.pathling.terminology.TerminologyServiceFactory;
+import ca.uhn.fhir.context.FhirContext;
+import com.google.common.collect.ConcurrentHashMultiset;
+import com.google.common.collect.Multiset;
+import com.google.common.hash.Hashing;
+import io.delta.tables.DeltaTable;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SaveMode;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.types.ArrayType;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StringType;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.hl7.fhir.r4.model.Enumerations.ResourceType;
+
+/**
+ * Maintains the result of an extract query within a Delta table, using the change data feed of the
+ * source tables to recompute only the rows for those subject resources that may have been affected
+ * by changes since the table was last refreshed.
+ * <p>
+ * A change to a resource is traced to the subject resources that are either the changed resource
+ * itself, referred to by the changed resource, or that refer to the changed resource. Resources
+ * that are only related to the subject resource through a chain of references (e.g. the target of
+ * a {@code resolve()} that is itself the result of a {@code resolve()}) are not traced, and queries
+ * that traverse such chains should be refreshed in full.
+ * <p>
+ * The versions of the source tables that have been processed are stored as properties of the
+ * output table, along with a signature of the query. If the query changes or the versions are
+ * missing, the table is rebuilt in full.
+ *
+ * @author John Grimes
+ */
+@Slf4j
+public class IncrementalExtractExecutor {
+
+  /**
+   * The name of the column within the output table that contains the ID of the subject resource.
+   */
+  public static final String KEY_COLUMN = "_subject_id";
+
+  private static final String DELETE_COLUMN = "_delete";
+  private static final String QUERY_PROPERTY = "pathling.extract.query";
+  private static final String VERSION_PROPERTY_PREFIX = "pathling.extract.version.";
+  private static final Column EMPTY_REFERENCES = array().cast(
+      DataTypes.createArrayType(DataTypes.StringType));
+
+  @Nonnull
+  private final QueryConfiguration configuration;
+
+  @Nonnull
+  private final FhirContext fhirContext;
+
+  @Nonnull
+  private final SparkSession spark;
+
+  @Nonnull
+  private final ChangeTrackingDataSource dataSource;
+
+  @Nonnull
+  private final Optional<TerminologyServiceFactory> terminologyServiceFactory;
+
+  public IncrementalExtractExecutor(@Nonnull final QueryConfiguration configuration,
+      @Nonnull final FhirContext fhirContext, @Nonnull final SparkSession spark,
+      @Nonnull final ChangeTrackingDataSource dataSource,
+      @Nonnull final Optional<TerminologyServiceFactory> terminologyServiceFactory) {
+    this.configuration = configuration;
+    this.fhirContext = fhirContext;
+    this.spark = spark;
+    this.dataSource = dataSource;
+    this.terminologyServiceFactory = terminologyServiceFactory;
+  }
+
+  /**
+   * Brings the Delta table at the given location up to date with the result of an extract query.
+   * The table is created if it does not already exist.
+   *
+   * @param query an {@link ExtractRequest}
+   * @param outputUrl the location of the Delta table that holds the result
+   */
+  public void refresh(@Nonnull final ExtractRequest query, @Nonnull final String outputUrl) {
+    checkUserInput(query.getLimit().isEmpty(),
+        "Limit cannot be used with an incrementally maintained extract");
+    final String url = convertS3ToS3aUrl(outputUrl);
+    final ResourceType subjectResource = query.getSubjectResource();
+
+    // Plan the query once to find out which resource types it reads.
+    final RecordingDataSource recording = new RecordingDataSource(dataSource);
+    buildExecutor(recording).buildKeyedQuery(query, KEY_COLUMN);
+    final Set<ResourceType> resourceTypes = recording.getReads().elementSet();
+
+    // The versions are captured before the query is planned again to compute the result. Any
+    // changes committed after this point will be read by the query, and will also be processed
+    // again on the next refresh, which is harmless as recomputing a subject is idempotent.
+    final Map<ResourceType, Long> versions = new LinkedHashMap<>();
+    resourceTypes.forEach(type -> versions.put(type, dataSource.getVersion(type)));
+    final String signature = signature(query);
+
+    final Optional<Map<ResourceType, Long>> previousVersions = readProperties(url)
+        .filter(properties -> signature.equals(properties.get(QUERY_PROPERTY)))
+        .flatMap(properties -> parseVersions(properties, resourceTypes));
+
+    if (previousVersions.isEmpty()) {
+      log.info("Building extract in full: {}", url);
+      buildExecutor(dataSource).buildKeyedQuery(query, KEY_COLUMN)
+          .write()
+          .format("delta")
+          .mode(SaveMode.Overwrite)
+          .option("overwriteSchema", "true")
+          .save(url);
+    } else {
+      final Dataset<Row> affected = affectedSubjects(subjectResource, previousVersions.get(),
+          versions).persist();
+      try {
+        if (affected.isEmpty()) {
+          log.info("No changes affect extract: {}", url);
+        } else {
+          log.info("Updating extract incrementally: {}", url);
+          // If the subject resource is read more than once (e.g. a reference from one subject
+          // resource to another is resolved), restricting the subject table would also restrict
+          // the resolved resources, so we filter the result instead.
+          final Dataset<Row> result;
+          if (recording.getReads().count(subjectResource) == 1) {
+            result = buildExecutor(new RestrictedDataSource(dataSource, subjectResource, affected))
+                .buildKeyedQuery(query, KEY_COLUMN);
+          } else {
+            result = restrict(buildExecutor(dataSource).buildKeyedQuery(query, KEY_COLUMN),
+                affected);
+          }
+          merge(url, result, affected);
+        }
+      } finally {
+        affected.unpersist();
+      }
+    }
+    writeProperties(url, signature, versions);
+  }
+
+  @Nonnull
+  private ExtractQueryExecutor buildExecutor(@Nonnull final DataSource source) {
+    return new ExtractQueryExecutor(configuration, fhirContext, spark, source,
+        terminologyServiceFactory);
+  }
+
+  /**
+   * Gets the IDs of the subject resources that may have been affected by changes to any of the
+   * resource types read by the query.
+   */
+  @Nonnull
+  private Dataset<Row> affectedSubjects(@Nonnull final ResourceType subjectResource,
+      @Nonnull final Map<ResourceType, Long> previousVersions,
+      @Nonnull final Map<ResourceType, Long> versions) {
+    final Dataset<Row> subjects = dataSource.read(subjectResource);
+    final String subjectPrefix = subjectResource.toCode() + "/";
+    final List<Dataset<Row>> affected = new ArrayList<>();
+    affected.add(spark.emptyDataFrame().select(lit(null).cast(DataTypes.StringType).alias("id")));
+
+    for (final Map.Entry<ResourceType, Long> entry : versions.entrySet()) {
+      final ResourceType resourceType = entry.getKey();
+      final long previousVersion = previousVersions.get(resourceType);
+      if (entry.getValue() <= previousVersion) {
+        continue;
+      }
+      log.debug("Reading changes to {} after version {}", resourceType.toCode(), previousVersion);
+      final Dataset<Row> changes = dataSource.readChanges(resourceType, previousVersion,
+          entry.getValue());
+
+      // The changed resources themselves.
+      if (resourceType == subjectResource) {
+        affected.add(changes.select(col("id")));
+      }
+
+      // Subject resources that are referred to by the changed resources.
+      references(changes).ifPresent(references -> affected.add(changes
+          .select(explode(references).alias("reference"))
+          .filter(col("reference").startsWith(subjectPrefix))
+          .select(col("reference").substr(subjectPrefix.length() + 1, Integer.MAX_VALUE)
+              .alias("id"))));
+
+      // Subject resources that refer to the changed resources.
+      references(subjects).ifPresent(references -> {
+        final Dataset<Row> subjectReferences = subjects.select(col("id"),
+            explode(references).alias("reference"));
+        final Dataset<Row> changedReferences = changes.select(
+            concat(lit(resourceType.toCode() + "/"), col("id")).alias("reference"));
+        affected.add(subjectReferences
+            .join(changedReferences,
+                subjectReferences.col("reference").equalTo(changedReferences.col("reference")),
+                "left_semi")
+            .select(col("id")));
+      });
+    }
+
+    return affected.stream()
+        .reduce(Dataset::union)
+        .orElseThrow()
+        .filter(col("id").isNotNull())
+        .distinct();
+  }
+
+  /**
+   * Builds a column that collects the values of all the references within a resource into an
+   * array, or returns an empty result if the resource has no references.
+   */
+  @Nonnull
+  private static Optional<Column> references(@Nonnull final Dataset<Row> dataset) {
+    final Column[] children = referenceChildren(dataset.schema(), name -> col(name));
+    return children.length == 0
+           ? Optional.empty()
+           : Optional.of(concat(children));
+  }
+
+  @Nonnull
+  private static Column references(@Nonnull final Column column, @Nonnull final DataType type) {
+    if (type instanceof final ArrayType arrayType) {
+      return flatten(transform(column,
+          element -> references(element, arrayType.elementType())));
+    }
+    return concat(referenceChildren((StructType) type, column::getField));
+  }
+
+  @Nonnull
+  private static Column[] referenceChildren(@Nonnull final StructType struct,
+      @Nonnull final Function<String, Column> field) {
+    return Arrays.stream(struct.fields())
+        // Fields that begin with an underscore are used by the encoders for internal purposes,
+        // e.g. extensions.
+        .filter(child -> !child.name().startsWith("_"))
+        .filter(child -> isReference(child) || containsReference(child.dataType()))
+        .map(child -> isReference(child)
+                      ? array(field.apply(child.name()))
+                      : references(field.apply(child.name()), child.dataType()))
+        .map(child -> coalesce(child, EMPTY_REFERENCES))
+        .toArray(Column[]::new);
+  }
+
+  private static boolean isReference(@Nonnull final StructField field) {
+    return field.name().equals("reference") && field.dataType() instanceof StringType;
+  }
+
+  private static boolean containsReference(@Nonnull final DataType type) {
+    if (type instanceof final ArrayType arrayType) {
+      return containsReference(arrayType.elementType());
+    } else if (type instanceof final StructType structType) {
+      return Arrays.stream(structType.fields())
+          .filter(child -> !child.name().startsWith("_"))
+          .anyMatch(child -> isReference(child) || containsReference(child.dataType()));
+    }
+    return false;
+  }
+
+  @Nonnull
+  private static Dataset<Row> restrict(@Nonnull final Dataset<Row> result,
+      @Nonnull final Dataset<Row> subjects) {
+    return result.join(subjects, result.col(KEY_COLUMN).equalTo(subjects.col("id")), "left_semi");
+  }
+
+  /**
+   * Replaces the rows for the affected subjects within the output table with the recomputed rows,
+   * within a single atomic merge.
+   */
+  private void merge(@Nonnull final String url, @Nonnull final Dataset<Row> result,
+      @Nonnull final Dataset<Row> affected) {
+    // Each affected subject gets a single marker row, which deletes all of its existing rows. The
+    // recomputed rows never match the merge condition, and are inserted.
+    final Column[] markerColumns = Stream.concat(
+        Stream.of(affected.col("id").alias(KEY_COLUMN)),
+        Arrays.stream(result.schema().fields())
+            .filter(field -> !field.name().equals(KEY_COLUMN))
+            .map(field -> lit(null).cast(field.dataType()).alias(field.name()))
+    ).toArray(Column[]::new);
+    final Dataset<Row> markers = affected.select(markerColumns)
+        .withColumn(DELETE_COLUMN, lit(true));
+    final Dataset<Row> updates = result.withColumn(DELETE_COLUMN, lit(false))
+        .unionByName(markers);
+
+    final Map<String, String> values = Arrays.stream(result.columns())
+        .collect(Collectors.toMap(IncrementalExtractExecutor::quote,
+            name -> "source." + quote(name), (a, b) -> a, LinkedHashMap::new));
+    DeltaTable.forPath(spark, url)
+        .as("target")
+        .merge(updates.as("source"),
+            String.format("target.%1$s = source.%1$s AND source.%2$s", quote(KEY_COLUMN),
+                quote(DELETE_COLUMN)))
+        .whenMatched()
+        .delete()
+        .whenNotMatched("NOT source." + quote(DELETE_COLUMN))
+        .insertExpr(values)
+        .execute();
+  }
+
+  @Nonnull
+  private Optional<Map<String, String>> readProperties(@Nonnull final String url) {
+    if (!DeltaTable.isDeltaTable(spark, url)) {
+      return Optional.empty();
+    }
+    final Row detail = DeltaTable.forPath(spark, url).detail().select("properties").head();
+    final Map<String, String> properties = detail.getJavaMap(0);
+    return Optional.of(properties);
+  }
+
+  private void writeProperties(@Nonnull final String url, @Nonnull final String signature,
+      @Nonnull final Map<ResourceType, Long> versions) {
+    final Map<String, String> properties = new LinkedHashMap<>();
+    properties.put(QUERY_PROPERTY, signature);
+    versions.forEach((type, version) ->
+        properties.put(VERSION_PROPERTY_PREFIX + type.toCode(), String.valueOf(version)));
+    final String assignments = properties.entrySet().stream()
+        .map(entry -> String.format("'%s' = '%s'", entry.getKey(), entry.getValue()))
+        .collect(Collectors.joining(", "));
+    spark.sql(String.format("ALTER TABLE delta.`%s` SET TBLPROPERTIES (%s)", url, assignments));
+  }
+
+  @Nonnull
+  private static Optional<Map<ResourceType, Long>> parseVersions(
+      @Nonnull final Map<String, String> properties,
+      @Nonnull final Set<ResourceType> resourceTypes) {
+    final Map<ResourceType, Long> versions = new LinkedHashMap<>();
+    for (final ResourceType resourceType : resourceTypes) {
+      @Nullable final String version = properties.get(
+          VERSION_PROPERTY_PREFIX + resourceType.toCode());
+      if (version == null) {
+        return Optional.empty();
+      }
+      versions.put(resourceType, Long.parseLong(version));
+    }
+    return Optional.of(versions);
+  }
+
+  @Nonnull
+  private static String signature(@Nonnull final ExtractRequest query) {
+    final String description = String.join("|", query.getSubjectResource().toCode(),
+        query.getColumnsWithLabels().toString(), query.getFilters().toString());
+    return Hashing.sha256().hashString(description, StandardCharsets.UTF_8).toString();
+  }
+
+  @Nonnull
+  private static String quote(@Nonnull final String name) {
+    return "`" + name.replace("`", "``") + "`";
+  }
+
+  /**
+   * A data source that records the resource types that are read from it.
+   */
+  private static class RecordingDataSource implements DataSource {
+
+    @Nonnull
+    private final DataSource delegate;
+
+    @Nonnull
+    private final Multiset<ResourceType> reads = ConcurrentHashMultiset.create();
+
+    private RecordingDataSource(@Nonnull final DataSource delegate) {
+      this.delegate = delegate;
+    }
+
+    @Nonnull
+    Multiset<ResourceType> getReads() {
+      return reads;
+    }
+
+    @Nonnull
+    @Override
+    public Dataset<Row> read(@Nullable final ResourceType resourceType) {
+      if (resourceType != null) {
+        reads.add(resourceType);
+      }
+      return delegate.read(resourceType);
+    }
+
+    @Nonnull
+    @Override
+    public Dataset<Row> read(@Nullable final String resourceCode) {
+      return read(getResourceType(resourceCode));
+    }
+
+    @Nonnull
+    @Override
+    public Set<ResourceType> getResourceTypes() {
+      return delegate.getResourceTypes();
+    }
+
+  }
+
+  /**
+   * A data source that only returns the subject resources with the specified IDs.
+   */
+  private static class RestrictedDataSource implements DataSource {
+
+    @Nonnull
+    private final DataSource delegate;
+
+    @Nonnull
+    private final ResourceType subjectResource;
+
+    @Nonnull
+    private final Dataset<Row> subjects;
+
+    private RestrictedDataSource(@Nonnull final DataSource delegate,
+        @Nonnull final ResourceType subjectResource, @Nonnull final Dataset<Row> subjects) {
+      this.delegate = delegate;
+      this.subjectResource = subjectResource;
+      this.subjects = subjects;
+    }
+
+    @Nonnull
+    @Override
+    public Dataset<Row> read(@Nullable final ResourceType resourceType) {
+      final Dataset<Row> dataset = delegate.read(resourceType);
+      return resourceType == subjectResource
+             ? dataset.join(subjects, dataset.col("id").equalTo(subjects.col("id")), "left_semi")
+             : dataset;
+    }
+
+    @Nonnull
+    @Override
+    public Dataset<Row> read(@Nullable final String resourceCode) {
+      return read(getResourceType(resourceCode));
+    }
+
+    @Nonnull
+    @Override
+    public Set<ResourceType> getResourceTypes() {
+      return delegate.getResourceTypes();
+    }
+
+  }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.fhirpath;
+
+import jakarta.annotation.Nonnull;
+import lombok.Value;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+
+/**
+ * An alternative representation of a non-singular path, which keeps the collection as a single
+ * array column alongside the dataset of the nearest singular ancestor, rather than exploding it out
+ * into one row per element. This allows functions that reduce a collection to a single value to
+ * be evaluated using Spark higher-order functions, without the need for a regrouping shuffle.
+ *
+ * @author John Grimes
+ */
+@Value
+public class ArrayRepresentation {
+
+  /**
+   * The dataset of the nearest singular ancestor of the path, which has one row per value of the
+   * grouping columns.
+   */
+  @Nonnull
+  Dataset<Row> dataset;
+
+  /**
+   * A column containing the values of the collection as an array, which may contain nulls.
+   */
+  @Nonnull
+  Column array;
+
+}
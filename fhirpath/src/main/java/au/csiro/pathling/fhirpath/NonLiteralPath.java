@@ -92,6 +92,14 @@ public abstract class NonLiteralPath implements FhirPath {
   @Nonnull
   protected Optional<Column> thisColumn;
 
+  /**
+   * When array evaluation is enabled, non-singular paths may also carry a representation of their
+   * values as an array. This is not propagated by {@link #copy}, so any path derived from this one
+   * will fall back to the exploded representation unless it explicitly sets its own.
+   */
+  @Nonnull
+  protected Optional<ArrayRepresentation> arrayRepresentation = Optional.empty();
+
   protected NonLiteralPath(@Nonnull final String expression, @Nonnull final Dataset<Row> dataset,
       @Nonnull final Column idColumn, @Nonnull final Optional<Column> eidColumn,
       @Nonnull final Column valueColumn, final boolean singular,
@@ -118,6 +126,14 @@ public abstract class NonLiteralPath implements FhirPath {
     this.thisColumn = thisColumn;
   }
 
+  /**
+   * @param arrayRepresentation an {@link ArrayRepresentation} of the values of this path
+   */
+  public void setArrayRepresentation(@Nonnull final ArrayRepresentation arrayRepresentation) {
+    checkArgument(!singular, "Array representation cannot be set on a singular path");
+    this.arrayRepresentation = Optional.of(arrayRepresentation);
+  }
+
   /**
    * Gets a this {@link Column} from any of the inputs, if there is one.
    *
@@ -153,6 +153,14 @@ public class ResourcePath extends NonLiteralPath {
     return requireNonNull(elementsToColumns.get(elementName));
   }
 
+  /**
+   * @param elementName the name of the element
+   * @return true if the element has been encoded within the dataset of this resource
+   */
+  public boolean hasElementColumn(@Nonnull final String elementName) {
+    return elementsToColumns.get(elementName) != null;
+  }
+
   @Nonnull
   @Override
   public Column getExtensionContainerColumn() {
@@ -19,9 +19,13 @@ package au.csiro.pathling.fhirpath.function;
 
 import static au.csiro.pathling.utilities.Preconditions.checkArgument;
 import static au.csiro.pathling.utilities.Preconditions.checkPresent;
+import static au.csiro.pathling.QueryHelpers.createColumn;
 import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.filter;
 import static org.apache.spark.sql.functions.first;
 
+import au.csiro.pathling.QueryHelpers.DatasetWithColumn;
+import au.csiro.pathling.fhirpath.ArrayRepresentation;
 import au.csiro.pathling.fhirpath.FhirPath;
 import au.csiro.pathling.fhirpath.NonLiteralPath;
 import au.csiro.pathling.fhirpath.element.ElementPath;
@@ -171,6 +175,93 @@ public abstract class AggregateFunction {
             thisColumn);
   }
 
+  /**
+   * Gets the {@link ArrayRepresentation} of the input to a function, if array evaluation is
+   * applicable within the current context and the input has one.
+   *
+   * @param input the {@link NamedFunctionInput} of the function
+   * @return an {@link ArrayRepresentation}, if the function can be evaluated over arrays
+   */
+  @Nonnull
+  protected static Optional<ArrayRepresentation> getArrayInput(
+      @Nonnull final NamedFunctionInput input) {
+    return input.getContext().isArrayEvaluationApplicable()
+           ? input.getInput().getArrayRepresentation()
+           : Optional.empty();
+  }
+
+  /**
+   * @param array an array {@link Column}
+   * @return a new array {@link Column} with any null elements removed
+   */
+  @Nonnull
+  protected static Column nonNullElements(@Nonnull final Column array) {
+    return filter(array, Column::isNotNull);
+  }
+
+  /**
+   * Builds a result for an aggregation operation that has been evaluated over an
+   * {@link ArrayRepresentation} of the input, using the input as a template for the new result. No
+   * grouping is required, as each row of the array dataset already represents a single grouping.
+   *
+   * @param array the {@link ArrayRepresentation} that the aggregation was evaluated over
+   * @param parserContext the current {@link ParserContext}
+   * @param input the {@link NonLiteralPath} being aggregated
+   * @param valueColumn a {@link Column} describing the resulting value
+   * @param expression the FHIRPath expression for the result
+   * @return a new {@link NonLiteralPath} representing the result
+   */
+  @Nonnull
+  protected NonLiteralPath buildArrayResult(@Nonnull final ArrayRepresentation array,
+      @Nonnull final ParserContext parserContext, @Nonnull final NonLiteralPath input,
+      @Nonnull final Column valueColumn, @Nonnull final String expression) {
+    return buildArrayResult(array, parserContext, input, valueColumn, expression, input::copy);
+  }
+
+  /**
+   * Builds a result for an aggregation operation that has been evaluated over an
+   * {@link ArrayRepresentation} of the input.
+   *
+   * @param array the {@link ArrayRepresentation} that the aggregation was evaluated over
+   * @param parserContext the current {@link ParserContext}
+   * @param input the {@link NonLiteralPath} being aggregated
+   * @param valueColumn a {@link Column} describing the resulting value
+   * @param expression the FHIRPath expression for the result
+   * @param fhirType the {@link FHIRDefinedType} of the result
+   * @return a new {@link ElementPath} representing the result
+   */
+  @Nonnull
+  protected ElementPath buildArrayResult(@Nonnull final ArrayRepresentation array,
+      @Nonnull final ParserContext parserContext, @Nonnull final NonLiteralPath input,
+      @Nonnull final Column valueColumn, @Nonnull final String expression,
+      @Nonnull final FHIRDefinedType fhirType) {
+    return buildArrayResult(array, parserContext, input, valueColumn, expression,
+        (exp, ds, id, eid, value, singular, thisColumn) -> ElementPath
+            .build(exp, ds, id, eid, value, true, Optional.empty(), thisColumn, fhirType));
+  }
+
+  @Nonnull
+  private <T extends FhirPath> T buildArrayResult(@Nonnull final ArrayRepresentation array,
+      @Nonnull final ParserContext parserContext, @Nonnull final NonLiteralPath input,
+      @Nonnull final Column valueColumn, @Nonnull final String expression,
+      @Nonnull final ResultPathFactory<T> resultPathFactory) {
+    final DatasetWithColumn datasetWithColumn = createColumn(array.getDataset(), valueColumn);
+    final Dataset<Row> dataset = datasetWithColumn.getDataset();
+
+    // The $this column will only be present if the array dataset is within the scope of the
+    // function arguments that it belongs to.
+    final Set<String> existingColumns = Stream.of(dataset.columns()).collect(Collectors.toSet());
+    final Optional<Column> thisColumn = input.getThisColumn()
+        .filter(c -> existingColumns.contains(c.toString()));
+
+    // Clear out the node ID columns in the parser context, consistent with a grouped aggregation.
+    parserContext.getNodeIdColumns().clear();
+
+    return resultPathFactory
+        .create(expression, dataset, input.getIdColumn(), Optional.empty(),
+            datasetWithColumn.getColumn(), true, thisColumn);
+  }
+
   /**
    * A factory that encapsulates creation of the aggregation result path.
    *
@@ -19,14 +19,18 @@ package au.csiro.pathling.fhirpath.function;
 
 import static au.csiro.pathling.fhirpath.function.NamedFunction.checkNoArguments;
 import static au.csiro.pathling.fhirpath.function.NamedFunction.expressionFromInput;
+import static org.apache.spark.sql.functions.size;
 import static org.apache.spark.sql.functions.when;
 
+import au.csiro.pathling.fhirpath.ArrayRepresentation;
 import au.csiro.pathling.fhirpath.FhirPath;
 import au.csiro.pathling.fhirpath.NonLiteralPath;
 import jakarta.annotation.Nonnull;
+import java.util.Optional;
 import java.util.function.Function;
 import org.apache.spark.sql.Column;
 import org.apache.spark.sql.functions;
+import org.apache.spark.sql.types.DataTypes;
 import org.hl7.fhir.r4.model.Enumerations.FHIRDefinedType;
 
 /**
@@ -48,6 +52,17 @@ public class CountFunction extends AggregateFunction implements NamedFunction {
     checkNoArguments("count", input);
     final NonLiteralPath inputPath = input.getInput();
     final String expression = expressionFromInput(input, NAME);
+
+    // If the input is available as an array, the count is the number of non-null elements.
+    final Optional<ArrayRepresentation> arrayInput = getArrayInput(input);
+    if (arrayInput.isPresent()) {
+      final Column array = arrayInput.get().getArray();
+      final Column valueColumn = when(array.isNull(), 0L)
+          .otherwise(size(nonNullElements(array)).cast(DataTypes.LongType));
+      return buildArrayResult(arrayInput.get(), input.getContext(), inputPath, valueColumn,
+          expression, FHIRDefinedType.UNSIGNEDINT);
+    }
+
     final Column subjectColumn = inputPath.getValueColumn();
 
     // When we are counting resources from the input context, we use the distinct count to account
@@ -23,6 +23,7 @@ import au.csiro.pathling.encoders.ExtensionSupport;
 import au.csiro.pathling.fhirpath.Comparable.ComparisonOperation;
 import au.csiro.pathling.fhirpath.FhirPath;
 import au.csiro.pathling.fhirpath.NonLiteralPath;
+import au.csiro.pathling.fhirpath.ResourcePath;
 import au.csiro.pathling.fhirpath.element.ElementPath;
 import au.csiro.pathling.fhirpath.literal.StringLiteralPath;
 import au.csiro.pathling.fhirpath.operator.ComparisonOperator;
@@ -55,6 +56,18 @@ public class ExtensionFunction implements NamedFunction {
         "extension function must have argument of type String literal: " + expression);
 
     final NonLiteralPath inputPath = input.getInput();
+    final String url = ((StringLiteralPath) urlArgument).getValue().asStringValue();
+    final String promotedFieldName = ExtensionSupport.promotedExtensionFieldName(url);
+    if (inputPath instanceof ResourcePath
+        && ((ResourcePath) inputPath).hasElementColumn(promotedFieldName)) {
+      // If the extension has been promoted to its own column, it can be read directly from that
+      // column without needing to search the extension container.
+      return new PathTraversalOperator()
+          .invoke(new PathTraversalInput(input.getContext(), inputPath,
+              ExtensionSupport.EXTENSION_ELEMENT_NAME()), promotedFieldName)
+          .withExpression(expression);
+    }
+
     final ElementPath extensionPath = new PathTraversalOperator()
         .invoke(new PathTraversalInput(input.getContext(), inputPath,
             ExtensionSupport.EXTENSION_ELEMENT_NAME()));
@@ -20,10 +20,14 @@ package au.csiro.pathling.fhirpath.function;
 import static au.csiro.pathling.fhirpath.function.NamedFunction.checkNoArguments;
 import static au.csiro.pathling.fhirpath.function.NamedFunction.expressionFromInput;
 import static org.apache.spark.sql.functions.first;
+import static org.apache.spark.sql.functions.get;
+import static org.apache.spark.sql.functions.lit;
 
+import au.csiro.pathling.fhirpath.ArrayRepresentation;
 import au.csiro.pathling.fhirpath.FhirPath;
 import au.csiro.pathling.fhirpath.NonLiteralPath;
 import jakarta.annotation.Nonnull;
+import java.util.Optional;
 import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
@@ -48,8 +52,17 @@ public class FirstFunction extends AggregateFunction implements NamedFunction {
     checkNoArguments("first", input);
 
     final NonLiteralPath inputPath = input.getInput();
-    final Dataset<Row> dataset = inputPath.getOrderedDataset();
     final String expression = expressionFromInput(input, NAME);
+
+    // If the input is available as an array, the result is the first non-null element.
+    final Optional<ArrayRepresentation> arrayInput = getArrayInput(input);
+    if (arrayInput.isPresent()) {
+      final Column valueColumn = get(nonNullElements(arrayInput.get().getArray()), lit(0));
+      return buildArrayResult(arrayInput.get(), input.getContext(), inputPath, valueColumn,
+          expression);
+    }
+
+    final Dataset<Row> dataset = inputPath.getOrderedDataset();
     final Column finalValueColumn = first(inputPath.getValueColumn(), true);
 
     return buildAggregateResult(dataset, input.getContext(), inputPath, finalValueColumn,
@@ -20,12 +20,16 @@ package au.csiro.pathling.fhirpath.function;
 import static au.csiro.pathling.fhirpath.function.NamedFunction.expressionFromInput;
 import static au.csiro.pathling.utilities.Preconditions.checkPresent;
 import static au.csiro.pathling.utilities.Preconditions.checkUserInput;
+import static org.apache.spark.sql.functions.filter;
 import static org.apache.spark.sql.functions.lit;
 import static org.apache.spark.sql.functions.when;
 
+import au.csiro.pathling.fhirpath.ArrayRepresentation;
 import au.csiro.pathling.fhirpath.FhirPath;
 import au.csiro.pathling.fhirpath.NonLiteralPath;
 import au.csiro.pathling.fhirpath.element.BooleanPath;
+import au.csiro.pathling.fhirpath.element.ElementPath;
+import au.csiro.pathling.fhirpath.parser.ElementPredicateCompiler;
 import jakarta.annotation.Nonnull;
 import org.apache.spark.sql.Column;
 
@@ -69,10 +73,23 @@ public class WhereFunction implements NamedFunction {
     final Column valueColumn = when(argumentValue.equalTo(true), thisValue).otherwise(lit(null));
     final String expression = expressionFromInput(input, NAME);
 
-    return inputPath
+    final NonLiteralPath result = inputPath
         .copy(expression, argumentPath.getDataset(), idColumn,
             inputPath.getEidColumn().map(c -> thisEid), valueColumn, inputPath.isSingular(),
             inputPath.getThisColumn());
+
+    // If the input is available as an array and the criteria can be compiled into a function of a
+    // single element, the array representation of the result is the filtered input array.
+    if (input.getContext().isArrayEvaluationApplicable() && inputPath instanceof ElementPath) {
+      inputPath.getArrayRepresentation().ifPresent(array ->
+          ((ElementPath) inputPath).getDefinition()
+              .flatMap(definition -> ElementPredicateCompiler.compile(
+                  argumentPath.getExpression(), definition))
+              .ifPresent(criteria -> result.setArrayRepresentation(
+                  new ArrayRepresentation(array.getDataset(),
+                      filter(array.getArray(), criteria::apply)))));
+    }
+    return result;
   }
 
 }
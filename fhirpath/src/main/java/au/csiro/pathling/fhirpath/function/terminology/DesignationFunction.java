@@ -19,6 +19,7 @@ package au.csiro.pathling.fhirpath.function.terminology;
 
 import static au.csiro.pathling.fhirpath.function.NamedFunction.expressionFromInput;
 import static au.csiro.pathling.sql.Terminology.designation;
+import static au.csiro.pathling.sql.udf.DesignationUdf.DESIGNATION_PROPERTY_CODE;
 import static au.csiro.pathling.utilities.Preconditions.checkUserInput;
 
 import au.csiro.pathling.fhirpath.FhirPath;
@@ -65,8 +66,18 @@ public class DesignationFunction implements NamedFunction {
         .map(StringType::getValue)
         .orElse(null);
 
-    final Dataset<Row> dataset = inputPath.getDataset();
-    final Column designations = designation(inputPath.getValueColumn(), use, languageCode);
+    Dataset<Row> dataset = inputPath.getDataset();
+    Column designations = designation(inputPath.getValueColumn(), use, languageCode);
+    if (input.getContext().isDistinctCodingLookup()) {
+      // The designations are looked up in all languages, and filtered afterwards.
+      final DistinctCodingLookup.Result lookup = DistinctCodingLookup.apply(dataset,
+          inputPath.getValueColumn(), coding -> designation(coding, use, languageCode),
+          input.getContext().getTerminologyServiceFactory().map(
+              factory -> new DistinctCodingLookup.Prefetch(factory, DESIGNATION_PROPERTY_CODE,
+                  null)));
+      dataset = lookup.getDataset();
+      designations = lookup.getColumn();
+    }
 
     // // The result is an array of designations per each input element, which we now
     // // need to explode in the same way as for path traversal, creating unique element ids.
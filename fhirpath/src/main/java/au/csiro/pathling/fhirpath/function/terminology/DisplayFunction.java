@@ -19,6 +19,7 @@ package au.csiro.pathling.fhirpath.function.terminology;
 
 import static au.csiro.pathling.fhirpath.function.NamedFunction.expressionFromInput;
 import static au.csiro.pathling.sql.Terminology.display;
+import static au.csiro.pathling.sql.udf.DisplayUdf.DISPLAY_PROPERTY_CODE;
 import static au.csiro.pathling.utilities.Preconditions.checkUserInput;
 
 import au.csiro.pathling.fhirpath.FhirPath;
@@ -57,9 +58,18 @@ public class DisplayFunction implements NamedFunction {
     final Arguments arguments = Arguments.of(input);
     final Optional<StringType> acceptLanguage = arguments.getOptionalValue(0, StringType.class);
 
-    final Dataset<Row> dataset = inputPath.getDataset();
-    final Column resultColumn = display(inputPath.getValueColumn(),
-        acceptLanguage.map(StringType::getValue).orElse(null));
+    final String language = acceptLanguage.map(StringType::getValue).orElse(null);
+    Dataset<Row> dataset = inputPath.getDataset();
+    Column resultColumn = display(inputPath.getValueColumn(), language);
+    if (input.getContext().isDistinctCodingLookup()) {
+      final DistinctCodingLookup.Result lookup = DistinctCodingLookup.apply(dataset,
+          inputPath.getValueColumn(), coding -> display(coding, language),
+          input.getContext().getTerminologyServiceFactory().map(
+              factory -> new DistinctCodingLookup.Prefetch(factory, DISPLAY_PROPERTY_CODE,
+                  language)));
+      dataset = lookup.getDataset();
+      resultColumn = lookup.getColumn();
+    }
     return ElementPath
         .build(expression, dataset, inputPath.getIdColumn(), inputPath.getEidColumn(),
             resultColumn, inputPath.isSingular(), inputPath.getCurrentResource(),
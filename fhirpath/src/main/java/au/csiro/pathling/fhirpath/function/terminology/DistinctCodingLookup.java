@@ -0,0 +1,175 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.fhirpath.function.terminology;
+
+import static au.csiro.pathling.utilities.Strings.randomAlias;
+import static org.apache.spark.sql.functions.first;
+import static org.apache.spark.sql.functions.when;
+
+import au.csiro.pathling.fhirpath.encoding.CodingEncoding;
+import au.csiro.pathling.terminology.TerminologyServiceFactory;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import lombok.Value;
+import org.apache.spark.api.java.function.MapPartitionsFunction;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Encoders;
+import org.apache.spark.sql.Row;
+import org.hl7.fhir.r4.model.Coding;
+
+/**
+ * Evaluates a terminology lookup over a column of codings once for each distinct coding, rather
+ * than once for each row. The distinct codings are collected using an aggregation, the lookup is
+ * applied to each of them and the results are joined back to the original dataset.
+ * <p>
+ * Codings without a system or a code are not collected, and the lookup is applied to them
+ * directly.
+ * <p>
+ * If a {@link Prefetch} is supplied, the lookups of the distinct codings within each partition are
+ * retrieved together before the lookup is applied, so that they can be sent to the terminology
+ * server within batches rather than one at a time.
+ *
+ * @author John Grimes
+ */
+final class DistinctCodingLookup {
+
+  private DistinctCodingLookup() {
+  }
+
+  /**
+   * The result of a distinct coding lookup.
+   */
+  @Value
+  static class Result {
+
+    /**
+     * The original dataset, with the results of the lookup joined to it.
+     */
+    @Nonnull
+    Dataset<Row> dataset;
+
+    /**
+     * The column containing the result of the lookup for each row.
+     */
+    @Nonnull
+    Column column;
+
+  }
+
+  /**
+   * Describes the lookups that the lookup column makes, so that their results can be retrieved in
+   * advance for all the distinct codings within a partition.
+   */
+  @Value
+  static class Prefetch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Nonnull
+    TerminologyServiceFactory terminologyServiceFactory;
+
+    /**
+     * The property code that is passed to the lookup, if any.
+     */
+    @Nullable
+    String propertyCode;
+
+    /**
+     * The preferred language that is passed to the lookup, if any.
+     */
+    @Nullable
+    String acceptLanguage;
+
+    /**
+     * @param codingIndex the index of the coding field within the rows of each partition
+     * @return a function that retrieves the lookups of the codings within a partition, and then
+     * returns the rows of the partition unchanged
+     */
+    @Nonnull
+    MapPartitionsFunction<Row, Row> forCodingAt(final int codingIndex) {
+      return rows -> {
+        final List<Row> buffered = new ArrayList<>();
+        rows.forEachRemaining(buffered::add);
+        final List<Coding> codings = buffered.stream()
+            .map(row -> CodingEncoding.decode(row.getStruct(codingIndex)))
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+        if (!codings.isEmpty()) {
+          terminologyServiceFactory.build().prefetchLookup(codings, propertyCode, acceptLanguage);
+        }
+        return buffered.iterator();
+      };
+    }
+
+  }
+
+  /**
+   * @param dataset the dataset containing the codings
+   * @param coding the column containing the codings
+   * @param lookup a function that builds the lookup column for a column of codings
+   * @param prefetch a description of the lookups made by the lookup column, if they should be
+   * retrieved in advance
+   * @return a {@link Result} containing the joined dataset and the result column
+   */
+  @Nonnull
+  static Result apply(@Nonnull final Dataset<Row> dataset, @Nonnull final Column coding,
+      @Nonnull final UnaryOperator<Column> lookup, @Nonnull final Optional<Prefetch> prefetch) {
+    final String systemAlias = randomAlias();
+    final String versionAlias = randomAlias();
+    final String codeAlias = randomAlias();
+    final String codingAlias = randomAlias();
+    final String resultAlias = randomAlias();
+
+    // Collect a representative coding for each distinct combination of system, version and code,
+    // and apply the lookup to it.
+    final Dataset<Row> grouped = dataset
+        .where(coding.getField("system").isNotNull().and(coding.getField("code").isNotNull()))
+        .groupBy(coding.getField("system").alias(systemAlias),
+            coding.getField("version").alias(versionAlias),
+            coding.getField("code").alias(codeAlias))
+        .agg(first(coding).alias(codingAlias));
+    // The prefetch runs within the same task as the lookup that follows it, so the lookup is
+    // answered from the cache of the terminology service.
+    final Dataset<Row> distinctCodings = prefetch
+        .map(p -> grouped.mapPartitions(p.forCodingAt(grouped.schema().fieldIndex(codingAlias)),
+            Encoders.row(grouped.schema())))
+        .orElse(grouped);
+    final Dataset<Row> resolved = distinctCodings.select(
+        distinctCodings.col(systemAlias), distinctCodings.col(versionAlias),
+        distinctCodings.col(codeAlias),
+        lookup.apply(distinctCodings.col(codingAlias)).alias(resultAlias));
+
+    final Column matches = coding.getField("system").equalTo(resolved.col(systemAlias))
+        .and(coding.getField("code").equalTo(resolved.col(codeAlias)))
+        .and(coding.getField("version").eqNullSafe(resolved.col(versionAlias)));
+    final Dataset<Row> joined = dataset.join(resolved, matches, "left_outer");
+
+    final Column result = when(resolved.col(systemAlias).isNotNull(), resolved.col(resultAlias))
+        .otherwise(lookup.apply(coding));
+    return new Result(joined, result);
+  }
+
+}
@@ -67,9 +67,19 @@ public class PropertyFunction implements NamedFunction {
     final FHIRDefinedType propertyType = wrapInUserInputError(FHIRDefinedType::fromCode).apply(
         propertyTypeAsString);
 
-    final Dataset<Row> dataset = inputPath.getDataset();
-    final Column propertyValues = property_of(inputPath.getValueColumn(), propertyCode,
-        propertyType, preferredLanguage.map(StringType::getValue).orElse(null));
+    final String language = preferredLanguage.map(StringType::getValue).orElse(null);
+    Dataset<Row> dataset = inputPath.getDataset();
+    Column propertyValues = property_of(inputPath.getValueColumn(), propertyCode,
+        propertyType, language);
+    if (input.getContext().isDistinctCodingLookup()) {
+      final DistinctCodingLookup.Result lookup = DistinctCodingLookup.apply(dataset,
+          inputPath.getValueColumn(),
+          coding -> property_of(coding, propertyCode, propertyType, language),
+          input.getContext().getTerminologyServiceFactory().map(
+              factory -> new DistinctCodingLookup.Prefetch(factory, propertyCode, language)));
+      dataset = lookup.getDataset();
+      propertyValues = lookup.getColumn();
+    }
 
     // // The result is an array of property values per each input element, which we now
     // // need to explode in the same way as for path traversal, creating unique element ids.
@@ -24,10 +24,18 @@ import static au.csiro.pathling.sql.Terminology.subsumed_by;
 import static au.csiro.pathling.sql.Terminology.subsumes;
 import static au.csiro.pathling.utilities.Preconditions.checkUserInput;
 import static org.apache.spark.sql.functions.array;
+import static org.apache.spark.sql.functions.coalesce;
 import static org.apache.spark.sql.functions.col;
 import static org.apache.spark.sql.functions.collect_set;
+import static org.apache.spark.sql.functions.concat_ws;
+import static org.apache.spark.sql.functions.exists;
+import static org.apache.spark.sql.functions.explode;
 import static org.apache.spark.sql.functions.explode_outer;
+import static org.apache.spark.sql.functions.lit;
 import static org.apache.spark.sql.functions.when;
+import static org.hl7.fhir.r4.model.codesystems.ConceptSubsumptionOutcome.EQUIVALENT;
+import static org.hl7.fhir.r4.model.codesystems.ConceptSubsumptionOutcome.SUBSUMEDBY;
+import static org.hl7.fhir.r4.model.codesystems.ConceptSubsumptionOutcome.SUBSUMES;
 
 import au.csiro.pathling.fhirpath.FhirPath;
 import au.csiro.pathling.fhirpath.NonLiteralPath;
@@ -35,12 +43,18 @@ import au.csiro.pathling.fhirpath.element.ElementPath;
 import au.csiro.pathling.fhirpath.function.NamedFunction;
 import au.csiro.pathling.fhirpath.function.NamedFunctionInput;
 import au.csiro.pathling.fhirpath.parser.ParserContext;
+import au.csiro.pathling.terminology.TerminologyService;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.util.List;
+import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
+import org.hl7.fhir.r4.model.Coding;
 import org.hl7.fhir.r4.model.Enumerations.FHIRDefinedType;
+import org.hl7.fhir.r4.model.codesystems.ConceptSubsumptionOutcome;
 
 
 /**
@@ -69,6 +83,19 @@ public class SubsumesFunction implements NamedFunction {
   private static final String COL_INPUT_CODINGS = "inputCodings";
   private static final String COL_ARG_CODINGS = "argCodings";
 
+  private static final String COL_INPUT_CODING = "inputCoding";
+  private static final String COL_ARG_CODING = "argCoding";
+
+  /**
+   * Separates the components of the keys used to look up subsuming pairs of codings. A control
+   * character is used so that it cannot collide with the content of a system, version or code.
+   */
+  private static final String KEY_SEPARATOR = "\u0000";
+
+  /**
+   * Stands in for missing components within the keys used to look up subsuming pairs of codings.
+   */
+  private static final String KEY_ABSENT = "\u0001";
 
   private boolean inverted = false;
   private String functionName = "subsumes";
@@ -102,9 +129,13 @@ public class SubsumesFunction implements NamedFunction {
         input.getArguments().get(0));
     final Column leftCodings = idAndCodingSet.col(COL_INPUT_CODINGS);
     final Column rightCodings = idAndCodingSet.col(COL_ARG_CODINGS);
-    final Column resultColumn = inverted
-                                ? subsumed_by(leftCodings, rightCodings)
-                                : subsumes(leftCodings, rightCodings);
+    final int closureMaxSize = input.getContext().getSubsumesClosureMaxSize();
+    final Optional<Column> closureColumn = closureMaxSize > 0
+                                           ? closureLookup(input.getContext(), idAndCodingSet,
+        leftCodings, rightCodings, closureMaxSize)
+                                           : Optional.empty();
+    final Column resultColumn = closureColumn.orElseGet(
+        () -> udfColumn(leftCodings, rightCodings));
 
     // Construct a new result expression.
     final String expression = expressionFromInput(input, functionName);
@@ -186,6 +217,111 @@ public class SubsumesFunction implements NamedFunction {
         .agg(collect_set(systemAndCodeDataset.col(COL_CODING)).alias(COL_ARG_CODINGS));
   }
 
+  @Nonnull
+  private Column udfColumn(@Nonnull final Column leftCodings, @Nonnull final Column rightCodings) {
+    return inverted
+           ? subsumed_by(leftCodings, rightCodings)
+           : subsumes(leftCodings, rightCodings);
+  }
+
+  /**
+   * Resolves subsumption for each distinct pair of input and argument codings up front, and builds
+   * a column that evaluates the result as a lookup against the subsuming pairs. This replaces a
+   * terminology call for each pair of codings within each resource with a single call for each
+   * distinct pair, and allows Spark to evaluate the lookup as an in-memory hash set.
+   *
+   * @param context the current {@link ParserContext}
+   * @param idAndCodingSet the dataset containing the input and argument codings
+   * @param leftCodings the column containing the input codings
+   * @param rightCodings the column containing the argument codings
+   * @param maxSize the maximum number of distinct pairs of codings to resolve
+   * @return the result column, or an empty {@link Optional} if there are more distinct pairs than
+   * the maximum size
+   */
+  @Nonnull
+  private Optional<Column> closureLookup(@Nonnull final ParserContext context,
+      @Nonnull final Dataset<Row> idAndCodingSet, @Nonnull final Column leftCodings,
+      @Nonnull final Column rightCodings, final int maxSize) {
+    final Column inputCoding = col(COL_INPUT_CODING);
+    final Column argCoding = col(COL_ARG_CODING);
+
+    // Find the distinct pairs of valid codings from the same system that appear together within
+    // the same resource.
+    final List<Row> pairs = idAndCodingSet
+        .select(explode(leftCodings).alias(COL_INPUT_CODING), rightCodings.alias(COL_ARG_CODINGS))
+        .select(inputCoding, explode(col(COL_ARG_CODINGS)).alias(COL_ARG_CODING))
+        .where(inputCoding.getField("system").isNotNull()
+            .and(inputCoding.getField("code").isNotNull())
+            .and(argCoding.getField("code").isNotNull())
+            .and(inputCoding.getField("system").equalTo(argCoding.getField("system"))))
+        .select(inputCoding.getField("system"), inputCoding.getField("version"),
+            inputCoding.getField("code"), argCoding.getField("version"),
+            argCoding.getField("code"))
+        .distinct()
+        .limit(maxSize + 1)
+        .collectAsList();
+    if (pairs.size() > maxSize) {
+      log.debug("Number of distinct coding pairs exceeds {}, evaluating {} using terminology UDF",
+          maxSize, functionName);
+      return Optional.empty();
+    }
+
+    // Resolve each distinct pair, and retain the keys of the pairs that satisfy the function.
+    @SuppressWarnings("OptionalGetWithoutIsPresent") final TerminologyService terminologyService =
+        context.getTerminologyServiceFactory().get().build();
+    final Object[] subsumingKeys = pairs.stream()
+        .filter(pair -> isSubsumes(terminologyService.subsumes(
+            toCoding(pair.getString(0), pair.getString(1), pair.getString(2)),
+            toCoding(pair.getString(0), pair.getString(3), pair.getString(4)))))
+        .map(pair -> String.join(KEY_SEPARATOR, pair.getString(0),
+            keyComponent(pair.getString(1)), pair.getString(2), keyComponent(pair.getString(3)),
+            pair.getString(4)))
+        .toArray();
+    log.debug("Resolved {} subsuming pairs from {} distinct coding pairs for {}",
+        subsumingKeys.length, pairs.size(), functionName);
+
+    final Column lookup = subsumingKeys.length == 0
+                          ? lit(false)
+                          : exists(leftCodings, left -> exists(rightCodings,
+                              right -> left.getField("system").eqNullSafe(right.getField("system"))
+                                  .and(pairKey(left, right).isin(subsumingKeys))));
+    return Optional.of(when(leftCodings.isNull().or(rightCodings.isNull()), lit(null))
+        .otherwise(lookup));
+  }
+
+  @Nonnull
+  private static Column pairKey(@Nonnull final Column left, @Nonnull final Column right) {
+    // Missing components are replaced with a marker that never appears within the keys of the
+    // subsuming pairs, so that invalid codings never match.
+    return concat_ws(KEY_SEPARATOR,
+        coalesce(left.getField("system"), lit(KEY_ABSENT)),
+        coalesce(left.getField("version"), lit(KEY_ABSENT)),
+        coalesce(left.getField("code"), lit(KEY_ABSENT)),
+        coalesce(right.getField("version"), lit(KEY_ABSENT)),
+        coalesce(right.getField("code"), lit(KEY_ABSENT)));
+  }
+
+  @Nonnull
+  private static String keyComponent(@Nullable final String value) {
+    return value == null
+           ? KEY_ABSENT
+           : value;
+  }
+
+  @Nonnull
+  private static Coding toCoding(@Nonnull final String system, @Nullable final String version,
+      @Nonnull final String code) {
+    final Coding coding = new Coding(system, code, null);
+    coding.setVersion(version);
+    return coding;
+  }
+
+  private boolean isSubsumes(@Nonnull final ConceptSubsumptionOutcome outcome) {
+    return EQUIVALENT.equals(outcome) || (inverted
+                                          ? SUBSUMEDBY
+                                          : SUBSUMES).equals(outcome);
+  }
+
   private void validateInput(@Nonnull final NamedFunctionInput input) {
 
     final ParserContext context = input.getContext();
@@ -19,22 +19,31 @@ package au.csiro.pathling.fhirpath.operator;
 
 import static au.csiro.pathling.QueryHelpers.createColumns;
 import static au.csiro.pathling.utilities.Preconditions.checkUserInput;
+import static org.apache.spark.sql.functions.filter;
+import static org.apache.spark.sql.functions.flatten;
 import static org.apache.spark.sql.functions.lit;
+import static org.apache.spark.sql.functions.transform;
 import static org.apache.spark.sql.functions.when;
 
 import au.csiro.pathling.QueryHelpers.DatasetWithColumnMap;
 import au.csiro.pathling.encoders.ExtensionSupport;
+import au.csiro.pathling.encoders.FhirEncoders;
+import au.csiro.pathling.fhirpath.ArrayRepresentation;
 import au.csiro.pathling.fhirpath.FhirPath;
 import au.csiro.pathling.fhirpath.NonLiteralPath;
 import au.csiro.pathling.fhirpath.ResourcePath;
 import au.csiro.pathling.fhirpath.element.ElementDefinition;
 import au.csiro.pathling.fhirpath.element.ElementPath;
 import jakarta.annotation.Nonnull;
+import java.util.Arrays;
 import java.util.Optional;
 import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
+import org.apache.spark.sql.types.ArrayType;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.StructType;
 
 /**
  * Provides the ability to move from one element to its child element, using the path selection
@@ -53,6 +62,21 @@ public class PathTraversalOperator {
    */
   @Nonnull
   public ElementPath invoke(@Nonnull final PathTraversalInput input) {
+    return invoke(input, input.getRight());
+  }
+
+  /**
+   * Invokes this operator with the specified inputs, reading the values of the child element from
+   * the named field rather than the field named after the element. This is used to read extensions
+   * that have been promoted to their own column within the resource.
+   *
+   * @param input A {@link PathTraversalInput} object
+   * @param fieldName the name of the field that holds the values of the child element
+   * @return A {@link FhirPath} object representing the resulting expression
+   */
+  @Nonnull
+  public ElementPath invoke(@Nonnull final PathTraversalInput input,
+      @Nonnull final String fieldName) {
     checkUserInput(input.getLeft() instanceof NonLiteralPath,
         "Path traversal operator cannot be invoked on a literal value: " + input.getLeft()
             .getExpression());
@@ -74,12 +98,15 @@ public class PathTraversalOperator {
     final Dataset<Row> leftDataset = left.getDataset();
 
     final Column field;
-    if (ExtensionSupport.EXTENSION_ELEMENT_NAME().equals(right)) {
+    if (ExtensionSupport.EXTENSION_ELEMENT_NAME().equals(fieldName)) {
       // Lookup the extensions by _fid in the extension container.
       field = left.getExtensionContainerColumn()
           .apply(getValueField(left, ExtensionSupport.FID_FIELD_NAME()));
     } else {
-      field = getValueField(left, right);
+      // The encoders may have been configured to encode only a subset of the elements that are
+      // present within the definition.
+      checkUserInput(isEncoded(left, fieldName), "Element is not encoded: " + expression);
+      field = getValueField(left, fieldName);
     }
 
     // If the element has a max cardinality of more than one, it will need to be "exploded" out into
@@ -115,9 +142,60 @@ public class PathTraversalOperator {
     // be used within joins in certain situations, e.g. extract.
     eidColumn.ifPresent(c -> input.getContext().getNodeIdColumns().putIfAbsent(expression, c));
 
-    return ElementPath
+    final ElementPath result = ElementPath
         .build(expression, resultDataset, left.getIdColumn(), eidColumn, valueColumn,
             resultSingular, left.getCurrentResource(), left.getThisColumn(), childDefinition);
+
+    // If array evaluation is enabled, we also keep track of the values of a non-singular result as
+    // an array, based upon the dataset of the nearest singular ancestor. Spark evaluates lazily, so
+    // the exploded dataset above will not be executed unless it is actually used.
+    if (!resultSingular && input.getContext().isArrayEvaluationApplicable()
+        && !ExtensionSupport.EXTENSION_ELEMENT_NAME().equals(right)) {
+      getArrayRepresentation(left, right, field, maxCardinalityOfOne)
+          .ifPresent(result::setArrayRepresentation);
+    }
+    return result;
+  }
+
+  @Nonnull
+  private static Optional<ArrayRepresentation> getArrayRepresentation(
+      @Nonnull final NonLiteralPath left, @Nonnull final String right, @Nonnull final Column field,
+      final boolean maxCardinalityOfOne) {
+    if (left.isSingular()) {
+      // The child is the first repeating element in the path, so the field itself is the array.
+      return Optional.of(new ArrayRepresentation(left.getDataset(), field));
+    }
+    return left.getArrayRepresentation().map(parent -> {
+      final Column children = transform(parent.getArray(), element -> element.getField(right));
+      // Traversing to a repeating child produces an array of arrays, which is flattened after
+      // removing any null arrays (which would otherwise cause the whole result to be null).
+      final Column array = maxCardinalityOfOne
+                           ? children
+                           : flatten(filter(children, Column::isNotNull));
+      return new ArrayRepresentation(parent.getDataset(), array);
+    });
+  }
+
+  private static boolean isEncoded(@Nonnull final NonLiteralPath path,
+      @Nonnull final String fieldName) {
+    if (path instanceof ResourcePath) {
+      return ((ResourcePath) path).hasElementColumn(fieldName);
+    }
+    // Inspecting the schema requires the plan of the dataset to be analysed, which is only
+    // necessary if the resource may have been encoded with a selection of its elements.
+    final boolean selectivelyEncoded = path.getCurrentResource()
+        .map(resource -> FhirEncoders.isSelectivelyEncoded(resource.getResourceType().toCode()))
+        .orElse(true);
+    if (!selectivelyEncoded) {
+      return true;
+    }
+    final DataType valueType = path.getDataset().select(path.getValueColumn()).schema()
+        .fields()[0].dataType();
+    final DataType dataType = valueType instanceof ArrayType
+                              ? ((ArrayType) valueType).elementType()
+                              : valueType;
+    return !(dataType instanceof StructType)
+        || Arrays.asList(((StructType) dataType).fieldNames()).contains(fieldName);
   }
 
   @Nonnull
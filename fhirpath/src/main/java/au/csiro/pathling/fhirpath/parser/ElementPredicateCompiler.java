@@ -0,0 +1,349 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.fhirpath.parser;
+
+import static au.csiro.pathling.fhirpath.literal.StringLiteralPath.unescapeFhirPathString;
+import static au.csiro.pathling.utilities.Strings.unSingleQuote;
+import static java.util.Objects.requireNonNull;
+import static org.apache.spark.sql.functions.filter;
+import static org.apache.spark.sql.functions.lit;
+import static org.apache.spark.sql.functions.not;
+import static org.apache.spark.sql.functions.size;
+import static org.apache.spark.sql.functions.when;
+
+import au.csiro.pathling.errors.InvalidUserInputError;
+import au.csiro.pathling.fhirpath.element.ElementDefinition;
+import au.csiro.pathling.fhirpath.parser.generated.FhirPathBaseVisitor;
+import au.csiro.pathling.fhirpath.parser.generated.FhirPathLexer;
+import au.csiro.pathling.fhirpath.parser.generated.FhirPathParser;
+import au.csiro.pathling.fhirpath.parser.generated.FhirPathParser.AndExpressionContext;
+import au.csiro.pathling.fhirpath.parser.generated.FhirPathParser.BooleanLiteralContext;
+import au.csiro.pathling.fhirpath.parser.generated.FhirPathParser.EqualityExpressionContext;
+import au.csiro.pathling.fhirpath.parser.generated.FhirPathParser.ExpressionContext;
+import au.csiro.pathling.fhirpath.parser.generated.FhirPathParser.FunctionInvocationContext;
+import au.csiro.pathling.fhirpath.parser.generated.FhirPathParser.InvocationContext;
+import au.csiro.pathling.fhirpath.parser.generated.FhirPathParser.InvocationExpressionContext;
+import au.csiro.pathling.fhirpath.parser.generated.FhirPathParser.InvocationTermContext;
+import au.csiro.pathling.fhirpath.parser.generated.FhirPathParser.LiteralTermContext;
+import au.csiro.pathling.fhirpath.parser.generated.FhirPathParser.MemberInvocationContext;
+import au.csiro.pathling.fhirpath.parser.generated.FhirPathParser.NumberLiteralContext;
+import au.csiro.pathling.fhirpath.parser.generated.FhirPathParser.OrExpressionContext;
+import au.csiro.pathling.fhirpath.parser.generated.FhirPathParser.ParenthesizedTermContext;
+import au.csiro.pathling.fhirpath.parser.generated.FhirPathParser.StringLiteralContext;
+import au.csiro.pathling.fhirpath.parser.generated.FhirPathParser.TermExpressionContext;
+import au.csiro.pathling.fhirpath.parser.generated.FhirPathParser.ThisInvocationContext;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import lombok.Value;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.RuleNode;
+import org.apache.spark.sql.Column;
+import org.hl7.fhir.r4.model.Enumerations.FHIRDefinedType;
+
+/**
+ * Compiles a FHIRPath criteria expression into a function that can be applied to a single element
+ * of an array, for use within Spark higher-order functions such as {@code filter}.
+ * <p>
+ * Only a conservative subset of FHIRPath is supported: navigation to single-valued children of the
+ * element, {@code =} and {@code !=} comparisons between primitive values and literals,
+ * {@code and}, {@code or}, {@code not()}, {@code exists()} and {@code empty()}. Expressions outside
+ * of this subset will not be compiled, and the caller is expected to fall back to the usual
+ * evaluation of the expression.
+ *
+ * @author John Grimes
+ */
+public class ElementPredicateCompiler {
+
+  private static final Set<FHIRDefinedType> STRING_TYPES = Set.of(FHIRDefinedType.STRING,
+      FHIRDefinedType.URI, FHIRDefinedType.URL, FHIRDefinedType.CANONICAL, FHIRDefinedType.CODE,
+      FHIRDefinedType.OID, FHIRDefinedType.ID, FHIRDefinedType.UUID, FHIRDefinedType.MARKDOWN);
+
+  private static final Set<FHIRDefinedType> INTEGER_TYPES = Set.of(FHIRDefinedType.INTEGER,
+      FHIRDefinedType.UNSIGNEDINT, FHIRDefinedType.POSITIVEINT);
+
+  private ElementPredicateCompiler() {
+  }
+
+  /**
+   * Compiles a criteria expression for elements of the specified type.
+   *
+   * @param expression the FHIRPath expression, evaluated with each element as {@code $this}
+   * @param definition the {@link ElementDefinition} of the elements
+   * @return a function that maps an element {@link Column} to a Boolean {@link Column}, if the
+   * expression is supported
+   */
+  @Nonnull
+  public static Optional<Function<Column, Column>> compile(@Nonnull final String expression,
+      @Nonnull final ElementDefinition definition) {
+    final ExpressionContext tree;
+    try {
+      final FhirPathLexer lexer = new FhirPathLexer(CharStreams.fromString(expression));
+      final FhirPathParser parser = new FhirPathParser(new CommonTokenStream(lexer));
+      lexer.removeErrorListeners();
+      lexer.addErrorListener(new ParserErrorListener());
+      parser.removeErrorListeners();
+      parser.addErrorListener(new ParserErrorListener());
+      tree = parser.expression();
+    } catch (final InvalidUserInputError e) {
+      return Optional.empty();
+    }
+
+    // Compile the expression once against a placeholder element, to check that it is supported
+    // and results in a singular Boolean.
+    final Optional<Operand> result = new CompilingVisitor(
+        new Operand(lit(null), Optional.of(definition), Optional.empty(), false)).visit(tree);
+    if (result.isEmpty() || !result.get().isBoolean()) {
+      return Optional.empty();
+    }
+    return Optional.of(element -> requireNonNull(new CompilingVisitor(
+        new Operand(element, Optional.of(definition), Optional.empty(), false))
+        .visit(tree).orElseThrow().getColumn()));
+  }
+
+  /**
+   * An intermediate result of compilation, describing a column in terms of the element.
+   */
+  @Value
+  private static class Operand {
+
+    @Nonnull
+    Column column;
+
+    @Nonnull
+    Optional<ElementDefinition> definition;
+
+    @Nonnull
+    Optional<FHIRDefinedType> type;
+
+    boolean collection;
+
+    boolean isBoolean() {
+      return !collection && type.filter(FHIRDefinedType.BOOLEAN::equals).isPresent();
+    }
+
+    boolean isComparableWith(@Nonnull final Operand other) {
+      if (collection || other.collection || type.isEmpty() || other.type.isEmpty()) {
+        return false;
+      }
+      final FHIRDefinedType left = type.get();
+      final FHIRDefinedType right = other.type.get();
+      return STRING_TYPES.contains(left) && STRING_TYPES.contains(right)
+          || INTEGER_TYPES.contains(left) && INTEGER_TYPES.contains(right)
+          || left == FHIRDefinedType.BOOLEAN && right == FHIRDefinedType.BOOLEAN;
+    }
+
+    @Nonnull
+    static Operand booleanResult(@Nonnull final Column column) {
+      return new Operand(column, Optional.empty(), Optional.of(FHIRDefinedType.BOOLEAN), false);
+    }
+
+    @Nonnull
+    static Operand literal(@Nonnull final Object value, @Nonnull final FHIRDefinedType type) {
+      return new Operand(lit(value), Optional.empty(), Optional.of(type), false);
+    }
+
+  }
+
+  private static class CompilingVisitor extends FhirPathBaseVisitor<Optional<Operand>> {
+
+    @Nonnull
+    private final Operand element;
+
+    private CompilingVisitor(@Nonnull final Operand element) {
+      this.element = element;
+    }
+
+    @Override
+    @Nonnull
+    public Optional<Operand> visitChildren(@Nullable final RuleNode node) {
+      // Anything that is not explicitly supported is not compiled.
+      return Optional.empty();
+    }
+
+    @Override
+    @Nonnull
+    public Optional<Operand> visitTermExpression(@Nullable final TermExpressionContext ctx) {
+      return visit(requireNonNull(ctx).term());
+    }
+
+    @Override
+    @Nonnull
+    public Optional<Operand> visitInvocationTerm(@Nullable final InvocationTermContext ctx) {
+      return invoke(element, requireNonNull(ctx).invocation());
+    }
+
+    @Override
+    @Nonnull
+    public Optional<Operand> visitInvocationExpression(
+        @Nullable final InvocationExpressionContext ctx) {
+      return visit(requireNonNull(ctx).expression())
+          .flatMap(invoker -> invoke(invoker, ctx.invocation()));
+    }
+
+    @Override
+    @Nonnull
+    public Optional<Operand> visitParenthesizedTerm(@Nullable final ParenthesizedTermContext ctx) {
+      return visit(requireNonNull(ctx).expression());
+    }
+
+    @Override
+    @Nonnull
+    public Optional<Operand> visitLiteralTerm(@Nullable final LiteralTermContext ctx) {
+      return visit(requireNonNull(ctx).literal());
+    }
+
+    @Override
+    @Nonnull
+    public Optional<Operand> visitStringLiteral(@Nullable final StringLiteralContext ctx) {
+      final String value = unescapeFhirPathString(unSingleQuote(requireNonNull(ctx).getText()));
+      return Optional.of(Operand.literal(value, FHIRDefinedType.STRING));
+    }
+
+    @Override
+    @Nonnull
+    public Optional<Operand> visitBooleanLiteral(@Nullable final BooleanLiteralContext ctx) {
+      final boolean value = Boolean.parseBoolean(requireNonNull(ctx).getText());
+      return Optional.of(Operand.literal(value, FHIRDefinedType.BOOLEAN));
+    }
+
+    @Override
+    @Nonnull
+    public Optional<Operand> visitNumberLiteral(@Nullable final NumberLiteralContext ctx) {
+      try {
+        final int value = Integer.parseInt(requireNonNull(ctx).getText());
+        return Optional.of(Operand.literal(value, FHIRDefinedType.INTEGER));
+      } catch (final NumberFormatException e) {
+        // Decimal literals are not supported.
+        return Optional.empty();
+      }
+    }
+
+    @Override
+    @Nonnull
+    public Optional<Operand> visitEqualityExpression(
+        @Nullable final EqualityExpressionContext ctx) {
+      final String operator = requireNonNull(ctx).getChild(1).getText();
+      if (!operator.equals("=") && !operator.equals("!=")) {
+        return Optional.empty();
+      }
+      final Optional<Operand> left = visit(ctx.expression(0));
+      final Optional<Operand> right = visit(ctx.expression(1));
+      if (left.isEmpty() || right.isEmpty() || !left.get().isComparableWith(right.get())) {
+        return Optional.empty();
+      }
+      final Column leftColumn = left.get().getColumn();
+      final Column rightColumn = right.get().getColumn();
+      return Optional.of(Operand.booleanResult(operator.equals("=")
+                                               ? leftColumn.equalTo(rightColumn)
+                                               : leftColumn.notEqual(rightColumn)));
+    }
+
+    @Override
+    @Nonnull
+    public Optional<Operand> visitAndExpression(@Nullable final AndExpressionContext ctx) {
+      final Optional<Operand> left = visit(requireNonNull(ctx).expression(0));
+      final Optional<Operand> right = visit(ctx.expression(1));
+      if (left.isEmpty() || right.isEmpty() || !left.get().isBoolean()
+          || !right.get().isBoolean()) {
+        return Optional.empty();
+      }
+      return Optional.of(
+          Operand.booleanResult(left.get().getColumn().and(right.get().getColumn())));
+    }
+
+    @Override
+    @Nonnull
+    public Optional<Operand> visitOrExpression(@Nullable final OrExpressionContext ctx) {
+      if (!requireNonNull(ctx).getChild(1).getText().equals("or")) {
+        return Optional.empty();
+      }
+      final Optional<Operand> left = visit(ctx.expression(0));
+      final Optional<Operand> right = visit(ctx.expression(1));
+      if (left.isEmpty() || right.isEmpty() || !left.get().isBoolean()
+          || !right.get().isBoolean()) {
+        return Optional.empty();
+      }
+      return Optional.of(
+          Operand.booleanResult(left.get().getColumn().or(right.get().getColumn())));
+    }
+
+    @Nonnull
+    private Optional<Operand> invoke(@Nonnull final Operand invoker,
+        @Nonnull final InvocationContext invocation) {
+      if (invocation instanceof ThisInvocationContext) {
+        return invoker == element
+               ? Optional.of(element)
+               : Optional.empty();
+      } else if (invocation instanceof MemberInvocationContext) {
+        return member(invoker, invocation.getText());
+      } else if (invocation instanceof final FunctionInvocationContext functionInvocation) {
+        if (functionInvocation.function().paramList() != null) {
+          return Optional.empty();
+        }
+        return function(invoker, functionInvocation.function().identifier().getText());
+      } else {
+        return Optional.empty();
+      }
+    }
+
+    @Nonnull
+    private static Optional<Operand> member(@Nonnull final Operand invoker,
+        @Nonnull final String name) {
+      if (invoker.isCollection() || invoker.getDefinition().isEmpty()) {
+        return Optional.empty();
+      }
+      final Optional<ElementDefinition> child = invoker.getDefinition().get()
+          .getChildElement(name);
+      // Polymorphic elements and extensions are not supported.
+      if (child.isEmpty() || child.get().getFhirType().isEmpty()
+          || child.get().getFhirType().get() == FHIRDefinedType.EXTENSION) {
+        return Optional.empty();
+      }
+      return Optional.of(new Operand(invoker.getColumn().getField(name), child,
+          child.get().getFhirType(), child.get().getMaxCardinality() != 1));
+    }
+
+    @Nonnull
+    private static Optional<Operand> function(@Nonnull final Operand invoker,
+        @Nonnull final String name) {
+      final Column column = invoker.getColumn();
+      final Column exists = invoker.isCollection()
+                            ? when(column.isNull(), false)
+                                .otherwise(size(filter(column, Column::isNotNull)).gt(0))
+                            : column.isNotNull();
+      switch (name) {
+        case "exists":
+          return Optional.of(Operand.booleanResult(exists));
+        case "empty":
+          return Optional.of(Operand.booleanResult(not(exists)));
+        case "not":
+          return invoker.isBoolean()
+                 ? Optional.of(Operand.booleanResult(not(column)))
+                 : Optional.empty();
+        default:
+          return Optional.empty();
+      }
+    }
+
+  }
+
+}
@@ -201,6 +201,9 @@ class InvocationVisitor extends FhirPathBaseVisitor<FhirPath> {
           context.getFhirContext(), context.getSparkSession(), context.getDataSource(),
           context.getTerminologyServiceFactory(), argumentGroupings, context.getNodeIdColumns());
       argumentContext.setThisContext(thisPath);
+      argumentContext.setArrayEvaluation(context.isArrayEvaluation());
+      argumentContext.setSubsumesClosureMaxSize(context.getSubsumesClosureMaxSize());
+      argumentContext.setDistinctCodingLookup(context.isDistinctCodingLookup());
 
       // Parse each of the expressions passed as arguments to the function.
       arguments.addAll(
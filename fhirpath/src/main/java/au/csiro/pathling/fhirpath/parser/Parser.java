@@ -17,9 +17,14 @@
 
 package au.csiro.pathling.fhirpath.parser;
 
+import static java.util.Objects.requireNonNull;
+
 import au.csiro.pathling.fhirpath.FhirPath;
 import au.csiro.pathling.fhirpath.parser.generated.FhirPathLexer;
 import au.csiro.pathling.fhirpath.parser.generated.FhirPathParser;
+import au.csiro.pathling.query.QueryMetrics;
+import au.csiro.pathling.utilities.Tracing;
+import io.opentelemetry.api.trace.Span;
 import jakarta.annotation.Nonnull;
 import lombok.Getter;
 import org.antlr.v4.runtime.CharStreams;
@@ -35,6 +40,8 @@ import org.antlr.v4.runtime.CommonTokenStream;
 @Getter
 public class Parser {
 
+  private static final String EXPRESSION_ATTRIBUTE = "pathling.expression";
+
   @Nonnull
   private final ParserContext context;
 
@@ -53,6 +60,14 @@ public class Parser {
    */
   @Nonnull
   public FhirPath parse(@Nonnull final String expression) {
+    return Tracing.inSpan("fhirpath.parse", () -> {
+      Span.current().setAttribute(EXPRESSION_ATTRIBUTE, expression);
+      return requireNonNull(QueryMetrics.parseTimer().record(() -> doParse(expression)));
+    });
+  }
+
+  @Nonnull
+  private FhirPath doParse(@Nonnull final String expression) {
     final FhirPathLexer lexer = new FhirPathLexer(CharStreams.fromString(expression));
     final CommonTokenStream tokens = new CommonTokenStream(lexer);
     final FhirPathParser parser = new FhirPathParser(tokens);
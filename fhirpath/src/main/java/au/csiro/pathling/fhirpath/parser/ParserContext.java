@@ -18,14 +18,17 @@
 package au.csiro.pathling.fhirpath.parser;
 
 import au.csiro.pathling.fhirpath.FhirPath;
+import au.csiro.pathling.fhirpath.NonLiteralPath;
 import au.csiro.pathling.io.source.DataSource;
 import au.csiro.pathling.terminology.TerminologyService;
 import au.csiro.pathling.terminology.TerminologyServiceFactory;
 import ca.uhn.fhir.context.FhirContext;
 import jakarta.annotation.Nonnull;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import lombok.Getter;
 import org.apache.spark.sql.Column;
 import org.apache.spark.sql.SparkSession;
@@ -101,6 +104,24 @@ public class ParserContext {
   @Nonnull
   private final Map<String, Column> nodeIdColumns;
 
+  /**
+   * Whether supported expressions over repeating elements should be evaluated using array
+   * functions, rather than by exploding and regrouping.
+   */
+  private boolean arrayEvaluation = false;
+
+  /**
+   * The maximum number of distinct pairs of codings for which subsumption will be resolved up
+   * front and evaluated as a lookup, or {@code 0} if this is disabled.
+   */
+  private int subsumesClosureMaxSize = 0;
+
+  /**
+   * Whether terminology lookups should be evaluated once for each distinct coding, rather than once
+   * for each row.
+   */
+  private boolean distinctCodingLookup = false;
+
   /**
    * @param inputContext the input context from which the FHIRPath is to be evaluated
    * @param fhirContext a {@link FhirContext} that can be used to do FHIR stuff
@@ -131,4 +152,41 @@ public class ParserContext {
     this.thisContext = Optional.of(thisContext);
   }
 
+  public void setArrayEvaluation(final boolean arrayEvaluation) {
+    this.arrayEvaluation = arrayEvaluation;
+  }
+
+  public void setSubsumesClosureMaxSize(final int subsumesClosureMaxSize) {
+    this.subsumesClosureMaxSize = subsumesClosureMaxSize;
+  }
+
+  public void setDistinctCodingLookup(final boolean distinctCodingLookup) {
+    this.distinctCodingLookup = distinctCodingLookup;
+  }
+
+  /**
+   * Array evaluation can only be used when each row of a singular path represents a single
+   * grouping, i.e. when the grouping columns identify either the resource or the current
+   * {@code $this} element. Other groupings (e.g. those of an aggregate query) aggregate over many
+   * rows, and must be evaluated by regrouping.
+   *
+   * @return true if array evaluation is enabled and can be used within this context
+   */
+  public boolean isArrayEvaluationApplicable() {
+    if (!arrayEvaluation) {
+      return false;
+    }
+    final Set<String> rowIdentity = new HashSet<>();
+    rowIdentity.add(inputContext.getIdColumn().toString());
+    thisContext.ifPresent(thisPath -> {
+      rowIdentity.add(thisPath.getIdColumn().toString());
+      if (thisPath instanceof NonLiteralPath) {
+        ((NonLiteralPath) thisPath).getEidColumn()
+            .ifPresent(eid -> rowIdentity.add(eid.toString()));
+      }
+    });
+    return !groupingColumns.isEmpty() && groupingColumns.stream()
+        .allMatch(column -> rowIdentity.contains(column.toString()));
+  }
+
 }
@@ -62,6 +62,18 @@ public class CatalogPersistence implements PersistenceScheme {
     return DeltaTable.forName(spark, getTableName(resourceType));
   }
 
+  @Nonnull
+  @Override
+  public Dataset<Row> readChanges(@Nonnull final ResourceType resourceType,
+      final long startingVersion, final long endingVersion) {
+    return spark.read()
+        .format("delta")
+        .option("readChangeFeed", "true")
+        .option("startingVersion", startingVersion)
+        .option("endingVersion", endingVersion)
+        .table(getTableName(resourceType));
+  }
+
   @Override
   public void write(@Nonnull final ResourceType resourceType,
       @Nonnull final DataFrameWriter<Row> writer) {
@@ -22,11 +22,11 @@ import static au.csiro.pathling.fhir.FhirUtils.getResourceType;
 import static au.csiro.pathling.io.FileSystemPersistence.safelyJoinPaths;
 import static au.csiro.pathling.utilities.Preconditions.checkUserInput;
 import static java.util.Objects.requireNonNull;
-import static org.apache.spark.sql.functions.asc;
 
 import au.csiro.pathling.config.StorageConfiguration;
 import au.csiro.pathling.encoders.FhirEncoders;
-import au.csiro.pathling.io.source.DataSource;
+import au.csiro.pathling.io.source.ChangeTrackingDataSource;
+import au.csiro.pathling.query.QueryMetrics;
 import au.csiro.pathling.security.ResourceAccess;
 import io.delta.tables.DeltaMergeBuilder;
 import io.delta.tables.DeltaTable;
@@ -51,7 +51,7 @@ import org.hl7.fhir.r4.model.Enumerations.ResourceType;
  * @author John Grimes
  */
 @Slf4j
-public class Database implements DataSource {
+public class Database implements ChangeTrackingDataSource {
 
   @Nonnull
   protected final SparkSession spark;
@@ -64,6 +64,9 @@ public class Database implements DataSource {
 
   protected final boolean cacheDatasets;
 
+  @Nonnull
+  protected final WriteLayout layout;
+
   /**
    * @param spark a {@link SparkSession} for interacting with Spark
    * @param fhirEncoders {@link FhirEncoders} object for creating empty datasets
@@ -72,10 +75,24 @@ public class Database implements DataSource {
    */
   public Database(@Nonnull final SparkSession spark, @Nonnull final FhirEncoders fhirEncoders,
       @Nonnull final PersistenceScheme persistence, final boolean cacheDatasets) {
+    this(spark, fhirEncoders, persistence, cacheDatasets, WriteLayout.defaults());
+  }
+
+  /**
+   * @param spark a {@link SparkSession} for interacting with Spark
+   * @param fhirEncoders {@link FhirEncoders} object for creating empty datasets
+   * @param persistence a {@link PersistenceScheme} object for reading and writing data
+   * @param cacheDatasets whether to cache datasets in memory
+   * @param layout the {@link WriteLayout} used when overwriting resource tables
+   */
+  public Database(@Nonnull final SparkSession spark, @Nonnull final FhirEncoders fhirEncoders,
+      @Nonnull final PersistenceScheme persistence, final boolean cacheDatasets,
+      @Nonnull final WriteLayout layout) {
     this.spark = spark;
     this.fhirEncoders = fhirEncoders;
     this.persistence = persistence;
     this.cacheDatasets = cacheDatasets;
+    this.layout = layout;
   }
 
   /**
@@ -104,8 +121,23 @@ public class Database implements DataSource {
   public static Database forFileSystem(@Nonnull final SparkSession spark,
       @Nonnull final FhirEncoders fhirEncoders, @Nonnull final String path,
       final boolean cacheDatasets) {
+    return forFileSystem(spark, fhirEncoders, path, cacheDatasets, WriteLayout.defaults());
+  }
+
+  /**
+   * @param spark a {@link SparkSession} for interacting with Spark
+   * @param fhirEncoders {@link FhirEncoders} object for creating empty datasets
+   * @param path the path to the storage location, overriding the values of warehouse URL and
+   * database name in the configuration
+   * @param cacheDatasets whether to cache datasets in memory
+   * @param layout the {@link WriteLayout} used when overwriting resource tables
+   * @return a new {@link Database} object
+   */
+  public static Database forFileSystem(@Nonnull final SparkSession spark,
+      @Nonnull final FhirEncoders fhirEncoders, @Nonnull final String path,
+      final boolean cacheDatasets, @Nonnull final WriteLayout layout) {
     return new Database(spark, fhirEncoders, new FileSystemPersistence(spark, path),
-        cacheDatasets);
+        cacheDatasets, layout);
   }
 
   /**
@@ -118,8 +150,22 @@ public class Database implements DataSource {
   public static Database forCatalog(@Nonnull final SparkSession spark,
       @Nonnull final FhirEncoders fhirEncoders, @Nonnull final Optional<String> schema,
       final boolean cacheDatasets) {
+    return forCatalog(spark, fhirEncoders, schema, cacheDatasets, WriteLayout.defaults());
+  }
+
+  /**
+   * @param spark a {@link SparkSession} for interacting with Spark
+   * @param fhirEncoders {@link FhirEncoders} object for creating empty datasets
+   * @param schema the name of the schema to use when qualifying table names
+   * @param cacheDatasets whether to cache datasets in memory
+   * @param layout the {@link WriteLayout} used when overwriting resource tables
+   * @return a new {@link Database} object
+   */
+  public static Database forCatalog(@Nonnull final SparkSession spark,
+      @Nonnull final FhirEncoders fhirEncoders, @Nonnull final Optional<String> schema,
+      final boolean cacheDatasets, @Nonnull final WriteLayout layout) {
     return new Database(spark, fhirEncoders, new CatalogPersistence(spark, schema),
-        cacheDatasets);
+        cacheDatasets, layout);
   }
 
   /**
@@ -150,6 +196,37 @@ public class Database implements DataSource {
     return persistence.list();
   }
 
+  @Override
+  public long getVersion(@Nonnull final ResourceType resourceType) {
+    if (!persistence.exists(resourceType)) {
+      return -1;
+    }
+    return persistence.read(resourceType).history(1).select("version").head().getLong(0);
+  }
+
+  /**
+   * Reads the resources that have changed between two versions of a resource type, using the Delta
+   * change data feed. The change data feed must be enabled on the table, e.g. by setting
+   * {@code spark.databricks.delta.properties.defaults.enableChangeDataFeed} before it is created.
+   *
+   * @param resourceType the desired {@link ResourceType}
+   * @param fromVersion the version after which changes are reported
+   * @param toVersion the last version for which changes are reported
+   * @return a {@link Dataset} containing the raw changed resources
+   */
+  @ResourceAccess(ResourceAccess.AccessType.READ)
+  @Nonnull
+  @Override
+  public Dataset<Row> readChanges(@Nonnull final ResourceType resourceType,
+      final long fromVersion, final long toVersion) {
+    if (toVersion <= fromVersion || !persistence.exists(resourceType)) {
+      return createEmptyDataset(spark, fhirEncoders, resourceType);
+    }
+    return persistence.readChanges(resourceType, fromVersion + 1, toVersion)
+        // Remove the change metadata, so that the changes have the same shape as the resources.
+        .drop("_change_type", "_commit_version", "_commit_timestamp");
+  }
+
   /**
    * Overwrites the resources for a particular type with the contents of the supplied
    * {@link Dataset}.
@@ -267,7 +344,8 @@ public class Database implements DataSource {
    */
   @Nonnull
   DeltaTable getDeltaTable(final @Nonnull ResourceType resourceType) {
-    final DeltaTable resources = persistence.read(resourceType);
+    final DeltaTable resources = requireNonNull(QueryMetrics.tableReadTimer(resourceType.toCode())
+        .record(() -> persistence.read(resourceType)));
 
     if (cacheDatasets) {
       // Cache the raw resource data.
@@ -281,9 +359,10 @@ public class Database implements DataSource {
   void write(@Nonnull final ResourceType resourceType,
       @Nonnull final Dataset<Row> resources) {
     log.debug("Overwriting: {}", resourceType.toCode());
-    final DataFrameWriter<Row> writer = resources
-        // We order the resources here to reduce the amount of sorting necessary at query time.
-        .orderBy(asc("id"))
+    // We arrange the resources according to the layout here (by default, sorting each partition by
+    // ID) to reduce the amount of sorting and scanning necessary at query time.
+    final Dataset<Row> arranged = layout.arrange(resources);
+    final DataFrameWriter<Row> writer = layout.configure(arranged, arranged
         .write()
         .format("delta")
         .mode(SaveMode.Overwrite)
@@ -291,7 +370,7 @@ public class Database implements DataSource {
         // one. For the purposes of this method, we want to be able to rewrite the schema in cases 
         // where it has changed, e.g. a version upgrade or a configuration change.
         // See: https://docs.delta.io/latest/delta-batch.html#replace-table-schema
-        .option("overwriteSchema", "true");
+        .option("overwriteSchema", "true"));
     persistence.write(resourceType, writer);
   }
 
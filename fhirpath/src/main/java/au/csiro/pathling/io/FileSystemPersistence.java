@@ -18,6 +18,7 @@ import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.spark.sql.DataFrameWriter;
+import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SparkSession;
 import org.hl7.fhir.exceptions.FHIRException;
@@ -47,6 +48,18 @@ public class FileSystemPersistence implements PersistenceScheme {
     return DeltaTable.forPath(spark, getTableUrl(path, resourceType));
   }
 
+  @Nonnull
+  @Override
+  public Dataset<Row> readChanges(@Nonnull final ResourceType resourceType,
+      final long startingVersion, final long endingVersion) {
+    return spark.read()
+        .format("delta")
+        .option("readChangeFeed", "true")
+        .option("startingVersion", startingVersion)
+        .option("endingVersion", endingVersion)
+        .load(getTableUrl(path, resourceType));
+  }
+
   @Override
   public void write(@Nonnull final ResourceType resourceType,
       @Nonnull final DataFrameWriter<Row> writer) {
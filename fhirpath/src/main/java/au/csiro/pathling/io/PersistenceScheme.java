@@ -22,6 +22,7 @@ import io.delta.tables.DeltaTable;
 import jakarta.annotation.Nonnull;
 import java.util.Set;
 import org.apache.spark.sql.DataFrameWriter;
+import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.hl7.fhir.r4.model.Enumerations.ResourceType;
 import org.slf4j.Logger;
@@ -44,6 +45,19 @@ public interface PersistenceScheme {
   @Nonnull
   DeltaTable read(@Nonnull ResourceType resourceType);
 
+  /**
+   * Read the change data feed of the Delta table corresponding to the given resource type. The
+   * change data feed must have been enabled on the table for the requested range of versions.
+   *
+   * @param resourceType the resource type to be read
+   * @param startingVersion the first version to include
+   * @param endingVersion the last version to include
+   * @return the changed rows, along with the change data feed metadata columns
+   */
+  @Nonnull
+  Dataset<Row> readChanges(@Nonnull ResourceType resourceType, long startingVersion,
+      long endingVersion);
+
   /**
    * Write the given dataset that contains the given resource type.
    *
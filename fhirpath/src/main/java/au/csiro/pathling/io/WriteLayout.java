@@ -0,0 +1,229 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.io;
+
+import static org.apache.spark.sql.functions.col;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import lombok.Builder;
+import lombok.Value;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.DataFrameWriter;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+
+/**
+ * Describes the physical layout of the files that are produced when resource data is written, so
+ * that it can be arranged to suit the queries that will later be run over it.
+ * <p>
+ * The default layout sorts the rows within each partition by resource ID, which avoids the full
+ * shuffle of a global sort while still producing files with narrow ranges of IDs. Columns that are
+ * not present within a dataset are ignored, so that a single layout can be applied to the tables of
+ * several different resource types.
+ *
+ * @author John Grimes
+ */
+@Value
+@Builder(toBuilder = true)
+public class WriteLayout {
+
+  // Workaround the javadocs issue
+  // See: https://www.miredot.com/docs/faq/q/cannot-find-symbol-during-javadoc-phase/
+  public static class WriteLayoutBuilder {
+
+  }
+
+  /**
+   * The way in which the rows are sorted before they are written.
+   */
+  public enum SortMode {
+    /**
+     * The rows are written in the order in which they arrive.
+     */
+    NONE,
+
+    /**
+     * The rows are sorted within each partition, which does not require a shuffle.
+     */
+    WITHIN_PARTITIONS,
+
+    /**
+     * The rows are sorted across the whole dataset, which requires a full shuffle.
+     */
+    GLOBAL
+  }
+
+  /**
+   * The columns used to sort the rows, e.g. {@code id} or {@code subject.reference}.
+   */
+  @Nonnull
+  @Builder.Default
+  List<String> sortColumns = List.of("id");
+
+  /**
+   * The way in which the rows are sorted using the sort columns.
+   */
+  @Nonnull
+  @Builder.Default
+  SortMode sortMode = SortMode.WITHIN_PARTITIONS;
+
+  /**
+   * Top-level columns used to partition the output into directories.
+   */
+  @Nonnull
+  @Builder.Default
+  List<String> partitionColumns = List.of();
+
+  /**
+   * Columns used to hash-distribute the rows before they are written, so that rows sharing the same
+   * values are clustered within the same files. This is not compatible with a global sort.
+   */
+  @Nonnull
+  @Builder.Default
+  List<String> bucketColumns = List.of();
+
+  /**
+   * The number of buckets to distribute the rows into. If not set, the number of shuffle
+   * partitions configured for the session is used.
+   */
+  @Nullable
+  Integer numBuckets;
+
+  /**
+   * The maximum number of rows to write to each file, used to control the size of the files.
+   */
+  @Nullable
+  Long maxRecordsPerFile;
+
+  /**
+   * The size of each Parquet row group in bytes. This is only applied to Parquet output; for Delta
+   * tables this is controlled by the {@code parquet.block.size} Hadoop configuration.
+   */
+  @Nullable
+  Long rowGroupSize;
+
+  /**
+   * The compression codec to use, e.g. {@code snappy}, {@code zstd} or {@code gzip}.
+   */
+  @Nullable
+  String compression;
+
+  /**
+   * Whether Parquet dictionary encoding is enabled. This is only applied to Parquet output; for
+   * Delta tables this is controlled by the {@code parquet.enable.dictionary} Hadoop configuration.
+   */
+  @Nullable
+  Boolean dictionaryEnabled;
+
+  /**
+   * @return the default layout, which sorts the rows within each partition by ID
+   */
+  @Nonnull
+  public static WriteLayout defaults() {
+    return builder().build();
+  }
+
+  /**
+   * Distributes and sorts the rows of a dataset according to this layout.
+   *
+   * @param dataset the dataset to be written
+   * @return the arranged dataset
+   */
+  @Nonnull
+  public Dataset<Row> arrange(@Nonnull final Dataset<Row> dataset) {
+    if (sortMode == SortMode.GLOBAL && !bucketColumns.isEmpty()) {
+      throw new IllegalArgumentException("Bucketing cannot be combined with a global sort");
+    }
+    final List<String> buckets = presentColumns(dataset, bucketColumns);
+    final List<String> sorts = presentColumns(dataset, sortColumns);
+    Dataset<Row> result = dataset;
+    if (!buckets.isEmpty()) {
+      final Column[] columns = toColumns(buckets);
+      result = numBuckets == null
+               ? result.repartition(columns)
+               : result.repartition(numBuckets, columns);
+    }
+    if (!sorts.isEmpty()) {
+      if (sortMode == SortMode.GLOBAL) {
+        result = result.orderBy(toColumns(sorts));
+      } else if (sortMode == SortMode.WITHIN_PARTITIONS) {
+        // The partition columns need to lead the sort, otherwise Spark will re-sort each task by
+        // the partition columns alone when writing, and the order we establish here will be lost.
+        final List<String> columns = new ArrayList<>(presentColumns(dataset, partitionColumns));
+        columns.addAll(sorts);
+        result = result.sortWithinPartitions(toColumns(columns));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Applies the partitioning and file options of this layout to a writer.
+   *
+   * @param dataset the dataset being written
+   * @param writer the writer for the dataset, to be configured
+   * @return the configured writer
+   */
+  @Nonnull
+  public DataFrameWriter<Row> configure(@Nonnull final Dataset<Row> dataset,
+      @Nonnull final DataFrameWriter<Row> writer) {
+    DataFrameWriter<Row> result = writer;
+    final List<String> partitions = presentColumns(dataset, partitionColumns);
+    if (!partitions.isEmpty()) {
+      result = result.partitionBy(partitions.toArray(new String[0]));
+    }
+    if (maxRecordsPerFile != null) {
+      result = result.option("maxRecordsPerFile", maxRecordsPerFile);
+    }
+    if (rowGroupSize != null) {
+      result = result.option("parquet.block.size", rowGroupSize);
+    }
+    if (compression != null) {
+      result = result.option("compression", compression);
+    }
+    if (dictionaryEnabled != null) {
+      result = result.option("parquet.enable.dictionary", dictionaryEnabled);
+    }
+    return result;
+  }
+
+  /**
+   * Filters a list of column names down to those that are present in the dataset, based upon the
+   * first segment of each name.
+   */
+  @Nonnull
+  private static List<String> presentColumns(@Nonnull final Dataset<Row> dataset,
+      @Nonnull final List<String> names) {
+    final Set<String> fields = Set.of(dataset.columns());
+    return names.stream()
+        .filter(name -> fields.contains(name.split("\\.")[0]))
+        .toList();
+  }
+
+  @Nonnull
+  private static Column[] toColumns(@Nonnull final List<String> names) {
+    return names.stream()
+        .map(name -> col(name))
+        .toArray(Column[]::new);
+  }
+
+}
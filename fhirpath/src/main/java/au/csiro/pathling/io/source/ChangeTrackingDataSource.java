@@ -0,0 +1,53 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.io.source;
+
+import jakarta.annotation.Nonnull;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.hl7.fhir.r4.model.Enumerations.ResourceType;
+
+/**
+ * A FHIR data source that keeps a version history of each resource type, and can report the
+ * resources that have changed between two versions.
+ *
+ * @author John Grimes
+ */
+public interface ChangeTrackingDataSource extends DataSource {
+
+  /**
+   * Gets the current version of the data for the specified resource type.
+   *
+   * @param resourceType the type of the FHIR resource
+   * @return the current version, or -1 if there is no data for the resource type
+   */
+  long getVersion(@Nonnull ResourceType resourceType);
+
+  /**
+   * Gets the resources of the specified type that were inserted, updated or deleted after one
+   * version, up to and including another. Both the previous and the new state of an updated
+   * resource are returned.
+   *
+   * @param resourceType the type of the FHIR resource
+   * @param fromVersion the version after which changes are reported
+   * @param toVersion the last version for which changes are reported
+   * @return a dataset with the same shape as the resource data, containing the changed resources
+   */
+  @Nonnull
+  Dataset<Row> readChanges(@Nonnull ResourceType resourceType, long fromVersion, long toVersion);
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.query;
+
+import jakarta.annotation.Nonnull;
+import java.io.Serializable;
+import lombok.Value;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.catalyst.expressions.Expression;
+import org.apache.spark.sql.catalyst.expressions.ScalaUDF;
+import org.apache.spark.sql.execution.FileSourceScanExec;
+import org.apache.spark.sql.execution.GenerateExec;
+import org.apache.spark.sql.execution.SparkPlan;
+import org.apache.spark.sql.execution.adaptive.AdaptiveSparkPlanExec;
+import org.apache.spark.sql.execution.adaptive.QueryStageExec;
+import org.apache.spark.sql.execution.columnar.InMemoryTableScanExec;
+import org.apache.spark.sql.execution.exchange.Exchange;
+import org.apache.spark.sql.execution.exchange.ReusedExchangeExec;
+import org.apache.spark.sql.execution.joins.BaseJoinExec;
+import org.apache.spark.sql.execution.metric.SQLMetric;
+import scala.collection.JavaConverters;
+
+/**
+ * Structural statistics about the physical plan of a query, used to identify the shapes of queries
+ * that are expensive to execute.
+ *
+ * @author John Grimes
+ */
+@Value
+public class PlanStatistics implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final String FILES_SIZE_METRIC = "filesSize";
+
+  /**
+   * The number of joins within the plan.
+   */
+  int joins;
+
+  /**
+   * The number of exchanges (shuffles and broadcasts) within the plan.
+   */
+  int exchanges;
+
+  /**
+   * The number of generators (e.g. explodes) within the plan.
+   */
+  int explodes;
+
+  /**
+   * The number of user-defined function calls within the expressions of the plan.
+   */
+  int udfs;
+
+  /**
+   * The number of bytes read by the scans within the plan. For file scans, this is the size of the
+   * files that were read, or the size of the relation if the plan has not yet been executed. For
+   * scans of cached data, this is the size of the cached data.
+   */
+  long scannedBytes;
+
+  /**
+   * Collects statistics from the executed plan of a dataset. If the dataset has already been
+   * executed and adaptive query execution is enabled, the final plan is used.
+   *
+   * @param dataset the dataset to inspect
+   * @return the resulting {@link PlanStatistics}
+   */
+  @Nonnull
+  public static PlanStatistics of(@Nonnull final Dataset<?> dataset) {
+    return of(dataset.queryExecution().executedPlan());
+  }
+
+  /**
+   * Collects statistics from a physical plan.
+   *
+   * @param plan the plan to inspect
+   * @return the resulting {@link PlanStatistics}
+   */
+  @Nonnull
+  public static PlanStatistics of(@Nonnull final SparkPlan plan) {
+    // Adaptive plans and query stages are wrappers around the plan that is actually executed.
+    if (plan instanceof AdaptiveSparkPlanExec) {
+      return of(((AdaptiveSparkPlanExec) plan).executedPlan());
+    }
+    if (plan instanceof QueryStageExec) {
+      return of(((QueryStageExec) plan).plan());
+    }
+    // A reused exchange is not executed again, so we don't count it or its children.
+    if (plan instanceof ReusedExchangeExec) {
+      return new PlanStatistics(0, 0, 0, 0, 0);
+    }
+
+    final int udfs = JavaConverters.seqAsJavaList(plan.expressions()).stream()
+        .mapToInt(PlanStatistics::countUdfs)
+        .sum();
+    PlanStatistics result = new PlanStatistics(
+        plan instanceof BaseJoinExec
+        ? 1
+        : 0,
+        plan instanceof Exchange
+        ? 1
+        : 0,
+        plan instanceof GenerateExec
+        ? 1
+        : 0,
+        udfs, scannedBytes(plan));
+    for (final SparkPlan child : JavaConverters.seqAsJavaList(plan.children())) {
+      result = result.plus(of(child));
+    }
+    return result;
+  }
+
+  /**
+   * @param other another set of statistics
+   * @return the sum of this and the other statistics
+   */
+  @Nonnull
+  public PlanStatistics plus(@Nonnull final PlanStatistics other) {
+    return new PlanStatistics(joins + other.joins, exchanges + other.exchanges,
+        explodes + other.explodes, udfs + other.udfs, scannedBytes + other.scannedBytes);
+  }
+
+  private static int countUdfs(@Nonnull final Expression expression) {
+    int count = expression instanceof ScalaUDF
+                ? 1
+                : 0;
+    for (final Expression child : JavaConverters.seqAsJavaList(expression.children())) {
+      count += countUdfs(child);
+    }
+    return count;
+  }
+
+  private static long scannedBytes(@Nonnull final SparkPlan plan) {
+    if (plan instanceof FileSourceScanExec) {
+      final FileSourceScanExec scan = (FileSourceScanExec) plan;
+      final long filesSize = scan.metrics().get(FILES_SIZE_METRIC)
+          .map(SQLMetric::value)
+          .getOrElse(() -> 0L);
+      return filesSize > 0
+             ? filesSize
+             : scan.relation().sizeInBytes();
+    }
+    if (plan instanceof InMemoryTableScanExec) {
+      return ((InMemoryTableScanExec) plan).relation().computeStats().sizeInBytes().longValue();
+    }
+    return 0;
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.query;
+
+import jakarta.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import lombok.Value;
+
+/**
+ * A stable identifier for the shape of a query. Requests that differ only in their literal values,
+ * whitespace or the order of their filters share the same fingerprint.
+ *
+ * @author John Grimes
+ */
+@Value
+public class QueryFingerprint {
+
+  private static final int FINGERPRINT_LENGTH = 16;
+  private static final String PLACEHOLDER = "?";
+
+  private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.)*'");
+  private static final Pattern DATE_TIME_LITERAL = Pattern.compile(
+      "@T?[0-9][0-9:.+\\-TZ]*");
+  private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?[0-9]+(?:\\.[0-9]+)?");
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  /**
+   * The fingerprint, as a hexadecimal string.
+   */
+  @Nonnull
+  String value;
+
+  /**
+   * The normalized form of the request that the fingerprint was calculated from.
+   */
+  @Nonnull
+  String normalizedQuery;
+
+  /**
+   * Calculates the fingerprint of a query.
+   *
+   * @param operation the name of the operation, e.g. "aggregate"
+   * @param subjectResource the code of the subject resource type
+   * @param expressions the expressions that make up the result of the query, keyed by their role
+   * within the query (e.g. "aggregations" or "groupings"), in order
+   * @param filters the filter expressions, which are combined using AND logic and can therefore
+   * appear in any order
+   * @return a new {@link QueryFingerprint}
+   */
+  @Nonnull
+  public static QueryFingerprint of(@Nonnull final String operation,
+      @Nonnull final String subjectResource, @Nonnull final Map<String, List<String>> expressions,
+      @Nonnull final Collection<String> filters) {
+    final StringBuilder normalizedQuery = new StringBuilder()
+        .append(operation).append(" ").append(subjectResource);
+    expressions.forEach((role, roleExpressions) -> normalizedQuery
+        .append(" ").append(role).append("=[")
+        .append(roleExpressions.stream()
+            .map(QueryFingerprint::normalize)
+            .collect(Collectors.joining(", ")))
+        .append("]"));
+    normalizedQuery.append(" filters=[")
+        .append(filters.stream()
+            .map(QueryFingerprint::normalize)
+            .sorted()
+            .collect(Collectors.joining(", ")))
+        .append("]");
+    return new QueryFingerprint(hash(normalizedQuery.toString()), normalizedQuery.toString());
+  }
+
+  /**
+   * Replaces literal values within a FHIRPath expression with placeholders, and collapses
+   * whitespace.
+   *
+   * @param expression the expression to normalize
+   * @return the normalized expression
+   */
+  @Nonnull
+  public static String normalize(@Nonnull final String expression) {
+    String result = STRING_LITERAL.matcher(expression).replaceAll(PLACEHOLDER);
+    result = DATE_TIME_LITERAL.matcher(result).replaceAll(PLACEHOLDER);
+    result = NUMBER_LITERAL.matcher(result).replaceAll(PLACEHOLDER);
+    return WHITESPACE.matcher(result).replaceAll(" ").trim();
+  }
+
+  @Nonnull
+  private static String hash(@Nonnull final String input) {
+    try {
+      final byte[] digest = MessageDigest.getInstance("SHA-256")
+          .digest(input.getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest).substring(0, FINGERPRINT_LENGTH);
+    } catch (final NoSuchAlgorithmException e) {
+      throw new RuntimeException("SHA-256 algorithm not available", e);
+    }
+  }
+
+}
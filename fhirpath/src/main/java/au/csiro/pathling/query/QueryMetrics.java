@@ -0,0 +1,151 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.query;
+
+import static java.util.Objects.requireNonNull;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Nonnull;
+import java.util.function.Supplier;
+
+/**
+ * Records metrics relating to the phases of query execution. Metrics are registered with the
+ * Micrometer global registry, which is bound to the application registry when running within the
+ * server.
+ *
+ * @author John Grimes
+ */
+public final class QueryMetrics {
+
+  /**
+   * The name of the timer that records the time taken to parse FHIRPath expressions.
+   */
+  public static final String PARSE_METRIC = "pathling.fhirpath.parse";
+
+  /**
+   * The name of the timer that records the time taken to parse and plan a query.
+   */
+  public static final String PLAN_METRIC = "pathling.query.plan";
+
+  /**
+   * The name of the timer that records the time taken to execute a query within Spark.
+   */
+  public static final String EXECUTION_METRIC = "pathling.query.execution";
+
+  /**
+   * The name of the distribution summary that records the number of rows returned by a query.
+   */
+  public static final String ROWS_METRIC = "pathling.query.rows";
+
+  /**
+   * The name of the timer that records the time taken to load a Delta table.
+   */
+  public static final String TABLE_READ_METRIC = "pathling.database.read";
+
+  /**
+   * The name of the tag used to identify the operation.
+   */
+  public static final String OPERATION_TAG = "operation";
+
+  /**
+   * The name of the tag used to identify the resource type.
+   */
+  public static final String RESOURCE_TYPE_TAG = "resourceType";
+
+  private QueryMetrics() {
+  }
+
+  /**
+   * @return the timer used to record the time taken to parse FHIRPath expressions
+   */
+  @Nonnull
+  public static Timer parseTimer() {
+    return Timer.builder(PARSE_METRIC)
+        .description("Time taken to parse FHIRPath expressions")
+        .register(Metrics.globalRegistry);
+  }
+
+  /**
+   * Records the time taken to parse and plan a query.
+   *
+   * @param operation the name of the operation
+   * @param planner the function that plans the query
+   * @param <T> the type of the planned query
+   * @return the planned query
+   */
+  @Nonnull
+  public static <T> T timePlanning(@Nonnull final String operation,
+      @Nonnull final Supplier<T> planner) {
+    return requireNonNull(operationTimer(PLAN_METRIC, operation,
+        "Time taken to parse and plan queries").record(planner));
+  }
+
+  /**
+   * Records the time taken to execute a query within Spark.
+   *
+   * @param operation the name of the operation
+   * @param execution the function that executes the query
+   * @param <T> the type of the result
+   * @return the result
+   */
+  @Nonnull
+  public static <T> T timeExecution(@Nonnull final String operation,
+      @Nonnull final Supplier<T> execution) {
+    return requireNonNull(operationTimer(EXECUTION_METRIC, operation,
+        "Time taken to execute queries within Spark").record(execution));
+  }
+
+  /**
+   * Records the number of rows returned by a query.
+   *
+   * @param operation the name of the operation
+   * @param rows the number of rows
+   */
+  public static void recordRows(@Nonnull final String operation, final long rows) {
+    DistributionSummary.builder(ROWS_METRIC)
+        .description("Number of rows returned by queries")
+        .tag(OPERATION_TAG, operation)
+        .register(Metrics.globalRegistry)
+        .record(rows);
+  }
+
+  /**
+   * @param resourceType the code of the resource type being read
+   * @return the timer used to record the time taken to load a Delta table
+   */
+  @Nonnull
+  public static Timer tableReadTimer(@Nonnull final String resourceType) {
+    return Timer.builder(TABLE_READ_METRIC)
+        .description("Time taken to load resource tables")
+        .tag(RESOURCE_TYPE_TAG, resourceType)
+        .publishPercentileHistogram()
+        .register(Metrics.globalRegistry);
+  }
+
+  @Nonnull
+  private static Timer operationTimer(@Nonnull final String name, @Nonnull final String operation,
+      @Nonnull final String description) {
+    return Timer.builder(name)
+        .description(description)
+        .tag(OPERATION_TAG, operation)
+        .publishPercentileHistogram()
+        .register(Metrics.globalRegistry);
+  }
+
+}
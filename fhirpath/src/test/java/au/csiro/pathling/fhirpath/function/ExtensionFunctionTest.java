@@ -134,6 +134,53 @@ class ExtensionFunctionTest {
         );
   }
 
+  @Test
+  public void testPromotedExtensionOnResources() {
+
+    final Dataset<Row> patientDataset = new ResourceDatasetBuilder(spark)
+        .withIdColumn()
+        .withColumn("gender", DataTypes.StringType)
+        .withFidColumn()
+        .withExtensionColumn()
+        .withColumn("_extension_uuid_myExtension",
+            DataTypes.createArrayType(DatasetBuilder.SIMPLE_EXTENSION_TYPE))
+        .withRow("patient-1", "female", 1, oneEntryMap(1, MANY_MY_EXTENSIONS),
+            Arrays.asList(MANY_EXT_ROW_1, MANY_EXT_ROW_2))
+        .withRow("patient-2", "female", 1, oneEntryMap(1, ONE_MY_EXTENSION),
+            Collections.singletonList(ONE_EXT_ROW_1))
+        .withRow("patient-3", "male", 1, oneEntryMap(1, NO_MY_EXTENSIONS), null)
+        .build();
+    when(dataSource.read(ResourceType.PATIENT))
+        .thenReturn(patientDataset);
+    final ResourcePath inputPath = ResourcePath
+        .build(fhirContext, dataSource, ResourceType.PATIENT, "Patient", false);
+
+    final StringLiteralPath argumentExpression = StringLiteralPath
+        .fromString("'" + "uuid:myExtension" + "'", inputPath);
+
+    final ParserContext parserContext = new ParserContextBuilder(spark, fhirContext).build();
+
+    final NamedFunctionInput extensionInput = new NamedFunctionInput(parserContext, inputPath,
+        Collections.singletonList(argumentExpression));
+
+    final NamedFunction extension = NamedFunction.getInstance("extension");
+    final FhirPath result = extension.invoke(extensionInput);
+
+    // Only the extensions within the promoted column are returned.
+    assertThat(result)
+        .hasExpression("Patient.extension('uuid:myExtension')")
+        .isNotSingular()
+        .isElementPath(ElementPath.class)
+        .hasFhirType(FHIRDefinedType.EXTENSION)
+        .selectOrderedResult()
+        .hasRows(
+            RowFactory.create("patient-1", MANY_EXT_ROW_1),
+            RowFactory.create("patient-1", MANY_EXT_ROW_2),
+            RowFactory.create("patient-2", ONE_EXT_ROW_1),
+            RowFactory.create("patient-3", null)
+        );
+  }
+
   @Test
   public void testExtensionOnElements() {
 
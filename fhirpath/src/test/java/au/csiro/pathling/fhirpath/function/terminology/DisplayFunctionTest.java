@@ -20,6 +20,7 @@ package au.csiro.pathling.fhirpath.function.terminology;
 import static au.csiro.pathling.test.AbstractTerminologyTestBase.INVALID_CODING_0;
 import static au.csiro.pathling.test.assertions.Assertions.assertThat;
 import static au.csiro.pathling.test.builders.DatasetBuilder.makeEid;
+import static au.csiro.pathling.test.helpers.FhirMatchers.deepEq;
 import static au.csiro.pathling.test.helpers.SparkHelpers.codingStructType;
 import static au.csiro.pathling.test.helpers.SparkHelpers.rowFromCoding;
 import static au.csiro.pathling.test.helpers.TerminologyHelpers.CD_SNOMED_VER_63816008;
@@ -27,6 +28,9 @@ import static au.csiro.pathling.test.helpers.TerminologyHelpers.LC_55915_3;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
 
 import au.csiro.pathling.errors.InvalidUserInputError;
 import au.csiro.pathling.fhirpath.FhirPath;
@@ -172,6 +176,70 @@ class DisplayFunctionTest {
     checkDisplayCoding(Optional.of("de"), LC_55915_3_DE_DISPLAY, CD_SNOMED_VER_63816008_DE_DISPLAY);
   }
 
+  @Test
+  public void displayCodingWithDistinctLookup() {
+    TerminologyServiceHelpers.setupLookup(terminologyService)
+        .withDisplay(LC_55915_3)
+        .withDisplay(CD_SNOMED_VER_63816008);
+
+    final Optional<ElementDefinition> optionalDefinition = FhirHelpers
+        .getChildOfResource(fhirContext, "Encounter", "class");
+    assertTrue(optionalDefinition.isPresent());
+
+    final Dataset<Row> inputDataset = new DatasetBuilder(spark)
+        .withIdColumn()
+        .withEidColumn()
+        .withStructTypeColumns(codingStructType())
+        .withRow("encounter-1", makeEid(0), rowFromCoding(LC_55915_3))
+        .withRow("encounter-1", makeEid(1), rowFromCoding(INVALID_CODING_0))
+        .withRow("encounter-2", makeEid(0), rowFromCoding(CD_SNOMED_VER_63816008))
+        .withRow("encounter-2", makeEid(1), rowFromCoding(LC_55915_3))
+        .withRow("encounter-3", makeEid(0), rowFromCoding(LC_55915_3))
+        .withRow("encounter-4", null, null)
+        .buildWithStructValue();
+
+    final CodingPath inputExpression = (CodingPath) new ElementPathBuilder(spark)
+        .dataset(inputDataset)
+        .idAndEidAndValueColumns()
+        .expression("Encounter.class")
+        .singular(false)
+        .definition(optionalDefinition.get())
+        .buildDefined();
+
+    final ParserContext parserContext = new ParserContextBuilder(spark, fhirContext)
+        .idColumn(inputExpression.getIdColumn())
+        .terminologyClientFactory(terminologyServiceFactory)
+        .build();
+    parserContext.setDistinctCodingLookup(true);
+
+    final NamedFunctionInput displayInput = new NamedFunctionInput(parserContext, inputExpression,
+        Collections.emptyList());
+    final FhirPath result = new DisplayFunction().invoke(displayInput);
+
+    final Dataset<Row> expectedResult = new DatasetBuilder(spark)
+        .withIdColumn()
+        .withEidColumn()
+        .withColumn(DataTypes.StringType)
+        .withRow("encounter-1", makeEid(0), LC_55915_3.getDisplay())
+        .withRow("encounter-1", makeEid(1), null)
+        .withRow("encounter-2", makeEid(0), CD_SNOMED_VER_63816008.getDisplay())
+        .withRow("encounter-2", makeEid(1), LC_55915_3.getDisplay())
+        .withRow("encounter-3", makeEid(0), LC_55915_3.getDisplay())
+        .withRow("encounter-4", null, null)
+        .build();
+
+    assertThat(result)
+        .hasExpression("Encounter.class.display()")
+        .isElementPath(ElementPath.class)
+        .hasFhirType(FHIRDefinedType.STRING)
+        .isNotSingular()
+        .selectOrderedResultWithEid()
+        .hasRows(expectedResult);
+
+    // The coding that appears in three rows is only looked up once.
+    verify(terminologyService).lookup(deepEq(LC_55915_3), eq("display"), isNull());
+  }
+
   @Test
   void throwsErrorIfTerminologyServiceNotConfigured() {
     final ElementPath input = new ElementPathBuilder(spark)
@@ -24,7 +24,9 @@ import static au.csiro.pathling.test.helpers.SparkHelpers.codingStructType;
 import static au.csiro.pathling.test.helpers.SparkHelpers.rowFromCodeableConcept;
 import static au.csiro.pathling.test.helpers.SparkHelpers.rowFromCoding;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 
 import au.csiro.pathling.errors.InvalidUserInputError;
@@ -102,6 +104,8 @@ class SubsumesFunctionTest {
   @Autowired
   TerminologyServiceFactory terminologyServiceFactory;
 
+  int closureMaxSize = 0;
+
   static Row codeableConceptRowFromCoding(final Coding coding) {
     return codeableConceptRowFromCoding(coding, CODING_OTHER4);
   }
@@ -381,15 +385,21 @@ class SubsumesFunctionTest {
         .withColumn(DataTypes.BooleanType);
   }
 
-  ElementPathAssertion assertCallSuccess(final NamedFunction function,
-      final NonLiteralPath inputExpression, final FhirPath argumentExpression) {
+  FhirPath invokeFunction(final NamedFunction function, final NonLiteralPath inputExpression,
+      final FhirPath argumentExpression) {
     final ParserContext parserContext = new ParserContextBuilder(spark, fhirContext)
         .terminologyClientFactory(terminologyServiceFactory)
         .build();
+    parserContext.setSubsumesClosureMaxSize(closureMaxSize);
 
     final NamedFunctionInput functionInput = new NamedFunctionInput(parserContext, inputExpression,
         Collections.singletonList(argumentExpression));
-    final FhirPath result = function.invoke(functionInput);
+    return function.invoke(functionInput);
+  }
+
+  ElementPathAssertion assertCallSuccess(final NamedFunction function,
+      final NonLiteralPath inputExpression, final FhirPath argumentExpression) {
+    final FhirPath result = invokeFunction(function, inputExpression, argumentExpression);
 
     return assertThat(result)
         .isElementPath(BooleanPath.class)
@@ -522,6 +532,69 @@ class SubsumesFunctionTest {
         .hasRows(expectedNull());
   }
 
+  //
+  // Test evaluation using resolved subsumption pairs
+  //
+
+  @Test
+  void testSubsumesCodingWithCodingUsingClosure() {
+    closureMaxSize = 100;
+    assertSubsumesSuccess(createCodingInput(), createCodingArg()).hasRows(expectedSubsumes());
+  }
+
+  @Test
+  void testSubsumedByCodeableConceptWithCodeableConceptUsingClosure() {
+    closureMaxSize = 100;
+    assertSubsumedBySuccess(createCodeableConceptInput(), createCodeableConceptArg())
+        .hasRows(expectedSubsumedBy());
+  }
+
+  @Test
+  void testSubsumesCodeableConceptWithLiteralUsingClosure() {
+    closureMaxSize = 100;
+    assertSubsumesSuccess(createCodeableConceptInput(), createLiteralArgOrInput())
+        .hasRows(expectedSubsumes());
+  }
+
+  @Test
+  void testAllFalseWhenSubsumesNullCodingUsingClosure() {
+    closureMaxSize = 100;
+    assertSubsumesSuccess(createCodingInput(), createNullCodingArg())
+        .hasRows(expectedAllNonNull(false));
+  }
+
+  @Test
+  void testNullCodingInputUsingClosure() {
+    closureMaxSize = 100;
+    assertSubsumedBySuccess(createNullCodingInput(), createCodingArg())
+        .hasRows(expectedNull());
+  }
+
+  @Test
+  void closureAvoidsTerminologyUdf() {
+    closureMaxSize = 100;
+    final FhirPath result = invokeFunction(NamedFunction.getInstance("subsumes"),
+        createCodingInput(), createCodingArg());
+    final String plan = planOf(result);
+    assertFalse(plan.contains("subsumes("), plan);
+  }
+
+  @Test
+  void fallsBackToTerminologyUdfWhenClosureTooLarge() {
+    closureMaxSize = 1;
+    final FhirPath result = invokeFunction(NamedFunction.getInstance("subsumes"),
+        createCodingInput(), createCodingArg());
+    final String plan = planOf(result);
+    assertTrue(plan.contains("subsumes("), plan);
+    assertSubsumesSuccess(createCodingInput(), createCodingArg()).hasRows(expectedSubsumes());
+  }
+
+  @Nonnull
+  String planOf(@Nonnull final FhirPath result) {
+    return result.getDataset().select(result.getValueColumn()).queryExecution().analyzed()
+        .toString();
+  }
+
   //
   // Test for various validation errors
   //
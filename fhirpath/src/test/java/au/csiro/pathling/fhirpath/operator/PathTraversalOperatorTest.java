@@ -406,4 +406,27 @@ class PathTraversalOperatorTest {
     assertEquals("No such child: Encounter.reason",
         error.getMessage());
   }
+
+  @Test
+  void throwsErrorOnUnencodedChild() {
+    final Dataset<Row> leftDataset = new ResourceDatasetBuilder(spark)
+        .withIdColumn()
+        .withColumn("gender", DataTypes.StringType)
+        .withRow("patient-1", "female")
+        .build();
+    when(dataSource.read(ResourceType.PATIENT)).thenReturn(leftDataset);
+    final ResourcePath left = new ResourcePathBuilder(spark)
+        .fhirContext(fhirContext)
+        .resourceType(ResourceType.PATIENT)
+        .database(dataSource)
+        .expression("Patient")
+        .singular(true)
+        .build();
+
+    final PathTraversalInput input = new PathTraversalInput(parserContext, left, "birthDate");
+    final InvalidUserInputError error = assertThrows(
+        InvalidUserInputError.class,
+        () -> new PathTraversalOperator().invoke(input));
+    assertEquals("Element is not encoded: Patient.birthDate", error.getMessage());
+  }
 }
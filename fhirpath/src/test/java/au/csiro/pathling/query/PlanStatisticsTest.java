@@ -0,0 +1,74 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.query;
+
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.explode;
+import static org.apache.spark.sql.functions.udf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import au.csiro.pathling.test.SpringBootUnitTest;
+import au.csiro.pathling.test.builders.DatasetBuilder;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.api.java.UDF1;
+import org.apache.spark.sql.expressions.UserDefinedFunction;
+import org.apache.spark.sql.types.DataTypes;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+@SpringBootUnitTest
+class PlanStatisticsTest {
+
+  @Autowired
+  SparkSession spark;
+
+  @Test
+  void collectsStructuralStatistics() {
+    final Dataset<Row> left = new DatasetBuilder(spark)
+        .withIdColumn("id")
+        .withColumn("names", DataTypes.createArrayType(DataTypes.StringType))
+        .withRow("patient-1", new String[]{"a", "b"})
+        .withRow("patient-2", new String[]{"c"})
+        .build();
+    final Dataset<Row> right = new DatasetBuilder(spark)
+        .withIdColumn("id")
+        .withColumn("gender", DataTypes.StringType)
+        .withRow("patient-1", "female")
+        .withRow("patient-2", "male")
+        .build();
+    final UserDefinedFunction upper = udf((UDF1<String, String>) String::toUpperCase,
+        DataTypes.StringType);
+
+    final Dataset<Row> dataset = left
+        .select(col("id"), explode(col("names")).alias("name"))
+        .join(right, "id")
+        .groupBy(col("gender"))
+        .count()
+        .select(upper.apply(col("gender")), col("count"));
+    dataset.collectAsList();
+
+    final PlanStatistics statistics = PlanStatistics.of(dataset);
+    assertEquals(1, statistics.getJoins());
+    assertEquals(1, statistics.getExplodes());
+    assertEquals(1, statistics.getUdfs());
+    assertTrue(statistics.getExchanges() >= 1);
+  }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.query;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("UnitTest")
+class QueryFingerprintTest {
+
+  @Test
+  void literalsAndWhitespaceAreNormalized() {
+    assertEquals("name.where(family = ?).given.count() > ?",
+        QueryFingerprint.normalize("name.where(family  =  'Smith').given.count() > 2"));
+    assertEquals("birthDate > ? and code.coding.code = ?",
+        QueryFingerprint.normalize("birthDate > @1970-01-01 and code.coding.code = '38341003'"));
+    assertEquals("value.where(system = ?).code1",
+        QueryFingerprint.normalize("value.where(system = 'http://loinc.org\\'s').code1"));
+  }
+
+  @Test
+  void fingerprintIsIndependentOfLiteralsAndFilterOrder() {
+    final QueryFingerprint first = QueryFingerprint.of("aggregate", "Patient",
+        Map.of("aggregations", List.of("count()")),
+        List.of("gender = 'female'", "birthDate > @1980"));
+    final QueryFingerprint second = QueryFingerprint.of("aggregate", "Patient",
+        Map.of("aggregations", List.of("count()")),
+        List.of("birthDate > @1990", "gender = 'male'"));
+    assertEquals(first, second);
+    assertEquals(16, first.getValue().length());
+    assertEquals("aggregate Patient aggregations=[count()] filters=[birthDate > ?, gender = ?]",
+        first.getNormalizedQuery());
+  }
+
+  @Test
+  void fingerprintDependsOnShape() {
+    final QueryFingerprint first = QueryFingerprint.of("extract", "Patient",
+        Map.of("columns", List.of("id", "gender")), List.of());
+    final QueryFingerprint second = QueryFingerprint.of("extract", "Patient",
+        Map.of("columns", List.of("gender", "id")), List.of());
+    final QueryFingerprint third = QueryFingerprint.of("extract", "Observation",
+        Map.of("columns", List.of("id", "gender")), List.of());
+    assertNotEquals(first.getValue(), second.getValue());
+    assertNotEquals(first.getValue(), third.getValue());
+  }
+
+}
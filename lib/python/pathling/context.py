@@ -18,7 +18,7 @@
 from deprecated import deprecated
 from py4j.java_gateway import JavaObject
 from pyspark.sql import DataFrame, SparkSession, Column
-from typing import Optional, Sequence, TYPE_CHECKING
+from typing import Dict, Optional, Sequence, TYPE_CHECKING
 
 from pathling._version import (
     __java_version__,
@@ -82,20 +82,30 @@ class PathlingContext:
             "Identifier",
             "Reference",
         ),
+        encoder_warm_up: Optional[bool] = False,
+        encoder_snapshot_path: Optional[str] = None,
+        encoder_elements: Optional[Dict[str, Sequence[str]]] = None,
+        encoder_profiles: Optional[Sequence[str]] = None,
+        encoder_promoted_extensions: Optional[Sequence[str]] = None,
         enable_terminology: Optional[bool] = True,
         terminology_server_url: Optional[str] = "https://tx.ontoserver.csiro.au/fhir",
+        terminology_local_path: Optional[str] = None,
         terminology_verbose_request_logging: Optional[bool] = False,
+        terminology_bulk_lookup: Optional[bool] = False,
         terminology_socket_timeout: Optional[int] = 60_000,
         max_connections_total: Optional[int] = 32,
         max_connections_per_route: Optional[int] = 16,
         terminology_retry_enabled: Optional[bool] = True,
         terminology_retry_count: Optional[int] = 2,
+        terminology_batch_enabled: Optional[bool] = False,
+        terminology_batch_size: Optional[int] = 100,
         enable_cache: Optional[bool] = True,
         cache_max_entries: Optional[int] = 200_000,
         cache_storage_type: Optional[str] = StorageType.MEMORY,
         cache_storage_path: Optional[str] = None,
         cache_default_expiry: Optional[int] = 600,
         cache_override_expiry: Optional[int] = None,
+        cache_snapshot_path: Optional[str] = None,
         token_endpoint: Optional[str] = None,
         enable_auth: Optional[bool] = False,
         client_id: Optional[str] = None,
@@ -133,15 +143,36 @@ class PathlingContext:
                to extensions found in widely-used IGs, such as the US and AU base profiles. In
                general, you will get the best query performance by encoding your data with the
                shortest possible list.
+        :param encoder_warm_up: builds the encoders for all resource types in parallel when the
+               context is created, rather than building each encoder upon its first use
+        :param encoder_snapshot_path: the location of a directory that holds snapshots of the
+               encoders built during warm-up. Encoders are loaded from a matching snapshot rather
+               than being built again.
+        :param encoder_elements: the paths of the elements to encode, keyed by resource type,
+               e.g. `{"Observation": ["code", "value"]}`. Each path selects an element along with
+               all of its descendants. Resource types that are not listed have all of their
+               elements encoded.
+        :param encoder_profiles: the locations of StructureDefinition resources (or directories
+               containing them) that describe the profiles the data will be queried with. The
+               elements used by these profiles are added to the elements that are encoded.
+        :param encoder_promoted_extensions: the URLs of resource-level extensions that are stored
+               in their own columns, so that the `extension` function can read them directly.
         :param enable_terminology: enables the use of terminology functions
         :param terminology_server_url: the endpoint of a FHIR terminology service (R4) that the
                server can use to resolve terminology queries. The default server is suitable for
                testing purposes only.
+        :param terminology_local_path: if provided, terminology queries are answered from the
+               CodeSystem, ValueSet and ConceptMap resources at this location, instead of by the
+               terminology server
         :param terminology_verbose_request_logging: setting this option to `True` will enable
                additional logging of the details of requests to the terminology service. Note that
                logging is subject to the Spark logging level, which you can set using
                `SparkContext.setLogLevel`. Verbose request logging is sent to the `DEBUG` logging
                level.
+        :param terminology_bulk_lookup: setting this option to `True` will answer requests for
+               individual properties and designations from a single lookup of all the properties
+               and designations of each concept. This relies upon the terminology server returning
+               all properties and designations when no property is requested.
         :param terminology_socket_timeout: the maximum period (in milliseconds) that the server
                should wait for incoming data from the HTTP service
         :param max_connections_total: the maximum total number of connections for the client
@@ -149,6 +180,12 @@ class PathlingContext:
         :param terminology_retry_enabled: controls whether terminology requests that fail for
                possibly transient reasons (network connections, DNS problems) should be retried
         :param terminology_retry_count: the number of times to retry failed terminology requests
+        :param terminology_batch_enabled: setting this option to `True` will send terminology
+               requests that are made together (e.g. the lookups for the distinct codings within a
+               partition) to the server within FHIR batch bundles, rather than as individual
+               requests
+        :param terminology_batch_size: the maximum number of terminology requests sent within a
+               single batch
         :param enable_cache: set this to false to disable caching of terminology requests (not
                recommended)
         :param cache_max_entries: sets the maximum number of entries that will be held in memory
@@ -160,6 +197,8 @@ class PathlingContext:
                when the server does not provide an expiry value
         :param cache_override_expiry: if provided, this value overrides the expiry time provided by
                the terminology server
+        :param cache_snapshot_path: if provided, the terminology cache is pre-populated from the
+               snapshot at this location when it is created
         :param enable_auth: enables authentication of requests to the terminology server
         :param token_endpoint: an OAuth2 token endpoint for use with the client credentials grant
         :param client_id: a client ID for use with the client credentials grant
@@ -201,11 +240,19 @@ class PathlingContext:
         jvm = spark._jvm
 
         # Build an encoders configuration object from the provided parameters.
+        elements = jvm.java.util.HashMap()
+        for resource_type, paths in (encoder_elements or {}).items():
+            elements.put(resource_type, jvm.java.util.HashSet(paths))
         encoders_config = (
             jvm.au.csiro.pathling.config.EncodingConfiguration.builder()
             .maxNestingLevel(max_nesting_level)
             .enableExtensions(enable_extensions)
             .openTypes(jvm.java.util.HashSet(enabled_open_types))
+            .warmUp(encoder_warm_up)
+            .snapshotPath(encoder_snapshot_path)
+            .elements(elements)
+            .profiles(jvm.java.util.ArrayList(encoder_profiles or []))
+            .promotedExtensions(jvm.java.util.HashSet(encoder_promoted_extensions or []))
             .build()
         )
 
@@ -217,6 +264,8 @@ class PathlingContext:
             .maxConnectionsPerRoute(max_connections_per_route)
             .retryEnabled(terminology_retry_enabled)
             .retryCount(terminology_retry_count)
+            .batchEnabled(terminology_batch_enabled)
+            .batchSize(terminology_batch_size)
             .build()
         )
 
@@ -234,6 +283,7 @@ class PathlingContext:
             .storagePath(cache_storage_path)
             .defaultExpiry(cache_default_expiry)
             .overrideExpiry(cache_override_expiry)
+            .snapshotPath(cache_snapshot_path)
             .build()
         )
 
@@ -254,7 +304,9 @@ class PathlingContext:
             jvm.au.csiro.pathling.config.TerminologyConfiguration.builder()
             .enabled(enable_terminology)
             .serverUrl(terminology_server_url)
+            .localPath(terminology_local_path)
             .verboseLogging(terminology_verbose_request_logging)
+            .bulkLookup(terminology_bulk_lookup)
             .client(client_config)
             .cache(cache_config)
             .authentication(auth_config)
@@ -448,6 +500,28 @@ class PathlingContext:
             )
         )
 
+    def export_terminology_cache(self, path: str) -> int:
+        """
+        Writes the contents of the terminology cache to a snapshot at the specified location. The
+        snapshot can be loaded into the cache of a later run using
+        :func:`prewarm_terminology_cache`, or by the executors of a cluster using the
+        `cache_snapshot_path` option.
+
+        :param path: the location to write the snapshot to
+        :return: the number of cache entries written
+        """
+        return self._jpc.exportTerminologyCache(path)
+
+    def prewarm_terminology_cache(self, path: str) -> int:
+        """
+        Loads the entries from a terminology cache snapshot into the terminology cache of the
+        driver. Entries that are already present in the cache are not replaced.
+
+        :param path: the location of the snapshot
+        :return: the number of cache entries loaded
+        """
+        return self._jpc.prewarmTerminologyCache(path)
+
     @property
     def read(self) -> "DataSources":
         """
@@ -13,7 +13,7 @@
 #  See the License for the specific language governing permissions and
 #  limitations under the License.
 
-from typing import Callable, Optional
+from typing import Callable, Optional, Sequence
 
 from pathling.core import SparkConversionsMixin, StringMapper
 from pathling.datasource import DataSource
@@ -57,6 +57,69 @@ class DataSinks(SparkConversionsMixin):
             )
         )
 
+    def with_parallelism(self, parallelism: int) -> "DataSinks":
+        """
+        Sets the maximum number of resource types that are written at the same time. A value of 1
+        writes the resource types one after the other.
+
+        :param parallelism: The maximum number of concurrent resource type writes.
+        :return: This object, for chaining.
+        """
+        self._datasinks.withParallelism(parallelism)
+        return self
+
+    def with_layout(
+        self,
+        sort_by: Optional[Sequence[str]] = None,
+        sort_mode: Optional[str] = None,
+        partition_by: Optional[Sequence[str]] = None,
+        bucket_by: Optional[Sequence[str]] = None,
+        num_buckets: Optional[int] = None,
+        max_records_per_file: Optional[int] = None,
+        row_group_size: Optional[int] = None,
+        compression: Optional[str] = None,
+        dictionary_enabled: Optional[bool] = None,
+    ) -> "DataSinks":
+        """
+        Sets the layout of the files written by the Parquet, Delta and table sinks. By default,
+        each partition is sorted by resource ID. Columns that are not present within a resource
+        type are ignored when writing that resource type.
+
+        :param sort_by: The columns used to sort the rows, e.g. "id" or "subject.reference".
+        :param sort_mode: How the rows are sorted: "within_partitions" (the default), "global" or
+        "none".
+        :param partition_by: The top-level columns used to partition the output into directories.
+        :param bucket_by: The columns used to hash-distribute the rows before they are written.
+        :param num_buckets: The number of buckets to distribute the rows into.
+        :param max_records_per_file: The maximum number of rows to write to each file.
+        :param row_group_size: The size of each Parquet row group in bytes.
+        :param compression: The compression codec to use, e.g. "snappy", "zstd" or "gzip".
+        :param dictionary_enabled: Whether Parquet dictionary encoding is enabled.
+        :return: This object, for chaining.
+        """
+        jvm_io = self.spark._jvm.au.csiro.pathling.io
+        builder = jvm_io.WriteLayout.builder()
+        if sort_by is not None:
+            builder.sortColumns(list(sort_by))
+        if sort_mode is not None:
+            builder.sortMode(getattr(jvm_io, "WriteLayout$SortMode").valueOf(sort_mode.upper()))
+        if partition_by is not None:
+            builder.partitionColumns(list(partition_by))
+        if bucket_by is not None:
+            builder.bucketColumns(list(bucket_by))
+        if num_buckets is not None:
+            builder.numBuckets(num_buckets)
+        if max_records_per_file is not None:
+            builder.maxRecordsPerFile(max_records_per_file)
+        if row_group_size is not None:
+            builder.rowGroupSize(row_group_size)
+        if compression is not None:
+            builder.compression(compression)
+        if dictionary_enabled is not None:
+            builder.dictionaryEnabled(dictionary_enabled)
+        self._datasinks.withLayout(builder.build())
+        return self
+
     def ndjson(
         self,
         path: str,
@@ -84,6 +147,30 @@ class DataSinks(SparkConversionsMixin):
         else:
             self._datasinks.ndjson(path, save_mode)
 
+    def bulk_ndjson(
+        self,
+        path: str,
+        save_mode: Optional[str] = SaveMode.ERROR,
+        target_file_size: int = 128 * 1024 * 1024,
+        compression: Optional[str] = None,
+    ) -> None:
+        """
+        Writes the data to a directory of NDJSON files that are written in parallel. The files are
+        named according to the FHIR Bulk Data conventions (e.g. "Observation.001.ndjson"), and are
+        described by a "manifest.json" file.
+
+        :param path: The URI of the directory to write the files to.
+        :param save_mode: The save mode to use when writing the data:
+            - "overwrite" will overwrite any existing data.
+            - "append" will add new files alongside any existing files.
+            - "ignore" will only save the data if the files do not already exist.
+            - "error" will raise an error if the files already exist.
+        :param target_file_size: The approximate maximum size of each file in bytes, before
+        compression.
+        :param compression: The compression to use: "gzip", "zstd" or None.
+        """
+        self._datasinks.bulkNdjson(path, save_mode, target_file_size, compression)
+
     def parquet(self, path: str, save_mode: Optional[str] = SaveMode.ERROR) -> None:
         """
         Writes the data to a directory of Parquet files.
@@ -14,11 +14,12 @@
 #  limitations under the License.
 
 
-from typing import Dict, Sequence, Optional, Callable
+from typing import Any, Dict, Sequence, Optional, Callable
 
 from py4j.java_collections import SetConverter
 from py4j.java_gateway import JavaObject
 from pyspark.sql import DataFrame
+from pyspark.sql.streaming import StreamingQuery
 
 from pathling import PathlingContext
 from pathling.core import ExpOrStr, StringToStringSetMapper, SparkConversionsMixin
@@ -112,6 +113,67 @@ class DataSource(SparkConversionsMixin):
         )
 
 
+class StreamingDataSource(SparkConversionsMixin):
+    """
+    A source of FHIR resources that arrive continuously as NDJSON. Resources can be read as
+    streaming DataFrames, or processed in micro-batches that can be queried like any other data
+    source.
+    """
+
+    def __init__(self, jss: JavaObject, pc: PathlingContext):
+        SparkConversionsMixin.__init__(self, pc.spark)
+        self._jss = jss
+        self.pc = pc
+
+    def read(self, resource_code: str) -> DataFrame:
+        """
+        Reads the resources of the given type as a streaming DataFrame.
+
+        :param resource_code: A string representing the type of FHIR resource to read.
+        :return: A streaming Spark DataFrame containing the encoded resources.
+        """
+        return self._wrap_df(self._jss.read(resource_code))
+
+    def foreach_batch(
+        self,
+        checkpoint_location: str,
+        handler: Callable[[DataSource, int], Any],
+    ) -> StreamingQuery:
+        """
+        Starts a streaming query that passes each micro-batch to the handler as a data source, so
+        that queries can be run over it and the results written using any of the data sinks.
+
+        :param checkpoint_location: The location in which to record the progress of the query.
+        :param handler: A function that takes the data source for a micro-batch and the ID of the
+               batch.
+        :return: The running StreamingQuery.
+        """
+
+        def handle_batch(batch: DataFrame, batch_id: int) -> None:
+            batch.persist()
+            try:
+                handler(DataSource(self._jss.batch(batch._jdf), self.pc), batch_id)
+            finally:
+                batch.unpersist()
+
+        return (
+            self._wrap_df(self._jss.getLines())
+            .writeStream.option("checkpointLocation", checkpoint_location)
+            .foreachBatch(handle_batch)
+            .start()
+        )
+
+    def write_delta(self, path: str, checkpoint_location: str) -> StreamingQuery:
+        """
+        Starts a streaming query that merges each micro-batch into a Delta database.
+
+        :param path: The location of the Delta database.
+        :param checkpoint_location: The location in which to record the progress of the query.
+        :return: The running StreamingQuery.
+        """
+        return StreamingQuery(self._jss.writeToDelta(path, checkpoint_location))
+
+
 class DataSources(SparkConversionsMixin):
     """
     A factory for creating data sources.
@@ -152,6 +214,39 @@ class DataSources(SparkConversionsMixin):
         else:
             return self._wrap_ds(self._jdataSources.ndjson(path, extension))
 
+    def ndjson_stream(self, path: str) -> StreamingDataSource:
+        """
+        Creates a streaming data source that reads NDJSON files as they are added to a directory.
+        The files can contain resources of any type.
+
+        :param path: The URI of the directory to watch for new NDJSON files.
+        :return: A StreamingDataSource object that can be used to process the resources.
+        """
+        return StreamingDataSource(self._jdataSources.ndjsonStream(path), self._pc)
+
+    def socket_stream(self, host: str, port: int) -> StreamingDataSource:
+        """
+        Creates a streaming data source that reads NDJSON lines from a socket. This source does not
+        support recovery from a checkpoint, and is intended for testing.
+
+        :param host: The host to connect to.
+        :param port: The port to connect to.
+        :return: A StreamingDataSource object that can be used to process the resources.
+        """
+        return StreamingDataSource(self._jdataSources.socketStream(host, port), self._pc)
+
+    def bulk_manifest(self, manifest_url: str) -> DataSource:
+        """
+        Creates a data source from the NDJSON files listed within a FHIR Bulk Data export manifest.
+        The files are located using the manifest, so the directories that contain them do not need
+        to be listed.
+
+        :param manifest_url: The URI of the manifest. Relative file URLs within the manifest are
+               resolved against its location.
+        :return: A DataSource object that can be used to run queries against the data.
+        """
+        return self._wrap_ds(self._jdataSources.bulkManifest(manifest_url))
+
     def bundles(
         self,
         path: str,
@@ -145,6 +145,23 @@ class ExtractQuery(QueryWithFilters):
         """
         return self._columns
 
+    def refresh(self, output_path: str, data_source: DataSource = None) -> None:
+        """
+        Bring a Delta table up to date with the result of the query, creating it if it does not
+        exist. After the first refresh, only the rows for subject resources that may have been
+        affected by changes to the source data are recomputed.
+
+        This requires a Delta data source with the change data feed enabled on its tables.
+
+        :param output_path: The location of the Delta table that holds the result.
+        :param data_source: The data source to execute the query against. If not provided, the query
+               will use the data source provided to the constructor.
+        """
+        resolved_data_source = data_source or self._data_source
+        if not resolved_data_source:
+            raise ValueError("A data source is required to execute the query.")
+        self._create_jquery(resolved_data_source).refresh(output_path)
+
     def _create_jquery(self, data_source: DataSource) -> JavaObject:
         """
         Creates a new instance of a Java-based extract query object.
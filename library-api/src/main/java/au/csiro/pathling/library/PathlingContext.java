@@ -25,22 +25,34 @@ import static org.apache.spark.sql.functions.when;
 import au.csiro.pathling.PathlingVersion;
 import au.csiro.pathling.config.EncodingConfiguration;
 import au.csiro.pathling.config.TerminologyConfiguration;
+import au.csiro.pathling.encoders.EncoderSnapshot;
 import au.csiro.pathling.encoders.FhirEncoders;
 import au.csiro.pathling.encoders.FhirEncoders.Builder;
+import au.csiro.pathling.encoders.ProfileElements;
 import au.csiro.pathling.library.io.source.DataSourceBuilder;
 import au.csiro.pathling.sql.FhirpathUDFRegistrar;
 import au.csiro.pathling.sql.udf.TerminologyUdfRegistrar;
+import au.csiro.pathling.terminology.BulkLookupTerminologyService;
 import au.csiro.pathling.terminology.DefaultTerminologyServiceFactory;
 import au.csiro.pathling.terminology.TerminologyFunctions;
+import au.csiro.pathling.terminology.TerminologyService;
 import au.csiro.pathling.terminology.TerminologyServiceFactory;
+import au.csiro.pathling.terminology.caching.CachingTerminologyService;
+import au.csiro.pathling.terminology.caching.TerminologyCacheSnapshot;
+import au.csiro.pathling.utilities.SerializableConfiguration;
 import au.csiro.pathling.validation.ValidationUtils;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.FhirVersionEnum;
 import ca.uhn.fhir.context.RuntimeResourceDefinition;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
+import java.io.IOException;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.broadcast.Broadcast;
 import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Encoders;
@@ -49,6 +61,7 @@ import org.apache.spark.sql.SparkSession;
 import org.apache.spark.sql.catalyst.encoders.ExpressionEncoder;
 import org.apache.spark.sql.functions;
 import org.hl7.fhir.instance.model.api.IBaseResource;
+import scala.Tuple2;
 
 /**
  * A class designed to provide access to selected Pathling functionality from a language library
@@ -60,6 +73,16 @@ import org.hl7.fhir.instance.model.api.IBaseResource;
 @Slf4j
 public class PathlingContext {
 
+  /**
+   * The name of the column that holds the resource type of each entry split from a bundle.
+   */
+  public static final String SPLIT_BUNDLE_TYPE_COLUMN = "resourceType";
+
+  /**
+   * The name of the column that holds the JSON representation of each entry split from a bundle.
+   */
+  public static final String SPLIT_BUNDLE_RESOURCE_COLUMN = "resource";
+
   private static final String COL_INPUT_CODINGS = "inputCodings";
   private static final String COL_ARG_CODINGS = "argCodings";
 
@@ -137,10 +160,19 @@ public class PathlingContext {
     ValidationUtils.ensureValid(terminologyConfiguration, "Invalid terminology configuration");
     ValidationUtils.ensureValid(encodingConfiguration, "Invalid encoding configuration");
 
-    final Builder encoderBuilder = getEncoderBuilder(encodingConfiguration);
+    final Builder encoderBuilder = getEncoderBuilder(encodingConfiguration,
+        sparkSession.sparkContext().hadoopConfiguration());
+    final FhirEncoders fhirEncoders = encoderBuilder.getOrCreate();
+    if (encodingConfiguration.isWarmUp()) {
+      EncoderSnapshot.warmUp(fhirEncoders, encodingConfiguration.getSnapshotPath(),
+          sparkSession.sparkContext().hadoopConfiguration());
+    }
+    // The Hadoop configuration is broadcast, so that credentials within it are not serialized along
+    // with the terminology functions.
     final TerminologyServiceFactory terminologyServiceFactory = getTerminologyServiceFactory(
-        terminologyConfiguration);
-    return create(sparkSession, encoderBuilder.getOrCreate(), terminologyServiceFactory);
+        terminologyConfiguration,
+        SerializableConfiguration.broadcast(sparkSession.sparkContext()));
+    return create(sparkSession, fhirEncoders, terminologyServiceFactory);
   }
 
   /**
@@ -366,6 +398,46 @@ public class PathlingContext {
     return encodeBundle(stringBundlesDF, resourceName, FhirMimeTypes.FHIR_JSON);
   }
 
+  /**
+   * Takes a dataframe with string representations of FHIR bundles and splits the entries of each
+   * bundle into separate rows. Each bundle is only parsed once, regardless of how many resource
+   * types it contains. The result has a {@code resourceType} column and a {@code resource} column
+   * containing the JSON representation of the resource, which can be filtered by type and passed to
+   * {@link #encode(Dataset, String)}.
+   *
+   * @param stringBundlesDF the dataframe with the string representation of the bundles. The
+   * dataframe must have a single column of type string.
+   * @param inputMimeType the MIME type of the input strings
+   * @return a Spark dataframe containing the type and JSON representation of each entry
+   */
+  @Nonnull
+  public Dataset<Row> splitBundles(@Nonnull final Dataset<Row> stringBundlesDF,
+      @Nonnull final String inputMimeType) {
+    return stringBundlesDF.as(Encoders.STRING())
+        .mapPartitions(new SplitBundleMapPartitions(fhirVersion, inputMimeType),
+            Encoders.tuple(Encoders.STRING(), Encoders.STRING()))
+        .toDF(SPLIT_BUNDLE_TYPE_COLUMN, SPLIT_BUNDLE_RESOURCE_COLUMN);
+  }
+
+  /**
+   * Reads FHIR bundles in JSON format from files, and splits the entries of each bundle into
+   * separate rows. Unlike {@link #splitBundles(Dataset, String)}, the bundles are streamed rather
+   * than being read into memory, so this can be used with bundles of any size. The result has the
+   * same columns as {@link #splitBundles(Dataset, String)}.
+   *
+   * @param paths the paths of the bundle files, which may be any location supported by Hadoop
+   * @return a Spark dataframe containing the type and JSON representation of each entry
+   */
+  @Nonnull
+  public Dataset<Row> readBundleEntries(@Nonnull final String... paths) {
+    final JavaRDD<Tuple2<String, String>> entries = new JavaSparkContext(spark.sparkContext())
+        .binaryFiles(String.join(",", paths))
+        .flatMap(new StreamBundleEntriesFlatMap(fhirVersion));
+    return spark.createDataset(entries.rdd(),
+            Encoders.tuple(Encoders.STRING(), Encoders.STRING()))
+        .toDF(SPLIT_BUNDLE_TYPE_COLUMN, SPLIT_BUNDLE_RESOURCE_COLUMN);
+  }
+
   /**
    * Tests whether the codings within the specified column are members of the specified value set.
    * Creates a new column containing the result.
@@ -443,6 +515,41 @@ public class PathlingContext {
         idAndCodingSet.col(COL_ARG_CODINGS), outputColumnName, false);
   }
 
+  /**
+   * Writes the contents of the terminology cache to a snapshot at the specified location. The
+   * snapshot can be loaded into the cache of a later run using
+   * {@link #prewarmTerminologyCache(String)}, or by the executors of a cluster using the
+   * {@code snapshotPath} cache configuration option.
+   *
+   * @param path the location to write the snapshot to, which may be any location supported by
+   * Hadoop
+   * @return the number of cache entries written
+   */
+  public long exportTerminologyCache(@Nonnull final String path) {
+    try {
+      return TerminologyCacheSnapshot.save(getCachingTerminologyService(), path,
+          spark.sparkContext().hadoopConfiguration());
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Loads the entries from a terminology cache snapshot into the terminology cache of the driver.
+   * Entries that are already present in the cache are not replaced.
+   *
+   * @param path the location of the snapshot, which may be any location supported by Hadoop
+   * @return the number of cache entries loaded
+   */
+  public long prewarmTerminologyCache(@Nonnull final String path) {
+    try {
+      return TerminologyCacheSnapshot.load(getCachingTerminologyService(), path,
+          spark.sparkContext().hadoopConfiguration());
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   /**
    * @return a new {@link DataSourceBuilder} that can be used to read from a variety of different
    * data sources
@@ -461,18 +568,36 @@ public class PathlingContext {
   }
 
   @Nonnull
-  private static Builder getEncoderBuilder(@Nonnull final EncodingConfiguration config) {
+  private CachingTerminologyService getCachingTerminologyService() {
+    TerminologyService terminologyService = terminologyServiceFactory.build();
+    // The caching service sits underneath the bulk lookup service, when it is enabled.
+    if (terminologyService instanceof final BulkLookupTerminologyService bulkLookupService) {
+      terminologyService = bulkLookupService.getDelegate();
+    }
+    if (terminologyService instanceof final CachingTerminologyService cachingService) {
+      return cachingService;
+    }
+    throw new IllegalStateException("Terminology caching is not enabled");
+  }
+
+  @Nonnull
+  private static Builder getEncoderBuilder(@Nonnull final EncodingConfiguration config,
+      @Nonnull final Configuration hadoopConfiguration) {
     return FhirEncoders.forR4()
         .withMaxNestingLevel(config.getMaxNestingLevel())
         .withExtensionsEnabled(config.isEnableExtensions())
-        .withOpenTypes(config.getOpenTypes());
+        .withOpenTypes(config.getOpenTypes())
+        .withElements(ProfileElements.forConfiguration(config,
+            FhirEncoders.contextFor(FhirVersionEnum.R4), hadoopConfiguration))
+        .withPromotedExtensions(config.getPromotedExtensions());
   }
 
   @Nonnull
   private static TerminologyServiceFactory getTerminologyServiceFactory(
-      @Nonnull final TerminologyConfiguration configuration) {
+      @Nonnull final TerminologyConfiguration configuration,
+      @Nonnull final Broadcast<SerializableConfiguration> hadoopConfiguration) {
     final FhirVersionEnum fhirVersion = FhirContext.forR4().getVersion().getVersion();
-    return new DefaultTerminologyServiceFactory(fhirVersion, configuration);
+    return new DefaultTerminologyServiceFactory(fhirVersion, configuration, hadoopConfiguration);
   }
 
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.library;
+
+import au.csiro.pathling.support.FhirConversionSupport;
+import ca.uhn.fhir.context.FhirVersionEnum;
+import jakarta.annotation.Nonnull;
+import java.util.Iterator;
+import java.util.stream.StreamSupport;
+import org.apache.spark.api.java.function.MapPartitionsFunction;
+import org.hl7.fhir.instance.model.api.IBaseBundle;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import scala.Tuple2;
+
+/**
+ * Parses each bundle once and splits its entries into pairs of resource type and the JSON
+ * representation of the resource.
+ */
+class SplitBundleMapPartitions implements
+    MapPartitionsFunction<String, Tuple2<String, String>> {
+
+  private static final long serialVersionUID = 3079472591869473468L;
+
+  @Nonnull
+  private final FhirVersionEnum fhirVersion;
+
+  @Nonnull
+  private final String inputMimeType;
+
+  SplitBundleMapPartitions(@Nonnull final FhirVersionEnum fhirVersion,
+      @Nonnull final String inputMimeType) {
+    this.fhirVersion = fhirVersion;
+    this.inputMimeType = inputMimeType;
+  }
+
+  @Override
+  @Nonnull
+  public Iterator<Tuple2<String, String>> call(@Nonnull final Iterator<String> iterator) {
+    final ResourceParser parser = ResourceParser.build(fhirVersion, inputMimeType);
+    final ResourceParser jsonParser = ResourceParser.build(fhirVersion, FhirMimeTypes.FHIR_JSON);
+    final FhirConversionSupport conversionSupport = FhirConversionSupport.supportFor(fhirVersion);
+
+    final Iterable<String> iterable = () -> iterator;
+    return StreamSupport.stream(iterable.spliterator(), false)
+        .map(parser::parse)
+        .flatMap(bundle -> conversionSupport.extractEntryFromBundle((IBaseBundle) bundle,
+            IBaseResource.class).stream())
+        .map(resource -> new Tuple2<>(resource.fhirType(), jsonParser.encode(resource)))
+        .iterator();
+  }
+}
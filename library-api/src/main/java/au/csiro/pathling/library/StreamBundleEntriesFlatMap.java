@@ -0,0 +1,243 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.library;
+
+import au.csiro.pathling.support.FhirConversionSupport;
+import ca.uhn.fhir.context.FhirVersionEnum;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.input.PortableDataStream;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import scala.Tuple2;
+
+/**
+ * Streams the entries of FHIR bundles in JSON format, producing pairs of resource type and the JSON
+ * representation of each resource. Only a single entry is held in memory at any time, so bundles
+ * of any size can be read.
+ * <p>
+ * Each file is read twice. The first pass collects the full URL and relative reference of each
+ * entry, so that URN references can be resolved. The second pass emits the resources.
+ */
+class StreamBundleEntriesFlatMap implements
+    FlatMapFunction<Tuple2<String, PortableDataStream>, Tuple2<String, String>> {
+
+  private static final long serialVersionUID = -5032797135785212317L;
+
+  private static final String ENTRY_FIELD = "entry";
+  private static final String FULL_URL_FIELD = "fullUrl";
+  private static final String RESOURCE_FIELD = "resource";
+  private static final String RESOURCE_TYPE_FIELD = "resourceType";
+  private static final String ID_FIELD = "id";
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  @Nonnull
+  private final FhirVersionEnum fhirVersion;
+
+  StreamBundleEntriesFlatMap(@Nonnull final FhirVersionEnum fhirVersion) {
+    this.fhirVersion = fhirVersion;
+  }
+
+  @Override
+  @Nonnull
+  public Iterator<Tuple2<String, String>> call(
+      @Nonnull final Tuple2<String, PortableDataStream> file) throws IOException {
+    final Map<String, String> references = collectReferences(file._2);
+    return new EntryIterator(file._2.open(), references);
+  }
+
+  /**
+   * Collects the relative reference for each entry with a full URL that is a URN.
+   */
+  @Nonnull
+  private static Map<String, String> collectReferences(@Nonnull final PortableDataStream stream)
+      throws IOException {
+    final Map<String, String> references = new HashMap<>();
+    try (final InputStream input = stream.open();
+        final JsonParser parser = JSON_FACTORY.createParser(input)) {
+      if (!seekToEntries(parser)) {
+        return references;
+      }
+      while (parser.nextToken() == JsonToken.START_OBJECT) {
+        String fullUrl = null;
+        String resourceType = null;
+        String id = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          final String field = parser.getCurrentName();
+          final JsonToken value = parser.nextToken();
+          if (FULL_URL_FIELD.equals(field) && value == JsonToken.VALUE_STRING) {
+            fullUrl = parser.getText();
+          } else if (RESOURCE_FIELD.equals(field) && value == JsonToken.START_OBJECT) {
+            // Only the top-level type and ID of the resource are read, its content is skipped.
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+              final String resourceField = parser.getCurrentName();
+              final JsonToken resourceValue = parser.nextToken();
+              if (RESOURCE_TYPE_FIELD.equals(resourceField)
+                  && resourceValue == JsonToken.VALUE_STRING) {
+                resourceType = parser.getText();
+              } else if (ID_FIELD.equals(resourceField)
+                  && resourceValue == JsonToken.VALUE_STRING) {
+                id = parser.getText();
+              } else {
+                parser.skipChildren();
+              }
+            }
+          } else {
+            parser.skipChildren();
+          }
+        }
+        if (fullUrl != null && fullUrl.startsWith("urn:") && resourceType != null && id != null) {
+          references.put(fullUrl, resourceType + "/" + id);
+        }
+      }
+    }
+    return references;
+  }
+
+  /**
+   * Advances the parser to the start of the entry array of a bundle.
+   *
+   * @return true if the bundle has an entry array, false otherwise
+   */
+  private static boolean seekToEntries(@Nonnull final JsonParser parser) throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      throw new IOException("Expected a JSON object at the start of the bundle");
+    }
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = parser.getCurrentName();
+      final JsonToken value = parser.nextToken();
+      if (ENTRY_FIELD.equals(field) && value == JsonToken.START_ARRAY) {
+        return true;
+      }
+      parser.skipChildren();
+    }
+    return false;
+  }
+
+  /**
+   * Lazily reads the resources from the entries of a bundle, closing the input once the last entry
+   * has been read.
+   */
+  private class EntryIterator implements Iterator<Tuple2<String, String>> {
+
+    @Nonnull
+    private final InputStream input;
+
+    @Nonnull
+    private final JsonParser parser;
+
+    @Nonnull
+    private final Map<String, String> references;
+
+    @Nonnull
+    private final ResourceParser resourceParser;
+
+    @Nonnull
+    private final FhirConversionSupport conversionSupport;
+
+    @Nullable
+    private Tuple2<String, String> next;
+
+    private boolean inEntries;
+
+    private EntryIterator(@Nonnull final InputStream input,
+        @Nonnull final Map<String, String> references) throws IOException {
+      this.input = input;
+      this.parser = JSON_FACTORY.createParser(input);
+      this.references = references;
+      this.resourceParser = ResourceParser.build(fhirVersion, FhirMimeTypes.FHIR_JSON);
+      this.conversionSupport = FhirConversionSupport.supportFor(fhirVersion);
+      this.inEntries = seekToEntries(parser);
+      advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    @Nonnull
+    public Tuple2<String, String> next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      final Tuple2<String, String> result = next;
+      advance();
+      return result;
+    }
+
+    private void advance() {
+      try {
+        next = null;
+        while (next == null && inEntries) {
+          if (parser.nextToken() == JsonToken.START_OBJECT) {
+            next = readEntry();
+          } else {
+            inEntries = false;
+          }
+        }
+        if (!inEntries) {
+          parser.close();
+          input.close();
+        }
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Nullable
+    private Tuple2<String, String> readEntry() throws IOException {
+      String resourceJson = null;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String field = parser.getCurrentName();
+        final JsonToken value = parser.nextToken();
+        if (RESOURCE_FIELD.equals(field) && value == JsonToken.START_OBJECT) {
+          final StringWriter writer = new StringWriter();
+          try (final JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.copyCurrentStructure(parser);
+          }
+          resourceJson = writer.toString();
+        } else {
+          parser.skipChildren();
+        }
+      }
+      if (resourceJson == null) {
+        // Entries without a resource, such as those within a batch response, are skipped.
+        return null;
+      }
+      final IBaseResource resource = conversionSupport.resolveReferences(
+          resourceParser.parse(resourceJson), references);
+      return new Tuple2<>(resource.fhirType(), resourceParser.encode(resource));
+    }
+  }
+
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.library.io.sink;
+
+import static au.csiro.pathling.io.FileSystemPersistence.getFileSystem;
+import static au.csiro.pathling.io.FileSystemPersistence.safelyJoinPaths;
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.count;
+import static org.apache.spark.sql.functions.length;
+import static org.apache.spark.sql.functions.lit;
+import static org.apache.spark.sql.functions.sum;
+
+import au.csiro.pathling.io.source.DataSource;
+import au.csiro.pathling.library.FhirMimeTypes;
+import au.csiro.pathling.library.PathlingContext;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.spark.sql.DataFrameWriter;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SaveMode;
+import org.hl7.fhir.r4.model.Enumerations.ResourceType;
+
+/**
+ * Represents a data sink that writes each resource type to a set of NDJSON files in parallel,
+ * following the naming conventions of the FHIR Bulk Data Access specification (e.g.
+ * {@code Observation.001.ndjson}), and describes the output within a manifest.
+ * <p>
+ * Unlike {@link NdjsonSink}, which collects each resource type into a single file, this sink writes
+ * one or more files from each partition of the data, so that large exports are not bottlenecked on
+ * a single task.
+ *
+ * @see <a href="https://hl7.org/fhir/uv/bulkdata/export.html#response---complete-status">Bulk Data
+ * Access - Complete Status</a>
+ */
+@Slf4j
+public class BulkNdjsonSink implements DataSink {
+
+  /**
+   * The default target size of each file, before compression.
+   */
+  public static final long DEFAULT_TARGET_FILE_SIZE = 128L * 1024 * 1024;
+
+  /**
+   * The name of the manifest file that is written alongside the NDJSON files.
+   */
+  public static final String MANIFEST_FILE_NAME = "manifest.json";
+
+  /**
+   * The number of records that are used to estimate the average size of a resource.
+   */
+  private static final int SIZE_SAMPLE = 1000;
+
+  private static final String STAGING_SUFFIX = ".ndjson.partitioned";
+
+  @Nonnull
+  private final PathlingContext context;
+
+  @Nonnull
+  private final String path;
+
+  @Nonnull
+  private final SaveMode saveMode;
+
+  @Nonnull
+  private final UnaryOperator<String> fileNameMapper;
+
+  private final long targetFileSize;
+
+  @Nonnull
+  private final Compression compression;
+
+  @Nonnull
+  private final ConcurrentTypeWriter typeWriter;
+
+  /**
+   * @param context the {@link PathlingContext} to use
+   * @param path the path to write the NDJSON files to
+   * @param saveMode the {@link SaveMode} to use
+   */
+  public BulkNdjsonSink(@Nonnull final PathlingContext context, @Nonnull final String path,
+      @Nonnull final SaveMode saveMode) {
+    this(context, path, saveMode, UnaryOperator.identity(), DEFAULT_TARGET_FILE_SIZE,
+        Compression.NONE, ConcurrentTypeWriter.DEFAULT_PARALLELISM);
+  }
+
+  /**
+   * @param context the {@link PathlingContext} to use
+   * @param path the path to write the NDJSON files to
+   * @param saveMode the {@link SaveMode} to use
+   * @param fileNameMapper a function that maps resource type to the base name of its files
+   * @param targetFileSize the approximate maximum size of each file in bytes, before compression
+   * @param compression the {@link Compression} to apply to each file
+   * @param parallelism the maximum number of resource types to write at the same time
+   */
+  public BulkNdjsonSink(@Nonnull final PathlingContext context, @Nonnull final String path,
+      @Nonnull final SaveMode saveMode, @Nonnull final UnaryOperator<String> fileNameMapper,
+      final long targetFileSize, @Nonnull final Compression compression, final int parallelism) {
+    if (targetFileSize < 1) {
+      throw new IllegalArgumentException("Target file size must be positive: " + targetFileSize);
+    }
+    this.context = context;
+    this.path = path;
+    this.saveMode = saveMode;
+    this.fileNameMapper = fileNameMapper;
+    this.targetFileSize = targetFileSize;
+    this.compression = compression;
+    this.typeWriter = new ConcurrentTypeWriter(context.getSpark(), parallelism);
+  }
+
+  @Override
+  public void write(@Nonnull final DataSource source) {
+    final Instant transactionTime = Instant.now();
+    final FileSystem fileSystem = getFileSystem(context.getSpark(), path);
+    final Map<String, List<String>> outputs = new ConcurrentSkipListMap<>();
+
+    typeWriter.write(source.getResourceTypes(), resourceType -> outputs.put(resourceType.toCode(),
+        writeResourceType(source, resourceType, fileSystem)));
+
+    writeManifest(fileSystem, transactionTime, outputs);
+  }
+
+  /**
+   * Writes the files for a single resource type, and returns the URLs of all the files for the
+   * resource type that are present once the write is complete.
+   */
+  @Nonnull
+  private List<String> writeResourceType(@Nonnull final DataSource source,
+      @Nonnull final ResourceType resourceType, @Nonnull final FileSystem fileSystem) {
+    final String baseName = fileNameMapper.apply(resourceType.toCode());
+    final List<FileStatus> existing = listOutputFiles(fileSystem, baseName);
+    int nextNumber = 1;
+    if (!existing.isEmpty()) {
+      switch (saveMode) {
+        case ErrorIfExists:
+          throw new RuntimeException("Output files already exist for resource type: "
+              + resourceType.toCode());
+        case Ignore:
+          log.info("Skipping resource type with existing output: {}", resourceType.toCode());
+          return toUrls(existing);
+        case Overwrite:
+          for (final FileStatus file : existing) {
+            delete(fileSystem, file.getPath(), false);
+          }
+          break;
+        case Append:
+          nextNumber = existing.stream()
+              .mapToInt(file -> fileNumber(baseName, file.getPath().getName()))
+              .max()
+              .orElse(0) + 1;
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported save mode: " + saveMode);
+      }
+    }
+
+    // Convert the dataset of structured FHIR data to a dataset of JSON strings.
+    final Dataset<String> jsonStrings = context.decode(source.read(resourceType),
+        resourceType.toCode(), FhirMimeTypes.FHIR_JSON);
+
+    // Write the JSON strings from each partition in parallel, splitting the output of each
+    // partition so that no file grows much beyond the target size.
+    final String stagingUrl = safelyJoinPaths(path, baseName + STAGING_SUFFIX);
+    DataFrameWriter<String> writer = jsonStrings.write()
+        .mode(SaveMode.Overwrite)
+        .option("maxRecordsPerFile", estimateRecordsPerFile(jsonStrings));
+    if (compression != Compression.NONE) {
+      writer = writer.option("compression", compression.getCode());
+    }
+    writer.text(stagingUrl);
+
+    // Move the part files out of the staging directory, numbering them in order.
+    final Path stagingPath = new Path(stagingUrl);
+    final List<FileStatus> partFiles = listStatus(fileSystem, stagingPath).stream()
+        .filter(file -> file.getPath().getName().startsWith("part-") && file.getLen() > 0)
+        .sorted(Comparator.comparing(file -> file.getPath().getName()))
+        .toList();
+    final int width = Math.max(3, String.valueOf(nextNumber + partFiles.size() - 1).length());
+    for (final FileStatus partFile : partFiles) {
+      final String fileName = String.format("%s.%0" + width + "d.ndjson%s", baseName,
+          nextNumber++, compression.getExtension());
+      rename(fileSystem, partFile.getPath(), new Path(safelyJoinPaths(path, fileName)));
+    }
+    log.info("Cleaning up: {}", stagingUrl);
+    delete(fileSystem, stagingPath, true);
+
+    return toUrls(listOutputFiles(fileSystem, baseName));
+  }
+
+  /**
+   * Estimates the number of records that fit within the target file size, based upon the average
+   * size of a sample of the records.
+   */
+  private long estimateRecordsPerFile(@Nonnull final Dataset<String> jsonStrings) {
+    final Row sample = jsonStrings.limit(SIZE_SAMPLE)
+        .agg(count(lit(1)), sum(length(col("value"))))
+        .first();
+    final long records = sample.getLong(0);
+    if (records == 0) {
+      return targetFileSize;
+    }
+    // Add one to the average size to account for the line separator.
+    final long averageSize = sample.getLong(1) / records + 1;
+    return Math.max(1, targetFileSize / averageSize);
+  }
+
+  /**
+   * Lists the numbered output files for a resource type, in order of their number.
+   */
+  @Nonnull
+  private List<FileStatus> listOutputFiles(@Nonnull final FileSystem fileSystem,
+      @Nonnull final String baseName) {
+    final Path directory = new Path(path);
+    if (!exists(fileSystem, directory)) {
+      return List.of();
+    }
+    return listStatus(fileSystem, directory).stream()
+        .filter(file -> file.isFile() && fileNumber(baseName, file.getPath().getName()) > 0)
+        .sorted(Comparator.comparingInt(file -> fileNumber(baseName, file.getPath().getName())))
+        .toList();
+  }
+
+  /**
+   * @return the number of the file, if it is an output file for the specified base name and the
+   * configured compression, or zero otherwise
+   */
+  private int fileNumber(@Nonnull final String baseName, @Nonnull final String fileName) {
+    final Matcher matcher = Pattern.compile(Pattern.quote(baseName) + "\\.(\\d+)\\.ndjson"
+        + Pattern.quote(compression.getExtension())).matcher(fileName);
+    return matcher.matches()
+           ? Integer.parseInt(matcher.group(1))
+           : 0;
+  }
+
+  @Nonnull
+  private static List<String> toUrls(@Nonnull final List<FileStatus> files) {
+    return files.stream()
+        .map(file -> file.getPath().toString())
+        .toList();
+  }
+
+  private void writeManifest(@Nonnull final FileSystem fileSystem,
+      @Nonnull final Instant transactionTime, @Nonnull final Map<String, List<String>> outputs) {
+    final Path manifestPath = new Path(safelyJoinPaths(path, MANIFEST_FILE_NAME));
+    try (final OutputStream output = fileSystem.create(manifestPath, true);
+        final JsonGenerator generator = new JsonFactory().createGenerator(output,
+            JsonEncoding.UTF8)) {
+      generator.useDefaultPrettyPrinter();
+      generator.writeStartObject();
+      generator.writeStringField("transactionTime", transactionTime.toString());
+      generator.writeBooleanField("requiresAccessToken", false);
+      generator.writeArrayFieldStart("output");
+      for (final Map.Entry<String, List<String>> entry : outputs.entrySet()) {
+        for (final String url : entry.getValue()) {
+          generator.writeStartObject();
+          generator.writeStringField("type", entry.getKey());
+          generator.writeStringField("url", url);
+          generator.writeEndObject();
+        }
+      }
+      generator.writeEndArray();
+      generator.writeArrayFieldStart("error");
+      generator.writeEndArray();
+      generator.writeEndObject();
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Problem writing manifest: " + manifestPath, e);
+    }
+  }
+
+  @Nonnull
+  private static List<FileStatus> listStatus(@Nonnull final FileSystem fileSystem,
+      @Nonnull final Path directory) {
+    try {
+      return new ArrayList<>(Arrays.asList(fileSystem.listStatus(directory)));
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Problem listing directory: " + directory, e);
+    }
+  }
+
+  private static boolean exists(@Nonnull final FileSystem fileSystem, @Nonnull final Path target) {
+    try {
+      return fileSystem.exists(target);
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Problem accessing location: " + target, e);
+    }
+  }
+
+  private static void rename(@Nonnull final FileSystem fileSystem, @Nonnull final Path from,
+      @Nonnull final Path to) {
+    try {
+      log.debug("Renaming {} to {}", from, to);
+      if (!fileSystem.rename(from, to)) {
+        throw new IOException("Rename was unsuccessful");
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Problem moving file to: " + to, e);
+    }
+  }
+
+  private static void delete(@Nonnull final FileSystem fileSystem, @Nonnull final Path target,
+      final boolean recursive) {
+    try {
+      fileSystem.delete(target, recursive);
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Problem deleting: " + target, e);
+    }
+  }
+
+  /**
+   * The compression codecs that can be applied to the NDJSON files.
+   */
+  @Getter
+  public enum Compression {
+    /**
+     * No compression.
+     */
+    NONE("none", ""),
+
+    /**
+     * Gzip compression, using the ".gz" extension.
+     */
+    GZIP("gzip", ".gz"),
+
+    /**
+     * Zstandard compression, using the ".zst" extension. This requires the Hadoop native libraries
+     * to be available on the cluster.
+     */
+    ZSTD("zstd", ".zst");
+
+    @Nonnull
+    private final String code;
+
+    @Nonnull
+    private final String extension;
+
+    Compression(@Nonnull final String code, @Nonnull final String extension) {
+      this.code = code;
+      this.extension = extension;
+    }
+
+    /**
+     * @param code the code of the compression codec, or null for no compression
+     * @return the matching {@link Compression}
+     */
+    @Nonnull
+    public static Compression fromCode(@Nullable final String code) {
+      if (code == null) {
+        return NONE;
+      }
+      for (final Compression compression : values()) {
+        if (compression.code.equals(code)) {
+          return compression;
+        }
+      }
+      throw new IllegalArgumentException("Unknown compression: " + code);
+    }
+
+  }
+
+}
@@ -19,6 +19,7 @@ package au.csiro.pathling.library.io.sink;
 
 import au.csiro.pathling.io.Database;
 import au.csiro.pathling.io.ImportMode;
+import au.csiro.pathling.io.WriteLayout;
 import au.csiro.pathling.library.PathlingContext;
 import jakarta.annotation.Nonnull;
 import java.util.Optional;
@@ -30,14 +31,22 @@ public class CatalogSink extends DatabaseSink {
   }
 
   public CatalogSink(@Nonnull final PathlingContext context, @Nonnull final ImportMode importMode) {
-    super(Database.forCatalog(context.getSpark(), context.getFhirEncoders(),
-        Optional.empty(), true), importMode);
+    this(context, importMode, Optional.empty(), WriteLayout.defaults(),
+        ConcurrentTypeWriter.DEFAULT_PARALLELISM);
   }
 
   public CatalogSink(@Nonnull final PathlingContext context, @Nonnull final ImportMode importMode,
       @Nonnull final String schema) {
-    super(Database.forCatalog(context.getSpark(), context.getFhirEncoders(),
-        Optional.of(schema), true), importMode);
+    this(context, importMode, Optional.of(schema), WriteLayout.defaults(),
+        ConcurrentTypeWriter.DEFAULT_PARALLELISM);
+  }
+
+  public CatalogSink(@Nonnull final PathlingContext context, @Nonnull final ImportMode importMode,
+      @Nonnull final Optional<String> schema, @Nonnull final WriteLayout layout,
+      final int parallelism) {
+    super(context.getSpark(),
+        Database.forCatalog(context.getSpark(), context.getFhirEncoders(), schema, true, layout),
+        importMode, parallelism);
   }
 
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.library.io.sink;
+
+import au.csiro.pathling.utilities.ConcurrentJobRunner;
+import jakarta.annotation.Nonnull;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.apache.spark.sql.SparkSession;
+import org.hl7.fhir.r4.model.Enumerations.ResourceType;
+
+/**
+ * Runs the writes for a set of resource types concurrently, so that Spark can schedule the jobs
+ * for small resource types alongside those for large ones.
+ * <p>
+ * The writes are run using a {@link ConcurrentJobRunner}. Failures are collected for all resource
+ * types and reported together once every write has finished.
+ */
+class ConcurrentTypeWriter {
+
+  /**
+   * The default maximum number of resource types that are written at the same time.
+   */
+  static final int DEFAULT_PARALLELISM = 4;
+
+  @Nonnull
+  private final ConcurrentJobRunner runner;
+
+  /**
+   * @param spark the {@link SparkSession} used to submit the writes
+   * @param parallelism the maximum number of resource types to write at the same time
+   */
+  ConcurrentTypeWriter(@Nonnull final SparkSession spark, final int parallelism) {
+    this.runner = new ConcurrentJobRunner(spark.sparkContext(), "write", parallelism);
+  }
+
+  /**
+   * Writes each of the supplied resource types using the supplied writer.
+   *
+   * @param resourceTypes the resource types to write
+   * @param writer a function that writes a single resource type
+   * @throws DataSinkException if the write of one or more resource types failed
+   */
+  void write(@Nonnull final Set<ResourceType> resourceTypes,
+      @Nonnull final Consumer<ResourceType> writer) {
+    final Map<ResourceType, Throwable> failures;
+    try {
+      failures = runner.run(resourceTypes, ResourceType::toCode, writer);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DataSinkException("Interrupted while writing resource types", List.of(), e);
+    }
+    if (!failures.isEmpty()) {
+      throw DataSinkException.of(failures);
+    }
+  }
+
+}
@@ -20,12 +20,14 @@ package au.csiro.pathling.library.io.sink;
 import static java.util.Objects.requireNonNull;
 
 import au.csiro.pathling.io.ImportMode;
+import au.csiro.pathling.io.WriteLayout;
 import au.csiro.pathling.io.source.DataSource;
 import au.csiro.pathling.library.PathlingContext;
 import com.google.common.collect.ImmutableMap;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.UnaryOperator;
 import org.apache.spark.sql.SaveMode;
 
@@ -52,11 +54,47 @@ public class DataSinkBuilder {
   @Nonnull
   private final DataSource source;
 
+  private int parallelism = ConcurrentTypeWriter.DEFAULT_PARALLELISM;
+
+  @Nonnull
+  private WriteLayout layout = WriteLayout.defaults();
+
   public DataSinkBuilder(@Nonnull final PathlingContext context, @Nonnull final DataSource source) {
     this.context = context;
     this.source = source;
   }
 
+  /**
+   * Sets the maximum number of resource types that are written at the same time. Writing several
+   * resource types at once allows the cluster to be kept busy while smaller resource types are
+   * written alongside larger ones. A value of 1 writes the resource types one after the other.
+   *
+   * @param parallelism the maximum number of concurrent resource type writes
+   * @return this builder
+   */
+  @Nonnull
+  public DataSinkBuilder withParallelism(final int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Write parallelism must be at least 1: " + parallelism);
+    }
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  /**
+   * Sets the layout of the files written by the Parquet, Delta and table sinks, e.g. the columns
+   * used to sort, partition and bucket the data and the size and compression of the files. By
+   * default, each partition is sorted by resource ID.
+   *
+   * @param layout the {@link WriteLayout} to use
+   * @return this builder
+   */
+  @Nonnull
+  public DataSinkBuilder withLayout(@Nullable final WriteLayout layout) {
+    this.layout = requireNonNull(layout);
+    return this;
+  }
+
   /**
    * Writes the data in the data source to NDJSON files, one per resource type and named using the
    * "ndjson" extension.
@@ -71,7 +109,8 @@ public class DataSinkBuilder {
    * </ul>
    */
   public void ndjson(@Nullable final String path, @Nullable final String saveMode) {
-    new NdjsonSink(context, requireNonNull(path), resolveSaveMode(saveMode)).write(source);
+    new NdjsonSink(context, requireNonNull(path), resolveSaveMode(saveMode),
+        UnaryOperator.identity(), parallelism).write(source);
   }
 
   /**
@@ -91,7 +130,48 @@ public class DataSinkBuilder {
   public void ndjson(@Nullable final String path, @Nullable final String saveMode,
       @Nullable final UnaryOperator<String> fileNameMapper) {
     new NdjsonSink(context, requireNonNull(path), resolveSaveMode(saveMode),
-        requireNonNull(fileNameMapper)).write(source);
+        requireNonNull(fileNameMapper), parallelism).write(source);
+  }
+
+  /**
+   * Writes the data in the data source to sets of NDJSON files that are written in parallel, named
+   * according to the FHIR Bulk Data conventions (e.g. "Observation.001.ndjson") and described by a
+   * "manifest.json" file. Each file will hold approximately 128 MiB of uncompressed data at most.
+   *
+   * @param path the directory to write the files to
+   * @param saveMode the save mode to use:
+   * <ul>
+   *   <li>"error" - throw an error if the files already exist</li>
+   *   <li>"overwrite" - overwrite any existing files</li>
+   *   <li>"append" - add new files alongside any existing files</li>
+   *   <li>"ignore" - do nothing if the files already exist</li>
+   * </ul>
+   */
+  public void bulkNdjson(@Nullable final String path, @Nullable final String saveMode) {
+    bulkNdjson(path, saveMode, BulkNdjsonSink.DEFAULT_TARGET_FILE_SIZE, null);
+  }
+
+  /**
+   * Writes the data in the data source to sets of NDJSON files that are written in parallel, named
+   * according to the FHIR Bulk Data conventions (e.g. "Observation.001.ndjson") and described by a
+   * "manifest.json" file.
+   *
+   * @param path the directory to write the files to
+   * @param saveMode the save mode to use:
+   * <ul>
+   *   <li>"error" - throw an error if the files already exist</li>
+   *   <li>"overwrite" - overwrite any existing files</li>
+   *   <li>"append" - add new files alongside any existing files</li>
+   *   <li>"ignore" - do nothing if the files already exist</li>
+   * </ul>
+   * @param targetFileSize the approximate maximum size of each file in bytes, before compression
+   * @param compression the compression to use: "gzip", "zstd" or "none" (the default)
+   */
+  public void bulkNdjson(@Nullable final String path, @Nullable final String saveMode,
+      final long targetFileSize, @Nullable final String compression) {
+    new BulkNdjsonSink(context, requireNonNull(path), resolveSaveMode(saveMode),
+        UnaryOperator.identity(), targetFileSize, BulkNdjsonSink.Compression.fromCode(compression),
+        parallelism).write(source);
   }
 
   /**
@@ -108,7 +188,8 @@ public class DataSinkBuilder {
    * </ul>
    */
   public void parquet(@Nullable final String path, @Nullable final String saveMode) {
-    new ParquetSink(requireNonNull(path), resolveSaveMode(saveMode)).write(source);
+    new ParquetSink(context.getSpark(), requireNonNull(path), resolveSaveMode(saveMode),
+        layout, parallelism).write(source);
   }
 
   /**
@@ -118,7 +199,8 @@ public class DataSinkBuilder {
    * @param path the directory to write the files to
    */
   public void delta(@Nullable final String path) {
-    new DeltaSink(context, requireNonNull(path)).write(source);
+    new DeltaSink(context, requireNonNull(path), ImportMode.OVERWRITE, layout, parallelism)
+        .write(source);
   }
 
   /**
@@ -130,7 +212,8 @@ public class DataSinkBuilder {
    * will merge the new data with the existing data based on resource ID
    */
   public void delta(@Nullable final String path, @Nullable final String importMode) {
-    new DeltaSink(context, requireNonNull(path), ImportMode.fromCode(importMode)).write(source);
+    new DeltaSink(context, requireNonNull(path), ImportMode.fromCode(importMode), layout,
+        parallelism).write(source);
   }
 
   /**
@@ -140,7 +223,8 @@ public class DataSinkBuilder {
    * Any existing data in the tables will be overwritten.
    */
   public void tables() {
-    new CatalogSink(context).write(source);
+    new CatalogSink(context, ImportMode.OVERWRITE, Optional.empty(), layout, parallelism)
+        .write(source);
   }
 
   /**
@@ -152,7 +236,8 @@ public class DataSinkBuilder {
    * will merge the new data with the existing data based on resource ID
    */
   public void tables(@Nullable final String importMode) {
-    new CatalogSink(context, ImportMode.fromCode(importMode)).write(source);
+    new CatalogSink(context, ImportMode.fromCode(importMode), Optional.empty(), layout,
+        parallelism).write(source);
   }
 
   /**
@@ -165,7 +250,8 @@ public class DataSinkBuilder {
    * @param schema the schema name to write the tables to
    */
   public void tables(@Nullable final String importMode, @Nullable final String schema) {
-    new CatalogSink(context, ImportMode.fromCode(importMode), requireNonNull(schema)).write(source);
+    new CatalogSink(context, ImportMode.fromCode(importMode), Optional.of(requireNonNull(schema)),
+        layout, parallelism).write(source);
   }
 
   @Nonnull
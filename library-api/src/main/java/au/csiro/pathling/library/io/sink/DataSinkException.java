@@ -0,0 +1,74 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.library.io.sink;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import lombok.Getter;
+import org.hl7.fhir.r4.model.Enumerations.ResourceType;
+
+/**
+ * Thrown when a {@link DataSink} could not write one or more resource types. The cause is the
+ * first failure encountered, and any further failures are attached as suppressed exceptions.
+ */
+@Getter
+public class DataSinkException extends RuntimeException {
+
+  private static final long serialVersionUID = 4218634011532468751L;
+
+  /**
+   * The resource types that could not be written.
+   */
+  @Nonnull
+  private final List<ResourceType> failedResourceTypes;
+
+  /**
+   * @param message the detail message
+   * @param failedResourceTypes the resource types that could not be written
+   * @param cause the underlying cause
+   */
+  public DataSinkException(@Nonnull final String message,
+      @Nonnull final List<ResourceType> failedResourceTypes, @Nullable final Throwable cause) {
+    super(message, cause);
+    this.failedResourceTypes = failedResourceTypes;
+  }
+
+  /**
+   * Creates an exception that reports all the failures from a set of resource type writes.
+   *
+   * @param failures the failure for each resource type that could not be written
+   * @return a new {@link DataSinkException}
+   */
+  @Nonnull
+  static DataSinkException of(@Nonnull final Map<ResourceType, Throwable> failures) {
+    final List<ResourceType> failedTypes = new ArrayList<>(failures.keySet());
+    final String message = "Failed to write resource types: " + failedTypes.stream()
+        .map(type -> type.toCode() + " (" + failures.get(type).getMessage() + ")")
+        .collect(Collectors.joining(", "));
+    final List<Throwable> causes = new ArrayList<>(failures.values());
+    final DataSinkException exception = new DataSinkException(message, failedTypes,
+        causes.get(0));
+    causes.subList(1, causes.size()).forEach(exception::addSuppressed);
+    return exception;
+  }
+
+}
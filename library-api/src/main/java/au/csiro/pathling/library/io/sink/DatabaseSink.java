@@ -23,7 +23,7 @@ import au.csiro.pathling.io.source.DataSource;
 import jakarta.annotation.Nonnull;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
-import org.hl7.fhir.r4.model.Enumerations.ResourceType;
+import org.apache.spark.sql.SparkSession;
 
 /**
  * A data sink that writes data to a {@link Database}.
@@ -38,27 +38,45 @@ public abstract class DatabaseSink implements DataSink {
   @Nonnull
   protected final Database database;
 
+  @Nonnull
+  private final ConcurrentTypeWriter typeWriter;
+
   /**
+   * Creates a sink that submits its writes using the active {@link SparkSession}.
+   *
    * @param database the database to write to
    * @param importMode the {@link ImportMode} to use when writing data
    */
   public DatabaseSink(@Nonnull final Database database, @Nonnull final ImportMode importMode) {
+    this(SparkSession.active(), database, importMode, ConcurrentTypeWriter.DEFAULT_PARALLELISM);
+  }
+
+  /**
+   * @param spark the {@link SparkSession} used to submit the writes
+   * @param database the database to write to
+   * @param importMode the {@link ImportMode} to use when writing data
+   * @param parallelism the maximum number of resource types to write at the same time
+   */
+  public DatabaseSink(@Nonnull final SparkSession spark, @Nonnull final Database database,
+      @Nonnull final ImportMode importMode, final int parallelism) {
     this.importMode = importMode;
     this.database = database;
+    this.typeWriter = new ConcurrentTypeWriter(spark, parallelism);
   }
 
   @Override
   public void write(@Nonnull final DataSource source) {
-    for (final ResourceType resourceType : source.getResourceTypes()) {
+    if (!importMode.equals(ImportMode.OVERWRITE) && !importMode.equals(ImportMode.MERGE)) {
+      throw new IllegalArgumentException("Unsupported import mode: " + importMode);
+    }
+    typeWriter.write(source.getResourceTypes(), resourceType -> {
       final Dataset<Row> dataset = source.read(resourceType);
       if (importMode.equals(ImportMode.OVERWRITE)) {
         database.overwrite(resourceType, dataset);
-      } else if (importMode.equals(ImportMode.MERGE)) {
-        database.merge(resourceType, dataset);
       } else {
-        throw new IllegalArgumentException("Unsupported import mode: " + importMode);
+        database.merge(resourceType, dataset);
       }
-    }
+    });
   }
 
 }
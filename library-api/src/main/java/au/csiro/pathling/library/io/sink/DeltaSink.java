@@ -19,6 +19,7 @@ package au.csiro.pathling.library.io.sink;
 
 import au.csiro.pathling.io.Database;
 import au.csiro.pathling.io.ImportMode;
+import au.csiro.pathling.io.WriteLayout;
 import au.csiro.pathling.io.source.DataSource;
 import au.csiro.pathling.library.PathlingContext;
 import jakarta.annotation.Nonnull;
@@ -48,8 +49,25 @@ public class DeltaSink extends DatabaseSink {
    */
   public DeltaSink(@Nonnull final PathlingContext context, @Nonnull final String path,
       @Nonnull final ImportMode importMode) {
-    super(Database.forFileSystem(context.getSpark(), context.getFhirEncoders(), path, true),
-        importMode);
+    this(context, path, importMode, WriteLayout.defaults(),
+        ConcurrentTypeWriter.DEFAULT_PARALLELISM);
+  }
+
+  /**
+   * @param context the {@link PathlingContext} to use
+   * @param path the path to write the Delta database to
+   * @param importMode the {@link ImportMode} to use, {@link ImportMode#OVERWRITE} will overwrite
+   * any existing data, {@link ImportMode#MERGE} will merge the new data with the existing data
+   * based on resource ID
+   * @param layout the {@link WriteLayout} to use when overwriting tables
+   * @param parallelism the maximum number of resource types to write at the same time
+   */
+  public DeltaSink(@Nonnull final PathlingContext context, @Nonnull final String path,
+      @Nonnull final ImportMode importMode, @Nonnull final WriteLayout layout,
+      final int parallelism) {
+    super(context.getSpark(),
+        Database.forFileSystem(context.getSpark(), context.getFhirEncoders(), path, true, layout),
+        importMode, parallelism);
   }
 
 }
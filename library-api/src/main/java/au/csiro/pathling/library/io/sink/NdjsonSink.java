@@ -27,7 +27,6 @@ import jakarta.annotation.Nonnull;
 import java.util.function.UnaryOperator;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.SaveMode;
-import org.hl7.fhir.r4.model.Enumerations.ResourceType;
 
 /**
  * Represents a data sink that knows how to read data from a {@link DataSource} and write it to a
@@ -49,6 +48,9 @@ public class NdjsonSink implements DataSink {
   @Nonnull
   private final UnaryOperator<String> fileNameMapper;
 
+  @Nonnull
+  private final ConcurrentTypeWriter typeWriter;
+
   /**
    * @param context the {@link PathlingContext} to use
    * @param path the path to write the NDJSON files to
@@ -67,15 +69,29 @@ public class NdjsonSink implements DataSink {
    */
   public NdjsonSink(@Nonnull final PathlingContext context, @Nonnull final String path,
       @Nonnull final SaveMode saveMode, @Nonnull final UnaryOperator<String> fileNameMapper) {
+    this(context, path, saveMode, fileNameMapper, ConcurrentTypeWriter.DEFAULT_PARALLELISM);
+  }
+
+  /**
+   * @param context the {@link PathlingContext} to use
+   * @param path the path to write the NDJSON files to
+   * @param saveMode the {@link SaveMode} to use
+   * @param fileNameMapper a function that maps resource type to file name
+   * @param parallelism the maximum number of resource types to write at the same time
+   */
+  public NdjsonSink(@Nonnull final PathlingContext context, @Nonnull final String path,
+      @Nonnull final SaveMode saveMode, @Nonnull final UnaryOperator<String> fileNameMapper,
+      final int parallelism) {
     this.context = context;
     this.path = path;
     this.saveMode = saveMode;
     this.fileNameMapper = fileNameMapper;
+    this.typeWriter = new ConcurrentTypeWriter(context.getSpark(), parallelism);
   }
 
   @Override
   public void write(@Nonnull final DataSource source) {
-    for (final ResourceType resourceType : source.getResourceTypes()) {
+    typeWriter.write(source.getResourceTypes(), resourceType -> {
       // Convert the dataset of structured FHIR data to a dataset of JSON strings.
       final Dataset<String> jsonStrings = context.decode(source.read(resourceType),
           resourceType.toCode(), FhirMimeTypes.FHIR_JSON);
@@ -89,7 +105,7 @@ public class NdjsonSink implements DataSink {
 
       // Remove the partitioned directory and replace it with a single file.
       departitionResult(context.getSpark(), resultUrlPartitioned, resultUrl, "txt");
-    }
+    });
   }
 
 }
@@ -19,12 +19,13 @@ package au.csiro.pathling.library.io.sink;
 
 import static au.csiro.pathling.io.FileSystemPersistence.safelyJoinPaths;
 
+import au.csiro.pathling.io.WriteLayout;
 import au.csiro.pathling.io.source.DataSource;
 import jakarta.annotation.Nonnull;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SaveMode;
-import org.hl7.fhir.r4.model.Enumerations.ResourceType;
+import org.apache.spark.sql.SparkSession;
 
 /**
  * Represents a data sink that knows how to read data from a {@link DataSource} and write it to a
@@ -40,22 +41,54 @@ public class ParquetSink implements DataSink {
   @Nonnull
   private final SaveMode saveMode;
 
+  @Nonnull
+  private final WriteLayout layout;
+
+  @Nonnull
+  private final ConcurrentTypeWriter typeWriter;
+
   /**
+   * Creates a sink that submits its writes using the active {@link SparkSession}.
+   *
    * @param path the path to write the Parquet files to
    * @param saveMode the {@link SaveMode} to use
    */
   public ParquetSink(@Nonnull final String path, @Nonnull final SaveMode saveMode) {
+    this(SparkSession.active(), path, saveMode);
+  }
+
+  /**
+   * @param spark the {@link SparkSession} used to submit the writes
+   * @param path the path to write the Parquet files to
+   * @param saveMode the {@link SaveMode} to use
+   */
+  public ParquetSink(@Nonnull final SparkSession spark, @Nonnull final String path,
+      @Nonnull final SaveMode saveMode) {
+    this(spark, path, saveMode, WriteLayout.defaults(), ConcurrentTypeWriter.DEFAULT_PARALLELISM);
+  }
+
+  /**
+   * @param spark the {@link SparkSession} used to submit the writes
+   * @param path the path to write the Parquet files to
+   * @param saveMode the {@link SaveMode} to use
+   * @param layout the {@link WriteLayout} to use for the Parquet files
+   * @param parallelism the maximum number of resource types to write at the same time
+   */
+  public ParquetSink(@Nonnull final SparkSession spark, @Nonnull final String path,
+      @Nonnull final SaveMode saveMode, @Nonnull final WriteLayout layout, final int parallelism) {
     this.path = path;
     this.saveMode = saveMode;
+    this.layout = layout;
+    this.typeWriter = new ConcurrentTypeWriter(spark, parallelism);
   }
 
   @Override
   public void write(@Nonnull final DataSource source) {
-    for (final ResourceType resourceType : source.getResourceTypes()) {
-      final Dataset<Row> dataset = source.read(resourceType);
+    typeWriter.write(source.getResourceTypes(), resourceType -> {
+      final Dataset<Row> dataset = layout.arrange(source.read(resourceType));
       final String resultUrl = safelyJoinPaths(path, resourceType.toCode() + ".parquet");
-      dataset.write().mode(saveMode).parquet(resultUrl);
-    }
+      layout.configure(dataset, dataset.write().mode(saveMode)).parquet(resultUrl);
+    });
   }
 
 }
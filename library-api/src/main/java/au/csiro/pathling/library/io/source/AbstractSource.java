@@ -23,6 +23,8 @@ import static java.util.Objects.requireNonNull;
 import au.csiro.pathling.aggregate.AggregateQueryExecutor;
 import au.csiro.pathling.config.QueryConfiguration;
 import au.csiro.pathling.extract.ExtractQueryExecutor;
+import au.csiro.pathling.extract.IncrementalExtractExecutor;
+import au.csiro.pathling.io.source.ChangeTrackingDataSource;
 import au.csiro.pathling.io.source.DataSource;
 import au.csiro.pathling.library.PathlingContext;
 import au.csiro.pathling.library.io.sink.DataSinkBuilder;
@@ -67,8 +69,16 @@ public abstract class AbstractSource implements QueryableDataSource {
         context.getFhirContext(), context.getSpark(), dataSource,
         Optional.of(context.getTerminologyServiceFactory()));
 
+    // If the data source tracks changes, extracts can also be maintained incrementally.
+    final Optional<IncrementalExtractExecutor> incrementalExtractExecutor =
+        dataSource instanceof final ChangeTrackingDataSource changeTracking
+        ? Optional.of(new IncrementalExtractExecutor(queryConfiguration,
+            context.getFhirContext(), context.getSpark(), changeTracking,
+            Optional.of(context.getTerminologyServiceFactory())))
+        : Optional.empty();
+
     // Build the dispatcher using the executors.
-    return new QueryDispatcher(aggregateExecutor, extractExecutor);
+    return new QueryDispatcher(aggregateExecutor, extractExecutor, incrementalExtractExecutor);
   }
 
   @Nonnull
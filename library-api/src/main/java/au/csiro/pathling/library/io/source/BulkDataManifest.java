@@ -0,0 +1,143 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.library.io.source;
+
+import static au.csiro.pathling.io.FileSystemPersistence.convertS3ToS3aUrl;
+import static au.csiro.pathling.io.FileSystemPersistence.getFileSystem;
+
+import au.csiro.pathling.encoders.EncoderBuilder;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.spark.sql.SparkSession;
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.r4.model.Enumerations.ResourceType;
+import scala.collection.JavaConverters;
+
+/**
+ * Reads the output files listed within a FHIR Bulk Data export manifest, so that a data source can
+ * be created over the files without needing to list the directories that contain them.
+ *
+ * @see <a href="https://hl7.org/fhir/uv/bulkdata/export.html#response---complete-status">Bulk Data
+ * Access - Complete Status</a>
+ */
+@Slf4j
+final class BulkDataManifest {
+
+  private BulkDataManifest() {
+  }
+
+  /**
+   * Reads the manifest at the given URL, and groups the URLs of the output files by resource type.
+   * Relative URLs are resolved against the location of the manifest.
+   *
+   * @param spark the {@link SparkSession}, used to access the file system
+   * @param manifestUrl the URL of the manifest
+   * @return a map of {@link ResourceType} to the URLs of the files that contain it
+   */
+  @Nonnull
+  static Map<ResourceType, List<String>> readOutputs(@Nonnull final SparkSession spark,
+      @Nonnull final String manifestUrl) {
+    final String convertedUrl = convertS3ToS3aUrl(manifestUrl);
+    final Path manifestPath = new Path(convertedUrl);
+    final FileSystem fileSystem = getFileSystem(spark, convertedUrl);
+    final Set<String> unsupported = JavaConverters.setAsJavaSet(
+        EncoderBuilder.UNSUPPORTED_RESOURCES());
+    final Map<ResourceType, List<String>> outputs = new LinkedHashMap<>();
+
+    try (final InputStream input = fileSystem.open(manifestPath);
+        final JsonParser parser = new JsonFactory().createParser(input)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("Manifest is not a JSON object");
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String fieldName = parser.getCurrentName();
+        parser.nextToken();
+        if (!"output".equals(fieldName) || parser.currentToken() != JsonToken.START_ARRAY) {
+          parser.skipChildren();
+          continue;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+          @Nullable String type = null;
+          @Nullable String url = null;
+          while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String outputField = parser.getCurrentName();
+            parser.nextToken();
+            if ("type".equals(outputField)) {
+              type = parser.getValueAsString();
+            } else if ("url".equals(outputField)) {
+              url = parser.getValueAsString();
+            } else {
+              parser.skipChildren();
+            }
+          }
+          @Nullable final ResourceType resourceType = resolveResourceType(type, unsupported);
+          if (resourceType != null && url != null) {
+            outputs.computeIfAbsent(resourceType, key -> new ArrayList<>())
+                .add(resolveUrl(manifestPath, url));
+          }
+        }
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Problem reading manifest: " + manifestUrl, e);
+    }
+    return outputs;
+  }
+
+  @Nullable
+  private static ResourceType resolveResourceType(@Nullable final String type,
+      @Nonnull final Set<String> unsupported) {
+    if (type == null) {
+      return null;
+    }
+    if (unsupported.contains(type)) {
+      log.warn("Skipping unsupported resource type: {}", type);
+      return null;
+    }
+    try {
+      return ResourceType.fromCode(type);
+    } catch (final FHIRException e) {
+      log.warn("Skipping unknown resource type: {}", type);
+      return null;
+    }
+  }
+
+  @Nonnull
+  private static String resolveUrl(@Nonnull final Path manifestPath, @Nonnull final String url) {
+    final URI uri = URI.create(url);
+    if (uri.isAbsolute()) {
+      return convertS3ToS3aUrl(url);
+    }
+    return new Path(manifestPath.getParent(), url).toString();
+  }
+
+}
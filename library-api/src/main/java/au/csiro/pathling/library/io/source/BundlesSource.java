@@ -18,22 +18,33 @@
 package au.csiro.pathling.library.io.source;
 
 import static java.util.stream.Collectors.toSet;
+import static org.apache.spark.sql.functions.col;
 
 import au.csiro.pathling.library.FhirMimeTypes;
 import au.csiro.pathling.library.PathlingContext;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import org.apache.spark.sql.DataFrameReader;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.storage.StorageLevel;
 import org.hl7.fhir.r4.model.Enumerations.ResourceType;
 
 /**
  * A class for making data within a set of FHIR Bundles available for query.
+ * <p>
+ * The entries of the bundles are split and cached when the first resource type is read, and are
+ * shared by all the resource types of the source. The cached entries are held until the source is
+ * closed.
  *
  * @author John Grimes
  */
-public class BundlesSource extends FileSource {
+public class BundlesSource extends FileSource implements AutoCloseable {
 
   private static final Map<String, String> MIME_TYPE_TO_EXTENSION;
 
@@ -43,19 +54,57 @@ public class BundlesSource extends FileSource {
     MIME_TYPE_TO_EXTENSION.put(FhirMimeTypes.FHIR_XML, "xml");
   }
 
+  @Nonnull
+  private final SplitEntriesTransformer splitEntriesTransformer;
+
   public BundlesSource(@Nonnull final PathlingContext context, @Nonnull final String path,
       @Nonnull final String mimeType, @Nonnull final Set<ResourceType> resourceTypes) {
+    this(context, path, mimeType, resourceTypes, new SplitEntriesTransformer(context));
+  }
+
+  private BundlesSource(@Nonnull final PathlingContext context, @Nonnull final String path,
+      @Nonnull final String mimeType, @Nonnull final Set<ResourceType> resourceTypes,
+      @Nonnull final SplitEntriesTransformer splitEntriesTransformer) {
     super(context, path,
         // Map to the fixed set of resource types for all files.
         fixedResourceSetMapper(resourceTypes),
         // Use the file extension that matches the FHIR MIME type.
         MIME_TYPE_TO_EXTENSION.get(mimeType),
-        // Treat the whole file as a record, rather than individual lines.
-        context.getSpark().read().option("wholetext", true).format("text"),
-        // Extract the nominated resource types from each file and encode using the specified MIME
-        // type.
-        (sourceData, resourceType) ->
-            context.encodeBundle(sourceData, resourceType.toCode(), mimeType));
+        // Split the entries of each bundle in a single pass.
+        entriesLoader(context, mimeType),
+        // Encode each of the nominated resource types from the split entries.
+        splitEntriesTransformer);
+    this.splitEntriesTransformer = splitEntriesTransformer;
+  }
+
+  /**
+   * Releases the cached entries of the bundles. Datasets that have already been read from this
+   * source remain usable, but split the bundles again each time they are evaluated.
+   */
+  @Override
+  public void close() {
+    splitEntriesTransformer.release();
+  }
+
+  /**
+   * Creates a loader that splits the entries of the bundles within a set of files. JSON bundles
+   * are streamed, so that large bundles do not need to fit into memory. XML bundles are read with
+   * each file as a single record.
+   *
+   * @param context the Pathling context
+   * @param mimeType the MIME type of the bundles
+   * @return a loader that returns the type and JSON representation of each entry
+   */
+  @Nonnull
+  private static Function<String[], Dataset<Row>> entriesLoader(
+      @Nonnull final PathlingContext context, @Nonnull final String mimeType) {
+    if (FhirMimeTypes.FHIR_JSON.equals(mimeType)) {
+      return context::readBundleEntries;
+    } else {
+      final DataFrameReader reader = context.getSpark().read().option("wholetext", true)
+          .format("text");
+      return paths -> context.splitBundles(reader.load(paths), mimeType);
+    }
   }
 
   /**
@@ -70,4 +119,47 @@ public class BundlesSource extends FileSource {
     return path -> resourceTypes.stream().map(ResourceType::toCode).collect(toSet());
   }
 
+  /**
+   * Encodes each resource type from the entries of the bundles. Every resource type is mapped to
+   * the same set of files, so the entries loaded for the first request are persisted and shared by
+   * all the resource types until they are released. As the entries of a single bundle are all read
+   * within one task, they are redistributed across the cluster before being encoded.
+   */
+  private static class SplitEntriesTransformer implements
+      BiFunction<Dataset<Row>, ResourceType, Dataset<Row>> {
+
+    @Nonnull
+    private final PathlingContext context;
+
+    @Nullable
+    private Dataset<Row> entries;
+
+    private SplitEntriesTransformer(@Nonnull final PathlingContext context) {
+      this.context = context;
+    }
+
+    @Override
+    @Nonnull
+    public synchronized Dataset<Row> apply(@Nonnull final Dataset<Row> sourceData,
+        @Nonnull final ResourceType resourceType) {
+      if (entries == null) {
+        entries = sourceData
+            .repartition(context.getSpark().sparkContext().defaultParallelism())
+            .persist(StorageLevel.MEMORY_AND_DISK());
+      }
+      final Dataset<Row> resources = entries
+          .filter(col(PathlingContext.SPLIT_BUNDLE_TYPE_COLUMN).equalTo(resourceType.toCode()))
+          .select(PathlingContext.SPLIT_BUNDLE_RESOURCE_COLUMN);
+      return context.encode(resources, resourceType.toCode(), FhirMimeTypes.FHIR_JSON);
+    }
+
+    private synchronized void release() {
+      if (entries != null) {
+        entries.unpersist();
+        entries = null;
+      }
+    }
+
+  }
+
 }
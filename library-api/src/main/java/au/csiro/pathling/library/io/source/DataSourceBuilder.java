@@ -101,6 +101,19 @@ public class DataSourceBuilder {
         requireNonNull(fileNameMapper));
   }
 
+  /**
+   * Creates a new data source from the NDJSON files listed within a FHIR Bulk Data export manifest.
+   * The files are located using the "type" and "url" of each output within the manifest, so the
+   * directories that contain them do not need to be listed.
+   *
+   * @param manifestUrl the URI of the manifest
+   * @return the new data source
+   */
+  @Nonnull
+  public NdjsonSource bulkManifest(@Nullable final String manifestUrl) {
+    return NdjsonSource.fromManifest(context, requireNonNull(manifestUrl));
+  }
+
   /**
    * Creates a new data source from a directory containing FHIR Bundles. Takes an argument that
    * specifies the resource types that should be extracted from the bundles and added to the data
@@ -110,6 +123,9 @@ public class DataSourceBuilder {
    * and the file extensions are expected to be ".xml". If the MIME type is "application/fhir+json",
    * then the bundles are expected to be in JSON format, and the file extensions are expected to be
    * ".json".
+   * <p>
+   * The entries of the bundles are cached once they have been read, and the source should be
+   * closed to release them when it is no longer needed.
    *
    * @param path the URI of the directory containing the bundles
    * @param resourceTypes the resource types to extract from the bundles
@@ -137,6 +153,36 @@ public class DataSourceBuilder {
     return new DatasetSource(context);
   }
 
+  /**
+   * Creates a new streaming source that reads NDJSON files as they are added to a directory. The
+   * files can contain resources of any type, and must not be modified once they have been added.
+   *
+   * @param path the URI of the directory to watch for new NDJSON files
+   * @return the new streaming source
+   */
+  @Nonnull
+  public StreamingSource ndjsonStream(@Nullable final String path) {
+    return new StreamingSource(context,
+        context.getSpark().readStream().text(requireNonNull(path)));
+  }
+
+  /**
+   * Creates a new streaming source that reads NDJSON lines from a socket. This source does not
+   * support recovery from a checkpoint, and is intended for testing.
+   *
+   * @param host the host to connect to
+   * @param port the port to connect to
+   * @return the new streaming source
+   */
+  @Nonnull
+  public StreamingSource socketStream(@Nullable final String host, final int port) {
+    return new StreamingSource(context, context.getSpark().readStream()
+        .format("socket")
+        .option("host", requireNonNull(host))
+        .option("port", port)
+        .load());
+  }
+
   /**
    * Creates a new data source form a directory containing Parquet-encoded FHIR resource data, with
    * filenames representing the resource type the file/directory contains, e.g. 'Patient.parquet'
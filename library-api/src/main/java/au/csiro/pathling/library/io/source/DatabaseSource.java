@@ -18,6 +18,7 @@
 package au.csiro.pathling.library.io.source;
 
 import au.csiro.pathling.io.Database;
+import au.csiro.pathling.io.source.ChangeTrackingDataSource;
 import au.csiro.pathling.library.PathlingContext;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
@@ -26,7 +27,7 @@ import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.hl7.fhir.r4.model.Enumerations.ResourceType;
 
-public class DatabaseSource extends AbstractSource {
+public class DatabaseSource extends AbstractSource implements ChangeTrackingDataSource {
 
   @Nonnull
   protected final Database database;
@@ -54,4 +55,16 @@ public class DatabaseSource extends AbstractSource {
     return database.getResourceTypes();
   }
 
+  @Override
+  public long getVersion(@Nonnull final ResourceType resourceType) {
+    return database.getVersion(resourceType);
+  }
+
+  @Nonnull
+  @Override
+  public Dataset<Row> readChanges(@Nonnull final ResourceType resourceType,
+      final long fromVersion, final long toVersion) {
+    return database.readChanges(resourceType, fromVersion, toVersion);
+  }
+
 }
@@ -22,14 +22,25 @@ import static java.util.Objects.requireNonNull;
 import au.csiro.pathling.encoders.EncoderBuilder;
 import au.csiro.pathling.io.FileSystemPersistence;
 import au.csiro.pathling.library.PathlingContext;
+import com.google.common.base.Suppliers;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
@@ -47,12 +58,23 @@ import scala.collection.JavaConverters;
 
 /**
  * Common functionality for file-based sources.
+ * <p>
+ * The files are not listed until the resource types of the source are first needed, and the
+ * dataset for each resource type is not built until it is first read. This means that creating a
+ * source over a large number of files is cheap, and only the files for the resource types that are
+ * actually queried are resolved and loaded.
  *
  * @author John Grimes
  */
 @Slf4j
 public abstract class FileSource extends DatasetSource {
 
+  /**
+   * The maximum number of directories that are listed at the same time, where the path of the
+   * source matches more than one directory.
+   */
+  private static final int LISTING_PARALLELISM = 16;
+
   @Nonnull
   protected final Function<String, Set<String>> fileNameMapper;
 
@@ -60,47 +82,136 @@ public abstract class FileSource extends DatasetSource {
   protected final String extension;
 
   @Nonnull
-  protected final DataFrameReader reader;
+  protected final Function<String[], Dataset<Row>> loader;
 
   @Nonnull
   protected final BiFunction<Dataset<Row>, ResourceType, Dataset<Row>> transformer;
 
+  /**
+   * The paths of the files for each resource type, which are listed upon first use.
+   */
+  @Nonnull
+  private final Supplier<Map<ResourceType, List<String>>> files;
+
+  /**
+   * The datasets for each resource type, which are built upon first read.
+   */
+  @Nonnull
+  private final Map<ResourceType, Supplier<Dataset<Row>>> datasets = new ConcurrentHashMap<>();
+
   protected FileSource(@Nonnull final PathlingContext context,
       @Nonnull final String path,
       @Nonnull final Function<String, Set<String>> fileNameMapper, @Nonnull final String extension,
       @Nonnull final DataFrameReader reader,
       @Nonnull final BiFunction<Dataset<Row>, ResourceType, Dataset<Row>> transformer) {
+    this(context, path, fileNameMapper, extension, reader::load, transformer);
+  }
+
+  /**
+   * Creates a file source that uses a custom function to load the files, for formats that are not
+   * supported by a {@link DataFrameReader}.
+   *
+   * @param context the Pathling context
+   * @param path the path to the source files
+   * @param fileNameMapper a function that maps a file name to the resource types it contains
+   * @param extension the extension of the source files
+   * @param loader a function that loads the files with the given paths into a dataset
+   * @param transformer a function that converts the loaded dataset into encoded resources
+   */
+  protected FileSource(@Nonnull final PathlingContext context,
+      @Nonnull final String path,
+      @Nonnull final Function<String, Set<String>> fileNameMapper, @Nonnull final String extension,
+      @Nonnull final Function<String[], Dataset<Row>> loader,
+      @Nonnull final BiFunction<Dataset<Row>, ResourceType, Dataset<Row>> transformer) {
     super(context);
     this.fileNameMapper = fileNameMapper;
     this.extension = extension;
-    this.reader = reader;
+    this.loader = loader;
     this.transformer = transformer;
 
-    final org.apache.hadoop.conf.Configuration hadoopConfiguration = requireNonNull(
-        context.getSpark().sparkContext().hadoopConfiguration());
-    try {
-      // If the URL is an S3 URL, convert it to S3A.
-      final Path convertedPath = new Path(FileSystemPersistence.convertS3ToS3aUrl(path));
-      final FileSystem fileSystem = convertedPath.getFileSystem(hadoopConfiguration);
-      resourceMap = buildResourceMap(convertedPath, fileSystem);
-    } catch (final IOException e) {
-      throw new RuntimeException(e);
+    // If the URL is an S3 URL, convert it to S3A. The path is parsed straight away, so that an
+    // invalid URL is reported when the source is created rather than when it is first read.
+    final Path convertedPath = new Path(FileSystemPersistence.convertS3ToS3aUrl(path));
+    this.files = Suppliers.memoize(() -> listFiles(convertedPath));
+  }
+
+  /**
+   * Creates a file source where the files for each resource type are already known, e.g. from a
+   * manifest, so that no listing is required.
+   *
+   * @param context the Pathling context
+   * @param files a supplier of the paths of the files for each resource type, which is called upon
+   * first use
+   * @param loader a function that loads the files with the given paths into a dataset
+   * @param transformer a function that converts the loaded dataset into encoded resources
+   */
+  protected FileSource(@Nonnull final PathlingContext context,
+      @Nonnull final Supplier<Map<ResourceType, List<String>>> files,
+      @Nonnull final Function<String[], Dataset<Row>> loader,
+      @Nonnull final BiFunction<Dataset<Row>, ResourceType, Dataset<Row>> transformer) {
+    super(context);
+    this.fileNameMapper = baseName -> Set.of();
+    this.extension = "";
+    this.loader = loader;
+    this.transformer = transformer;
+    this.files = Suppliers.memoize(files::get);
+  }
+
+  @Nonnull
+  @Override
+  public Dataset<Row> read(@Nullable final ResourceType resourceType) {
+    requireNonNull(resourceType);
+    // Datasets that have been explicitly added to the source take precedence over the files.
+    if (resourceMap.containsKey(resourceType)) {
+      return resourceMap.get(resourceType);
     }
+    @Nullable final List<String> paths = files.get().get(resourceType);
+    if (paths == null) {
+      return super.read(resourceType);
+    }
+    return datasets.computeIfAbsent(resourceType, type -> Suppliers.memoize(() -> {
+      log.debug("Loading {} files for resource type: {}", paths.size(), type.toCode());
+      final Dataset<Row> sourceStrings = loader.apply(paths.toArray(new String[0]));
+      return transformer.apply(sourceStrings, type);
+    })).get();
+  }
+
+  @Nonnull
+  @Override
+  public Set<ResourceType> getResourceTypes() {
+    final Set<ResourceType> resourceTypes = new HashSet<>(files.get().keySet());
+    resourceTypes.addAll(resourceMap.keySet());
+    return resourceTypes;
   }
 
   /**
-   * Creates a map of {@link ResourceType} to {@link Dataset} from the given path and file system.
+   * Lists the files within the directories matched by the given path, and groups their paths by
+   * the resource types that they contain.
    *
-   * @param path the path to the source files
-   * @param fileSystem the {@link FileSystem} to use
-   * @return a map of {@link ResourceType} to {@link Dataset}
-   * @throws IOException if an error occurs while listing the files
+   * @param path the path to the source files, which may contain a glob pattern
+   * @return a map of {@link ResourceType} to the paths of the files that contain it
    */
   @Nonnull
-  private Map<ResourceType, Dataset<Row>> buildResourceMap(final @Nonnull Path path,
-      final FileSystem fileSystem) throws IOException {
-    final FileStatus[] fileStatuses = fileSystem.globStatus(new Path(path, "*"));
-    final Map<ResourceType, List<String>> fileNamesByResourceType = Stream.of(fileStatuses)
+  private Map<ResourceType, List<String>> listFiles(@Nonnull final Path path) {
+    final org.apache.hadoop.conf.Configuration hadoopConfiguration = requireNonNull(
+        context.getSpark().sparkContext().hadoopConfiguration());
+    final FileSystem fileSystem;
+    final List<Path> directories;
+    try {
+      fileSystem = path.getFileSystem(hadoopConfiguration);
+      // Expand any glob pattern within the path into the directories that it matches.
+      @Nullable final FileStatus[] matches = fileSystem.globStatus(path);
+      directories = matches == null
+                    ? List.of()
+                    : Stream.of(matches)
+                        .filter(FileStatus::isDirectory)
+                        .map(FileStatus::getPath)
+                        .toList();
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
+    }
+
+    return listDirectories(fileSystem, directories).stream()
         .map(FileStatus::getPath)
         .map(Object::toString)
         // Filter out any paths that do not have the expected extension.
@@ -116,14 +227,59 @@ public abstract class FileSource extends DatasetSource {
         // Group the pairs by resource type, and collect the associated paths into a list.
         .collect(Collectors.groupingBy(Pair::getKey,
             Collectors.mapping(Pair::getValue, Collectors.toList())));
+  }
+
+  /**
+   * Lists the contents of a set of directories. Where there is more than one directory, they are
+   * listed concurrently, as each listing of an object store involves one or more round trips.
+   *
+   * @param fileSystem the {@link FileSystem} containing the directories
+   * @param directories the directories to list
+   * @return the statuses of the contents of all the directories
+   */
+  @Nonnull
+  private static List<FileStatus> listDirectories(@Nonnull final FileSystem fileSystem,
+      @Nonnull final List<Path> directories) {
+    if (directories.size() <= 1) {
+      return directories.stream()
+          .flatMap(directory -> listDirectory(fileSystem, directory).stream())
+          .toList();
+    }
+    final AtomicInteger threadNumber = new AtomicInteger();
+    final ExecutorService executor = Executors.newFixedThreadPool(
+        Math.min(LISTING_PARALLELISM, directories.size()), runnable -> {
+          final Thread thread = new Thread(runnable,
+              "pathling-listing-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    try {
+      final List<Future<List<FileStatus>>> listings = directories.stream()
+          .map(directory -> executor.submit(() -> listDirectory(fileSystem, directory)))
+          .toList();
+      final List<FileStatus> result = new ArrayList<>();
+      for (final Future<List<FileStatus>> listing : listings) {
+        result.addAll(listing.get());
+      }
+      return result;
+    } catch (final ExecutionException e) {
+      throw new RuntimeException("Problem listing source files", e.getCause());
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while listing source files", e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 
-    return fileNamesByResourceType.entrySet().stream()
-        .collect(Collectors.toMap(Map.Entry::getKey,
-            entry -> {
-              final String[] paths = entry.getValue().toArray(new String[0]);
-              final Dataset<Row> sourceStrings = reader.load(paths);
-              return transformer.apply(sourceStrings, entry.getKey());
-            }));
+  @Nonnull
+  private static List<FileStatus> listDirectory(@Nonnull final FileSystem fileSystem,
+      @Nonnull final Path directory) {
+    try {
+      return List.of(fileSystem.listStatus(directory));
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Problem listing directory: " + directory, e);
+    }
   }
 
   /**
@@ -21,11 +21,15 @@ import au.csiro.pathling.library.FhirMimeTypes;
 import au.csiro.pathling.library.PathlingContext;
 import jakarta.annotation.Nonnull;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import lombok.extern.slf4j.Slf4j;
+import org.hl7.fhir.r4.model.Enumerations.ResourceType;
 
 /**
  * A class for making FHIR data within a set of NDJSON files available for query.
@@ -66,6 +70,29 @@ public class NdjsonSource extends FileSource {
             FhirMimeTypes.FHIR_JSON));
   }
 
+  private NdjsonSource(@Nonnull final PathlingContext context,
+      @Nonnull final Supplier<Map<ResourceType, List<String>>> files) {
+    super(context, files, context.getSpark().read().format("text")::load,
+        (sourceData, resourceType) -> context.encode(sourceData, resourceType.toCode(),
+            FhirMimeTypes.FHIR_JSON));
+  }
+
+  /**
+   * Creates a source from the NDJSON files listed within a FHIR Bulk Data export manifest. The
+   * files are located using the manifest, so the directories that contain them do not need to be
+   * listed. Relative URLs within the manifest are resolved against the location of the manifest.
+   *
+   * @param context the Pathling context
+   * @param manifestUrl the URL of the manifest
+   * @return the new data source
+   */
+  @Nonnull
+  public static NdjsonSource fromManifest(@Nonnull final PathlingContext context,
+      @Nonnull final String manifestUrl) {
+    return new NdjsonSource(context,
+        () -> BulkDataManifest.readOutputs(context.getSpark(), manifestUrl));
+  }
+
   /**
    * Extracts the resource type from the provided base name. Allows for an optional qualifier
    * string, which is separated from the resource name by a period. For example, "Procedure.ICU"
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.library.io.source;
+
+import static au.csiro.pathling.fhir.FhirUtils.getResourceType;
+import static au.csiro.pathling.utilities.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.get_json_object;
+import static org.apache.spark.sql.functions.row_number;
+import static org.apache.spark.sql.functions.trim;
+
+import au.csiro.pathling.encoders.EncoderBuilder;
+import au.csiro.pathling.io.ImportMode;
+import au.csiro.pathling.library.FhirMimeTypes;
+import au.csiro.pathling.library.PathlingContext;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.spark.api.java.function.VoidFunction2;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Encoders;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.expressions.Window;
+import org.apache.spark.sql.streaming.StreamingQuery;
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.r4.model.Enumerations.ResourceType;
+import scala.collection.JavaConverters;
+
+/**
+ * A source of FHIR resources that arrive continuously as NDJSON, e.g. files that are dropped into a
+ * directory or lines that are sent to a socket. The lines can contain resources of any type.
+ * <p>
+ * Resources can be read from this source as streaming datasets, or processed in micro-batches. Each
+ * micro-batch is presented as a {@link QueryableDataSource}, so that extract and aggregate queries
+ * can be run over it and the results written using any of the data sinks. Progress is recorded
+ * within a checkpoint location, so that a pipeline can be restarted without losing or repeating
+ * data.
+ *
+ * @author John Grimes
+ */
+@Slf4j
+public class StreamingSource {
+
+  private static final String VALUE_COLUMN = "value";
+
+  private static final Set<String> UNSUPPORTED_RESOURCES = JavaConverters.setAsJavaSet(
+      EncoderBuilder.UNSUPPORTED_RESOURCES());
+
+  @Nonnull
+  private final PathlingContext context;
+
+  /**
+   * The streaming dataset of NDJSON lines, with a single string column named {@code value}.
+   */
+  @Nonnull
+  @Getter
+  private final Dataset<Row> lines;
+
+  /**
+   * @param context the {@link PathlingContext} to use
+   * @param lines a streaming dataset with a single string column named {@code value}, containing a
+   * FHIR resource encoded as JSON within each row
+   */
+  public StreamingSource(@Nonnull final PathlingContext context,
+      @Nonnull final Dataset<Row> lines) {
+    checkArgument(lines.isStreaming(), "Dataset must be streaming");
+    this.context = context;
+    // Blank lines are common at the end of NDJSON files, and would otherwise fail to parse.
+    this.lines = lines.filter(trim(col(VALUE_COLUMN)).notEqual(""));
+  }
+
+  /**
+   * Gets a streaming dataset of the resources of the specified type.
+   *
+   * @param resourceType the type of the FHIR resource
+   * @return a streaming dataset of encoded resources
+   */
+  @Nonnull
+  public Dataset<Row> read(@Nullable final ResourceType resourceType) {
+    return context.encode(lines, requireNonNull(resourceType).toCode(), FhirMimeTypes.FHIR_JSON,
+        VALUE_COLUMN);
+  }
+
+  /**
+   * Gets a streaming dataset of the resources of the specified type.
+   *
+   * @param resourceCode the code for the FHIR resource type
+   * @return a streaming dataset of encoded resources
+   */
+  @Nonnull
+  public Dataset<Row> read(@Nullable final String resourceCode) {
+    return read(getResourceType(resourceCode));
+  }
+
+  /**
+   * Starts a streaming query that passes each micro-batch to the supplied handler, as a data source
+   * that can be queried.
+   *
+   * @param checkpointLocation the location in which to record the progress of the query
+   * @param handler the handler for each micro-batch
+   * @return the running {@link StreamingQuery}
+   * @throws TimeoutException if the query could not be started
+   */
+  @Nonnull
+  public StreamingQuery foreachBatch(@Nullable final String checkpointLocation,
+      @Nullable final BatchHandler handler) throws TimeoutException {
+    requireNonNull(handler);
+    return lines.writeStream()
+        .option("checkpointLocation", requireNonNull(checkpointLocation))
+        .foreachBatch((VoidFunction2<Dataset<Row>, Long>) (batch, batchId) -> {
+          // The batch is read once to find the resource types, and once for each resource type.
+          final Dataset<Row> persisted = batch.persist();
+          try {
+            handler.handle(batch(persisted), batchId);
+          } finally {
+            persisted.unpersist();
+          }
+        })
+        .start();
+  }
+
+  /**
+   * Starts a streaming query that merges each micro-batch into a Delta database, so that new and
+   * updated resources can be queried from the database as soon as each micro-batch is complete.
+   *
+   * @param path the location of the Delta database
+   * @param checkpointLocation the location in which to record the progress of the query
+   * @return the running {@link StreamingQuery}
+   * @throws TimeoutException if the query could not be started
+   */
+  @Nonnull
+  public StreamingQuery writeToDelta(@Nullable final String path,
+      @Nullable final String checkpointLocation) throws TimeoutException {
+    requireNonNull(path);
+    return foreachBatch(checkpointLocation,
+        (data, batchId) -> data.write().delta(path, ImportMode.MERGE.getCode()));
+  }
+
+  /**
+   * Creates a data source from a single micro-batch of NDJSON lines. If a resource appears more
+   * than once within the batch, only the most recently updated version is kept, so that the batch
+   * can be merged into existing data.
+   *
+   * @param batch a non-streaming dataset with a single string column named {@code value}
+   * @return a data source containing the encoded resources
+   */
+  @Nonnull
+  public DatasetSource batch(@Nonnull final Dataset<Row> batch) {
+    final List<String> resourceCodes = batch
+        .select(get_json_object(col(VALUE_COLUMN), "$.resourceType"))
+        .distinct()
+        .as(Encoders.STRING())
+        .collectAsList();
+
+    final DatasetSource source = new DatasetSource(context);
+    for (final String resourceCode : resourceCodes) {
+      resourceTypeFromCode(resourceCode).ifPresentOrElse(
+          resourceType -> source.dataset(resourceType, latestVersions(
+              context.encode(batch, resourceCode, FhirMimeTypes.FHIR_JSON, VALUE_COLUMN))),
+          () -> log.warn("Skipping lines with unknown or unsupported resource type: {}",
+              resourceCode));
+    }
+    return source;
+  }
+
+  @Nonnull
+  private static Dataset<Row> latestVersions(@Nonnull final Dataset<Row> resources) {
+    final String rowNumber = "_row_number";
+    return resources
+        .withColumn(rowNumber, row_number().over(Window.partitionBy(col("id"))
+            .orderBy(col("meta.lastUpdated").desc_nulls_last())))
+        .filter(col(rowNumber).equalTo(1))
+        .drop(rowNumber);
+  }
+
+  @Nonnull
+  private static Optional<ResourceType> resourceTypeFromCode(@Nullable final String code) {
+    if (code == null || UNSUPPORTED_RESOURCES.contains(code)) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(getResourceType(code));
+    } catch (final FHIRException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Processes a single micro-batch of resources.
+   */
+  @FunctionalInterface
+  public interface BatchHandler {
+
+    /**
+     * @param data a data source containing the resources within the micro-batch
+     * @param batchId the ID of the micro-batch, which is the same if the batch is retried
+     * @throws Exception if the batch could not be processed
+     */
+    void handle(@Nonnull QueryableDataSource data, long batchId) throws Exception;
+
+  }
+
+}
@@ -94,11 +94,30 @@ public class ExtractQuery extends QueryBuilder<ExtractQuery> {
   @Nonnull
   @Override
   public Dataset<Row> execute() {
-    final ExtractRequest request = new ExtractRequest(subjectResource,
+    return dispatcher.dispatch(buildRequest());
+  }
+
+  /**
+   * Brings a Delta table up to date with the result of this query, creating it if it does not
+   * exist. When the table has been written by a previous refresh of the same query, only the rows
+   * for subject resources that may have been affected by changes to the source data are recomputed.
+   * <p>
+   * This requires a Delta data source with the change data feed enabled on its tables. The table
+   * has an additional column named {@code _subject_id}, which contains the ID of the subject
+   * resource for each row.
+   *
+   * @param outputUrl the location of the Delta table
+   */
+  public void refresh(@Nullable final String outputUrl) {
+    dispatcher.refresh(buildRequest(), requireNonBlank(outputUrl, "Output URL cannot be blank"));
+  }
+
+  @Nonnull
+  private ExtractRequest buildRequest() {
+    return new ExtractRequest(subjectResource,
         Lists.normalizeEmpty(columns),
         Lists.normalizeEmpty(filters),
         limit);
-    return dispatcher.dispatch(request);
   }
 
 }
@@ -17,11 +17,15 @@
 
 package au.csiro.pathling.library.query;
 
+import static au.csiro.pathling.utilities.Preconditions.checkUserInput;
+
 import au.csiro.pathling.aggregate.AggregateQueryExecutor;
 import au.csiro.pathling.aggregate.AggregateRequest;
 import au.csiro.pathling.extract.ExtractQueryExecutor;
 import au.csiro.pathling.extract.ExtractRequest;
+import au.csiro.pathling.extract.IncrementalExtractExecutor;
 import jakarta.annotation.Nonnull;
+import java.util.Optional;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 
@@ -39,10 +43,20 @@ public class QueryDispatcher {
   @Nonnull
   private final ExtractQueryExecutor extractExecutor;
 
+  @Nonnull
+  private final Optional<IncrementalExtractExecutor> incrementalExtractExecutor;
+
   public QueryDispatcher(@Nonnull final AggregateQueryExecutor aggregateExecutor,
       @Nonnull final ExtractQueryExecutor extractExecutor) {
+    this(aggregateExecutor, extractExecutor, Optional.empty());
+  }
+
+  public QueryDispatcher(@Nonnull final AggregateQueryExecutor aggregateExecutor,
+      @Nonnull final ExtractQueryExecutor extractExecutor,
+      @Nonnull final Optional<IncrementalExtractExecutor> incrementalExtractExecutor) {
     this.aggregateExecutor = aggregateExecutor;
     this.extractExecutor = extractExecutor;
+    this.incrementalExtractExecutor = incrementalExtractExecutor;
   }
 
   /**
@@ -56,6 +70,20 @@ public class QueryDispatcher {
     return extractExecutor.buildQuery(extractRequest);
   }
 
+  /**
+   * Dispatches the given extract request to the incremental executor, which brings the Delta table
+   * at the given location up to date with its result.
+   *
+   * @param extractRequest the request to execute
+   * @param outputUrl the location of the Delta table that holds the result
+   */
+  public void refresh(@Nonnull final ExtractRequest extractRequest,
+      @Nonnull final String outputUrl) {
+    checkUserInput(incrementalExtractExecutor.isPresent(),
+        "Incremental extract requires a data source that tracks changes, such as a Delta database");
+    incrementalExtractExecutor.get().refresh(extractRequest, outputUrl);
+  }
+
   /**
    * Dispatches the given aggregate request to the relevant executor and returns the result.
    *
@@ -216,6 +216,47 @@ public class PathlingContextTest {
   }
 
 
+  @Test
+  public void testSplitBundles() {
+    final Dataset<String> bundlesDF = spark.read().option("wholetext", true)
+        .textFile(testDataUrl + "/bundles/R4/xml");
+
+    final PathlingContext pathling = PathlingContext.create(spark);
+    final Dataset<Row> entries = pathling.splitBundles(bundlesDF.toDF(), FhirMimeTypes.FHIR_XML);
+
+    // The split entries are in JSON, and can be encoded by type.
+    final Dataset<Row> conditionsDataframe = pathling.encode(
+        entries.filter(col(PathlingContext.SPLIT_BUNDLE_TYPE_COLUMN).equalTo("Condition"))
+            .select(PathlingContext.SPLIT_BUNDLE_RESOURCE_COLUMN), "Condition");
+    assertEquals(107, conditionsDataframe.count());
+
+    assertValidIdColumns(conditionsDataframe);
+    assertValidRelativeRefColumns(conditionsDataframe, col("subject"));
+    assertValidRelativeRefColumns(conditionsDataframe, col("encounter"));
+  }
+
+  @Test
+  public void testReadBundleEntries() {
+    final PathlingContext pathling = PathlingContext.create(spark);
+    final Dataset<Row> entries = pathling.readBundleEntries(testDataUrl + "/bundles/R4/json");
+
+    final Dataset<Row> patientsDataframe = pathling.encode(
+        entries.filter(col(PathlingContext.SPLIT_BUNDLE_TYPE_COLUMN).equalTo("Patient"))
+            .select(PathlingContext.SPLIT_BUNDLE_RESOURCE_COLUMN), "Patient");
+    assertEquals(5, patientsDataframe.count());
+    assertValidIdColumns(patientsDataframe);
+
+    // URN references are resolved to relative references, as they are when the whole bundle is
+    // parsed.
+    final Dataset<Row> conditionsDataframe = pathling.encode(
+        entries.filter(col(PathlingContext.SPLIT_BUNDLE_TYPE_COLUMN).equalTo("Condition"))
+            .select(PathlingContext.SPLIT_BUNDLE_RESOURCE_COLUMN), "Condition");
+    assertEquals(107, conditionsDataframe.count());
+    assertValidIdColumns(conditionsDataframe);
+    assertValidRelativeRefColumns(conditionsDataframe, col("subject"));
+    assertValidRelativeRefColumns(conditionsDataframe, col("encounter"));
+  }
+
   @Test
   public void testEncodeResourcesFromJson() {
     final Dataset<String> jsonResources = spark.read()
@@ -456,6 +497,47 @@ public class PathlingContextTest {
     assertNotNull(terminologyService);
   }
 
+  @Test
+  void testExportAndPrewarmTerminologyCache() throws IOException {
+    final TerminologyConfiguration terminologyConfig = TerminologyConfiguration.builder()
+        .build();
+    final PathlingContext pathlingContext = PathlingContext.create(spark, terminologyConfig);
+    final File snapshot = new File(Files.createTempDirectory("pathling-snapshot").toFile(),
+        "snapshot");
+
+    assertEquals(0, pathlingContext.exportTerminologyCache(snapshot.toURI().toString()));
+    assertTrue(snapshot.exists());
+    assertEquals(0, pathlingContext.prewarmTerminologyCache(snapshot.toURI().toString()));
+  }
+
+  @Test
+  void testExportAndPrewarmTerminologyCacheWithBulkLookup() throws IOException {
+    final TerminologyConfiguration terminologyConfig = TerminologyConfiguration.builder()
+        .bulkLookup(true)
+        .build();
+    final PathlingContext pathlingContext = PathlingContext.create(spark, terminologyConfig);
+    final File snapshot = new File(Files.createTempDirectory("pathling-snapshot").toFile(),
+        "snapshot");
+
+    assertEquals(0, pathlingContext.exportTerminologyCache(snapshot.toURI().toString()));
+    assertTrue(snapshot.exists());
+    assertEquals(0, pathlingContext.prewarmTerminologyCache(snapshot.toURI().toString()));
+  }
+
+  @Test
+  void testExportTerminologyCacheWithoutCaching() {
+    final TerminologyConfiguration terminologyConfig = TerminologyConfiguration.builder()
+        .cache(HttpClientCachingConfiguration.builder()
+            .enabled(false)
+            .build())
+        .build();
+    final PathlingContext pathlingContext = PathlingContext.create(spark, terminologyConfig);
+
+    final IllegalStateException ex = assertThrows(IllegalStateException.class,
+        () -> pathlingContext.exportTerminologyCache("target/snapshot"));
+    assertEquals("Terminology caching is not enabled", ex.getMessage());
+  }
+
   @Test
   void testBuildContextWithCustomizedTerminology() throws IOException {
     final String terminologyServerUrl = "https://r4.ontoserver.csiro.au/fhir";
@@ -17,6 +17,8 @@
 
 package au.csiro.pathling.library.io;
 
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.lit;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -24,19 +26,28 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.withSettings;
 
 import au.csiro.pathling.encoders.FhirEncoders;
+import au.csiro.pathling.io.Database;
 import au.csiro.pathling.io.ImportMode;
+import au.csiro.pathling.io.WriteLayout;
 import au.csiro.pathling.library.FhirMimeTypes;
 import au.csiro.pathling.library.PathlingContext;
 import au.csiro.pathling.library.TestHelpers;
+import au.csiro.pathling.library.io.sink.BulkNdjsonSink;
+import au.csiro.pathling.library.io.sink.DataSinkException;
+import au.csiro.pathling.library.io.source.BundlesSource;
+import au.csiro.pathling.library.io.source.DatabaseSource;
 import au.csiro.pathling.library.io.source.QueryableDataSource;
+import au.csiro.pathling.library.query.ExtractQuery;
 import au.csiro.pathling.terminology.TerminologyServiceFactory;
 import au.csiro.pathling.test.assertions.DatasetAssert;
+import io.delta.tables.DeltaTable;
 import jakarta.annotation.Nonnull;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.function.Function;
 import lombok.extern.slf4j.Slf4j;
@@ -45,6 +56,7 @@ import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.RowFactory;
 import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.streaming.StreamingQuery;
 import org.hl7.fhir.r4.model.Enumerations.ResourceType;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -56,6 +68,9 @@ class DataSourcesTest {
   static final Path TEST_DATA_PATH = Path.of(
       "src/test/resources/test-data").toAbsolutePath().normalize();
 
+  static final String CHANGE_DATA_FEED_PROPERTY =
+      "spark.databricks.delta.properties.defaults.enableChangeDataFeed";
+
   static PathlingContext pathlingContext;
   static SparkSession spark;
   static Path temporaryDirectory;
@@ -117,6 +132,61 @@ class DataSourcesTest {
     queryNdjsonData(newData);
   }
 
+  @Test
+  void bulkNdjsonReadWrite() throws IOException {
+    // Read the test NDJSON data.
+    final QueryableDataSource data = pathlingContext.read()
+        .ndjson(TEST_DATA_PATH.resolve("ndjson").toString());
+
+    // Write the data back out to a temporary location, using a small target file size so that each
+    // resource type is split across several files.
+    final Path path = temporaryDirectory.resolve("bulk-ndjson");
+    data.write().bulkNdjson(path.toString(), "error", 2000, null);
+
+    // Check that the files have been numbered and listed in the manifest.
+    assertTrue(Files.exists(path.resolve("Patient.001.ndjson")));
+    assertTrue(Files.exists(path.resolve("Patient.002.ndjson")));
+    final String manifest = Files.readString(path.resolve(BulkNdjsonSink.MANIFEST_FILE_NAME));
+    assertTrue(manifest.contains("Patient.002.ndjson"));
+    assertTrue(manifest.contains("Condition.001.ndjson"));
+
+    // Read the data back in.
+    final QueryableDataSource newData = pathlingContext.read().ndjson(path.toString());
+
+    // Query the data.
+    queryNdjsonData(newData);
+  }
+
+  @Test
+  void bulkManifestRead() {
+    // Write the test NDJSON data out with a manifest, compressing the files.
+    final Path path = temporaryDirectory.resolve("bulk-manifest");
+    pathlingContext.read()
+        .ndjson(TEST_DATA_PATH.resolve("ndjson").toString())
+        .write().bulkNdjson(path.toString(), "error", 10000, "gzip");
+
+    // Read the data back in using the manifest, rather than by listing the directory.
+    final QueryableDataSource data = pathlingContext.read()
+        .bulkManifest(path.resolve(BulkNdjsonSink.MANIFEST_FILE_NAME).toString());
+
+    // Query the data.
+    queryNdjsonData(data);
+  }
+
+  @Test
+  void ndjsonReadFromGlob() {
+    // Read the NDJSON data from the directories that match a glob pattern, which are listed
+    // concurrently. Only the "ndjson" and "ndjson-qualified" directories contain files with valid
+    // resource type names.
+    final QueryableDataSource data = pathlingContext.read()
+        .ndjson(TEST_DATA_PATH.resolve("ndjson*").toString());
+
+    // The files from both of those directories should have been combined.
+    assertEquals(Set.of(ResourceType.PATIENT, ResourceType.CONDITION), data.getResourceTypes());
+    assertEquals(2 * pathlingContext.read().ndjson(TEST_DATA_PATH.resolve("ndjson").toString())
+        .read(ResourceType.PATIENT).count(), data.read(ResourceType.PATIENT).count());
+  }
+
   @Test
   void ndjsonWithExtension() {
     // Read the test NDJSON data.
@@ -184,6 +254,22 @@ class DataSourcesTest {
     queryBundlesData(data);
   }
 
+  @Test
+  void bundlesReleasedOnClose() {
+    final BundlesSource data = pathlingContext.read()
+        .bundles(TEST_DATA_PATH.resolve("bundles").toString(),
+            Set.of("Patient", "Condition"), FhirMimeTypes.FHIR_JSON);
+    final int persisted = spark.sparkContext().getPersistentRDDs().size();
+
+    // The entries of the bundles are cached once, and shared by both resource types.
+    data.read(ResourceType.PATIENT).count();
+    data.read(ResourceType.CONDITION).count();
+    assertEquals(persisted + 1, spark.sparkContext().getPersistentRDDs().size());
+
+    data.close();
+    assertEquals(persisted, spark.sparkContext().getPersistentRDDs().size());
+  }
+
   @Test
   void datasetsRead() {
     // Create the test datasets from Delta source data, using the Spark API.
@@ -221,6 +307,46 @@ class DataSourcesTest {
     queryParquetData(newData);
   }
 
+  @Test
+  void parquetWriteWithLayout() {
+    final QueryableDataSource data = pathlingContext.read()
+        .parquet(TEST_DATA_PATH.resolve("parquet").toString());
+    final Path path = temporaryDirectory.resolve("parquet-layout");
+
+    // Write the Patient data partitioned by gender, with a single record per file.
+    data.write()
+        .withLayout(WriteLayout.builder()
+            .partitionColumns(List.of("gender"))
+            .maxRecordsPerFile(1L)
+            .compression("zstd")
+            .build())
+        .parquet(path.toString(), "error");
+
+    // Check that the partition directories have been created.
+    assertTrue(Files.isDirectory(path.resolve("Patient.parquet").resolve("gender=female")));
+    assertTrue(Files.isDirectory(path.resolve("Patient.parquet").resolve("gender=male")));
+
+    // Read the data back in and check that nothing has been lost.
+    queryParquetData(pathlingContext.read().parquet(path.toString()));
+  }
+
+  @Test
+  void parquetWriteReportsFailuresForAllResourceTypes() {
+    final QueryableDataSource data = pathlingContext.read()
+        .parquet(TEST_DATA_PATH.resolve("parquet").toString());
+    final String path = temporaryDirectory.resolve("parquet-concurrent").toString();
+
+    // Write the data concurrently, then attempt to write it again to the same location.
+    data.write().withParallelism(2).parquet(path, "error");
+    queryParquetData(pathlingContext.read().parquet(path));
+    final DataSinkException exception = assertThrows(DataSinkException.class,
+        () -> data.write().withParallelism(2).parquet(path, "error"));
+
+    // Both resource types should have been reported as failed, rather than just the first.
+    assertEquals(data.getResourceTypes(), Set.copyOf(exception.getFailedResourceTypes()));
+    assertEquals(1, exception.getSuppressed().length);
+  }
+
   @Test
   void deltaReadWrite() {
     // Read the test Delta data.
@@ -261,6 +387,73 @@ class DataSourcesTest {
     queryDeltaData(newData);
   }
 
+  @Test
+  void deltaIncrementalExtract() {
+    final String deltaPath = temporaryDirectory.resolve("delta-cdf").toString();
+    final String outputPath = temporaryDirectory.resolve("patient-conditions").toString();
+    spark.conf().set(CHANGE_DATA_FEED_PROPERTY, "true");
+    try {
+      // Write the test NDJSON data to Delta tables with the change data feed enabled.
+      pathlingContext.read()
+          .ndjson(TEST_DATA_PATH.resolve("ndjson").toString())
+          .write().delta(deltaPath);
+      final Database database = Database.forFileSystem(spark, pathlingContext.getFhirEncoders(),
+          deltaPath, false);
+      final DatabaseSource data = new DatabaseSource(pathlingContext, database);
+      final Function<DatabaseSource, ExtractQuery> query = source -> source
+          .extract(ResourceType.PATIENT)
+          .column("gender", "gender")
+          .column("reverseResolve(Condition.subject).count()", "conditions");
+
+      // The first refresh builds the whole result.
+      query.apply(data).refresh(outputPath);
+      DatasetAssert.of(spark.read().format("delta").load(outputPath).drop("_subject_id"))
+          .hasRowsUnordered(query.apply(data).execute());
+
+      // Change the gender of one patient, and delete the conditions of another.
+      database.merge(ResourceType.PATIENT, database.read(ResourceType.PATIENT)
+          .filter(col("id").equalTo("beff242e-580b-47c0-9844-c1a68c36c5bf"))
+          .withColumn("gender", lit("other")));
+      DeltaTable.forPath(spark, deltaPath + "/Condition.parquet")
+          .delete(col("subject.reference")
+              .equalTo("Patient/2b36c1e2-bbe1-45ae-8124-4adad2677702"));
+
+      // The second refresh merges the rows for the affected patients.
+      query.apply(data).refresh(outputPath);
+      final DeltaTable output = DeltaTable.forPath(spark, outputPath);
+      assertEquals("MERGE", output.history(2).orderBy(col("version").asc()).head()
+          .getAs("operation"));
+      DatasetAssert.of(output.toDF().drop("_subject_id"))
+          .hasRowsUnordered(query.apply(data).execute());
+    } finally {
+      spark.conf().unset(CHANGE_DATA_FEED_PROPERTY);
+    }
+  }
+
+  @Test
+  void ndjsonStreamToDelta() throws Exception {
+    // Copy the test NDJSON files into a directory that will be watched for new files.
+    final Path landingDirectory = Files.createDirectories(temporaryDirectory.resolve("landing"));
+    for (final String fileName : List.of("Patient.ndjson", "Condition.ndjson")) {
+      Files.copy(TEST_DATA_PATH.resolve("ndjson").resolve(fileName),
+          landingDirectory.resolve(fileName));
+    }
+
+    // Merge the stream into a Delta database.
+    final String deltaPath = temporaryDirectory.resolve("delta-stream").toString();
+    final StreamingQuery query = pathlingContext.read()
+        .ndjsonStream(landingDirectory.toString())
+        .writeToDelta(deltaPath, temporaryDirectory.resolve("delta-stream-checkpoint").toString());
+    try {
+      query.processAllAvailable();
+    } finally {
+      query.stop();
+    }
+
+    // Query the data.
+    queryDeltaData(pathlingContext.read().delta(deltaPath));
+  }
+
   @Test
   void tablesReadWrite() {
     // Read the test NDJSON data.
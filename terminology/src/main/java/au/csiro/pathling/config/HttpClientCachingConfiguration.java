@@ -93,6 +93,22 @@ public class HttpClientCachingConfiguration implements Serializable {
   @Min(0)
   private Integer overrideExpiry;
 
+  /**
+   * If true, expired cache entries are returned immediately while they are revalidated with the
+   * terminology server in the background. If false, callers wait for the revalidation to complete.
+   */
+  @NotNull
+  @Builder.Default
+  private boolean staleWhileRevalidate = true;
+
+  /**
+   * If provided, the cache is pre-populated from the snapshot at this location when it is created.
+   * This can be any location supported by Hadoop, such as a path on the local file system or an
+   * object store URL.
+   */
+  @Nullable
+  private String snapshotPath;
+
   @Target({ElementType.TYPE, ElementType.ANNOTATION_TYPE})
   @Retention(RetentionPolicy.RUNTIME)
   @Constraint(validatedBy = HttpCacheConfigurationValidator.class)
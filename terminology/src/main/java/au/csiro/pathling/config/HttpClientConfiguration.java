@@ -78,4 +78,21 @@ public class HttpClientConfiguration implements Serializable {
   @Min(1)
   @Builder.Default
   private int retryCount = 2;
+
+  /**
+   * Setting this option to {@code true} will send terminology requests that are made together
+   * (e.g. the lookups for the distinct codings within a partition) to the server within FHIR batch
+   * bundles, rather than as individual requests.
+   */
+  @NotNull
+  @Builder.Default
+  private boolean batchEnabled = false;
+
+  /**
+   * The maximum number of terminology requests sent within a single batch bundle.
+   */
+  @NotNull
+  @Min(1)
+  @Builder.Default
+  private int batchSize = 100;
 }
@@ -55,6 +55,15 @@ public class TerminologyConfiguration implements Serializable {
   @Builder.Default
   private String serverUrl = "https://tx.ontoserver.csiro.au/fhir";
 
+  /**
+   * If provided, terminology requests are answered from the CodeSystem, ValueSet and ConceptMap
+   * resources at this location, instead of by the terminology server. This can be a file or
+   * directory containing NDJSON files, JSON resources or Bundles, or an extracted FHIR package, at
+   * any location supported by Hadoop.
+   */
+  @Nullable
+  private String localPath;
+
   /**
    * Setting this option to {@code true} will enable additional logging of the details of requests
    * to the terminology service.
@@ -80,6 +89,16 @@ public class TerminologyConfiguration implements Serializable {
   @Builder.Default
   private String acceptLanguage = null;
 
+  /**
+   * Setting this option to {@code true} will answer requests for individual properties and
+   * designations from a single lookup of all the properties and designations of each concept, which
+   * is then reused for any other property of the same concept. This relies upon the terminology
+   * server returning all properties and designations when a lookup does not specify a property.
+   */
+  @NotNull
+  @Builder.Default
+  private boolean bulkLookup = false;
+
   /**
    * Configuration relating to the HTTP client used for terminology requests.
    */
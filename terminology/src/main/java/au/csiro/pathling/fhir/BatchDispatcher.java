@@ -0,0 +1,300 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.fhir;
+
+import ca.uhn.fhir.interceptor.api.Hook;
+import ca.uhn.fhir.interceptor.api.Interceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.client.api.IGenericClient;
+import ca.uhn.fhir.rest.client.api.IHttpResponse;
+import ca.uhn.fhir.rest.gclient.ITransactionTyped;
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
+import ca.uhn.fhir.rest.server.exceptions.NotModifiedException;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHeaders;
+import org.hl7.fhir.instance.model.api.IBaseOperationOutcome;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Bundle.BundleEntryComponent;
+import org.hl7.fhir.r4.model.Bundle.BundleEntryRequestComponent;
+import org.hl7.fhir.r4.model.Bundle.BundleEntryResponseComponent;
+import org.hl7.fhir.r4.model.Bundle.BundleType;
+import org.hl7.fhir.r4.model.OperationOutcome;
+
+/**
+ * Groups terminology requests into FHIR batch bundles, and distributes the entries of each batch
+ * response back to the requests that they answer.
+ * <p>
+ * Requests that are submitted together are sent within batches of up to the configured size.
+ * Requests with different Accept-Language headers are sent within separate batches, as the header
+ * applies to the whole batch.
+ *
+ * @author John Grimes
+ */
+@Slf4j
+class BatchDispatcher implements Closeable {
+
+  private static final String ETAG_HEADER_NAME = "etag";
+
+  @Nonnull
+  private final IGenericClient fhirClient;
+
+  private final int batchSize;
+
+  @Nonnull
+  private final ResponseHeadersInterceptor responseHeaders = new ResponseHeadersInterceptor();
+
+  @Nonnull
+  private final ExecutorService sender;
+
+  /**
+   * @param fhirClient the client used to send the batches
+   * @param batchSize the maximum number of requests within a batch
+   */
+  BatchDispatcher(@Nonnull final IGenericClient fhirClient, final int batchSize) {
+    this.fhirClient = fhirClient;
+    this.batchSize = batchSize;
+    fhirClient.registerInterceptor(responseHeaders);
+    sender = Executors.newCachedThreadPool(daemonThreadFactory("terminology-batch-sender-"));
+  }
+
+  /**
+   * Sends a number of requests within as few batches as possible, without waiting for the
+   * responses.
+   * <p>
+   * The future of each request completes with the outcome of the request, including the resource
+   * and response headers. It completes exceptionally with a {@link NotModifiedException} if the
+   * server responds to the entry with 304 Not Modified, or with a
+   * {@link BaseServerResponseException} if the server responds to the entry or the batch with an
+   * error.
+   *
+   * @param requests the requests to send
+   * @return a future for the outcome of each request, in the same order as the requests
+   */
+  @Nonnull
+  List<CompletableFuture<MethodOutcome>> submitAll(
+      @Nonnull final List<TerminologyRequest> requests) {
+    final List<CompletableFuture<MethodOutcome>> futures = new ArrayList<>(requests.size());
+    final Map<Optional<String>, List<PendingRequest>> byLanguage = new LinkedHashMap<>();
+    for (final TerminologyRequest request : requests) {
+      final PendingRequest pendingRequest = new PendingRequest(request.toBatchEntry(),
+          new CompletableFuture<>());
+      byLanguage.computeIfAbsent(Optional.ofNullable(request.getAcceptLanguage()),
+          key -> new ArrayList<>()).add(pendingRequest);
+      futures.add(pendingRequest.getFuture());
+    }
+    byLanguage.forEach((acceptLanguage, pendingRequests) -> {
+      for (int start = 0; start < pendingRequests.size(); start += batchSize) {
+        dispatch(acceptLanguage, pendingRequests.subList(start,
+            Math.min(start + batchSize, pendingRequests.size())));
+      }
+    });
+    return futures;
+  }
+
+  private void dispatch(@Nonnull final Optional<String> acceptLanguage,
+      @Nonnull final List<PendingRequest> batch) {
+    try {
+      sender.execute(() -> send(acceptLanguage, batch));
+    } catch (final RejectedExecutionException e) {
+      fail(batch, new IllegalStateException("Terminology client has been closed", e));
+    }
+  }
+
+  private void send(@Nonnull final Optional<String> acceptLanguage,
+      @Nonnull final List<PendingRequest> batch) {
+    final Bundle bundle = new Bundle();
+    bundle.setType(BundleType.BATCH);
+    batch.forEach(pendingRequest -> bundle.addEntry().setRequest(pendingRequest.getRequest()));
+    log.debug("Sending batch of {} terminology requests", batch.size());
+
+    try {
+      ITransactionTyped<Bundle> transaction = fhirClient.transaction().withBundle(bundle);
+      if (acceptLanguage.isPresent()) {
+        transaction = transaction.withAdditionalHeader(HttpHeaders.ACCEPT_LANGUAGE,
+            acceptLanguage.get());
+      }
+      responseHeaders.clear();
+      final Bundle response = transaction.execute();
+      final Map<String, List<String>> headers = responseHeaders.take();
+
+      // The entries within a batch response are in the same order as the entries within the
+      // request.
+      final List<BundleEntryComponent> entries = response.getEntry();
+      if (entries.size() != batch.size()) {
+        throw new IllegalStateException(
+            "Batch response contained " + entries.size() + " entries, expected " + batch.size());
+      }
+      for (int i = 0; i < batch.size(); i++) {
+        complete(batch.get(i).getFuture(), entries.get(i), headers);
+      }
+    } catch (final RuntimeException e) {
+      fail(batch, e);
+    }
+  }
+
+  private static void fail(@Nonnull final List<PendingRequest> batch,
+      @Nonnull final RuntimeException e) {
+    batch.forEach(pendingRequest -> pendingRequest.getFuture().completeExceptionally(e));
+  }
+
+  private static void complete(@Nonnull final CompletableFuture<MethodOutcome> future,
+      @Nonnull final BundleEntryComponent entry,
+      @Nonnull final Map<String, List<String>> batchHeaders) {
+    try {
+      future.complete(toMethodOutcome(entry, batchHeaders));
+    } catch (final RuntimeException e) {
+      future.completeExceptionally(e);
+    }
+  }
+
+  @Nonnull
+  private static MethodOutcome toMethodOutcome(@Nonnull final BundleEntryComponent entry,
+      @Nonnull final Map<String, List<String>> batchHeaders) {
+    final BundleEntryResponseComponent response = entry.getResponse();
+
+    // The headers of the batch response (e.g. Cache-Control) apply to each entry, while the ETag
+    // is specific to the entry.
+    final Map<String, List<String>> headers = new HashMap<>(batchHeaders);
+    headers.remove(ETAG_HEADER_NAME);
+    if (response.hasEtag()) {
+      headers.put(ETAG_HEADER_NAME, List.of(response.getEtag()));
+    }
+
+    final int statusCode = parseStatusCode(response.getStatus());
+    if (statusCode / 100 == 2) {
+      final MethodOutcome outcome = new MethodOutcome();
+      outcome.setResource(entry.getResource());
+      outcome.setResponseHeaders(headers);
+      return outcome;
+    }
+
+    final BaseServerResponseException exception;
+    if (statusCode == NotModifiedException.STATUS_CODE) {
+      exception = new NotModifiedException(response.getStatus());
+    } else {
+      exception = BaseServerResponseException.newInstance(statusCode,
+          getErrorMessage(response));
+      if (response.getOutcome() instanceof IBaseOperationOutcome) {
+        exception.setOperationOutcome((IBaseOperationOutcome) response.getOutcome());
+      }
+    }
+    headers.forEach((name, values) -> values.forEach(
+        value -> exception.addResponseHeader(name, value)));
+    throw exception;
+  }
+
+  private static int parseStatusCode(@Nullable final String status) {
+    // The status is the status code, optionally followed by the reason phrase.
+    try {
+      return Integer.parseInt(Optional.ofNullable(status).orElse("").split(" ")[0]);
+    } catch (final NumberFormatException e) {
+      throw new IllegalStateException("Invalid status within batch response entry: " + status, e);
+    }
+  }
+
+  @Nonnull
+  private static String getErrorMessage(@Nonnull final BundleEntryResponseComponent response) {
+    if (response.getOutcome() instanceof OperationOutcome) {
+      final OperationOutcome outcome = (OperationOutcome) response.getOutcome();
+      if (outcome.hasIssue() && outcome.getIssueFirstRep().hasDiagnostics()) {
+        return outcome.getIssueFirstRep().getDiagnostics();
+      }
+    }
+    return response.getStatus();
+  }
+
+  @Nonnull
+  private static ThreadFactory daemonThreadFactory(@Nonnull final String prefix) {
+    final AtomicInteger threadNumber = new AtomicInteger();
+    return runnable -> {
+      final Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  @Override
+  public void close() {
+    sender.shutdownNow();
+  }
+
+  @Value
+  private static class PendingRequest {
+
+    @Nonnull
+    BundleEntryRequestComponent request;
+
+    @Nonnull
+    CompletableFuture<MethodOutcome> future;
+
+  }
+
+  /**
+   * Captures the headers of the batch response, which is received on the same thread that sent
+   * the batch.
+   */
+  @Interceptor
+  static class ResponseHeadersInterceptor {
+
+    @Nonnull
+    private final ThreadLocal<Map<String, List<String>>> headers = new ThreadLocal<>();
+
+    @SuppressWarnings("unused")
+    @Hook(Pointcut.CLIENT_RESPONSE)
+    public void handleClientResponse(@Nullable final IHttpResponse httpResponse) {
+      if (httpResponse == null || httpResponse.getAllHeaders() == null) {
+        return;
+      }
+      final Map<String, List<String>> captured = new HashMap<>();
+      httpResponse.getAllHeaders().forEach(
+          (name, values) -> captured.put(name.toLowerCase(Locale.ROOT), values));
+      headers.set(captured);
+    }
+
+    void clear() {
+      headers.remove();
+    }
+
+    @Nonnull
+    Map<String, List<String>> take() {
+      final Map<String, List<String>> captured = Optional.ofNullable(headers.get())
+          .orElse(Map.of());
+      headers.remove();
+      return captured;
+    }
+
+  }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.fhir;
+
+import au.csiro.pathling.config.HttpClientConfiguration;
+import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.client.api.IGenericClient;
+import jakarta.annotation.Nonnull;
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An implementation of {@link TerminologyClient} that sends requests that are executed together to
+ * the terminology server within FHIR batch bundles. Requests that are executed on their own are
+ * sent individually, as there is nothing to batch them with.
+ *
+ * @author John Grimes
+ * @see <a href="https://hl7.org/fhir/R4/http.html#transaction">Batch/Transaction</a>
+ */
+class BatchingTerminologyClient extends DefaultTerminologyClient {
+
+  @Nonnull
+  private final BatchDispatcher dispatcher;
+
+  BatchingTerminologyClient(@Nonnull final IGenericClient fhirClient,
+      @Nonnull final HttpClientConfiguration configuration,
+      @Nonnull final Closeable... resourcesToAdopt) {
+    super(fhirClient, resourcesToAdopt);
+    dispatcher = registerResource(new BatchDispatcher(fhirClient, configuration.getBatchSize()));
+  }
+
+  @Nonnull
+  @Override
+  public List<CompletableFuture<MethodOutcome>> executeAll(
+      @Nonnull final List<TerminologyRequest> requests) {
+    return dispatcher.submitAll(requests);
+  }
+
+}
@@ -17,23 +17,21 @@
 
 package au.csiro.pathling.fhir;
 
-import static java.util.Objects.nonNull;
-
 import au.csiro.pathling.utilities.ResourceCloser;
+import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
 import ca.uhn.fhir.rest.gclient.IOperationUntypedWithInput;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import java.io.Closeable;
-import org.apache.http.HttpHeaders;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 import org.hl7.fhir.r4.model.BooleanType;
-import org.hl7.fhir.r4.model.CodeSystem;
 import org.hl7.fhir.r4.model.CodeType;
-import org.hl7.fhir.r4.model.ConceptMap;
 import org.hl7.fhir.r4.model.Parameters;
 import org.hl7.fhir.r4.model.StringType;
 import org.hl7.fhir.r4.model.UriType;
-import org.hl7.fhir.r4.model.ValueSet;
 
 /**
  * An implementation of {@link TerminologyClient} that uses cacheable GET requests.
@@ -61,19 +59,7 @@ class DefaultTerminologyClient extends ResourceCloser implements TerminologyClie
   public IOperationUntypedWithInput<Parameters> buildValidateCode(@Nonnull final UriType url,
       @Nonnull final UriType system, @Nullable final StringType version,
       @Nonnull final CodeType code) {
-    final Parameters params = new Parameters();
-    params.addParameter().setName("url").setValue(url);
-    params.addParameter().setName("system").setValue(system);
-    params.addParameter().setName("code").setValue(code);
-    if (version != null) {
-      params.addParameter().setName("systemVersion").setValue(version);
-    }
-
-    return fhirClient.operation()
-        .onType(ValueSet.class)
-        .named("$validate-code")
-        .withParameters(params)
-        .useHttpGet();
+    return TerminologyRequest.validateCode(url, system, version, code).toOperation(fhirClient);
   }
 
   @Nonnull
@@ -90,24 +76,8 @@ class DefaultTerminologyClient extends ResourceCloser implements TerminologyClie
       @Nonnull final UriType system, @Nullable final StringType version,
       @Nonnull final CodeType code, @Nullable final BooleanType reverse,
       @Nullable final UriType target) {
-    final Parameters params = new Parameters();
-    params.addParameter().setName("url").setValue(url);
-    params.addParameter().setName("system").setValue(system);
-    params.addParameter().setName("code").setValue(code);
-    if (version != null) {
-      params.addParameter().setName("version").setValue(version);
-    }
-    if (reverse != null) {
-      params.addParameter().setName("reverse").setValue(reverse);
-    }
-    if (target != null) {
-      params.addParameter().setName("target").setValue(target);
-    }
-    return fhirClient.operation()
-        .onType(ConceptMap.class)
-        .named("$translate")
-        .withParameters(params)
-        .useHttpGet();
+    return TerminologyRequest.translate(url, system, version, code, reverse, target)
+        .toOperation(fhirClient);
   }
 
   @Nonnull
@@ -122,18 +92,7 @@ class DefaultTerminologyClient extends ResourceCloser implements TerminologyClie
   public IOperationUntypedWithInput<Parameters> buildSubsumes(@Nonnull final CodeType codeA,
       @Nonnull final CodeType codeB, @Nonnull final UriType system,
       @Nullable final StringType version) {
-    final Parameters params = new Parameters();
-    params.addParameter().setName("codeA").setValue(codeA);
-    params.addParameter().setName("codeB").setValue(codeB);
-    params.addParameter().setName("system").setValue(system);
-    if (version != null) {
-      params.addParameter().setName("version").setValue(version);
-    }
-    return fhirClient.operation()
-        .onType(CodeSystem.class)
-        .named("$subsumes")
-        .withParameters(params)
-        .useHttpGet();
+    return TerminologyRequest.subsumes(codeA, codeB, system, version).toOperation(fhirClient);
   }
 
   @Nonnull
@@ -151,25 +110,27 @@ class DefaultTerminologyClient extends ResourceCloser implements TerminologyClie
       @Nullable final StringType version,
       @Nonnull final CodeType code, @Nullable final CodeType property,
       @Nullable final StringType preferredLanguage) {
-    final Parameters params = new Parameters();
-    params.addParameter().setName("system").setValue(system);
-    params.addParameter().setName("code").setValue(code);
-    if (version != null) {
-      params.addParameter().setName("version").setValue(version);
-    }
-    if (property != null) {
-      params.addParameter().setName("property").setValue(property);
+    return TerminologyRequest.lookup(system, version, code, property, preferredLanguage)
+        .toOperation(fhirClient);
+  }
+
+  @Nonnull
+  @Override
+  public List<CompletableFuture<MethodOutcome>> executeAll(
+      @Nonnull final List<TerminologyRequest> requests) {
+    return requests.stream()
+        .map(this::execute)
+        .collect(Collectors.toList());
+  }
+
+  @Nonnull
+  private CompletableFuture<MethodOutcome> execute(@Nonnull final TerminologyRequest request) {
+    try {
+      return CompletableFuture.completedFuture(
+          request.toOperation(fhirClient).returnMethodOutcome().execute());
+    } catch (final RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
     }
-    final IOperationUntypedWithInput<Parameters> operation = fhirClient.operation()
-        .onType(CodeSystem.class)
-        .named("$lookup")
-        .withParameters(params)
-        .useHttpGet();
-
-    return nonNull(preferredLanguage)
-           ? operation.withAdditionalHeader(HttpHeaders.ACCEPT_LANGUAGE,
-        preferredLanguage.getValue())
-           : operation;
   }
 
 }
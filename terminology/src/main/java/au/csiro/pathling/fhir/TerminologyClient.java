@@ -20,11 +20,13 @@ package au.csiro.pathling.fhir;
 import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
 
+import au.csiro.pathling.config.HttpClientConfiguration;
 import au.csiro.pathling.config.TerminologyAuthConfiguration;
 import au.csiro.pathling.config.TerminologyConfiguration;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.rest.annotation.Operation;
 import ca.uhn.fhir.rest.annotation.OperationParam;
+import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
 import ca.uhn.fhir.rest.client.api.IRestfulClientFactory;
 import ca.uhn.fhir.rest.client.api.ServerValidationModeEnum;
@@ -33,6 +35,8 @@ import ca.uhn.fhir.rest.gclient.IOperationUntypedWithInput;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import org.apache.http.client.HttpClient;
 import org.hl7.fhir.r4.model.BooleanType;
 import org.hl7.fhir.r4.model.CodeSystem;
@@ -198,6 +202,20 @@ public interface TerminologyClient extends Closeable {
       @Nullable StringType version, @Nonnull CodeType code, @Nullable CodeType property,
       @Nullable StringType acceptLanguage);
 
+  /**
+   * Executes a number of requests together. Implementations may send the requests within a single
+   * batch, rather than sending each of them individually.
+   * <p>
+   * The failure of a request is reported through its future (e.g. as a
+   * {@link ca.uhn.fhir.rest.server.exceptions.NotModifiedException}), and does not affect the other
+   * requests.
+   *
+   * @param requests the requests to execute
+   * @return a future for the outcome of each request, in the same order as the requests
+   */
+  @Nonnull
+  List<CompletableFuture<MethodOutcome>> executeAll(@Nonnull List<TerminologyRequest> requests);
+
   /**
    * Builds a new terminology client.
    *
@@ -236,14 +254,21 @@ public interface TerminologyClient extends Closeable {
     // If authentication is enabled, register an interceptor that authenticates requests before 
     // sending them.
     final TerminologyAuthConfiguration authConfig = terminologyConfiguration.getAuthentication();
+    final Closeable[] resourcesToAdopt;
     if (authConfig.isEnabled()) {
       final ClientAuthInterceptor clientAuthInterceptor = new ClientAuthInterceptor(authConfig);
       genericClient.registerInterceptor(clientAuthInterceptor);
       // pass the client auth interceptor as a resource to close when the client is closed
-      return new DefaultTerminologyClient(genericClient, clientAuthInterceptor);
+      resourcesToAdopt = new Closeable[]{clientAuthInterceptor};
     } else {
-      return new DefaultTerminologyClient(genericClient);
+      resourcesToAdopt = new Closeable[]{};
     }
+
+    // If batching is enabled, send requests to the server within batch bundles.
+    final HttpClientConfiguration clientConfig = terminologyConfiguration.getClient();
+    return clientConfig.isBatchEnabled()
+           ? new BatchingTerminologyClient(genericClient, clientConfig, resourcesToAdopt)
+           : new DefaultTerminologyClient(genericClient, resourcesToAdopt);
   }
 
   @Nonnull
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.fhir;
+
+import static java.util.Objects.nonNull;
+
+import ca.uhn.fhir.rest.client.api.IGenericClient;
+import ca.uhn.fhir.rest.gclient.IOperationUntypedWithInput;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+import lombok.Value;
+import lombok.With;
+import org.apache.http.HttpHeaders;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
+import org.hl7.fhir.r4.model.BooleanType;
+import org.hl7.fhir.r4.model.Bundle.BundleEntryRequestComponent;
+import org.hl7.fhir.r4.model.Bundle.HTTPVerb;
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.Parameters;
+import org.hl7.fhir.r4.model.StringType;
+import org.hl7.fhir.r4.model.UriType;
+
+/**
+ * A description of a request for a terminology operation, which can either be sent to the server
+ * on its own or as an entry within a batch bundle.
+ * <p>
+ * All terminology operations are invoked at the type level using GET, so all of their parameters
+ * must have primitive values.
+ *
+ * @author John Grimes
+ */
+@Value
+public class TerminologyRequest {
+
+  /**
+   * The name of the type of resource that the operation is invoked upon.
+   */
+  @Nonnull
+  String resourceType;
+
+  /**
+   * The name of the operation, e.g. {@code $lookup}.
+   */
+  @Nonnull
+  String name;
+
+  @Nonnull
+  Parameters parameters;
+
+  /**
+   * The preferred language for the localizable values within the response, if any.
+   */
+  @Nullable
+  String acceptLanguage;
+
+  /**
+   * An ETag that the response should be conditional upon, if any.
+   */
+  @Nullable
+  @With
+  String ifNoneMatch;
+
+  /**
+   * @param url the URL of the value set to validate against
+   * @param system the system of the code to validate
+   * @param version the version of the code system to validate against
+   * @param code the code to validate
+   * @return a request for the validate code operation
+   */
+  @Nonnull
+  public static TerminologyRequest validateCode(@Nonnull final UriType url,
+      @Nonnull final UriType system, @Nullable final StringType version,
+      @Nonnull final CodeType code) {
+    final Parameters params = new Parameters();
+    params.addParameter().setName("url").setValue(url);
+    params.addParameter().setName("system").setValue(system);
+    params.addParameter().setName("code").setValue(code);
+    if (version != null) {
+      params.addParameter().setName("systemVersion").setValue(version);
+    }
+    return new TerminologyRequest("ValueSet", "$validate-code", params, null, null);
+  }
+
+  /**
+   * @param url the URL of the concept map to use for translation
+   * @param system the system of the code to translate
+   * @param version the version of the code system to translate from
+   * @param code the code to translate
+   * @param reverse if true, the translation will be reversed
+   * @param target the URL of the value set within which the translation is sought
+   * @return a request for the translate operation
+   */
+  @Nonnull
+  public static TerminologyRequest translate(@Nonnull final UriType url,
+      @Nonnull final UriType system, @Nullable final StringType version,
+      @Nonnull final CodeType code, @Nullable final BooleanType reverse,
+      @Nullable final UriType target) {
+    final Parameters params = new Parameters();
+    params.addParameter().setName("url").setValue(url);
+    params.addParameter().setName("system").setValue(system);
+    params.addParameter().setName("code").setValue(code);
+    if (version != null) {
+      params.addParameter().setName("version").setValue(version);
+    }
+    if (reverse != null) {
+      params.addParameter().setName("reverse").setValue(reverse);
+    }
+    if (target != null) {
+      params.addParameter().setName("target").setValue(target);
+    }
+    return new TerminologyRequest("ConceptMap", "$translate", params, null, null);
+  }
+
+  /**
+   * @param codeA the code that will be tested to check if it subsumes codeB
+   * @param codeB the code that will be tested to check if it is subsumed by codeA
+   * @param system the system of the codes being tested
+   * @param version the version of the code system that the codes are from
+   * @return a request for the subsumes operation
+   */
+  @Nonnull
+  public static TerminologyRequest subsumes(@Nonnull final CodeType codeA,
+      @Nonnull final CodeType codeB, @Nonnull final UriType system,
+      @Nullable final StringType version) {
+    final Parameters params = new Parameters();
+    params.addParameter().setName("codeA").setValue(codeA);
+    params.addParameter().setName("codeB").setValue(codeB);
+    params.addParameter().setName("system").setValue(system);
+    if (version != null) {
+      params.addParameter().setName("version").setValue(version);
+    }
+    return new TerminologyRequest("CodeSystem", "$subsumes", params, null, null);
+  }
+
+  /**
+   * @param system the system of the code
+   * @param version the version of the code system
+   * @param code the code to lookup
+   * @param property the property or properties to be returned in the response
+   * @param acceptLanguage the preferred language for the localizable return values
+   * @return a request for the lookup operation
+   */
+  @Nonnull
+  public static TerminologyRequest lookup(@Nonnull final UriType system,
+      @Nullable final StringType version, @Nonnull final CodeType code,
+      @Nullable final CodeType property, @Nullable final StringType acceptLanguage) {
+    final Parameters params = new Parameters();
+    params.addParameter().setName("system").setValue(system);
+    params.addParameter().setName("code").setValue(code);
+    if (version != null) {
+      params.addParameter().setName("version").setValue(version);
+    }
+    if (property != null) {
+      params.addParameter().setName("property").setValue(property);
+    }
+    final String language = nonNull(acceptLanguage)
+                             ? acceptLanguage.getValue()
+                             : null;
+    return new TerminologyRequest("CodeSystem", "$lookup", params, language, null);
+  }
+
+  /**
+   * Builds an individual request for this operation.
+   *
+   * @param fhirClient the client that will be used to send the request
+   * @return an {@link IOperationUntypedWithInput} that can be customized and executed later
+   */
+  @Nonnull
+  public IOperationUntypedWithInput<Parameters> toOperation(
+      @Nonnull final IGenericClient fhirClient) {
+    IOperationUntypedWithInput<Parameters> operation = fhirClient.operation()
+        .onType(resourceType)
+        .named(name)
+        .withParameters(parameters)
+        .useHttpGet();
+    if (nonNull(acceptLanguage)) {
+      operation = operation.withAdditionalHeader(HttpHeaders.ACCEPT_LANGUAGE, acceptLanguage);
+    }
+    if (nonNull(ifNoneMatch)) {
+      operation = operation.withAdditionalHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+    }
+    return operation;
+  }
+
+  /**
+   * Builds the request of an entry within a batch bundle for this operation. The Accept-Language
+   * header cannot be represented within an entry, and needs to be sent with the batch.
+   *
+   * @return a new {@link BundleEntryRequestComponent}
+   */
+  @Nonnull
+  public BundleEntryRequestComponent toBatchEntry() {
+    final String query = parameters.getParameter().stream()
+        .map(param -> encode(param.getName()) + "="
+            + encode(((IPrimitiveType<?>) param.getValue()).getValueAsString()))
+        .collect(Collectors.joining("&"));
+    final BundleEntryRequestComponent request = new BundleEntryRequestComponent()
+        .setMethod(HTTPVerb.GET)
+        .setUrl(resourceType + "/" + name + "?" + query);
+    if (nonNull(ifNoneMatch)) {
+      request.setIfNoneMatch(ifNoneMatch);
+    }
+    return request;
+  }
+
+  @Nonnull
+  private static String encode(@Nonnull final String value) {
+    return URLEncoder.encode(value, StandardCharsets.UTF_8);
+  }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.fhir;
+
+import au.csiro.pathling.utilities.Tracing;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import jakarta.annotation.Nonnull;
+import java.io.IOException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * An HTTP client that creates a span for each request made to the terminology server, and
+ * propagates the trace context to the server within the request headers.
+ * <p>
+ * The span is ended when the call to the underlying client returns, so that requests that fail
+ * without a response (e.g. due to a connection failure or a timeout) are also recorded.
+ *
+ * @author John Grimes
+ */
+public class TracingHttpClient extends CloseableHttpClient {
+
+  @Nonnull
+  private final CloseableHttpClient delegate;
+
+  /**
+   * @param delegate the client used to send the requests
+   */
+  public TracingHttpClient(@Nonnull final CloseableHttpClient delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  protected CloseableHttpResponse doExecute(final HttpHost target, final HttpRequest request,
+      final HttpContext context) throws IOException {
+    final String uri = request.getRequestLine().getUri();
+    final Context parent = Tracing.currentContext();
+    final Span span = Tracing.getTracer()
+        .spanBuilder("terminology " + getOperationName(uri))
+        .setSpanKind(SpanKind.CLIENT)
+        .setParent(parent)
+        .setAttribute("http.request.method", request.getRequestLine().getMethod())
+        .setAttribute("url.full", uri)
+        .startSpan();
+    try {
+      Tracing.getOpenTelemetry().getPropagators().getTextMapPropagator()
+          .inject(parent.with(span), request, HttpRequest::setHeader);
+      final CloseableHttpResponse response = delegate.execute(target, request, context);
+      final int status = response.getStatusLine().getStatusCode();
+      span.setAttribute("http.response.status_code", status);
+      // A 304 Not Modified is an expected outcome when revalidating cached results.
+      if (status >= 400) {
+        span.setStatus(StatusCode.ERROR);
+      }
+      return response;
+    } catch (final IOException | RuntimeException e) {
+      span.recordException(e);
+      span.setStatus(StatusCode.ERROR);
+      throw e;
+    } finally {
+      span.end();
+    }
+  }
+
+  @Nonnull
+  private static String getOperationName(@Nonnull final String uri) {
+    // Use the operation name, e.g. $validate-code, as the name of the span.
+    final int queryStart = uri.indexOf('?');
+    final String path = queryStart >= 0
+                        ? uri.substring(0, queryStart)
+                        : uri;
+    return path.substring(path.lastIndexOf('/') + 1);
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public HttpParams getParams() {
+    return delegate.getParams();
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public ClientConnectionManager getConnectionManager() {
+    return delegate.getConnectionManager();
+  }
+
+  @Override
+  public void close() throws IOException {
+    delegate.close();
+  }
+
+}
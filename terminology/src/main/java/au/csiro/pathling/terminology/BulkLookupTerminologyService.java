@@ -0,0 +1,132 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.terminology;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.codesystems.ConceptSubsumptionOutcome;
+
+/**
+ * A terminology service that answers requests for a single property or for the designations of a
+ * concept from the result of a lookup of all the properties and designations of the concept.
+ * <p>
+ * This means that the properties and designations of each concept are retrieved at most once
+ * (subject to the caching of the underlying service), no matter how many different properties are
+ * requested. All other operations are passed through to the underlying service unchanged.
+ *
+ * @author John Grimes
+ */
+public class BulkLookupTerminologyService implements TerminologyService, Closeable {
+
+  @Nonnull
+  private final TerminologyService delegate;
+
+  /**
+   * @param delegate the terminology service used to answer requests
+   */
+  public BulkLookupTerminologyService(@Nonnull final TerminologyService delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * @return the terminology service used to answer requests
+   */
+  @Nonnull
+  public TerminologyService getDelegate() {
+    return delegate;
+  }
+
+  @Override
+  public boolean validateCode(@Nonnull final String valueSetUrl, @Nonnull final Coding coding) {
+    return delegate.validateCode(valueSetUrl, coding);
+  }
+
+  @Nonnull
+  @Override
+  public List<Translation> translate(@Nonnull final Coding coding,
+      @Nonnull final String conceptMapUrl, final boolean reverse, @Nullable final String target) {
+    return delegate.translate(coding, conceptMapUrl, reverse, target);
+  }
+
+  @Nonnull
+  @Override
+  public ConceptSubsumptionOutcome subsumes(@Nonnull final Coding codingA,
+      @Nonnull final Coding codingB) {
+    return delegate.subsumes(codingA, codingB);
+  }
+
+  @Nonnull
+  @Override
+  public List<PropertyOrDesignation> lookup(@Nonnull final Coding coding,
+      @Nullable final String propertyCode, @Nullable final String acceptLanguage) {
+    if (propertyCode == null) {
+      // A request for all properties has a different meaning to a request for everything, as it
+      // excludes designations.
+      return delegate.lookup(coding, null, acceptLanguage);
+    }
+    final List<PropertyOrDesignation> all = delegate.lookupAll(coding, acceptLanguage);
+    if (Designation.PROPERTY_CODE.equals(propertyCode)) {
+      return all.stream()
+          .filter(Designation.class::isInstance)
+          .collect(Collectors.toList());
+    } else {
+      return all.stream()
+          .filter(Property.class::isInstance)
+          .filter(p -> propertyCode.equals(((Property) p).getCode()))
+          .collect(Collectors.toList());
+    }
+  }
+
+  @Nonnull
+  @Override
+  public List<PropertyOrDesignation> lookupAll(@Nonnull final Coding coding,
+      @Nullable final String acceptLanguage) {
+    return delegate.lookupAll(coding, acceptLanguage);
+  }
+
+  @Override
+  public void prefetchLookup(@Nonnull final Collection<Coding> codings,
+      @Nullable final String propertyCode, @Nullable final String acceptLanguage) {
+    // The lookups are answered in the same way as in lookup.
+    if (propertyCode == null) {
+      delegate.prefetchLookup(codings, null, acceptLanguage);
+    } else {
+      delegate.prefetchLookupAll(codings, acceptLanguage);
+    }
+  }
+
+  @Override
+  public void prefetchLookupAll(@Nonnull final Collection<Coding> codings,
+      @Nullable final String acceptLanguage) {
+    delegate.prefetchLookupAll(codings, acceptLanguage);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (delegate instanceof Closeable) {
+      ((Closeable) delegate).close();
+    }
+  }
+
+}
@@ -91,6 +91,16 @@ public class DefaultTerminologyService extends BaseTerminologyService {
     return requireNonNull(execute(executor));
   }
 
+  @Nonnull
+  @Override
+  public List<PropertyOrDesignation> lookupAll(@Nonnull final Coding coding,
+      @Nullable final String acceptLanguage) {
+    final LookupParameters parameters = new LookupParameters(ImmutableCoding.of(coding), null,
+        acceptLanguage);
+    final LookupExecutor executor = LookupExecutor.all(terminologyClient, parameters);
+    return requireNonNull(execute(executor));
+  }
+
 
   @Nonnull
   private static <ResponseType, ResultType> ResultType execute(
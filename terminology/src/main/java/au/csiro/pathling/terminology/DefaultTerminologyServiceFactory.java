@@ -23,21 +23,34 @@ import au.csiro.pathling.config.HttpClientConfiguration;
 import au.csiro.pathling.config.TerminologyConfiguration;
 import au.csiro.pathling.encoders.FhirEncoders;
 import au.csiro.pathling.fhir.TerminologyClient;
+import au.csiro.pathling.fhir.TracingHttpClient;
+import au.csiro.pathling.terminology.caching.CachingTerminologyService;
 import au.csiro.pathling.terminology.caching.InMemoryCachingTerminologyService;
 import au.csiro.pathling.terminology.caching.PersistentCachingTerminologyService;
+import au.csiro.pathling.terminology.caching.TerminologyCacheSnapshot;
+import au.csiro.pathling.terminology.local.LocalTerminologyIndex;
+import au.csiro.pathling.terminology.local.LocalTerminologyLoader;
+import au.csiro.pathling.terminology.local.LocalTerminologyService;
 import au.csiro.pathling.utilities.ObjectHolder;
+import au.csiro.pathling.utilities.SerializableConfiguration;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.FhirVersionEnum;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.spark.broadcast.Broadcast;
 
 import org.apache.http.message.BasicHeader;
 import org.apache.http.Header;
@@ -70,6 +83,17 @@ public class DefaultTerminologyServiceFactory implements TerminologyServiceFacto
   @Nonnull
   private final TerminologyConfiguration configuration;
 
+  /**
+   * The Hadoop configuration of the driver, broadcast so that the snapshot and local resources can
+   * be read with the same settings on the executors. Only a reference to the broadcast variable is
+   * serialized along with the factory, so any credentials within the configuration are not
+   * captured within the closures that use it.
+   */
+  @Nullable
+  @Getter(AccessLevel.NONE)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private final Broadcast<SerializableConfiguration> hadoopConfiguration;
 
   public static synchronized void reset() {
     log.info("Resetting terminology services");
@@ -80,6 +104,21 @@ public class DefaultTerminologyServiceFactory implements TerminologyServiceFacto
       @Nonnull final TerminologyConfiguration configuration) {
     this.fhirVersion = fhirVersion;
     this.configuration = configuration;
+    this.hadoopConfiguration = null;
+  }
+
+  /**
+   * @param fhirVersion the FHIR version of the terminology server
+   * @param configuration the terminology configuration
+   * @param hadoopConfiguration the broadcast Hadoop configuration used to read the cache snapshot
+   * and the local terminology resources
+   */
+  public DefaultTerminologyServiceFactory(@Nonnull final FhirVersionEnum fhirVersion,
+      @Nonnull final TerminologyConfiguration configuration,
+      @Nonnull final Broadcast<SerializableConfiguration> hadoopConfiguration) {
+    this.fhirVersion = fhirVersion;
+    this.configuration = configuration;
+    this.hadoopConfiguration = hadoopConfiguration;
   }
 
   @Nonnull
@@ -90,8 +129,28 @@ public class DefaultTerminologyServiceFactory implements TerminologyServiceFacto
 
   @Nonnull
   private TerminologyService createService() {
+    final TerminologyService service = createBaseService();
+    if (configuration.isBulkLookup()) {
+      // Answer requests for individual properties and designations from a lookup of all the
+      // properties and designations of each concept.
+      log.debug("Enabling bulk lookup of properties and designations");
+      return new BulkLookupTerminologyService(service);
+    }
+    return service;
+  }
+
+  @Nonnull
+  private TerminologyService createBaseService() {
 
     final FhirContext fhirContext = FhirEncoders.contextFor(fhirVersion);
+    final String localPath = configuration.getLocalPath();
+    if (localPath != null) {
+      // If a local path is configured, answer requests from the resources at that location rather
+      // than sending them to the terminology server.
+      log.debug("Creating LocalTerminologyService with resources from: {}", localPath);
+      return createLocalService(fhirContext, localPath);
+    }
+
     final CloseableHttpClient httpClient = buildHttpClient(configuration.getClient());
     final TerminologyClient terminologyClient = TerminologyClient.build(fhirContext, configuration,
         httpClient);
@@ -102,16 +161,18 @@ public class DefaultTerminologyServiceFactory implements TerminologyServiceFacto
       // If caching is enabled and storage type is disk, use a persistent caching terminology 
       // service implementation.
       log.debug("Creating PersistentCachingTerminologyService with cache config: {}", cacheConfig);
-      return new PersistentCachingTerminologyService(terminologyClient, cacheConfig, httpClient,
-          terminologyClient);
+      return loadSnapshot(
+          new PersistentCachingTerminologyService(terminologyClient, cacheConfig, httpClient,
+              terminologyClient), cacheConfig, buildHadoopConfiguration());
 
     } else if (cacheConfig.isEnabled() && cacheConfig.getStorageType().equals(
         HttpClientCachingStorageType.MEMORY)) {
       // If caching is enabled and storage type is memory, use an in-memory caching terminology
       // service implementation.
       log.debug("Creating InMemoryCachingTerminologyService with cache config: {}", cacheConfig);
-      return new InMemoryCachingTerminologyService(terminologyClient, cacheConfig, httpClient,
-          terminologyClient);
+      return loadSnapshot(
+          new InMemoryCachingTerminologyService(terminologyClient, cacheConfig, httpClient,
+              terminologyClient), cacheConfig, buildHadoopConfiguration());
 
     } else {
       // If caching is disabled, use a terminology service implementation that does not cache.
@@ -120,6 +181,42 @@ public class DefaultTerminologyServiceFactory implements TerminologyServiceFacto
     }
   }
 
+  @Nonnull
+  private TerminologyService createLocalService(@Nonnull final FhirContext fhirContext,
+      @Nonnull final String localPath) {
+    try {
+      final LocalTerminologyIndex index = new LocalTerminologyLoader(fhirContext,
+          buildHadoopConfiguration()).load(localPath);
+      return new LocalTerminologyService(index, configuration.getAcceptLanguage());
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Unable to load terminology resources from: " + localPath, e);
+    }
+  }
+
+  @Nonnull
+  private static TerminologyService loadSnapshot(@Nonnull final CachingTerminologyService service,
+      @Nonnull final HttpClientCachingConfiguration cacheConfig,
+      @Nonnull final Configuration hadoopConfiguration) {
+    final String snapshotPath = cacheConfig.getSnapshotPath();
+    if (snapshotPath != null) {
+      try {
+        TerminologyCacheSnapshot.load(service, snapshotPath, hadoopConfiguration);
+      } catch (final IOException | RuntimeException e) {
+        // A snapshot that cannot be read or unmarshalled only means that the cache starts cold.
+        log.warn("Unable to load terminology cache snapshot: {}", snapshotPath, e);
+      }
+    }
+    return service;
+  }
+
+  @Nonnull
+  private Configuration buildHadoopConfiguration() {
+    // The broadcast configuration is shared within the executor, so it is copied before use.
+    return hadoopConfiguration != null
+           ? new Configuration(hadoopConfiguration.value().get())
+           : new Configuration();
+  }
+
   private static CloseableHttpClient buildHttpClient(
       @Nonnull final HttpClientConfiguration clientConfig) {
 
@@ -140,7 +237,8 @@ public class DefaultTerminologyServiceFactory implements TerminologyServiceFacto
       clientBuilder.setRetryHandler(new RequestRetryHandler(clientConfig.getRetryCount()));
     }
 
-    return clientBuilder.build();
+    // Trace each request, and propagate the trace context to the terminology server.
+    return new TracingHttpClient(clientBuilder.build());
   }
 
 }
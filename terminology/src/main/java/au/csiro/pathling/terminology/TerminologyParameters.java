@@ -21,6 +21,8 @@ import static java.util.Objects.requireNonNull;
 
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.function.Function;
 
@@ -33,6 +35,16 @@ import java.util.function.Function;
  */
 public interface TerminologyParameters extends Serializable {
 
+  /**
+   * Writes the fields that identify the result of the operation in a compact binary form, for use
+   * as a cache key. Two sets of parameters must write the same bytes if and only if they are
+   * equal.
+   *
+   * @param output the output to write to
+   * @throws IOException if there is a problem writing to the output
+   */
+  void writeKey(@Nonnull DataOutput output) throws IOException;
+
   @Nullable
   static <T> T optional(@Nonnull final Function<String, T> converter,
       @Nullable final String value) {
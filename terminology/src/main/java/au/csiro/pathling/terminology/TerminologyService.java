@@ -22,6 +22,8 @@ import au.csiro.pathling.fhirpath.encoding.ImmutableCoding;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -153,6 +155,54 @@ public interface TerminologyService {
     return lookup(coding, propertyCode, null);
   }
 
+  /**
+   * Gets all the properties and designations of the concept. Implementations should use a single
+   * <a href="https://www.hl7.org/fhir/R4/codesystem-operation-lookup.html">CodeSystem/$lookup</a>
+   * operation where possible, so that the result can be reused to answer requests for any of the
+   * properties or designations of the concept.
+   *
+   * @param coding the coding to lookup.
+   * @param acceptLanguage the preferred language for display and other localised properties.
+   * @return the list of all properties and designations.
+   */
+  @Nonnull
+  default List<PropertyOrDesignation> lookupAll(@Nonnull final Coding coding,
+      @Nullable final String acceptLanguage) {
+    final List<PropertyOrDesignation> result = new ArrayList<>(
+        lookup(coding, null, acceptLanguage));
+    result.addAll(lookup(coding, Designation.PROPERTY_CODE, acceptLanguage));
+    return result;
+  }
+
+  /**
+   * Retrieves the results of the lookups of a number of codings in advance, so that subsequent
+   * calls to {@link #lookup(Coding, String, String)} with the same arguments can be answered
+   * without contacting the terminology server. Implementations that cache results may send the
+   * requests together, e.g. within batch bundles. The default implementation does nothing.
+   *
+   * @param codings the codings to lookup.
+   * @param propertyCode the code of the propertyCode to lookup.
+   * @param acceptLanguage the preferred language for display and other localised properties.
+   */
+  default void prefetchLookup(@Nonnull final Collection<Coding> codings,
+      @Nullable final String propertyCode, @Nullable final String acceptLanguage) {
+    // Nothing to retrieve in advance by default.
+  }
+
+  /**
+   * Retrieves the results of the lookups of all the properties and designations of a number of
+   * codings in advance, so that subsequent calls to {@link #lookupAll(Coding, String)} with the
+   * same arguments can be answered without contacting the terminology server. The default
+   * implementation does nothing.
+   *
+   * @param codings the codings to lookup.
+   * @param acceptLanguage the preferred language for display and other localised properties.
+   */
+  default void prefetchLookupAll(@Nonnull final Collection<Coding> codings,
+      @Nullable final String acceptLanguage) {
+    // Nothing to retrieve in advance by default.
+  }
+
   /**
    * Common interface for properties and designations
    */
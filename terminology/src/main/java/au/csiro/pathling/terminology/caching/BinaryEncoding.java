@@ -0,0 +1,170 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.terminology.caching;
+
+import au.csiro.pathling.fhirpath.encoding.ImmutableCoding;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.hl7.fhir.r4.model.Coding;
+
+/**
+ * Helper methods for writing and reading the compact binary form used for terminology cache keys
+ * and values.
+ *
+ * @author John Grimes
+ */
+public final class BinaryEncoding {
+
+  private BinaryEncoding() {
+  }
+
+  /**
+   * Writes an unsigned integer using a variable-length encoding, which uses a single byte for
+   * values below 128.
+   *
+   * @param output the output to write to
+   * @param value the non-negative value to write
+   * @throws IOException if there is a problem writing to the output
+   */
+  public static void writeVarInt(@Nonnull final DataOutput output, final int value)
+      throws IOException {
+    int remaining = value;
+    while ((remaining & ~0x7F) != 0) {
+      output.writeByte((remaining & 0x7F) | 0x80);
+      remaining >>>= 7;
+    }
+    output.writeByte(remaining);
+  }
+
+  /**
+   * @param input the input to read from
+   * @return an unsigned integer written using {@link #writeVarInt}
+   * @throws IOException if there is a problem reading from the input
+   */
+  public static int readVarInt(@Nonnull final DataInput input) throws IOException {
+    int value = 0;
+    int shift = 0;
+    byte current;
+    do {
+      current = input.readByte();
+      value |= (current & 0x7F) << shift;
+      shift += 7;
+    } while ((current & 0x80) != 0);
+    return value;
+  }
+
+  /**
+   * Writes a string that may be null, as a length prefix followed by its UTF-8 bytes. A length
+   * prefix of zero denotes a null value.
+   *
+   * @param output the output to write to
+   * @param value the string to write
+   * @throws IOException if there is a problem writing to the output
+   */
+  public static void writeString(@Nonnull final DataOutput output, @Nullable final String value)
+      throws IOException {
+    if (value == null) {
+      writeVarInt(output, 0);
+    } else {
+      final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(output, bytes.length + 1);
+      output.write(bytes);
+    }
+  }
+
+  /**
+   * @param input the input to read from
+   * @return a string written using {@link #writeString}
+   * @throws IOException if there is a problem reading from the input
+   */
+  @Nullable
+  public static String readString(@Nonnull final DataInput input) throws IOException {
+    final int length = readVarInt(input);
+    if (length == 0) {
+      return null;
+    }
+    final byte[] bytes = new byte[length - 1];
+    input.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes the identifying fields of a coding (system, version and code), consistent with the
+   * equality of {@link ImmutableCoding}.
+   *
+   * @param output the output to write to
+   * @param coding the coding to write
+   * @throws IOException if there is a problem writing to the output
+   */
+  public static void writeCodingKey(@Nonnull final DataOutput output,
+      @Nonnull final ImmutableCoding coding) throws IOException {
+    writeString(output, coding.getSystem());
+    writeString(output, coding.getVersion());
+    writeString(output, coding.getCode());
+  }
+
+  /**
+   * Writes all the fields of a coding that may be null.
+   *
+   * @param output the output to write to
+   * @param coding the coding to write
+   * @throws IOException if there is a problem writing to the output
+   */
+  public static void writeCoding(@Nonnull final DataOutput output, @Nullable final Coding coding)
+      throws IOException {
+    output.writeBoolean(coding != null);
+    if (coding != null) {
+      writeString(output, coding.getSystem());
+      writeString(output, coding.getVersion());
+      writeString(output, coding.getCode());
+      writeString(output, coding.getDisplay());
+      output.writeByte(coding.hasUserSelected()
+                       ? (coding.getUserSelected()
+                          ? 1
+                          : 0)
+                       : -1);
+    }
+  }
+
+  /**
+   * @param input the input to read from
+   * @return a coding written using {@link #writeCoding}
+   * @throws IOException if there is a problem reading from the input
+   */
+  @Nullable
+  public static Coding readCoding(@Nonnull final DataInput input) throws IOException {
+    if (!input.readBoolean()) {
+      return null;
+    }
+    final String system = readString(input);
+    final String version = readString(input);
+    final String code = readString(input);
+    final String display = readString(input);
+    final Coding coding = new Coding(system, code, display).setVersion(version);
+    final byte userSelected = input.readByte();
+    if (userSelected >= 0) {
+      coding.setUserSelected(userSelected == 1);
+    }
+    return coding;
+  }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.terminology.caching;
+
+import au.csiro.pathling.terminology.TerminologyParameters;
+import jakarta.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * A key for a terminology cache entry, which holds the compact binary encoding of the identifying
+ * fields of the operation parameters. Unlike a hash code, two keys are only equal if the
+ * parameters that they were built from are equal, so a lookup can never return the result of a
+ * different request.
+ *
+ * @author John Grimes
+ */
+public final class CacheKey {
+
+  @Nonnull
+  private final byte[] bytes;
+
+  private final int hashCode;
+
+  CacheKey(@Nonnull final byte[] bytes) {
+    this.bytes = bytes;
+    this.hashCode = Arrays.hashCode(bytes);
+  }
+
+  /**
+   * @param parameters the parameters of a terminology operation
+   * @return a new key representing the parameters
+   */
+  @Nonnull
+  public static CacheKey of(@Nonnull final TerminologyParameters parameters) {
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+    try (final DataOutputStream output = new DataOutputStream(buffer)) {
+      parameters.writeKey(output);
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Problem encoding terminology cache key", e);
+    }
+    return new CacheKey(buffer.toByteArray());
+  }
+
+  /**
+   * @return a copy of the encoded bytes of this key
+   */
+  @Nonnull
+  public byte[] getBytes() {
+    return bytes.clone();
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final CacheKey that = (CacheKey) o;
+    return hashCode == that.hashCode && Arrays.equals(bytes, that.bytes);
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheKey(" + Base64.getEncoder().encodeToString(bytes) + ")";
+  }
+
+}
@@ -22,6 +22,7 @@ import static java.util.Objects.requireNonNull;
 
 import au.csiro.pathling.config.HttpClientCachingConfiguration;
 import au.csiro.pathling.fhir.TerminologyClient;
+import au.csiro.pathling.fhir.TerminologyRequest;
 import au.csiro.pathling.fhirpath.encoding.ImmutableCoding;
 import au.csiro.pathling.terminology.BaseTerminologyService;
 import au.csiro.pathling.terminology.TerminologyOperation;
@@ -29,6 +30,8 @@ import au.csiro.pathling.terminology.TerminologyParameters;
 import au.csiro.pathling.terminology.TerminologyResult;
 import au.csiro.pathling.terminology.lookup.LookupExecutor;
 import au.csiro.pathling.terminology.lookup.LookupParameters;
+import au.csiro.pathling.terminology.metrics.TerminologyMetrics;
+import au.csiro.pathling.terminology.metrics.TerminologyMetrics.CacheResult;
 import au.csiro.pathling.terminology.subsumes.SubsumesExecutor;
 import au.csiro.pathling.terminology.subsumes.SubsumesParameters;
 import au.csiro.pathling.terminology.translate.TranslateExecutor;
@@ -45,9 +48,20 @@ import java.io.Closeable;
 import java.io.Serializable;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
 import org.hl7.fhir.r4.model.Coding;
 import org.hl7.fhir.r4.model.codesystems.ConceptSubsumptionOutcome;
 import org.infinispan.Cache;
@@ -56,18 +70,25 @@ import org.infinispan.manager.EmbeddedCacheManager;
 /**
  * A terminology service that uses embedded Infinispan to cache the results of the underlying
  * terminology service operations.
+ * <p>
+ * Concurrent requests for the same uncached result are coalesced, so that only one request is sent
+ * to the terminology server. If stale-while-revalidate is enabled, expired results are returned
+ * immediately while a single revalidation request is sent in the background.
  *
  * @author John Grimes
  */
+@Slf4j
 public abstract class CachingTerminologyService extends BaseTerminologyService {
 
   private static final String VALIDATE_CODE_CACHE_NAME = "validate-code";
   private static final String SUBSUMES_CACHE_NAME = "subsumes";
   private static final String TRANSLATE_CACHE_NAME = "translate";
   private static final String LOOKUP_CACHE_NAME = "lookup";
+  private static final String LOOKUP_ALL_CACHE_NAME = "lookup-all";
   private static final String ETAG_HEADER_NAME = "etag";
   private static final String IF_NONE_MATCH_HEADER_NAME = "if-none-match";
   private static final String CACHE_CONTROL_HEADER_NAME = "cache-control";
+  private static final int REVALIDATION_THREADS = 4;
 
   @Nonnull
   protected final HttpClientCachingConfiguration configuration;
@@ -76,16 +97,26 @@ public abstract class CachingTerminologyService extends BaseTerminologyService {
   protected final EmbeddedCacheManager cacheManager;
 
   @Nonnull
-  protected final Cache<Integer, TerminologyResult<Boolean>> validateCodeCache;
+  protected final Cache<CacheKey, TerminologyResult<Boolean>> validateCodeCache;
 
   @Nonnull
-  protected final Cache<Integer, TerminologyResult<ConceptSubsumptionOutcome>> subsumesCache;
+  protected final Cache<CacheKey, TerminologyResult<ConceptSubsumptionOutcome>> subsumesCache;
 
   @Nonnull
-  protected final Cache<Integer, TerminologyResult<ArrayList<Translation>>> translateCache;
+  protected final Cache<CacheKey, TerminologyResult<ArrayList<Translation>>> translateCache;
 
   @Nonnull
-  protected final Cache<Integer, TerminologyResult<ArrayList<PropertyOrDesignation>>> lookupCache;
+  protected final Cache<CacheKey, TerminologyResult<ArrayList<PropertyOrDesignation>>> lookupCache;
+
+  @Nonnull
+  protected final Cache<CacheKey, TerminologyResult<ArrayList<PropertyOrDesignation>>> lookupAllCache;
+
+  @Nonnull
+  private final RequestCoalescer<Map.Entry<String, CacheKey>, TerminologyResult<?>> coalescer =
+      new RequestCoalescer<>();
+
+  @Nonnull
+  private final ExecutorService revalidationExecutor;
 
   /**
    * @param terminologyClient The terminology client to cache results from
@@ -98,16 +129,35 @@ public abstract class CachingTerminologyService extends BaseTerminologyService {
       @Nonnull final Closeable... resourcesToClose) {
     super(terminologyClient, resourcesToClose);
     this.configuration = configuration;
+    // The executor is registered before the cache manager, so that it is shut down before the
+    // caches are stopped.
+    revalidationExecutor = buildRevalidationExecutor();
+    registerResource((Closeable) revalidationExecutor::shutdownNow);
     // register manager as a closeable resource
     cacheManager = registerResource(buildCacheManager());
-    validateCodeCache = (Cache<Integer, TerminologyResult<Boolean>>) buildCache(cacheManager,
+    validateCodeCache = (Cache<CacheKey, TerminologyResult<Boolean>>) buildCache(cacheManager,
         VALIDATE_CODE_CACHE_NAME);
-    subsumesCache = (Cache<Integer, TerminologyResult<ConceptSubsumptionOutcome>>) buildCache(
+    subsumesCache = (Cache<CacheKey, TerminologyResult<ConceptSubsumptionOutcome>>) buildCache(
         cacheManager, SUBSUMES_CACHE_NAME);
-    translateCache = (Cache<Integer, TerminologyResult<ArrayList<Translation>>>) buildCache(
+    translateCache = (Cache<CacheKey, TerminologyResult<ArrayList<Translation>>>) buildCache(
         cacheManager, TRANSLATE_CACHE_NAME);
-    lookupCache = (Cache<Integer, TerminologyResult<ArrayList<PropertyOrDesignation>>>) buildCache(
+    lookupCache = (Cache<CacheKey, TerminologyResult<ArrayList<PropertyOrDesignation>>>) buildCache(
         cacheManager, LOOKUP_CACHE_NAME);
+    lookupAllCache = (Cache<CacheKey, TerminologyResult<ArrayList<PropertyOrDesignation>>>) buildCache(
+        cacheManager, LOOKUP_ALL_CACHE_NAME);
+  }
+
+  /**
+   * @return the caches used by this service, keyed by name
+   */
+  @Nonnull
+  Map<String, Cache<CacheKey, ?>> getCaches() {
+    return Map.of(
+        VALIDATE_CODE_CACHE_NAME, validateCodeCache,
+        SUBSUMES_CACHE_NAME, subsumesCache,
+        TRANSLATE_CACHE_NAME, translateCache,
+        LOOKUP_CACHE_NAME, lookupCache,
+        LOOKUP_ALL_CACHE_NAME, lookupAllCache);
   }
 
   @Override
@@ -149,6 +199,112 @@ public abstract class CachingTerminologyService extends BaseTerminologyService {
     return getFromCache(lookupCache, parameters, executor);
   }
 
+  @Nonnull
+  @Override
+  public List<PropertyOrDesignation> lookupAll(@Nonnull final Coding coding,
+      @Nullable final String acceptLanguage) {
+    final LookupParameters parameters = new LookupParameters(ImmutableCoding.of(coding), null,
+        acceptLanguage);
+    final LookupExecutor executor = LookupExecutor.all(terminologyClient, parameters);
+    return getFromCache(lookupAllCache, parameters, executor);
+  }
+
+  @Override
+  public void prefetchLookup(@Nonnull final Collection<Coding> codings,
+      @Nullable final String propertyCode, @Nullable final String acceptLanguage) {
+    prefetch(lookupCache, codings,
+        coding -> new LookupParameters(ImmutableCoding.of(coding), propertyCode, acceptLanguage),
+        parameters -> new LookupExecutor(terminologyClient, parameters));
+  }
+
+  @Override
+  public void prefetchLookupAll(@Nonnull final Collection<Coding> codings,
+      @Nullable final String acceptLanguage) {
+    prefetch(lookupAllCache, codings,
+        coding -> new LookupParameters(ImmutableCoding.of(coding), null, acceptLanguage),
+        parameters -> LookupExecutor.all(terminologyClient, parameters));
+  }
+
+  /**
+   * Fetches the lookup results that are missing from the cache or expired, using a single call to
+   * {@link TerminologyClient#executeAll(List)}, and stores them in the cache.
+   * <p>
+   * Lookups that fail for reasons other than an error response from the server are not cached, and
+   * will be retried individually when their results are requested.
+   *
+   * @param cache The cache being used for the lookups
+   * @param codings The codings to lookup
+   * @param toParameters A function that creates the parameters for the lookup of a coding
+   * @param toExecutor A function that creates the executor for a lookup
+   */
+  private void prefetch(
+      @Nonnull final Cache<CacheKey, TerminologyResult<ArrayList<PropertyOrDesignation>>> cache,
+      @Nonnull final Collection<Coding> codings,
+      @Nonnull final Function<Coding, LookupParameters> toParameters,
+      @Nonnull final Function<LookupParameters, LookupExecutor> toExecutor) {
+    final Map<CacheKey, PendingLookup> pending = new LinkedHashMap<>();
+    for (final Coding coding : codings) {
+      final LookupParameters parameters = toParameters.apply(coding);
+      final CacheKey key = CacheKey.of(parameters);
+      if (pending.containsKey(key)) {
+        continue;
+      }
+      final TerminologyResult<ArrayList<PropertyOrDesignation>> cached = cache.get(key);
+      if (cached != null && !isExpired(cached)) {
+        continue;
+      }
+      final LookupExecutor executor = toExecutor.apply(parameters);
+      final Optional<ArrayList<PropertyOrDesignation>> invalidResult = executor.validate();
+      if (invalidResult.isPresent()) {
+        // If the parameters fail validation, cache the invalid result forever.
+        cache.put(key, new TerminologyResult<>(invalidResult.get(), null, null, false));
+        continue;
+      }
+      // Make the request conditional if the cached result is accompanied by an ETag.
+      final TerminologyRequest request = executor.describeRequest()
+          .withIfNoneMatch(cached != null
+                           ? cached.getETag()
+                           : null);
+      pending.put(key, new PendingLookup(key, executor, request, cached));
+    }
+    if (pending.isEmpty()) {
+      return;
+    }
+
+    final String operationName = cache.getName();
+    final List<PendingLookup> lookups = new ArrayList<>(pending.values());
+    final long start = System.nanoTime();
+    final List<CompletableFuture<MethodOutcome>> outcomes = terminologyClient.executeAll(
+        lookups.stream().map(PendingLookup::getRequest).collect(Collectors.toList()));
+    for (int i = 0; i < lookups.size(); i++) {
+      try {
+        final TerminologyResult<ArrayList<PropertyOrDesignation>> result = resolve(
+            lookups.get(i), outcomes.get(i));
+        cache.put(lookups.get(i).getKey(), result);
+      } catch (final RuntimeException e) {
+        log.warn("Failed to prefetch terminology lookup, it will be retried individually", e);
+      }
+    }
+    // The lookups are sent together, so the request is recorded once for the whole batch.
+    TerminologyMetrics.recordRequest(operationName, System.nanoTime() - start);
+  }
+
+  @Nonnull
+  private TerminologyResult<ArrayList<PropertyOrDesignation>> resolve(
+      @Nonnull final PendingLookup lookup,
+      @Nonnull final CompletableFuture<MethodOutcome> outcome) {
+    try {
+      return fromOutcome(lookup.getExecutor(), outcome.join());
+    } catch (final CompletionException e) {
+      if (e.getCause() instanceof final NotModifiedException notModified) {
+        return fromNotModified(notModified, requireNonNull(lookup.getCached()));
+      } else if (e.getCause() instanceof final BaseServerResponseException error) {
+        return fromError(lookup.getExecutor(), error);
+      }
+      throw e;
+    }
+  }
+
   /**
    * Gets the result of an operation from the cache, or fetches a new result if the cache is empty
    * or expired.
@@ -163,33 +319,83 @@ public abstract class CachingTerminologyService extends BaseTerminologyService {
    * @return The operation result
    */
   private <ParametersType extends TerminologyParameters, ResponseType, ResultType extends Serializable> ResultType getFromCache(
-      @Nonnull final Cache<Integer, TerminologyResult<ResultType>> cache,
+      @Nonnull final Cache<CacheKey, TerminologyResult<ResultType>> cache,
       @Nonnull final ParametersType parameters,
       @Nonnull final TerminologyOperation<ResponseType, ResultType> operation
   ) {
-    final int key = parameters.hashCode();
+    final CacheKey key = CacheKey.of(parameters);
     final TerminologyResult<ResultType> cached = cache.get(key);
 
+    final String operationName = cache.getName();
     if (cached == null) {
       // Cache miss.
-      final TerminologyResult<ResultType> result = fetch(operation, Optional.empty());
-      cache.put(key, result);
-      return result.getData();
+      TerminologyMetrics.recordCacheResult(operationName, CacheResult.MISS);
+      return fetchCoalesced(cache, key, operation).getData();
+    } else if (isExpired(cached)) {
+      // Cache hit, but the entry is expired and needs to be revalidated.
+      TerminologyMetrics.recordCacheResult(operationName, CacheResult.EXPIRED);
+      if (configuration.isStaleWhileRevalidate()) {
+        // Serve the stale result, and revalidate it in the background unless a revalidation is
+        // already in flight.
+        coalescer.executeInBackground(Map.entry(operationName, key), () -> {
+          final TerminologyResult<ResultType> result = fetch(operationName, operation,
+              Optional.of(cached));
+          cache.put(key, result);
+          return result;
+        }, revalidationExecutor);
+        return cached.getData();
+      }
+      return fetchCoalesced(cache, key, operation).getData();
     } else {
-      final boolean expired =
-          cached.getExpires() != null && System.currentTimeMillis() > cached.getExpires();
-      return requireNonNull(cache.compute(key,
-          (k, v) -> expired
-                    // Cache hit, but the entry is expired and needs to be revalidated.
-                    ? fetch(operation, Optional.ofNullable(v))
-                    // Cache hit, and the entry is still valid.
-                    : v)).getData();
+      // Cache hit, and the entry is still valid.
+      TerminologyMetrics.recordCacheResult(operationName, CacheResult.HIT);
+      return cached.getData();
     }
   }
 
+  /**
+   * Fetches a result and stores it in the cache, unless a fetch for the same key is already in
+   * flight, in which case its result is awaited and returned instead.
+   */
+  @SuppressWarnings("unchecked")
+  @Nonnull
+  private <ResponseType, ResultType extends Serializable> TerminologyResult<ResultType> fetchCoalesced(
+      @Nonnull final Cache<CacheKey, TerminologyResult<ResultType>> cache,
+      @Nonnull final CacheKey key,
+      @Nonnull final TerminologyOperation<ResponseType, ResultType> operation) {
+    final String operationName = cache.getName();
+    return (TerminologyResult<ResultType>) coalescer.execute(Map.entry(operationName, key), () -> {
+      // Another caller may have updated the entry since we last checked.
+      final TerminologyResult<ResultType> current = cache.get(key);
+      if (current != null && !isExpired(current)) {
+        return current;
+      }
+      final TerminologyResult<ResultType> result = fetch(operationName, operation,
+          Optional.ofNullable(current));
+      cache.put(key, result);
+      return result;
+    });
+  }
+
+  private static boolean isExpired(@Nonnull final TerminologyResult<?> result) {
+    return result.getExpires() != null && System.currentTimeMillis() > result.getExpires();
+  }
+
+  @Nonnull
+  private static ExecutorService buildRevalidationExecutor() {
+    final AtomicInteger threadNumber = new AtomicInteger();
+    return Executors.newFixedThreadPool(REVALIDATION_THREADS, runnable -> {
+      final Thread thread = new Thread(runnable,
+          "terminology-revalidation-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
   /**
    * Fetches an operation result, or revalidates it if the cached result is still valid.
    *
+   * @param operationName The name of the operation, used for recording metrics
    * @param operation A {@link TerminologyOperation} that provides the behavior specific to the type
    * of operation
    * @param cached A previously cached value
@@ -198,6 +404,7 @@ public abstract class CachingTerminologyService extends BaseTerminologyService {
    * @return The operation result
    */
   private <ResponseType, ResultType extends Serializable> TerminologyResult<ResultType> fetch(
+      @Nonnull final String operationName,
       @Nonnull final TerminologyOperation<ResponseType, ResultType> operation,
       @Nonnull final Optional<TerminologyResult<ResultType>> cached) {
     final Optional<ResultType> invalidResult = operation.validate();
@@ -212,60 +419,102 @@ public abstract class CachingTerminologyService extends BaseTerminologyService {
     cached.flatMap(c -> Optional.ofNullable(c.getETag()))
         .ifPresent(eTag -> request.withAdditionalHeader(IF_NONE_MATCH_HEADER_NAME, eTag));
 
-    // We use a default expiry if the server does not provide one.
-    final Optional<Long> defaultExpires = Optional.of(
-        secondsFromNow(configuration.getDefaultExpiry()));
-    // There may be a configured override expiry.
-    final Optional<Long> overrideExpires = Optional.ofNullable(
-        configuration.getOverrideExpiry()).map(CachingTerminologyService::secondsFromNow);
-
+    final long start = System.nanoTime();
     try {
       final MethodOutcome outcome = request.returnMethodOutcome().execute();
-
-      // If the response was 200 OK, use the data from the fresh response.
-      @SuppressWarnings("unchecked") final ResultType result = operation.extractResult(
-          (ResponseType) outcome.getResource());
-      final Optional<String> newETag = getSingularHeader(outcome, ETAG_HEADER_NAME);
-      final Optional<Long> serverExpires = getExpires(outcome);
-      return new TerminologyResult<>(
-          result,
-          newETag.orElse(null),
-          // Expiry values are used in this order:
-          // 1. The override expiry, if present;
-          // 2. The expiry provided by the server, if present, then;
-          // 3. The default expiry.
-          resolveExpires(List.of(overrideExpires, serverExpires, defaultExpires)),
-          false);
-
+      TerminologyMetrics.recordRequest(operationName, System.nanoTime() - start);
+      return fromOutcome(operation, outcome);
     } catch (final NotModifiedException e) {
-      // If the response was 304 Not Modified, use the data from the cached response and update 
-      // the ETag and expiry.
-      final Optional<String> newETag = getSingularHeader(e.getResponseHeaders(), ETAG_HEADER_NAME);
-      final TerminologyResult<ResultType> previous = checkPresent(cached);
-      final Optional<Long> serverExpires = getExpires(e.getResponseHeaders());
-      final Optional<Long> previousExpiry = Optional.ofNullable(previous.getExpires());
-      return new TerminologyResult<>(previous.getData(),
-          newETag.orElse(previous.getETag()),
-          // Expiry values are used in this order:
-          // 1. The override expiry, if present;
-          // 2. The expiry from the 304 response, if present;
-          // 3. The expiry from the cached response, if present, then;
-          // 4. The default expiry.
-          resolveExpires(List.of(overrideExpires, serverExpires, previousExpiry, defaultExpires)),
-          false);
-
+      TerminologyMetrics.recordRequest(operationName, System.nanoTime() - start);
+      return fromNotModified(e, checkPresent(cached));
     } catch (final BaseServerResponseException e) {
-      // If the terminology server rejects the request as invalid, cache the invalid result for the 
-      // amount of time instructed by the server. If there is no such instruction, cache it for the 
-      // configured default expiry.
-      final Optional<Long> serverExpires = getExpires(e.getResponseHeaders());
-      final long expires = resolveExpires(List.of(serverExpires, defaultExpires));
-      final TerminologyResult<ResultType> fallback = new TerminologyResult<>(
-          operation.invalidRequestFallback(), null, expires, false);
-      return handleError(e, fallback);
+      TerminologyMetrics.recordRequest(operationName, System.nanoTime() - start);
+      return fromError(operation, e);
     }
   }
 
+  /**
+   * Builds the result of an operation from a 200 OK response.
+   */
+  @Nonnull
+  private <ResponseType, ResultType extends Serializable> TerminologyResult<ResultType> fromOutcome(
+      @Nonnull final TerminologyOperation<ResponseType, ResultType> operation,
+      @Nonnull final MethodOutcome outcome) {
+    // If the response was 200 OK, use the data from the fresh response.
+    @SuppressWarnings("unchecked") final ResultType result = operation.extractResult(
+        (ResponseType) outcome.getResource());
+    final Optional<String> newETag = getSingularHeader(outcome, ETAG_HEADER_NAME);
+    final Optional<Long> serverExpires = getExpires(outcome);
+    return new TerminologyResult<>(
+        result,
+        newETag.orElse(null),
+        // Expiry values are used in this order:
+        // 1. The override expiry, if present;
+        // 2. The expiry provided by the server, if present, then;
+        // 3. The default expiry.
+        resolveExpires(List.of(overrideExpires(), serverExpires, defaultExpires())),
+        false);
+  }
+
+  /**
+   * Builds the result of an operation from a 304 Not Modified response to a conditional request.
+   */
+  @Nonnull
+  private <ResultType extends Serializable> TerminologyResult<ResultType> fromNotModified(
+      @Nonnull final NotModifiedException e,
+      @Nonnull final TerminologyResult<ResultType> previous) {
+    // If the response was 304 Not Modified, use the data from the cached response and update 
+    // the ETag and expiry.
+    final Optional<String> newETag = getSingularHeader(e.getResponseHeaders(), ETAG_HEADER_NAME);
+    final Optional<Long> serverExpires = getExpires(e.getResponseHeaders());
+    final Optional<Long> previousExpiry = Optional.ofNullable(previous.getExpires());
+    return new TerminologyResult<>(previous.getData(),
+        newETag.orElse(previous.getETag()),
+        // Expiry values are used in this order:
+        // 1. The override expiry, if present;
+        // 2. The expiry from the 304 response, if present;
+        // 3. The expiry from the cached response, if present, then;
+        // 4. The default expiry.
+        resolveExpires(
+            List.of(overrideExpires(), serverExpires, previousExpiry, defaultExpires())),
+        false);
+  }
+
+  /**
+   * Builds the result of an operation from an error response, or rethrows the error if it is not
+   * the result of an invalid request.
+   */
+  @Nonnull
+  private <ResponseType, ResultType extends Serializable> TerminologyResult<ResultType> fromError(
+      @Nonnull final TerminologyOperation<ResponseType, ResultType> operation,
+      @Nonnull final BaseServerResponseException e) {
+    // If the terminology server rejects the request as invalid, cache the invalid result for the 
+    // amount of time instructed by the server. If there is no such instruction, cache it for the 
+    // configured default expiry.
+    final Optional<Long> serverExpires = getExpires(e.getResponseHeaders());
+    final long expires = resolveExpires(List.of(serverExpires, defaultExpires()));
+    final TerminologyResult<ResultType> fallback = new TerminologyResult<>(
+        operation.invalidRequestFallback(), null, expires, false);
+    return handleError(e, fallback);
+  }
+
+  /**
+   * @return the default expiry, which is used if the server does not provide one
+   */
+  @Nonnull
+  private Optional<Long> defaultExpires() {
+    return Optional.of(secondsFromNow(configuration.getDefaultExpiry()));
+  }
+
+  /**
+   * @return the configured override expiry, if any
+   */
+  @Nonnull
+  private Optional<Long> overrideExpires() {
+    return Optional.ofNullable(configuration.getOverrideExpiry())
+        .map(CachingTerminologyService::secondsFromNow);
+  }
+
   /**
    * @return a new {@link EmbeddedCacheManager} instance appropriate for the specific implementation
    */
@@ -276,7 +525,7 @@ public abstract class CachingTerminologyService extends BaseTerminologyService {
    * @param cacheName a name for the cache
    * @return a new {@link Cache} instance appropriate for the specific implementation
    */
-  protected abstract Cache<Integer, ?> buildCache(@Nonnull final EmbeddedCacheManager cacheManager,
+  protected abstract Cache<CacheKey, ?> buildCache(@Nonnull final EmbeddedCacheManager cacheManager,
       @Nonnull final String cacheName);
 
   @SuppressWarnings("SameParameterValue")
@@ -336,4 +585,21 @@ public abstract class CachingTerminologyService extends BaseTerminologyService {
         .orElseThrow();
   }
 
+  @Value
+  private static class PendingLookup {
+
+    @Nonnull
+    CacheKey key;
+
+    @Nonnull
+    LookupExecutor executor;
+
+    @Nonnull
+    TerminologyRequest request;
+
+    @Nullable
+    TerminologyResult<ArrayList<PropertyOrDesignation>> cached;
+
+  }
+
 }
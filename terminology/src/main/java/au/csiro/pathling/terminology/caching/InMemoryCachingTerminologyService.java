@@ -47,7 +47,7 @@ public class InMemoryCachingTerminologyService extends CachingTerminologyService
   }
 
   @Override
-  protected Cache<Integer, ?> buildCache(@Nonnull final EmbeddedCacheManager cacheManager,
+  protected Cache<CacheKey, ?> buildCache(@Nonnull final EmbeddedCacheManager cacheManager,
       @Nonnull final String cacheName) {
     final Configuration cacheConfig = new ConfigurationBuilder()
         .memory()
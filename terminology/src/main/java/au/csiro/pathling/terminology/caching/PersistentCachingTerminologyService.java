@@ -26,7 +26,6 @@ import java.io.Closeable;
 import java.nio.file.Path;
 import lombok.extern.slf4j.Slf4j;
 import org.infinispan.Cache;
-import org.infinispan.commons.marshall.JavaSerializationMarshaller;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.configuration.cache.ConfigurationBuilder;
 import org.infinispan.configuration.global.GlobalConfiguration;
@@ -45,8 +44,10 @@ import org.infinispan.manager.EmbeddedCacheManager;
 @Slf4j
 public class PersistentCachingTerminologyService extends CachingTerminologyService {
 
-  private static final String DATA_DIRECTORY = "data";
-  private static final String INDEX_DIRECTORY = "index";
+  // The directory names include a version for the format written by TerminologyCacheMarshaller,
+  // so that a store written in an earlier format is not read using a newer one.
+  private static final String DATA_DIRECTORY = "data-v2";
+  private static final String INDEX_DIRECTORY = "index-v2";
 
   public PersistentCachingTerminologyService(@Nonnull final TerminologyClient terminologyClient,
       @Nonnull final HttpClientCachingConfiguration configuration,
@@ -58,15 +59,13 @@ public class PersistentCachingTerminologyService extends CachingTerminologyServi
   protected EmbeddedCacheManager buildCacheManager() {
     final GlobalConfigurationBuilder globalConfigBuilder = new GlobalConfigurationBuilder();
     globalConfigBuilder.serialization()
-        .marshaller(new JavaSerializationMarshaller())
-        .allowList()
-        .addRegexp(".*");
+        .marshaller(new TerminologyCacheMarshaller());
     final GlobalConfiguration globalConfig = globalConfigBuilder.build();
     return new DefaultCacheManager(globalConfig);
   }
 
   @Override
-  protected Cache<Integer, ?> buildCache(@Nonnull final EmbeddedCacheManager cacheManager,
+  protected Cache<CacheKey, ?> buildCache(@Nonnull final EmbeddedCacheManager cacheManager,
       @Nonnull final String cacheName) {
     final String storagePath = configuration.getStoragePath();
     final String dataLocation = Path.of(requireNonNull(storagePath), DATA_DIRECTORY).toString();
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.terminology.caching;
+
+import jakarta.annotation.Nonnull;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ensures that at most one computation is in flight for any given key. Callers that ask for a key
+ * that is already being computed wait for the in-flight computation and share its outcome, rather
+ * than starting their own.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the computed values
+ * @author John Grimes
+ */
+@Slf4j
+class RequestCoalescer<K, V> {
+
+  @Nonnull
+  private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+  /**
+   * Computes a value using the supplier, unless a computation for the same key is already in
+   * flight, in which case the result of that computation is returned instead.
+   *
+   * @param key the key identifying the computation
+   * @param supplier the computation to run if no other is in flight
+   * @return the computed value
+   */
+  V execute(@Nonnull final K key, @Nonnull final Supplier<V> supplier) {
+    final CompletableFuture<V> future = new CompletableFuture<>();
+    final CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+    if (existing != null) {
+      return join(existing);
+    }
+    try {
+      final V result = supplier.get();
+      future.complete(result);
+      return result;
+    } catch (final Throwable e) {
+      // Waiting callers receive the same error as the caller that ran the computation.
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, future);
+    }
+  }
+
+  /**
+   * Starts computing a value in the background using the supplier, unless a computation for the
+   * same key is already in flight. Callers of {@link #execute} for the same key will wait for the
+   * background computation to finish. Failures are logged and otherwise discarded.
+   *
+   * @param key the key identifying the computation
+   * @param supplier the computation to run if no other is in flight
+   * @param executor the executor to run the computation on
+   * @return true if a new computation was started
+   */
+  boolean executeInBackground(@Nonnull final K key, @Nonnull final Supplier<V> supplier,
+      @Nonnull final Executor executor) {
+    final CompletableFuture<V> future = new CompletableFuture<>();
+    if (inFlight.putIfAbsent(key, future) != null) {
+      return false;
+    }
+    try {
+      executor.execute(() -> {
+        try {
+          future.complete(supplier.get());
+        } catch (final Throwable e) {
+          log.warn("Background computation failed for key: {}", key, e);
+          future.completeExceptionally(e);
+        } finally {
+          inFlight.remove(key, future);
+        }
+      });
+      return true;
+    } catch (final RejectedExecutionException e) {
+      // This can happen if the executor has been shut down.
+      inFlight.remove(key, future);
+      future.completeExceptionally(e);
+      return false;
+    }
+  }
+
+  private static <V> V join(@Nonnull final CompletableFuture<V> future) {
+    try {
+      return future.join();
+    } catch (final CompletionException e) {
+      // Unwrap the original error, so that callers see the same exception regardless of whether
+      // they ran the computation themselves.
+      final Throwable cause = e.getCause();
+      if (cause instanceof final RuntimeException runtimeException) {
+        throw runtimeException;
+      } else if (cause instanceof final Error error) {
+        throw error;
+      }
+      throw e;
+    }
+  }
+
+}
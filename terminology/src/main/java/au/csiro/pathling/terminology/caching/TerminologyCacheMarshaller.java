@@ -0,0 +1,327 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.terminology.caching;
+
+import static au.csiro.pathling.terminology.caching.BinaryEncoding.readCoding;
+import static au.csiro.pathling.terminology.caching.BinaryEncoding.readString;
+import static au.csiro.pathling.terminology.caching.BinaryEncoding.readVarInt;
+import static au.csiro.pathling.terminology.caching.BinaryEncoding.writeCoding;
+import static au.csiro.pathling.terminology.caching.BinaryEncoding.writeString;
+import static au.csiro.pathling.terminology.caching.BinaryEncoding.writeVarInt;
+import static java.util.Objects.requireNonNull;
+
+import au.csiro.pathling.terminology.TerminologyResult;
+import au.csiro.pathling.terminology.TerminologyService.Designation;
+import au.csiro.pathling.terminology.TerminologyService.Property;
+import au.csiro.pathling.terminology.TerminologyService.PropertyOrDesignation;
+import au.csiro.pathling.terminology.TerminologyService.Translation;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.PrimitiveType;
+import org.hl7.fhir.r4.model.Type;
+import org.hl7.fhir.r4.model.codesystems.ConceptMapEquivalence;
+import org.hl7.fhir.r4.model.codesystems.ConceptSubsumptionOutcome;
+import org.infinispan.commons.dataconversion.MediaType;
+import org.infinispan.commons.io.ByteBuffer;
+import org.infinispan.commons.io.ByteBufferImpl;
+import org.infinispan.commons.marshall.AbstractMarshaller;
+
+/**
+ * An Infinispan marshaller that is purpose-built for the keys and values of the terminology caches.
+ * It writes a compact binary form of {@link CacheKey} and {@link TerminologyResult} objects, and
+ * their payloads, which is faster and much smaller than Java serialization.
+ * <p>
+ * Property values that are neither primitives nor codings are rare, and are written using Java
+ * serialization restricted to the FHIR model classes.
+ *
+ * @author John Grimes
+ */
+public class TerminologyCacheMarshaller extends AbstractMarshaller {
+
+  private static final MediaType MEDIA_TYPE = MediaType.fromString(
+      "application/x-pathling-terminology-cache");
+
+  private static final String FHIR_MODEL_PACKAGE = "org.hl7.fhir.r4.model.";
+  private static final ObjectInputFilter SERIALIZED_TYPE_FILTER = ObjectInputFilter.Config
+      .createFilter("org.hl7.fhir.**;java.**;!*");
+
+  private static final byte KEY = 1;
+  private static final byte RESULT = 2;
+
+  private static final byte DATA_NULL = 0;
+  private static final byte DATA_BOOLEAN = 1;
+  private static final byte DATA_SUBSUMPTION = 2;
+  private static final byte DATA_TRANSLATIONS = 3;
+  private static final byte DATA_PROPERTIES_AND_DESIGNATIONS = 4;
+
+  private static final byte PROPERTY = 1;
+  private static final byte DESIGNATION = 2;
+
+  private static final byte VALUE_PRIMITIVE = 1;
+  private static final byte VALUE_CODING = 2;
+  private static final byte VALUE_SERIALIZED = 3;
+
+  @Override
+  protected ByteBuffer objectToBuffer(@Nonnull final Object o, final int estimatedSize)
+      throws IOException {
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream(estimatedSize);
+    try (final DataOutputStream output = new DataOutputStream(buffer)) {
+      if (o instanceof final CacheKey key) {
+        output.writeByte(KEY);
+        final byte[] bytes = key.getBytes();
+        writeVarInt(output, bytes.length);
+        output.write(bytes);
+      } else if (o instanceof final TerminologyResult<?> result) {
+        output.writeByte(RESULT);
+        writeResult(output, result);
+      } else {
+        throw new IllegalArgumentException("Cannot marshall object of type: " + o.getClass());
+      }
+    }
+    return ByteBufferImpl.create(buffer.toByteArray());
+  }
+
+  @Override
+  public Object objectFromByteBuffer(@Nonnull final byte[] buf, final int offset,
+      final int length) throws IOException, ClassNotFoundException {
+    try (final DataInputStream input = new DataInputStream(
+        new ByteArrayInputStream(buf, offset, length))) {
+      final byte type = input.readByte();
+      switch (type) {
+        case KEY:
+          final byte[] bytes = new byte[readVarInt(input)];
+          input.readFully(bytes);
+          return new CacheKey(bytes);
+        case RESULT:
+          return readResult(input);
+        default:
+          throw new IOException("Unknown terminology cache entry type: " + type);
+      }
+    }
+  }
+
+  @Override
+  public boolean isMarshallable(@Nonnull final Object o) {
+    return o instanceof CacheKey || o instanceof TerminologyResult;
+  }
+
+  @Override
+  public MediaType mediaType() {
+    return MEDIA_TYPE;
+  }
+
+  private static void writeResult(@Nonnull final DataOutput output,
+      @Nonnull final TerminologyResult<?> result) throws IOException {
+    writeData(output, result.getData());
+    writeString(output, result.getETag());
+    output.writeBoolean(result.getExpires() != null);
+    if (result.getExpires() != null) {
+      output.writeLong(result.getExpires());
+    }
+    output.writeBoolean(result.getNotModified());
+  }
+
+  @Nonnull
+  private static TerminologyResult<?> readResult(@Nonnull final DataInput input)
+      throws IOException, ClassNotFoundException {
+    final Serializable data = readData(input);
+    final String eTag = readString(input);
+    final Long expires = input.readBoolean()
+                         ? input.readLong()
+                         : null;
+    final boolean notModified = input.readBoolean();
+    return new TerminologyResult<>(data, eTag, expires, notModified);
+  }
+
+  private static void writeData(@Nonnull final DataOutput output, @Nullable final Object data)
+      throws IOException {
+    if (data == null) {
+      output.writeByte(DATA_NULL);
+    } else if (data instanceof final Boolean value) {
+      output.writeByte(DATA_BOOLEAN);
+      output.writeBoolean(value);
+    } else if (data instanceof final ConceptSubsumptionOutcome outcome) {
+      output.writeByte(DATA_SUBSUMPTION);
+      writeString(output, outcome.toCode());
+    } else if (data instanceof final List<?> list && isListOf(list, Translation.class)) {
+      output.writeByte(DATA_TRANSLATIONS);
+      writeVarInt(output, list.size());
+      for (final Object item : list) {
+        final Translation translation = (Translation) item;
+        writeString(output, translation.getEquivalence().toCode());
+        writeCoding(output, translation.getConcept());
+      }
+    } else if (data instanceof final List<?> list
+        && isListOf(list, PropertyOrDesignation.class)) {
+      output.writeByte(DATA_PROPERTIES_AND_DESIGNATIONS);
+      writeVarInt(output, list.size());
+      for (final Object item : list) {
+        writePropertyOrDesignation(output, (PropertyOrDesignation) item);
+      }
+    } else {
+      throw new IllegalArgumentException(
+          "Cannot marshall terminology result of type: " + data.getClass());
+    }
+  }
+
+  @Nullable
+  private static Serializable readData(@Nonnull final DataInput input)
+      throws IOException, ClassNotFoundException {
+    final byte type = input.readByte();
+    switch (type) {
+      case DATA_NULL:
+        return null;
+      case DATA_BOOLEAN:
+        return input.readBoolean();
+      case DATA_SUBSUMPTION:
+        return ConceptSubsumptionOutcome.fromCode(readString(input));
+      case DATA_TRANSLATIONS: {
+        final int size = readVarInt(input);
+        final ArrayList<Translation> translations = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          final ConceptMapEquivalence equivalence = ConceptMapEquivalence.fromCode(
+              readString(input));
+          translations.add(Translation.of(equivalence, requireNonNull(readCoding(input))));
+        }
+        return translations;
+      }
+      case DATA_PROPERTIES_AND_DESIGNATIONS: {
+        final int size = readVarInt(input);
+        final ArrayList<PropertyOrDesignation> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          items.add(readPropertyOrDesignation(input));
+        }
+        return items;
+      }
+      default:
+        throw new IOException("Unknown terminology result type: " + type);
+    }
+  }
+
+  private static void writePropertyOrDesignation(@Nonnull final DataOutput output,
+      @Nonnull final PropertyOrDesignation item) throws IOException {
+    if (item instanceof final Property property) {
+      output.writeByte(PROPERTY);
+      writeString(output, property.getCode());
+      writePropertyValue(output, property.getValue());
+    } else if (item instanceof final Designation designation) {
+      output.writeByte(DESIGNATION);
+      writeCoding(output, designation.getUse());
+      writeString(output, designation.getLanguage());
+      writeString(output, designation.getValue());
+    } else {
+      throw new IllegalArgumentException("Cannot marshall lookup result: " + item.getClass());
+    }
+  }
+
+  @Nonnull
+  private static PropertyOrDesignation readPropertyOrDesignation(@Nonnull final DataInput input)
+      throws IOException, ClassNotFoundException {
+    final byte type = input.readByte();
+    switch (type) {
+      case PROPERTY:
+        final String code = requireNonNull(readString(input));
+        return Property.of(code, readPropertyValue(input));
+      case DESIGNATION:
+        final Coding use = readCoding(input);
+        final String language = readString(input);
+        return Designation.of(use, language, requireNonNull(readString(input)));
+      default:
+        throw new IOException("Unknown lookup result type: " + type);
+    }
+  }
+
+  private static void writePropertyValue(@Nonnull final DataOutput output,
+      @Nonnull final Type value) throws IOException {
+    if (value instanceof final PrimitiveType<?> primitive
+        && value.getClass().getName().equals(FHIR_MODEL_PACKAGE + value.getClass()
+        .getSimpleName())) {
+      output.writeByte(VALUE_PRIMITIVE);
+      writeString(output, value.getClass().getSimpleName());
+      writeString(output, primitive.getValueAsString());
+    } else if (value instanceof final Coding coding) {
+      output.writeByte(VALUE_CODING);
+      writeCoding(output, coding);
+    } else {
+      output.writeByte(VALUE_SERIALIZED);
+      final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      try (final ObjectOutputStream objectOutput = new ObjectOutputStream(buffer)) {
+        objectOutput.writeObject(value);
+      }
+      final byte[] bytes = buffer.toByteArray();
+      writeVarInt(output, bytes.length);
+      output.write(bytes);
+    }
+  }
+
+  @Nonnull
+  private static Type readPropertyValue(@Nonnull final DataInput input)
+      throws IOException, ClassNotFoundException {
+    final byte type = input.readByte();
+    switch (type) {
+      case VALUE_PRIMITIVE: {
+        final String className = FHIR_MODEL_PACKAGE + readString(input);
+        final Class<?> valueClass = Class.forName(className);
+        if (!PrimitiveType.class.isAssignableFrom(valueClass)) {
+          throw new InvalidClassException(className, "Not a FHIR primitive type");
+        }
+        try {
+          final PrimitiveType<?> value = (PrimitiveType<?>) valueClass.getDeclaredConstructor()
+              .newInstance();
+          value.setValueAsString(readString(input));
+          return value;
+        } catch (final ReflectiveOperationException e) {
+          throw new InvalidClassException(className, e.getMessage());
+        }
+      }
+      case VALUE_CODING:
+        return requireNonNull(readCoding(input));
+      case VALUE_SERIALIZED: {
+        final byte[] bytes = new byte[readVarInt(input)];
+        input.readFully(bytes);
+        try (final ObjectInputStream objectInput = new ObjectInputStream(
+            new ByteArrayInputStream(bytes))) {
+          objectInput.setObjectInputFilter(SERIALIZED_TYPE_FILTER);
+          return (Type) objectInput.readObject();
+        }
+      }
+      default:
+        throw new IOException("Unknown property value type: " + type);
+    }
+  }
+
+  private static boolean isListOf(@Nonnull final List<?> list, @Nonnull final Class<?> type) {
+    return list.stream().allMatch(type::isInstance);
+  }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.terminology.caching;
+
+import static au.csiro.pathling.terminology.caching.BinaryEncoding.readVarInt;
+import static au.csiro.pathling.terminology.caching.BinaryEncoding.writeVarInt;
+
+import au.csiro.pathling.terminology.TerminologyResult;
+import jakarta.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.infinispan.Cache;
+import org.infinispan.commons.io.ByteBuffer;
+
+/**
+ * Reads and writes snapshots of the contents of the terminology caches. A snapshot can be exported
+ * from one run and loaded into the caches of another, so that it does not need to fetch the same
+ * results from the terminology server again.
+ * <p>
+ * Snapshots are gzipped, and contain the name of the cache along with the key and value of each
+ * entry, written using the {@link TerminologyCacheMarshaller}. Snapshots can be read from and
+ * written to any location supported by Hadoop, such as the local file system or an object store.
+ *
+ * @author John Grimes
+ */
+@Slf4j
+public final class TerminologyCacheSnapshot {
+
+  private static final int MAGIC = 0x50544353;
+  private static final byte FORMAT_VERSION = 1;
+  private static final int ESTIMATED_SIZE = 128;
+
+  @Nonnull
+  private static final TerminologyCacheMarshaller MARSHALLER = new TerminologyCacheMarshaller();
+
+  private TerminologyCacheSnapshot() {
+  }
+
+  /**
+   * Writes a snapshot of the caches of the given terminology service to the given location,
+   * replacing any existing file.
+   *
+   * @param service the terminology service to take the snapshot from
+   * @param path the location to write the snapshot to
+   * @param hadoopConfiguration the Hadoop configuration to use to access the location
+   * @return the number of entries written
+   * @throws IOException if the snapshot cannot be written
+   */
+  public static long save(@Nonnull final CachingTerminologyService service,
+      @Nonnull final String path, @Nonnull final Configuration hadoopConfiguration)
+      throws IOException {
+    final Path snapshotPath = new Path(path);
+    final FileSystem fileSystem = snapshotPath.getFileSystem(hadoopConfiguration);
+    try (final OutputStream output = fileSystem.create(snapshotPath, true)) {
+      final long count = write(service.getCaches(), output);
+      log.info("Wrote {} terminology cache entries to snapshot: {}", count, path);
+      return count;
+    }
+  }
+
+  /**
+   * Loads the entries from a snapshot at the given location into the caches of the given
+   * terminology service. Entries that are already present in the caches are not replaced.
+   *
+   * @param service the terminology service to load the entries into
+   * @param path the location of the snapshot
+   * @param hadoopConfiguration the Hadoop configuration to use to access the location
+   * @return the number of entries loaded
+   * @throws IOException if the snapshot cannot be read
+   */
+  public static long load(@Nonnull final CachingTerminologyService service,
+      @Nonnull final String path, @Nonnull final Configuration hadoopConfiguration)
+      throws IOException {
+    final Path snapshotPath = new Path(path);
+    final FileSystem fileSystem = snapshotPath.getFileSystem(hadoopConfiguration);
+    try (final InputStream input = fileSystem.open(snapshotPath)) {
+      final long count = read(input, service.getCaches());
+      log.info("Loaded {} terminology cache entries from snapshot: {}", count, path);
+      return count;
+    }
+  }
+
+  /**
+   * Writes a snapshot of the given caches to a stream.
+   *
+   * @param caches the caches to write, keyed by name
+   * @param stream the stream to write to
+   * @return the number of entries written
+   * @throws IOException if the snapshot cannot be written
+   */
+  static long write(@Nonnull final Map<String, Cache<CacheKey, ?>> caches,
+      @Nonnull final OutputStream stream) throws IOException {
+    long count = 0;
+    final GZIPOutputStream compressed = new GZIPOutputStream(new BufferedOutputStream(stream));
+    final DataOutputStream output = new DataOutputStream(compressed);
+    output.writeInt(MAGIC);
+    output.writeByte(FORMAT_VERSION);
+    for (final Map.Entry<String, Cache<CacheKey, ?>> cache : caches.entrySet()) {
+      for (final Map.Entry<CacheKey, ?> entry : cache.getValue().entrySet()) {
+        output.writeBoolean(true);
+        output.writeUTF(cache.getKey());
+        writeBytes(output, MARSHALLER.objectToBuffer(entry.getKey(), ESTIMATED_SIZE));
+        writeBytes(output, MARSHALLER.objectToBuffer(entry.getValue(), ESTIMATED_SIZE));
+        count++;
+      }
+    }
+    output.writeBoolean(false);
+    output.flush();
+    // Finish the compressed stream without closing the stream that was passed in.
+    compressed.finish();
+    compressed.flush();
+    return count;
+  }
+
+  /**
+   * Reads a snapshot from a stream into the given caches. Entries for caches that are not present
+   * are skipped, and entries that are already present in the caches are not replaced.
+   *
+   * @param stream the stream to read from
+   * @param caches the caches to load the entries into, keyed by name
+   * @return the number of entries loaded
+   * @throws IOException if the snapshot cannot be read
+   */
+  @SuppressWarnings("unchecked")
+  static long read(@Nonnull final InputStream stream,
+      @Nonnull final Map<String, Cache<CacheKey, ?>> caches) throws IOException {
+    long count = 0;
+    final DataInputStream input = new DataInputStream(
+        new GZIPInputStream(new BufferedInputStream(stream)));
+    if (input.readInt() != MAGIC) {
+      throw new IOException("Not a terminology cache snapshot");
+    }
+    final byte version = input.readByte();
+    if (version != FORMAT_VERSION) {
+      throw new IOException("Unsupported terminology cache snapshot version: " + version);
+    }
+    while (input.readBoolean()) {
+      final String cacheName = input.readUTF();
+      final byte[] keyBytes = readBytes(input);
+      final byte[] valueBytes = readBytes(input);
+      final Cache<CacheKey, Object> cache = (Cache<CacheKey, Object>) caches.get(cacheName);
+      if (cache == null) {
+        continue;
+      }
+      try {
+        final CacheKey key = (CacheKey) MARSHALLER.objectFromByteBuffer(keyBytes);
+        final TerminologyResult<?> value = (TerminologyResult<?>) MARSHALLER.objectFromByteBuffer(
+            valueBytes);
+        if (cache.putIfAbsent(key, value) == null) {
+          count++;
+        }
+      } catch (final ClassNotFoundException e) {
+        throw new IOException("Unable to read terminology cache snapshot entry", e);
+      }
+    }
+    return count;
+  }
+
+  private static void writeBytes(@Nonnull final DataOutputStream output,
+      @Nonnull final ByteBuffer buffer) throws IOException {
+    writeVarInt(output, buffer.getLength());
+    output.write(buffer.getBuf(), buffer.getOffset(), buffer.getLength());
+  }
+
+  @Nonnull
+  private static byte[] readBytes(@Nonnull final DataInputStream input) throws IOException {
+    final byte[] bytes = new byte[readVarInt(input)];
+    input.readFully(bytes);
+    return bytes;
+  }
+
+}
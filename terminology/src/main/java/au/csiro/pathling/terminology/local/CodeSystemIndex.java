@@ -0,0 +1,307 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.terminology.local;
+
+import au.csiro.pathling.terminology.TerminologyService.Designation;
+import au.csiro.pathling.terminology.TerminologyService.Property;
+import au.csiro.pathling.terminology.TerminologyService.PropertyOrDesignation;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.Getter;
+import org.hl7.fhir.r4.model.CodeSystem;
+import org.hl7.fhir.r4.model.CodeSystem.ConceptDefinitionComponent;
+import org.hl7.fhir.r4.model.CodeSystem.ConceptDefinitionDesignationComponent;
+import org.hl7.fhir.r4.model.CodeSystem.ConceptPropertyComponent;
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.StringType;
+import org.hl7.fhir.r4.model.Type;
+
+/**
+ * An in-memory index of the concepts within a code system, including the transitive closure of the
+ * hierarchy so that subsumption can be tested with a single lookup.
+ * <p>
+ * The hierarchy is taken from the nesting of concepts, as well as the {@code parent},
+ * {@code child} and {@code subsumedBy} properties.
+ *
+ * @author John Grimes
+ */
+class CodeSystemIndex {
+
+  private static final String PARENT_PROPERTY = "parent";
+  private static final String CHILD_PROPERTY = "child";
+  private static final String SUBSUMED_BY_PROPERTY = "subsumedBy";
+
+  @Nonnull
+  @Getter
+  private final String url;
+
+  @Nullable
+  private final String name;
+
+  @Nullable
+  private final String version;
+
+  @Nonnull
+  private final Map<String, ConceptDefinitionComponent> concepts;
+
+  @Nonnull
+  private final Map<String, Set<String>> parents;
+
+  @Nonnull
+  private final Map<String, Set<String>> ancestors;
+
+  private CodeSystemIndex(@Nonnull final CodeSystem codeSystem) {
+    url = codeSystem.getUrl();
+    name = codeSystem.getName();
+    version = codeSystem.getVersion();
+    concepts = new LinkedHashMap<>();
+    parents = new HashMap<>();
+    indexConcepts(codeSystem.getConcept(), null);
+    ancestors = new HashMap<>();
+    for (final String code : concepts.keySet()) {
+      computeAncestors(code, new HashSet<>());
+    }
+  }
+
+  /**
+   * @param codeSystem a code system
+   * @return a new index of the concepts within the code system
+   */
+  @Nonnull
+  static CodeSystemIndex of(@Nonnull final CodeSystem codeSystem) {
+    return new CodeSystemIndex(codeSystem);
+  }
+
+  /**
+   * @param code a code
+   * @return true if the code is defined within the code system
+   */
+  boolean contains(@Nonnull final String code) {
+    return concepts.containsKey(code);
+  }
+
+  /**
+   * @return all the codes defined within the code system
+   */
+  @Nonnull
+  Set<String> getCodes() {
+    return Collections.unmodifiableSet(concepts.keySet());
+  }
+
+  /**
+   * @param ancestor a code that may be an ancestor
+   * @param code a code that may be a descendant
+   * @return true if the first code is a (possibly indirect) ancestor of the second
+   */
+  boolean isAncestor(@Nonnull final String ancestor, @Nonnull final String code) {
+    return ancestors.getOrDefault(code, Collections.emptySet()).contains(ancestor);
+  }
+
+  /**
+   * @param code a code
+   * @return the code and all of its descendants
+   */
+  @Nonnull
+  Set<String> getSelfAndDescendants(@Nonnull final String code) {
+    if (!contains(code)) {
+      return Collections.emptySet();
+    }
+    final Set<String> result = concepts.keySet().stream()
+        .filter(c -> isAncestor(code, c))
+        .collect(Collectors.toCollection(HashSet::new));
+    result.add(code);
+    return result;
+  }
+
+  /**
+   * @param code a code
+   * @param property the code of a property
+   * @return the values of the property for the code, rendered as strings
+   */
+  @Nonnull
+  List<String> getPropertyValues(@Nonnull final String code, @Nonnull final String property) {
+    final ConceptDefinitionComponent concept = concepts.get(code);
+    if (concept == null) {
+      return Collections.emptyList();
+    }
+    if ("code".equals(property)) {
+      return List.of(concept.getCode());
+    }
+    if ("display".equals(property)) {
+      return Optional.ofNullable(concept.getDisplay()).map(List::of).orElse(List.of());
+    }
+    return concept.getProperty().stream()
+        .filter(p -> property.equals(p.getCode()) && p.hasValue())
+        .map(p -> propertyValueAsString(p.getValue()))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Gets the properties and designations of a concept, in the form returned by the lookup
+   * operation.
+   *
+   * @param code the code of the concept
+   * @param propertyCode if not null, only the properties with this code are returned, or only the
+   * designations if this is {@link Designation#PROPERTY_CODE}
+   * @param acceptLanguage the preferred language for the display of the concept
+   * @return the matching properties or designations
+   */
+  @Nonnull
+  ArrayList<PropertyOrDesignation> lookup(@Nonnull final String code,
+      @Nullable final String propertyCode, @Nullable final String acceptLanguage) {
+    final ConceptDefinitionComponent concept = concepts.get(code);
+    final ArrayList<PropertyOrDesignation> result = new ArrayList<>();
+    if (concept == null) {
+      return result;
+    }
+    if (Designation.PROPERTY_CODE.equals(propertyCode)) {
+      for (final ConceptDefinitionDesignationComponent designation : concept.getDesignation()) {
+        result.add(Designation.of(designation.hasUse()
+                                  ? designation.getUse()
+                                  : null,
+            designation.getLanguage(), designation.getValue()));
+      }
+      return result;
+    }
+
+    final List<Property> properties = new ArrayList<>();
+    Optional.ofNullable(name)
+        .ifPresent(n -> properties.add(Property.of("name", new StringType(n))));
+    Optional.ofNullable(version)
+        .ifPresent(v -> properties.add(Property.of("version", new StringType(v))));
+    getDisplay(concept, acceptLanguage)
+        .ifPresent(d -> properties.add(Property.of("display", new StringType(d))));
+    final Set<String> explicitParents = new HashSet<>();
+    for (final ConceptPropertyComponent property : concept.getProperty()) {
+      if (property.hasValue()) {
+        properties.add(Property.of(property.getCode(), property.getValue()));
+        if (PARENT_PROPERTY.equals(property.getCode())) {
+          explicitParents.add(propertyValueAsString(property.getValue()));
+        }
+      }
+    }
+    // Parents that are implied by the nesting of concepts are reported as parent properties.
+    for (final String parent : parents.getOrDefault(code, Collections.emptySet())) {
+      if (!explicitParents.contains(parent)) {
+        properties.add(Property.of(PARENT_PROPERTY, new CodeType(parent)));
+      }
+    }
+    properties.stream()
+        .filter(p -> propertyCode == null || propertyCode.equals(p.getCode()))
+        .forEach(result::add);
+    return result;
+  }
+
+  @Nonnull
+  private Optional<String> getDisplay(@Nonnull final ConceptDefinitionComponent concept,
+      @Nullable final String acceptLanguage) {
+    final Optional<String> language = preferredLanguage(acceptLanguage);
+    if (language.isPresent()) {
+      // An exact match on the language tag is preferred over a match on the primary language.
+      final String primary = language.get().split("-")[0];
+      final Optional<String> localised = concept.getDesignation().stream()
+          .filter(d -> d.hasLanguage() && d.getLanguage().equalsIgnoreCase(language.get()))
+          .findFirst()
+          .or(() -> concept.getDesignation().stream()
+              .filter(d -> d.hasLanguage() && d.getLanguage().toLowerCase().split("-")[0]
+                  .equals(primary))
+              .findFirst())
+          .map(ConceptDefinitionDesignationComponent::getValue);
+      if (localised.isPresent()) {
+        return localised;
+      }
+    }
+    return Optional.ofNullable(concept.getDisplay());
+  }
+
+  @Nonnull
+  private static Optional<String> preferredLanguage(@Nullable final String acceptLanguage) {
+    // Only the first language in the header is considered.
+    return Optional.ofNullable(acceptLanguage)
+        .map(header -> header.split(",")[0].split(";")[0].trim().toLowerCase())
+        .filter(language -> !language.isEmpty() && !language.equals("*"));
+  }
+
+  private void indexConcepts(@Nonnull final List<ConceptDefinitionComponent> nested,
+      @Nullable final String parent) {
+    for (final ConceptDefinitionComponent concept : nested) {
+      final String code = concept.getCode();
+      concepts.put(code, concept);
+      if (parent != null) {
+        addParent(code, parent);
+      }
+      for (final ConceptPropertyComponent property : concept.getProperty()) {
+        if (!property.hasValue()) {
+          continue;
+        }
+        final String value = propertyValueAsString(property.getValue());
+        if (PARENT_PROPERTY.equals(property.getCode())
+            || SUBSUMED_BY_PROPERTY.equals(property.getCode())) {
+          addParent(code, value);
+        } else if (CHILD_PROPERTY.equals(property.getCode())) {
+          addParent(value, code);
+        }
+      }
+      indexConcepts(concept.getConcept(), code);
+    }
+  }
+
+  private void addParent(@Nonnull final String code, @Nonnull final String parent) {
+    parents.computeIfAbsent(code, k -> new HashSet<>()).add(parent);
+  }
+
+  @Nonnull
+  private Set<String> computeAncestors(@Nonnull final String code,
+      @Nonnull final Set<String> visiting) {
+    final Set<String> computed = ancestors.get(code);
+    if (computed != null) {
+      return computed;
+    }
+    if (!visiting.add(code)) {
+      // The hierarchy contains a cycle, which is broken here.
+      return Collections.emptySet();
+    }
+    final Set<String> directParents = parents.getOrDefault(code, Collections.emptySet());
+    final Set<String> result = new HashSet<>(directParents);
+    for (final String parent : directParents) {
+      result.addAll(computeAncestors(parent, visiting));
+    }
+    visiting.remove(code);
+    ancestors.put(code, result);
+    return result;
+  }
+
+  @Nonnull
+  private static String propertyValueAsString(@Nonnull final Type value) {
+    return value instanceof final Coding coding
+           ? coding.getCode()
+           : value.primitiveValue();
+  }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.terminology.local;
+
+import au.csiro.pathling.terminology.TerminologyService.Translation;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.ConceptMap;
+import org.hl7.fhir.r4.model.ConceptMap.ConceptMapGroupComponent;
+import org.hl7.fhir.r4.model.ConceptMap.SourceElementComponent;
+import org.hl7.fhir.r4.model.ConceptMap.TargetElementComponent;
+import org.hl7.fhir.r4.model.codesystems.ConceptMapEquivalence;
+
+/**
+ * An in-memory index of the mappings within a concept map, which can be used to translate codes
+ * in either direction.
+ *
+ * @author John Grimes
+ */
+class ConceptMapIndex {
+
+  @Getter
+  @Nullable
+  private final String sourceValueSet;
+
+  @Getter
+  @Nullable
+  private final String targetValueSet;
+
+  @Nonnull
+  private final Map<SystemAndCode, List<Translation>> forward = new HashMap<>();
+
+  @Nonnull
+  private final Map<SystemAndCode, List<Translation>> reverse = new HashMap<>();
+
+  private ConceptMapIndex(@Nonnull final ConceptMap conceptMap) {
+    sourceValueSet = conceptMap.hasSource()
+                     ? conceptMap.getSource().primitiveValue()
+                     : null;
+    targetValueSet = conceptMap.hasTarget()
+                     ? conceptMap.getTarget().primitiveValue()
+                     : null;
+    for (final ConceptMapGroupComponent group : conceptMap.getGroup()) {
+      for (final SourceElementComponent element : group.getElement()) {
+        for (final TargetElementComponent target : element.getTarget()) {
+          if (!element.hasCode() || !target.hasCode()) {
+            // Elements that do not map to a code do not produce a translation.
+            continue;
+          }
+          final ConceptMapEquivalence equivalence = target.hasEquivalence()
+                                                    ? ConceptMapEquivalence.fromCode(
+              target.getEquivalence().toCode())
+                                                    : ConceptMapEquivalence.EQUIVALENT;
+          final Coding source = new Coding(group.getSource(), element.getCode(),
+              element.getDisplay());
+          final Coding mapped = new Coding(group.getTarget(), target.getCode(),
+              target.getDisplay());
+          forward.computeIfAbsent(SystemAndCode.of(group.getSource(), element.getCode()),
+              k -> new ArrayList<>()).add(Translation.of(equivalence, mapped));
+          reverse.computeIfAbsent(SystemAndCode.of(group.getTarget(), target.getCode()),
+              k -> new ArrayList<>()).add(Translation.of(invert(equivalence), source));
+        }
+      }
+    }
+  }
+
+  /**
+   * @param conceptMap a concept map
+   * @return a new index of the mappings within the concept map
+   */
+  @Nonnull
+  static ConceptMapIndex of(@Nonnull final ConceptMap conceptMap) {
+    return new ConceptMapIndex(conceptMap);
+  }
+
+  /**
+   * @param concept the concept to translate
+   * @param reversed if true, the concept is translated from the target of the map to its source
+   * @return the translations of the concept
+   */
+  @Nonnull
+  List<Translation> translate(@Nonnull final SystemAndCode concept, final boolean reversed) {
+    return (reversed
+            ? reverse
+            : forward).getOrDefault(concept, Collections.emptyList());
+  }
+
+  /**
+   * When a mapping is followed in reverse, the relationship that it describes is inverted.
+   */
+  @Nonnull
+  private static ConceptMapEquivalence invert(@Nonnull final ConceptMapEquivalence equivalence) {
+    switch (equivalence) {
+      case WIDER:
+        return ConceptMapEquivalence.NARROWER;
+      case NARROWER:
+        return ConceptMapEquivalence.WIDER;
+      case SUBSUMES:
+        return ConceptMapEquivalence.SPECIALIZES;
+      case SPECIALIZES:
+        return ConceptMapEquivalence.SUBSUMES;
+      default:
+        return equivalence;
+    }
+  }
+
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.terminology.local;
+
+import au.csiro.pathling.utilities.Strings;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.CodeSystem;
+import org.hl7.fhir.r4.model.ConceptMap;
+import org.hl7.fhir.r4.model.PrimitiveType;
+import org.hl7.fhir.r4.model.ValueSet;
+import org.hl7.fhir.r4.model.ValueSet.ConceptReferenceComponent;
+import org.hl7.fhir.r4.model.ValueSet.ConceptSetComponent;
+import org.hl7.fhir.r4.model.ValueSet.ConceptSetFilterComponent;
+import org.hl7.fhir.r4.model.ValueSet.ValueSetExpansionContainsComponent;
+
+/**
+ * The indexes that back a {@link LocalTerminologyService}: code systems by URL, expanded value sets
+ * by URL and concept maps by URL.
+ * <p>
+ * Value sets are expanded when the index is built, from either their expansion or their compose
+ * definition. The implicit value sets of a code system ({@code [system]?fhir_vs} and
+ * {@code [system]?fhir_vs=isa/[code]}) are evaluated directly against the code system index.
+ *
+ * @author John Grimes
+ */
+@Slf4j
+public class LocalTerminologyIndex {
+
+  private static final Pattern IMPLICIT_VALUE_SET = Pattern.compile(
+      "^(.+)\\?fhir_vs(?:=isa/(.+))?$");
+
+  @Nonnull
+  private final Map<String, CodeSystemIndex> codeSystems = new HashMap<>();
+
+  @Nonnull
+  private final Map<String, ValueSet> valueSetDefinitions = new HashMap<>();
+
+  @Nonnull
+  private final Map<String, Set<SystemAndCode>> valueSets = new HashMap<>();
+
+  @Nonnull
+  private final Map<String, ConceptMapIndex> conceptMaps = new HashMap<>();
+
+  private LocalTerminologyIndex(@Nonnull final Collection<? extends IBaseResource> resources) {
+    for (final IBaseResource resource : resources) {
+      if (resource instanceof final CodeSystem codeSystem && codeSystem.hasUrl()) {
+        codeSystems.put(codeSystem.getUrl(), CodeSystemIndex.of(codeSystem));
+      } else if (resource instanceof final ValueSet valueSet && valueSet.hasUrl()) {
+        valueSetDefinitions.put(valueSet.getUrl(), valueSet);
+      } else if (resource instanceof final ConceptMap conceptMap && conceptMap.hasUrl()) {
+        conceptMaps.put(conceptMap.getUrl(), ConceptMapIndex.of(conceptMap));
+      }
+    }
+    for (final String url : valueSetDefinitions.keySet()) {
+      expand(url, new HashSet<>());
+    }
+    log.info("Indexed {} code systems, {} value sets and {} concept maps", codeSystems.size(),
+        valueSets.size(), conceptMaps.size());
+  }
+
+  /**
+   * Builds an index from a collection of resources. CodeSystem, ValueSet and ConceptMap resources
+   * are indexed, and all other resources are ignored.
+   *
+   * @param resources the resources to index
+   * @return a new index
+   */
+  @Nonnull
+  public static LocalTerminologyIndex of(
+      @Nonnull final Collection<? extends IBaseResource> resources) {
+    return new LocalTerminologyIndex(resources);
+  }
+
+  /**
+   * @param url the canonical URL of a code system, optionally with a version
+   * @return the index of the code system, if it is known
+   */
+  @Nonnull
+  Optional<CodeSystemIndex> getCodeSystem(@Nonnull final String url) {
+    return Optional.ofNullable(codeSystems.get(stripVersion(url)));
+  }
+
+  /**
+   * @param url the canonical URL of a concept map, optionally with a version
+   * @return the index of the concept map, if it is known
+   */
+  @Nonnull
+  Optional<ConceptMapIndex> getConceptMap(@Nonnull final String url) {
+    return Optional.ofNullable(conceptMaps.get(stripVersion(url)));
+  }
+
+  /**
+   * @param url the canonical URL of a value set, optionally with a version
+   * @return true if the value set is known, either explicitly or as the implicit value set of a
+   * known code system
+   */
+  boolean hasValueSet(@Nonnull final String url) {
+    final String resolved = stripVersion(url);
+    if (valueSets.containsKey(resolved)) {
+      return true;
+    }
+    final Matcher matcher = IMPLICIT_VALUE_SET.matcher(resolved);
+    return matcher.matches() && codeSystems.containsKey(matcher.group(1));
+  }
+
+  /**
+   * @param url the canonical URL of a value set, optionally with a version
+   * @param concept a concept
+   * @return true if the concept is a member of the value set
+   */
+  boolean isMember(@Nonnull final String url, @Nonnull final SystemAndCode concept) {
+    final String resolved = stripVersion(url);
+    final Set<SystemAndCode> members = valueSets.get(resolved);
+    if (members != null) {
+      return members.contains(concept);
+    }
+    final Matcher matcher = IMPLICIT_VALUE_SET.matcher(resolved);
+    if (!matcher.matches() || !matcher.group(1).equals(concept.getSystem())) {
+      return false;
+    }
+    final CodeSystemIndex codeSystem = codeSystems.get(matcher.group(1));
+    if (codeSystem == null || !codeSystem.contains(concept.getCode())) {
+      return false;
+    }
+    final String isA = matcher.group(2);
+    return isA == null || isA.equals(concept.getCode())
+        || codeSystem.isAncestor(isA, concept.getCode());
+  }
+
+  @Nonnull
+  private Set<SystemAndCode> expand(@Nonnull final String url,
+      @Nonnull final Set<String> visiting) {
+    final String resolved = stripVersion(url);
+    final Set<SystemAndCode> expanded = valueSets.get(resolved);
+    if (expanded != null) {
+      return expanded;
+    }
+    final ValueSet valueSet = valueSetDefinitions.get(resolved);
+    if (valueSet == null) {
+      return expandImplicit(resolved);
+    }
+    if (!visiting.add(resolved)) {
+      log.warn("Value set includes itself: {}", resolved);
+      return Collections.emptySet();
+    }
+    final Set<SystemAndCode> result = new HashSet<>();
+    if (valueSet.hasExpansion()) {
+      addContains(valueSet.getExpansion().getContains(), result);
+    } else {
+      for (final ConceptSetComponent include : valueSet.getCompose().getInclude()) {
+        result.addAll(expandConceptSet(include, visiting));
+      }
+      for (final ConceptSetComponent exclude : valueSet.getCompose().getExclude()) {
+        result.removeAll(expandConceptSet(exclude, visiting));
+      }
+    }
+    visiting.remove(resolved);
+    valueSets.put(resolved, result);
+    return result;
+  }
+
+  @Nonnull
+  private Set<SystemAndCode> expandImplicit(@Nonnull final String url) {
+    final Matcher matcher = IMPLICIT_VALUE_SET.matcher(url);
+    final CodeSystemIndex codeSystem = matcher.matches()
+                                       ? codeSystems.get(matcher.group(1))
+                                       : null;
+    if (codeSystem == null) {
+      log.warn("Value set not found: {}", url);
+      return Collections.emptySet();
+    }
+    final String isA = matcher.group(2);
+    final Set<String> codes = isA == null
+                              ? codeSystem.getCodes()
+                              : codeSystem.getSelfAndDescendants(isA);
+    return toConcepts(codeSystem.getUrl(), codes);
+  }
+
+  @Nonnull
+  private Set<SystemAndCode> expandConceptSet(@Nonnull final ConceptSetComponent conceptSet,
+      @Nonnull final Set<String> visiting) {
+    Set<SystemAndCode> result = null;
+    if (conceptSet.hasSystem()) {
+      final String system = conceptSet.getSystem();
+      if (conceptSet.hasConcept()) {
+        result = conceptSet.getConcept().stream()
+            .map(ConceptReferenceComponent::getCode)
+            .map(code -> SystemAndCode.of(system, code))
+            .collect(Collectors.toSet());
+      } else {
+        final CodeSystemIndex codeSystem = codeSystems.get(system);
+        if (codeSystem == null) {
+          log.warn("Code system not found: {}", system);
+          return Collections.emptySet();
+        }
+        Set<String> codes = codeSystem.getCodes();
+        for (final ConceptSetFilterComponent filter : conceptSet.getFilter()) {
+          final Set<String> filtered = applyFilter(codeSystem, filter);
+          codes = codes.stream().filter(filtered::contains).collect(Collectors.toSet());
+        }
+        result = toConcepts(system, codes);
+      }
+    }
+    // Any value sets that are referenced are intersected with the result.
+    for (final String referenced : conceptSet.getValueSet().stream()
+        .map(PrimitiveType::getValue).collect(Collectors.toList())) {
+      final Set<SystemAndCode> members = expand(referenced, visiting);
+      if (result == null) {
+        result = new HashSet<>(members);
+      } else {
+        result.retainAll(members);
+      }
+    }
+    return result == null
+           ? Collections.emptySet()
+           : result;
+  }
+
+  @Nonnull
+  private static Set<String> applyFilter(@Nonnull final CodeSystemIndex codeSystem,
+      @Nonnull final ConceptSetFilterComponent filter) {
+    final String value = filter.getValue();
+    switch (filter.getOp()) {
+      case ISA:
+        return codeSystem.getSelfAndDescendants(value);
+      case DESCENDENTOF: {
+        final Set<String> descendants = new HashSet<>(codeSystem.getSelfAndDescendants(value));
+        descendants.remove(value);
+        return descendants;
+      }
+      case ISNOTA: {
+        final Set<String> excluded = codeSystem.getSelfAndDescendants(value);
+        return codeSystem.getCodes().stream()
+            .filter(code -> !excluded.contains(code))
+            .collect(Collectors.toSet());
+      }
+      case EQUAL:
+        return filterByProperty(codeSystem, filter.getProperty(), List.of(value)::contains);
+      case IN:
+        return filterByProperty(codeSystem, filter.getProperty(), parseValues(value)::contains);
+      case NOTIN: {
+        // A code is excluded if any of its values for the property are within the list.
+        final Set<String> included = filterByProperty(codeSystem, filter.getProperty(),
+            parseValues(value)::contains);
+        return codeSystem.getCodes().stream()
+            .filter(code -> !included.contains(code))
+            .collect(Collectors.toSet());
+      }
+      case REGEX: {
+        final Pattern pattern = Pattern.compile(value);
+        return filterByProperty(codeSystem, filter.getProperty(),
+            v -> pattern.matcher(v).matches());
+      }
+      case EXISTS: {
+        final boolean exists = Boolean.parseBoolean(value);
+        return codeSystem.getCodes().stream()
+            .filter(code -> codeSystem.getPropertyValues(code, filter.getProperty()).isEmpty()
+                != exists)
+            .collect(Collectors.toSet());
+      }
+      default:
+        log.warn("Unsupported value set filter operator: {}", filter.getOp().toCode());
+        return Collections.emptySet();
+    }
+  }
+
+  /**
+   * Parses the comma-separated list of values used by the "in" and "not-in" filter operators.
+   */
+  @Nonnull
+  private static Set<String> parseValues(@Nonnull final String value) {
+    return new HashSet<>(Strings.parseCsvList(value, Function.identity()));
+  }
+
+  @Nonnull
+  private static Set<String> filterByProperty(@Nonnull final CodeSystemIndex codeSystem,
+      @Nonnull final String property,
+      @Nonnull final Predicate<String> predicate) {
+    return codeSystem.getCodes().stream()
+        .filter(code -> codeSystem.getPropertyValues(code, property).stream().anyMatch(predicate))
+        .collect(Collectors.toSet());
+  }
+
+  private static void addContains(@Nonnull final List<ValueSetExpansionContainsComponent> contains,
+      @Nonnull final Set<SystemAndCode> result) {
+    for (final ValueSetExpansionContainsComponent item : contains) {
+      if (item.hasSystem() && item.hasCode() && !item.getAbstract()) {
+        result.add(SystemAndCode.of(item.getSystem(), item.getCode()));
+      }
+      addContains(item.getContains(), result);
+    }
+  }
+
+  @Nonnull
+  private static Set<SystemAndCode> toConcepts(@Nonnull final String system,
+      @Nonnull final Collection<String> codes) {
+    return codes.stream()
+        .map(code -> SystemAndCode.of(system, code))
+        .collect(Collectors.toSet());
+  }
+
+  @Nonnull
+  private static String stripVersion(@Nonnull final String url) {
+    final int separator = url.indexOf('|');
+    return separator < 0
+           ? url
+           : url.substring(0, separator);
+  }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.terminology.local;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.DataFormatException;
+import ca.uhn.fhir.parser.IParser;
+import jakarta.annotation.Nonnull;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Bundle.BundleEntryComponent;
+
+/**
+ * Loads terminology resources from a file or directory, for use by a
+ * {@link LocalTerminologyService}.
+ * <p>
+ * Files with the {@code .ndjson} extension are read as one resource per line. Files with the
+ * {@code .json} extension are read as a single resource, which may be a Bundle. This means that
+ * the contents of an extracted FHIR package can be loaded directly. JSON files that are not FHIR
+ * resources, such as the manifest of a package, are skipped.
+ *
+ * @author John Grimes
+ */
+@Slf4j
+public class LocalTerminologyLoader {
+
+  private static final String NDJSON_EXTENSION = ".ndjson";
+  private static final String JSON_EXTENSION = ".json";
+
+  @Nonnull
+  private final FhirContext fhirContext;
+
+  @Nonnull
+  private final Configuration hadoopConfiguration;
+
+  /**
+   * @param fhirContext the FHIR context to use to parse resources
+   * @param hadoopConfiguration the Hadoop configuration to use to access files
+   */
+  public LocalTerminologyLoader(@Nonnull final FhirContext fhirContext,
+      @Nonnull final Configuration hadoopConfiguration) {
+    this.fhirContext = fhirContext;
+    this.hadoopConfiguration = hadoopConfiguration;
+  }
+
+  /**
+   * Loads and indexes all the resources within a file or directory. Directories are searched
+   * recursively.
+   *
+   * @param path the location of the file or directory, which may be any location supported by
+   * Hadoop
+   * @return an index of the loaded resources
+   * @throws IOException if the location cannot be read
+   */
+  @Nonnull
+  public LocalTerminologyIndex load(@Nonnull final String path) throws IOException {
+    final Path location = new Path(path);
+    final FileSystem fileSystem = location.getFileSystem(hadoopConfiguration);
+    final List<IBaseResource> resources = new ArrayList<>();
+    final RemoteIterator<LocatedFileStatus> files = fileSystem.listFiles(location, true);
+    while (files.hasNext()) {
+      final Path file = files.next().getPath();
+      final String name = file.getName();
+      if (name.endsWith(NDJSON_EXTENSION)) {
+        readNdjson(fileSystem, file, resources);
+      } else if (name.endsWith(JSON_EXTENSION)) {
+        readJson(fileSystem, file, resources);
+      }
+    }
+    log.info("Loaded {} terminology resources from: {}", resources.size(), path);
+    return LocalTerminologyIndex.of(resources);
+  }
+
+  private void readNdjson(@Nonnull final FileSystem fileSystem, @Nonnull final Path file,
+      @Nonnull final List<IBaseResource> resources) throws IOException {
+    final IParser parser = fhirContext.newJsonParser();
+    try (final BufferedReader reader = new BufferedReader(
+        new InputStreamReader(fileSystem.open(file), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.isBlank()) {
+          resources.add(parser.parseResource(line));
+        }
+      }
+    }
+  }
+
+  private void readJson(@Nonnull final FileSystem fileSystem, @Nonnull final Path file,
+      @Nonnull final List<IBaseResource> resources) throws IOException {
+    final IParser parser = fhirContext.newJsonParser();
+    final IBaseResource resource;
+    try (final InputStreamReader reader = new InputStreamReader(fileSystem.open(file),
+        StandardCharsets.UTF_8)) {
+      resource = parser.parseResource(reader);
+    } catch (final DataFormatException e) {
+      log.debug("Skipping file that is not a FHIR resource: {}", file);
+      return;
+    }
+    if (resource instanceof final Bundle bundle) {
+      bundle.getEntry().stream()
+          .map(BundleEntryComponent::getResource)
+          .filter(Objects::nonNull)
+          .forEach(resources::add);
+    } else {
+      resources.add(resource);
+    }
+  }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.terminology.local;
+
+import static au.csiro.pathling.fhirpath.CodingHelpers.codingEquals;
+import static org.hl7.fhir.r4.model.codesystems.ConceptSubsumptionOutcome.EQUIVALENT;
+import static org.hl7.fhir.r4.model.codesystems.ConceptSubsumptionOutcome.NOTSUBSUMED;
+import static org.hl7.fhir.r4.model.codesystems.ConceptSubsumptionOutcome.SUBSUMEDBY;
+import static org.hl7.fhir.r4.model.codesystems.ConceptSubsumptionOutcome.SUBSUMES;
+
+import au.csiro.pathling.terminology.TerminologyService;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.codesystems.ConceptSubsumptionOutcome;
+
+/**
+ * A terminology service that answers requests from CodeSystem, ValueSet and ConceptMap resources
+ * that have been loaded into memory, without making any requests over the network.
+ * <p>
+ * Requests that refer to code systems, value sets or concept maps that have not been loaded are
+ * answered in the same way as an invalid request to a terminology server: codes are not members of
+ * unknown value sets, do not subsume each other and have no translations or properties.
+ *
+ * @author John Grimes
+ */
+public class LocalTerminologyService implements TerminologyService, Closeable {
+
+  @Nonnull
+  private final LocalTerminologyIndex index;
+
+  @Nullable
+  private final String defaultAcceptLanguage;
+
+  /**
+   * @param index the index of the terminology resources to use
+   * @param defaultAcceptLanguage the preferred language to use for lookups that do not specify one
+   */
+  public LocalTerminologyService(@Nonnull final LocalTerminologyIndex index,
+      @Nullable final String defaultAcceptLanguage) {
+    this.index = index;
+    this.defaultAcceptLanguage = defaultAcceptLanguage;
+  }
+
+  @Override
+  public boolean validateCode(@Nonnull final String valueSetUrl, @Nonnull final Coding coding) {
+    final SystemAndCode concept = SystemAndCode.fromCoding(coding);
+    return concept != null && index.isMember(valueSetUrl, concept);
+  }
+
+  @Nonnull
+  @Override
+  public List<Translation> translate(@Nonnull final Coding coding,
+      @Nonnull final String conceptMapUrl, final boolean reverse, @Nullable final String target) {
+    final SystemAndCode concept = SystemAndCode.fromCoding(coding);
+    final Optional<ConceptMapIndex> conceptMap = index.getConceptMap(conceptMapUrl);
+    final ArrayList<Translation> result = new ArrayList<>();
+    if (concept == null || conceptMap.isEmpty()) {
+      return result;
+    }
+    // The target value set may be the value set that the concept map translates into, in which
+    // case all translations are within it.
+    final String mapTarget = reverse
+                             ? conceptMap.get().getSourceValueSet()
+                             : conceptMap.get().getTargetValueSet();
+    final boolean filterByTarget = target != null && !target.equals(mapTarget);
+    for (final Translation translation : conceptMap.get().translate(concept, reverse)) {
+      final SystemAndCode translated = SystemAndCode.fromCoding(translation.getConcept());
+      if (filterByTarget && (translated == null || !index.isMember(target, translated))) {
+        continue;
+      }
+      result.add(Translation.of(translation.getEquivalence(), translation.getConcept().copy()));
+    }
+    return result;
+  }
+
+  @Nonnull
+  @Override
+  public ConceptSubsumptionOutcome subsumes(@Nonnull final Coding codingA,
+      @Nonnull final Coding codingB) {
+    final SystemAndCode conceptA = SystemAndCode.fromCoding(codingA);
+    final SystemAndCode conceptB = SystemAndCode.fromCoding(codingB);
+    if (conceptA == null || conceptB == null
+        || !conceptA.getSystem().equals(conceptB.getSystem())) {
+      return NOTSUBSUMED;
+    }
+    // If both versions are present, they must be equal.
+    if (codingA.hasVersion() && codingB.hasVersion()
+        && !codingA.getVersion().equals(codingB.getVersion())) {
+      return NOTSUBSUMED;
+    }
+    if (codingEquals(codingA, codingB) || conceptA.equals(conceptB)) {
+      return EQUIVALENT;
+    }
+    return index.getCodeSystem(conceptA.getSystem())
+        .map(codeSystem -> {
+          if (codeSystem.isAncestor(conceptA.getCode(), conceptB.getCode())) {
+            return SUBSUMES;
+          } else if (codeSystem.isAncestor(conceptB.getCode(), conceptA.getCode())) {
+            return SUBSUMEDBY;
+          } else {
+            return NOTSUBSUMED;
+          }
+        })
+        .orElse(NOTSUBSUMED);
+  }
+
+  @Nonnull
+  @Override
+  public List<PropertyOrDesignation> lookup(@Nonnull final Coding coding,
+      @Nullable final String propertyCode, @Nullable final String acceptLanguage) {
+    final SystemAndCode concept = SystemAndCode.fromCoding(coding);
+    if (concept == null) {
+      return new ArrayList<>();
+    }
+    return index.getCodeSystem(concept.getSystem())
+        .map(codeSystem -> codeSystem.lookup(concept.getCode(), propertyCode,
+            acceptLanguage != null
+            ? acceptLanguage
+            : defaultAcceptLanguage))
+        .orElseGet(ArrayList::new);
+  }
+
+  @Override
+  public void close() {
+    // The indexes are held in memory, so there are no resources to release. This service is
+    // closeable so that the terminology service factory can replace it.
+  }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.terminology.local;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import lombok.Value;
+import org.hl7.fhir.r4.model.Coding;
+
+/**
+ * Identifies a concept by its system and code, ignoring the version and display.
+ *
+ * @author John Grimes
+ */
+@Value(staticConstructor = "of")
+class SystemAndCode {
+
+  @Nonnull
+  String system;
+
+  @Nonnull
+  String code;
+
+  /**
+   * @param coding a coding
+   * @return the system and code of the coding, or null if either is missing
+   */
+  @Nullable
+  static SystemAndCode fromCoding(@Nonnull final Coding coding) {
+    return coding.getSystem() != null && coding.getCode() != null
+           ? new SystemAndCode(coding.getSystem(), coding.getCode())
+           : null;
+  }
+
+}
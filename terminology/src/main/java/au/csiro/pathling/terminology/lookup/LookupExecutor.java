@@ -17,12 +17,14 @@
 
 package au.csiro.pathling.terminology.lookup;
 
+import static au.csiro.pathling.utilities.Preconditions.checkArgument;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
 
 import au.csiro.pathling.fhir.ParametersUtils;
 import au.csiro.pathling.fhir.TerminologyClient;
+import au.csiro.pathling.fhir.TerminologyRequest;
 import au.csiro.pathling.fhirpath.encoding.ImmutableCoding;
 import au.csiro.pathling.terminology.TerminologyOperation;
 import au.csiro.pathling.terminology.TerminologyParameters;
@@ -57,10 +59,38 @@ public class LookupExecutor implements
   @Nonnull
   private final LookupParameters parameters;
 
+  /**
+   * Whether the result should include all properties and designations of the concept, rather than
+   * the properties or designations selected by the property parameter.
+   */
+  private final boolean all;
+
   public LookupExecutor(@Nonnull final TerminologyClient terminologyClient,
       @Nonnull final LookupParameters parameters) {
+    this(terminologyClient, parameters, false);
+  }
+
+  private LookupExecutor(@Nonnull final TerminologyClient terminologyClient,
+      @Nonnull final LookupParameters parameters, final boolean all) {
     this.terminologyClient = terminologyClient;
     this.parameters = parameters;
+    this.all = all;
+  }
+
+  /**
+   * Creates an executor that requests all properties and designations of the concept, by sending
+   * the lookup request without a property parameter.
+   *
+   * @param terminologyClient the terminology client to use
+   * @param parameters the parameters of the lookup, which must not include a property
+   * @return a new {@link LookupExecutor}
+   */
+  @Nonnull
+  public static LookupExecutor all(@Nonnull final TerminologyClient terminologyClient,
+      @Nonnull final LookupParameters parameters) {
+    checkArgument(isNull(parameters.getProperty()),
+        "Property must not be specified when looking up all properties");
+    return new LookupExecutor(terminologyClient, parameters, true);
   }
 
   @Override
@@ -89,9 +119,32 @@ public class LookupExecutor implements
     );
   }
 
+  /**
+   * Describes the request for this operation, so that it can be sent along with other requests.
+   *
+   * @return a {@link TerminologyRequest} that is equivalent to the request built by
+   * {@link #buildRequest()}
+   */
+  @Nonnull
+  public TerminologyRequest describeRequest() {
+    final ImmutableCoding coding = parameters.getCoding();
+    return TerminologyRequest.lookup(
+        TerminologyParameters.required(UriType::new, coding.getSystem()),
+        TerminologyParameters.optional(StringType::new, coding.getVersion()),
+        TerminologyParameters.required(CodeType::new, coding.getCode()),
+        TerminologyParameters.optional(CodeType::new, parameters.getProperty()),
+        TerminologyParameters.optional(StringType::new, parameters.getAcceptLanguage())
+    );
+  }
+
   @Override
   @Nonnull
   public ArrayList<PropertyOrDesignation> extractResult(@Nonnull final Parameters response) {
+    if (all) {
+      final ArrayList<PropertyOrDesignation> result = toProperties(response, null);
+      result.addAll(toDesignations(response));
+      return result;
+    }
     return toPropertiesAndDesignations(response, parameters.getProperty());
   }
 
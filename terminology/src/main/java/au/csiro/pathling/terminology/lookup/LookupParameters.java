@@ -17,9 +17,15 @@
 
 package au.csiro.pathling.terminology.lookup;
 
+import static au.csiro.pathling.terminology.caching.BinaryEncoding.writeCodingKey;
+import static au.csiro.pathling.terminology.caching.BinaryEncoding.writeString;
+
 import au.csiro.pathling.fhirpath.encoding.ImmutableCoding;
 import au.csiro.pathling.terminology.TerminologyParameters;
+import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
+import java.io.DataOutput;
+import java.io.IOException;
 import lombok.Value;
 
 /**
@@ -39,4 +45,11 @@ public class LookupParameters implements TerminologyParameters {
   @Nullable
   String acceptLanguage;
 
+  @Override
+  public void writeKey(@Nonnull final DataOutput output) throws IOException {
+    writeCodingKey(output, coding);
+    writeString(output, property);
+    writeString(output, acceptLanguage);
+  }
+
 }
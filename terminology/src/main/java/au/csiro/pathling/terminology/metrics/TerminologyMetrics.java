@@ -0,0 +1,282 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.terminology.metrics;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+import lombok.Value;
+
+/**
+ * Records metrics relating to terminology operations, such as cache hits and misses and the latency
+ * of requests to the terminology server.
+ * <p>
+ * Metrics are registered with the Micrometer global registry. On remote executors, where there is
+ * no registry that is exposed to the outside world, forwarding can be enabled so that the
+ * recorded values can be sent back to the driver and applied to the driver's registry (see
+ * {@link TerminologyMetricsPlugin}).
+ *
+ * @author John Grimes
+ */
+public final class TerminologyMetrics {
+
+  /**
+   * The name of the counter that records cache results.
+   */
+  public static final String CACHE_METRIC = "pathling.terminology.cache";
+
+  /**
+   * The name of the timer that records the latency of requests to the terminology server.
+   */
+  public static final String REQUEST_METRIC = "pathling.terminology.request";
+
+  /**
+   * The name of the tag used to identify the terminology operation.
+   */
+  public static final String OPERATION_TAG = "operation";
+
+  /**
+   * The name of the tag used to identify the cache result.
+   */
+  public static final String RESULT_TAG = "result";
+
+  /**
+   * The maximum number of request durations that will be held for forwarding between drains.
+   * Durations beyond this limit are still counted locally, but are not forwarded.
+   */
+  private static final int MAX_FORWARDED_DURATIONS = 10_000;
+
+  /**
+   * The outcome of a cache lookup.
+   */
+  public enum CacheResult {
+    /**
+     * The entry was found in the cache and was still valid.
+     */
+    HIT("hit"),
+
+    /**
+     * The entry was not found in the cache.
+     */
+    MISS("miss"),
+
+    /**
+     * The entry was found in the cache, but it had expired and needed to be revalidated.
+     */
+    EXPIRED("expired");
+
+    @Nonnull
+    @Getter
+    private final String code;
+
+    CacheResult(@Nonnull final String code) {
+      this.code = code;
+    }
+  }
+
+  /**
+   * A set of metric values that have been recorded since the last time that the values were
+   * drained, suitable for sending to the driver.
+   */
+  @Value
+  public static class Snapshot implements Serializable {
+
+    private static final long serialVersionUID = 2143270911208373212L;
+
+    /**
+     * Counts of cache results, keyed by operation and then by the code of the result.
+     */
+    @Nonnull
+    Map<String, Map<String, Long>> cacheResults;
+
+    /**
+     * Durations of requests in nanoseconds, keyed by operation.
+     */
+    @Nonnull
+    Map<String, List<Long>> requestDurations;
+
+    /**
+     * @return true if this snapshot contains no values
+     */
+    public boolean isEmpty() {
+      return cacheResults.isEmpty() && requestDurations.isEmpty();
+    }
+
+  }
+
+  @Nullable
+  private static volatile ForwardingBuffer forwardingBuffer = null;
+
+  private TerminologyMetrics() {
+  }
+
+  /**
+   * Records the result of a cache lookup.
+   *
+   * @param operation the name of the terminology operation
+   * @param result the {@link CacheResult}
+   */
+  public static void recordCacheResult(@Nonnull final String operation,
+      @Nonnull final CacheResult result) {
+    incrementCacheCounter(operation, result.getCode(), 1);
+    @Nullable final ForwardingBuffer buffer = forwardingBuffer;
+    if (buffer != null) {
+      buffer.addCacheResult(operation, result.getCode());
+    }
+  }
+
+  /**
+   * Records the duration of a request to the terminology server.
+   *
+   * @param operation the name of the terminology operation
+   * @param durationNanos the duration of the request, in nanoseconds
+   */
+  public static void recordRequest(@Nonnull final String operation, final long durationNanos) {
+    requestTimer(operation).record(durationNanos, TimeUnit.NANOSECONDS);
+    @Nullable final ForwardingBuffer buffer = forwardingBuffer;
+    if (buffer != null) {
+      buffer.addRequestDuration(operation, durationNanos);
+    }
+  }
+
+  /**
+   * Enables the buffering of recorded values so that they can be forwarded using
+   * {@link #drain()}.
+   */
+  public static synchronized void enableForwarding() {
+    if (forwardingBuffer == null) {
+      forwardingBuffer = new ForwardingBuffer();
+    }
+  }
+
+  /**
+   * Disables the buffering of recorded values, discarding any values that have not been drained.
+   */
+  public static synchronized void disableForwarding() {
+    forwardingBuffer = null;
+  }
+
+  /**
+   * Removes and returns all the values that have been buffered since the last drain.
+   *
+   * @return a {@link Snapshot} of the buffered values, which will be empty if forwarding is not
+   * enabled
+   */
+  @Nonnull
+  public static Snapshot drain() {
+    @Nullable final ForwardingBuffer buffer = forwardingBuffer;
+    return buffer == null
+           ? new Snapshot(new HashMap<>(), new HashMap<>())
+           : buffer.drain();
+  }
+
+  /**
+   * Applies the values from a snapshot received from another JVM to the metrics registered within
+   * this JVM.
+   *
+   * @param snapshot the {@link Snapshot} to apply
+   */
+  public static void apply(@Nonnull final Snapshot snapshot) {
+    snapshot.getCacheResults().forEach((operation, results) -> results.forEach(
+        (result, count) -> incrementCacheCounter(operation, result, count)));
+    snapshot.getRequestDurations().forEach((operation, durations) -> {
+      final Timer timer = requestTimer(operation);
+      durations.forEach(duration -> timer.record(duration, TimeUnit.NANOSECONDS));
+    });
+  }
+
+  private static void incrementCacheCounter(@Nonnull final String operation,
+      @Nonnull final String result, final double amount) {
+    Metrics.counter(CACHE_METRIC, OPERATION_TAG, operation, RESULT_TAG, result)
+        .increment(amount);
+  }
+
+  @Nonnull
+  private static Timer requestTimer(@Nonnull final String operation) {
+    return Timer.builder(REQUEST_METRIC)
+        .description("Latency of requests to the terminology server")
+        .tag(OPERATION_TAG, operation)
+        .publishPercentileHistogram()
+        .register(Metrics.globalRegistry);
+  }
+
+  private static class ForwardingBuffer {
+
+    @Nonnull
+    private final Map<String, Map<String, LongAdder>> cacheResults = new ConcurrentHashMap<>();
+
+    @Nonnull
+    private final Map<String, Queue<Long>> requestDurations = new ConcurrentHashMap<>();
+
+    @Nonnull
+    private final AtomicInteger bufferedDurations = new AtomicInteger();
+
+    void addCacheResult(@Nonnull final String operation, @Nonnull final String result) {
+      cacheResults.computeIfAbsent(operation, k -> new ConcurrentHashMap<>())
+          .computeIfAbsent(result, k -> new LongAdder())
+          .increment();
+    }
+
+    void addRequestDuration(@Nonnull final String operation, final long durationNanos) {
+      if (bufferedDurations.incrementAndGet() <= MAX_FORWARDED_DURATIONS) {
+        requestDurations.computeIfAbsent(operation, k -> new ConcurrentLinkedQueue<>())
+            .add(durationNanos);
+      } else {
+        bufferedDurations.decrementAndGet();
+      }
+    }
+
+    @Nonnull
+    Snapshot drain() {
+      final Map<String, Map<String, Long>> drainedResults = new HashMap<>();
+      cacheResults.forEach((operation, results) -> results.forEach((result, adder) -> {
+        final long count = adder.sumThenReset();
+        if (count > 0) {
+          drainedResults.computeIfAbsent(operation, k -> new HashMap<>()).put(result, count);
+        }
+      }));
+      final Map<String, List<Long>> drainedDurations = new HashMap<>();
+      requestDurations.forEach((operation, queue) -> {
+        final List<Long> durations = new ArrayList<>();
+        Long duration;
+        while ((duration = queue.poll()) != null) {
+          durations.add(duration);
+          bufferedDurations.decrementAndGet();
+        }
+        if (!durations.isEmpty()) {
+          drainedDurations.put(operation, durations);
+        }
+      });
+      return new Snapshot(drainedResults, drainedDurations);
+    }
+
+  }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.terminology.metrics;
+
+import au.csiro.pathling.terminology.metrics.TerminologyMetrics.Snapshot;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.spark.api.plugin.DriverPlugin;
+import org.apache.spark.api.plugin.ExecutorPlugin;
+import org.apache.spark.api.plugin.PluginContext;
+import org.apache.spark.api.plugin.SparkPlugin;
+
+/**
+ * A Spark plugin that aggregates terminology metrics recorded on remote executors back to the
+ * driver, so that the metrics exposed by the driver cover the whole cluster.
+ * <p>
+ * Enable this plugin by adding its class name to the {@code spark.plugins} configuration
+ * property.
+ *
+ * @author John Grimes
+ */
+@Slf4j
+public class TerminologyMetricsPlugin implements SparkPlugin {
+
+  /**
+   * The configuration property that controls the interval at which executors send their metrics to
+   * the driver, in seconds.
+   */
+  public static final String INTERVAL_PROPERTY = "spark.pathling.terminology.metricsInterval";
+
+  private static final long DEFAULT_INTERVAL = 10;
+
+  /**
+   * The executor ID used by Spark for the executor that runs within the driver JVM, e.g. in local
+   * mode.
+   */
+  private static final String DRIVER_EXECUTOR_ID = "driver";
+
+  @Override
+  public DriverPlugin driverPlugin() {
+    return new TerminologyMetricsDriverPlugin();
+  }
+
+  @Override
+  public ExecutorPlugin executorPlugin() {
+    return new TerminologyMetricsExecutorPlugin();
+  }
+
+  private static class TerminologyMetricsDriverPlugin implements DriverPlugin {
+
+    @Override
+    public Object receive(@Nullable final Object message) {
+      if (message instanceof Snapshot) {
+        TerminologyMetrics.apply((Snapshot) message);
+      }
+      return null;
+    }
+
+  }
+
+  private static class TerminologyMetricsExecutorPlugin implements ExecutorPlugin {
+
+    @Nullable
+    private ScheduledExecutorService scheduler;
+
+    @Nullable
+    private PluginContext context;
+
+    @Override
+    public void init(@Nonnull final PluginContext ctx, @Nonnull final Map<String, String> extraConf) {
+      if (DRIVER_EXECUTOR_ID.equals(ctx.executorID())) {
+        // Metrics recorded within the driver JVM are already registered with the driver's registry.
+        return;
+      }
+      context = ctx;
+      TerminologyMetrics.enableForwarding();
+      final long interval = ctx.conf().getLong(INTERVAL_PROPERTY, DEFAULT_INTERVAL);
+      scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "terminology-metrics");
+        thread.setDaemon(true);
+        return thread;
+      });
+      scheduler.scheduleAtFixedRate(this::send, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void shutdown() {
+      if (scheduler != null) {
+        scheduler.shutdownNow();
+        // Send any values that have been recorded since the last scheduled send.
+        send();
+        TerminologyMetrics.disableForwarding();
+      }
+    }
+
+    private void send() {
+      final Snapshot snapshot = TerminologyMetrics.drain();
+      if (context == null || snapshot.isEmpty()) {
+        return;
+      }
+      try {
+        context.send(snapshot);
+      } catch (final Exception e) {
+        log.warn("Failed to send terminology metrics to driver", e);
+      }
+    }
+
+  }
+
+}
@@ -17,8 +17,13 @@
 
 package au.csiro.pathling.terminology.subsumes;
 
+import static au.csiro.pathling.terminology.caching.BinaryEncoding.writeCodingKey;
+
 import au.csiro.pathling.fhirpath.encoding.ImmutableCoding;
 import au.csiro.pathling.terminology.TerminologyParameters;
+import jakarta.annotation.Nonnull;
+import java.io.DataOutput;
+import java.io.IOException;
 import lombok.Value;
 
 /**
@@ -36,4 +41,10 @@ public class SubsumesParameters implements TerminologyParameters {
   ImmutableCoding codingA;
   ImmutableCoding codingB;
 
+  @Override
+  public void writeKey(@Nonnull final DataOutput output) throws IOException {
+    writeCodingKey(output, codingA);
+    writeCodingKey(output, codingB);
+  }
+
 }
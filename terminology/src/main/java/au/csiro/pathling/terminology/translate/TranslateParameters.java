@@ -17,8 +17,14 @@
 
 package au.csiro.pathling.terminology.translate;
 
+import static au.csiro.pathling.terminology.caching.BinaryEncoding.writeCodingKey;
+import static au.csiro.pathling.terminology.caching.BinaryEncoding.writeString;
+
 import au.csiro.pathling.fhirpath.encoding.ImmutableCoding;
 import au.csiro.pathling.terminology.TerminologyParameters;
+import jakarta.annotation.Nonnull;
+import java.io.DataOutput;
+import java.io.IOException;
 import lombok.Value;
 
 /**
@@ -38,4 +44,12 @@ public class TranslateParameters implements TerminologyParameters {
   boolean reverse;
   String target;
 
+  @Override
+  public void writeKey(@Nonnull final DataOutput output) throws IOException {
+    writeCodingKey(output, coding);
+    writeString(output, conceptMapUrl);
+    output.writeBoolean(reverse);
+    writeString(output, target);
+  }
+
 }
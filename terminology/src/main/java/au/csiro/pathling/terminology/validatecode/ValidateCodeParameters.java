@@ -17,8 +17,14 @@
 
 package au.csiro.pathling.terminology.validatecode;
 
+import static au.csiro.pathling.terminology.caching.BinaryEncoding.writeCodingKey;
+import static au.csiro.pathling.terminology.caching.BinaryEncoding.writeString;
+
 import au.csiro.pathling.fhirpath.encoding.ImmutableCoding;
 import au.csiro.pathling.terminology.TerminologyParameters;
+import jakarta.annotation.Nonnull;
+import java.io.DataOutput;
+import java.io.IOException;
 import lombok.Value;
 
 /**
@@ -36,4 +42,10 @@ public class ValidateCodeParameters implements TerminologyParameters {
   String valueSetUrl;
   ImmutableCoding coding;
 
+  @Override
+  public void writeKey(@Nonnull final DataOutput output) throws IOException {
+    writeString(output, valueSetUrl);
+    writeCodingKey(output, coding);
+  }
+
 }
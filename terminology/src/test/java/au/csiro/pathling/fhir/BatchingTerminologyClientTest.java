@@ -0,0 +1,280 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.fhir;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.anyRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.anyUrl;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import au.csiro.pathling.config.HttpClientCachingConfiguration;
+import au.csiro.pathling.config.HttpClientConfiguration;
+import au.csiro.pathling.config.TerminologyConfiguration;
+import au.csiro.pathling.terminology.DefaultTerminologyServiceFactory;
+import au.csiro.pathling.terminology.TerminologyService;
+import au.csiro.pathling.terminology.metrics.TerminologyMetrics;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.FhirVersionEnum;
+import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.NotModifiedException;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformer;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.apache.http.impl.client.HttpClients;
+import org.hl7.fhir.r4.model.BooleanType;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Bundle.BundleEntryComponent;
+import org.hl7.fhir.r4.model.Bundle.BundleType;
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.OperationOutcome;
+import org.hl7.fhir.r4.model.OperationOutcome.IssueSeverity;
+import org.hl7.fhir.r4.model.OperationOutcome.IssueType;
+import org.hl7.fhir.r4.model.StringType;
+import org.hl7.fhir.r4.model.UriType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author John Grimes
+ */
+class BatchingTerminologyClientTest {
+
+  static final int WIREMOCK_PORT = 4073;
+  static final String SERVER_URL = "http://localhost:" + WIREMOCK_PORT + "/fhir";
+  static final String SYSTEM = "http://snomed.info/sct";
+  static final String VALUE_SET_URL = SYSTEM + "?fhir_vs";
+  static final FhirContext FHIR_CONTEXT = FhirContext.forR4Cached();
+
+  WireMockServer wireMockServer;
+
+  /**
+   * Answers each entry within a batch bundle: codes starting with "valid" are members of the value
+   * set, codes starting with "bad" are rejected, and conditional requests are not modified.
+   */
+  static class BatchResponder extends ResponseDefinitionTransformer {
+
+    @Override
+    public ResponseDefinition transform(final Request request,
+        final ResponseDefinition responseDefinition, final FileSource files,
+        final Parameters parameters) {
+      final Bundle batch = FHIR_CONTEXT.newJsonParser()
+          .parseResource(Bundle.class, request.getBodyAsString());
+      final Bundle response = new Bundle();
+      response.setType(BundleType.BATCHRESPONSE);
+      for (final BundleEntryComponent entry : batch.getEntry()) {
+        final BundleEntryComponent responseEntry = response.addEntry();
+        final String url = entry.getRequest().getUrl();
+        if (entry.getRequest().hasIfNoneMatch()) {
+          responseEntry.getResponse().setStatus("304 Not Modified")
+              .setEtag(entry.getRequest().getIfNoneMatch());
+        } else if (url.contains("code=bad")) {
+          final OperationOutcome outcome = new OperationOutcome();
+          outcome.addIssue().setSeverity(IssueSeverity.ERROR).setCode(IssueType.INVALID)
+              .setDiagnostics("Invalid code");
+          responseEntry.getResponse().setStatus("400 Bad Request").setOutcome(outcome);
+        } else {
+          final org.hl7.fhir.r4.model.Parameters result = new org.hl7.fhir.r4.model.Parameters();
+          result.addParameter("result", new BooleanType(url.contains("code=valid")));
+          responseEntry.setResource(result);
+          responseEntry.getResponse().setStatus("200 OK").setEtag("W/\"" + url.hashCode() + "\"");
+        }
+      }
+      return new ResponseDefinitionBuilder()
+          .withStatus(200)
+          .withBody(FHIR_CONTEXT.newJsonParser().encodeResourceToString(response))
+          .withHeader("Content-Type", "application/fhir+json")
+          .withHeader("Cache-Control", "max-age=60")
+          .build();
+    }
+
+    @Override
+    public String getName() {
+      return "batch-responder";
+    }
+
+  }
+
+  @BeforeEach
+  void setUp() {
+    wireMockServer = new WireMockServer(
+        new WireMockConfiguration().port(WIREMOCK_PORT).extensions(new BatchResponder()));
+    wireMockServer.start();
+    WireMock.configureFor("localhost", WIREMOCK_PORT);
+    wireMockServer.stubFor(post(urlEqualTo("/fhir")).willReturn(aResponse()));
+  }
+
+  @AfterEach
+  void tearDown() {
+    wireMockServer.stop();
+  }
+
+  @Test
+  void sendsRequestsExecutedTogetherWithinBatches() throws Exception {
+    final int requests = 10;
+    try (final TerminologyClient client = buildClient(5)) {
+      final List<TerminologyRequest> batch = new ArrayList<>();
+      for (int i = 0; i < requests; i++) {
+        final String code = (i % 2 == 0
+                             ? "valid"
+                             : "invalid") + i;
+        batch.add(validateCode(code));
+      }
+      final List<CompletableFuture<MethodOutcome>> outcomes = client.executeAll(batch);
+      assertEquals(requests, outcomes.size());
+      for (int i = 0; i < requests; i++) {
+        final org.hl7.fhir.r4.model.Parameters result =
+            (org.hl7.fhir.r4.model.Parameters) outcomes.get(i).join().getResource();
+        assertEquals(i % 2 == 0,
+            ((BooleanType) result.getParameter("result").getValue()).booleanValue());
+      }
+    }
+    // The requests are split into batches of the configured size.
+    WireMock.verify(2, postRequestedFor(urlEqualTo("/fhir")));
+  }
+
+  @Test
+  void sendsSeparateBatchesForEachLanguage() throws Exception {
+    try (final TerminologyClient client = buildClient(100)) {
+      final List<CompletableFuture<MethodOutcome>> outcomes = client.executeAll(List.of(
+          lookup("valid1", "en"), lookup("valid2", "de"), lookup("valid3", "en")));
+      outcomes.forEach(CompletableFuture::join);
+    }
+    WireMock.verify(2, postRequestedFor(urlEqualTo("/fhir")));
+    WireMock.verify(1, postRequestedFor(urlEqualTo("/fhir"))
+        .withHeader("Accept-Language", equalTo("de")));
+  }
+
+  @Test
+  void returnsEntryETagAndBatchCacheControl() throws Exception {
+    try (final TerminologyClient client = buildClient(100)) {
+      final MethodOutcome outcome = client.executeAll(List.of(validateCode("valid"))).get(0)
+          .join();
+      final String expectedUrl = "ValueSet/$validate-code?url="
+          + "http%3A%2F%2Fsnomed.info%2Fsct%3Ffhir_vs&system=http%3A%2F%2Fsnomed.info%2Fsct"
+          + "&code=valid";
+      assertEquals(List.of("W/\"" + expectedUrl.hashCode() + "\""),
+          outcome.getResponseHeaders().get("etag"));
+      assertEquals(List.of("max-age=60"), outcome.getResponseHeaders().get("cache-control"));
+    }
+  }
+
+  @Test
+  void completesWithNotModifiedForConditionalEntry() throws Exception {
+    try (final TerminologyClient client = buildClient(100)) {
+      final CompletableFuture<MethodOutcome> outcome = client.executeAll(
+          List.of(validateCode("valid").withIfNoneMatch("W/\"1\""))).get(0);
+      final Throwable error = assertThrows(CompletionException.class, outcome::join).getCause();
+      assertInstanceOf(NotModifiedException.class, error);
+      assertEquals(List.of("W/\"1\""),
+          ((NotModifiedException) error).getResponseHeaders().get("etag"));
+    }
+  }
+
+  @Test
+  void completesWithErrorForFailedEntry() throws Exception {
+    try (final TerminologyClient client = buildClient(100)) {
+      final List<CompletableFuture<MethodOutcome>> outcomes = client.executeAll(
+          List.of(validateCode("bad"), validateCode("valid")));
+      final Throwable error = assertThrows(CompletionException.class, outcomes.get(0)::join)
+          .getCause();
+      assertInstanceOf(InvalidRequestException.class, error);
+      assertEquals("Invalid code", error.getMessage());
+      // The failure of one entry does not affect the other entries within the batch.
+      assertNotNull(outcomes.get(1).join().getResource());
+    }
+  }
+
+  @Test
+  void cachingServiceSendsPrefetchedLookupsWithinBatch() {
+    final TerminologyConfiguration config = TerminologyConfiguration.builder()
+        .serverUrl(SERVER_URL)
+        .client(HttpClientConfiguration.builder()
+            .batchEnabled(true)
+            .build())
+        .cache(HttpClientCachingConfiguration.builder().build())
+        .build();
+    final DefaultTerminologyServiceFactory factory = new DefaultTerminologyServiceFactory(
+        FhirVersionEnum.R4, config);
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    Metrics.addRegistry(registry);
+    try {
+      final TerminologyService service = factory.build();
+      final List<Coding> codings = List.of(new Coding(SYSTEM, "valid1", null),
+          new Coding(SYSTEM, "valid2", null), new Coding(SYSTEM, "valid1", null));
+      service.prefetchLookup(codings, "display", null);
+      // The lookups are now answered from the cache.
+      codings.forEach(coding -> service.lookup(coding, "display", null));
+      // The batch is recorded as a single request.
+      assertEquals(1, registry.get(TerminologyMetrics.REQUEST_METRIC)
+          .tag(TerminologyMetrics.OPERATION_TAG, "lookup").timer().count());
+    } finally {
+      Metrics.removeRegistry(registry);
+      registry.close();
+      DefaultTerminologyServiceFactory.reset();
+    }
+    WireMock.verify(1, anyRequestedFor(anyUrl()));
+  }
+
+  @Nonnull
+  static TerminologyRequest validateCode(@Nonnull final String code) {
+    return TerminologyRequest.validateCode(new UriType(VALUE_SET_URL), new UriType(SYSTEM), null,
+        new CodeType(code));
+  }
+
+  @Nonnull
+  static TerminologyRequest lookup(@Nonnull final String code,
+      @Nonnull final String acceptLanguage) {
+    return TerminologyRequest.lookup(new UriType(SYSTEM), null, new CodeType(code), null,
+        new StringType(acceptLanguage));
+  }
+
+  @Nonnull
+  TerminologyClient buildClient(final int batchSize) {
+    final TerminologyConfiguration config = TerminologyConfiguration.builder()
+        .serverUrl(SERVER_URL)
+        .client(HttpClientConfiguration.builder()
+            .batchEnabled(true)
+            .batchSize(batchSize)
+            .build())
+        .build();
+    return TerminologyClient.build(FHIR_CONTEXT, config, HttpClients.createDefault());
+  }
+
+}
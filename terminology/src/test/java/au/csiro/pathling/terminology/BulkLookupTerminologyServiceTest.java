@@ -0,0 +1,82 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.terminology;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import au.csiro.pathling.terminology.TerminologyService.Designation;
+import au.csiro.pathling.terminology.TerminologyService.Property;
+import au.csiro.pathling.terminology.TerminologyService.PropertyOrDesignation;
+import java.util.Collections;
+import java.util.List;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BulkLookupTerminologyServiceTest {
+
+  private static final Coding CODING = new Coding("uuid:system", "code", "Display");
+  private static final Coding USE = new Coding("uuid:use", "use", null);
+
+  private static final Property DISPLAY = Property.of("display", new StringType("Display"));
+  private static final Property PROPERTY_A = Property.of("property_A", new StringType("a1"));
+  private static final Property PROPERTY_A_2 = Property.of("property_A", new StringType("a2"));
+  private static final Property PROPERTY_B = Property.of("property_B", new StringType("b"));
+  private static final Designation DESIGNATION = Designation.of(USE, "en", "Designation");
+
+  private TerminologyService delegate;
+  private BulkLookupTerminologyService terminologyService;
+
+  @BeforeEach
+  void setUp() {
+    delegate = mock(TerminologyService.class);
+    terminologyService = new BulkLookupTerminologyService(delegate);
+    when(delegate.lookupAll(CODING, "en")).thenReturn(
+        List.of(DISPLAY, PROPERTY_A, PROPERTY_B, PROPERTY_A_2, DESIGNATION));
+  }
+
+  @Test
+  void answersPropertyFromLookupOfAll() {
+    assertEquals(List.of(PROPERTY_A, PROPERTY_A_2),
+        terminologyService.lookup(CODING, "property_A", "en"));
+    assertEquals(List.of(DISPLAY), terminologyService.lookup(CODING, "display", "en"));
+    assertEquals(Collections.emptyList(), terminologyService.lookup(CODING, "property_C", "en"));
+  }
+
+  @Test
+  void answersDesignationsFromLookupOfAll() {
+    assertEquals(List.of(DESIGNATION),
+        terminologyService.lookup(CODING, Designation.PROPERTY_CODE, "en"));
+  }
+
+  @Test
+  void passesThroughLookupWithoutProperty() {
+    final List<PropertyOrDesignation> properties = List.of(DISPLAY, PROPERTY_A);
+    when(delegate.lookup(CODING, null, "en")).thenReturn(properties);
+
+    assertEquals(properties, terminologyService.lookup(CODING, null, "en"));
+    verify(delegate).lookup(CODING, null, "en");
+    verifyNoMoreInteractions(delegate);
+  }
+
+}
@@ -405,6 +405,33 @@ public class DefaultTerminologyServiceTest extends AbstractTerminologyTestBase {
         terminologyService.lookup(CODING_A, Designation.PROPERTY_CODE));
   }
 
+  @Test
+  public void testLooksUpAllPropertiesAndDesignations() {
+    final Parameters response = standardProperties(CODING_A)
+        .withProperty("property_A", "value_A")
+        .withDesignation("designation_D_X", CODING_D, "lang_X")
+        .build();
+
+    final IOperationUntypedWithInput<Parameters> request = mockRequest(
+        response);
+    when(terminologyClient.buildLookup(
+        deepEq(new UriType(SYSTEM_A)),
+        isNull(),
+        deepEq(new CodeType(CODE_A)),
+        isNull(),
+        deepEq(new StringType("xx-XX"))
+    )).thenReturn(request);
+
+    assertEquals(List.of(
+            Property.of("display", new StringType(CODING_A.getDisplay())),
+            Property.of("code", new CodeType(CODE_A)),
+            Property.of("name", new StringType("My Test Coding System")),
+            Property.of("property_A", new StringType("value_A")),
+            Designation.of(CODING_D, "lang_X", "designation_D_X")
+        ),
+        terminologyService.lookupAll(CODING_A, "xx-XX"));
+  }
+
   @Test
   public void testLooksUpDesignationsForVersionedCodingAndUse() {
     final Parameters response = standardProperties(CODING_BB_VERSION1)
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.terminology.caching;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import au.csiro.pathling.fhirpath.encoding.ImmutableCoding;
+import au.csiro.pathling.terminology.lookup.LookupParameters;
+import au.csiro.pathling.terminology.subsumes.SubsumesParameters;
+import au.csiro.pathling.terminology.translate.TranslateParameters;
+import au.csiro.pathling.terminology.validatecode.ValidateCodeParameters;
+import org.junit.jupiter.api.Test;
+
+class CacheKeyTest {
+
+  static final String SYSTEM = "http://snomed.info/sct";
+  static final String VALUE_SET_URL = "http://snomed.info/sct?fhir_vs";
+
+  @Test
+  void equalParametersHaveEqualKeys() {
+    // The display is not part of the identity of a coding.
+    final ValidateCodeParameters parameters1 = new ValidateCodeParameters(VALUE_SET_URL,
+        ImmutableCoding.of(SYSTEM, "44054006", "Type 2 diabetes mellitus"));
+    final ValidateCodeParameters parameters2 = new ValidateCodeParameters(VALUE_SET_URL,
+        ImmutableCoding.of(SYSTEM, "44054006", "Diabetes type 2"));
+    assertEquals(CacheKey.of(parameters1), CacheKey.of(parameters2));
+    assertEquals(CacheKey.of(parameters1).hashCode(), CacheKey.of(parameters2).hashCode());
+  }
+
+  @Test
+  void parametersWithCollidingHashCodesHaveDifferentKeys() {
+    // "Aa" and "BB" have the same String hash code, so these parameters have the same hash code.
+    final ValidateCodeParameters parameters1 = new ValidateCodeParameters(VALUE_SET_URL,
+        ImmutableCoding.of(SYSTEM, "Aa", null));
+    final ValidateCodeParameters parameters2 = new ValidateCodeParameters(VALUE_SET_URL,
+        ImmutableCoding.of(SYSTEM, "BB", null));
+    assertEquals(parameters1.hashCode(), parameters2.hashCode());
+    assertNotEquals(CacheKey.of(parameters1), CacheKey.of(parameters2));
+  }
+
+  @Test
+  void nullAndEmptyStringsHaveDifferentKeys() {
+    final LookupParameters parameters1 = new LookupParameters(
+        ImmutableCoding.of(SYSTEM, "44054006", null), null, null);
+    final LookupParameters parameters2 = new LookupParameters(
+        ImmutableCoding.of(SYSTEM, "44054006", null), "", null);
+    final LookupParameters parameters3 = new LookupParameters(
+        ImmutableCoding.of(SYSTEM, "44054006", null), null, "");
+    assertNotEquals(CacheKey.of(parameters1), CacheKey.of(parameters2));
+    assertNotEquals(CacheKey.of(parameters2), CacheKey.of(parameters3));
+  }
+
+  @Test
+  void fieldBoundariesAreUnambiguous() {
+    // Concatenating the fields would produce the same string for both of these.
+    final SubsumesParameters parameters1 = new SubsumesParameters(
+        ImmutableCoding.of(SYSTEM, "1234", null), ImmutableCoding.of(SYSTEM, "5", null));
+    final SubsumesParameters parameters2 = new SubsumesParameters(
+        ImmutableCoding.of(SYSTEM, "123", null), ImmutableCoding.of(SYSTEM, "45", null));
+    assertNotEquals(CacheKey.of(parameters1), CacheKey.of(parameters2));
+
+    final TranslateParameters parameters3 = new TranslateParameters(
+        ImmutableCoding.of(SYSTEM, "44054006", null), "http://example.com/cm", false, null);
+    final TranslateParameters parameters4 = new TranslateParameters(
+        ImmutableCoding.of(SYSTEM, "44054006", null), "http://example.com/cm", true, null);
+    assertNotEquals(CacheKey.of(parameters3), CacheKey.of(parameters4));
+  }
+
+}
@@ -45,7 +45,13 @@ import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
 import com.github.tomakehurst.wiremock.recording.RecordSpecBuilder;
 import jakarta.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 import lombok.Value;
@@ -256,6 +262,36 @@ class CachingTerminologyServiceTest {
     }
   }
 
+  @ParameterizedTest
+  @MethodSource("parameters")
+  @Order(3)
+  void concurrentColdRequests(@Nonnull final TestParameters parameters) throws Exception {
+    final int threads = 16;
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      // Release all the requests at the same time.
+      final CountDownLatch start = new CountDownLatch(1);
+      final List<Future<Object>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          return parameters.getSupplier().get();
+        }));
+      }
+      start.countDown();
+      for (final Future<Object> future : futures) {
+        assertEquals(parameters.getExpectedResult(), future.get(30, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // Verify that the concurrent requests were coalesced into a single request.
+    verify(parameters.isInvalidParameters()
+           ? 0
+           : 1, anyRequestedFor(anyUrl()));
+  }
+
   @AfterEach
   void tearDown() {
     if (isRecordMode()) {
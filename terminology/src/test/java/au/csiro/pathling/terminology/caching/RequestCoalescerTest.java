@@ -0,0 +1,158 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.terminology.caching;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RequestCoalescerTest {
+
+  ExecutorService executor;
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newFixedThreadPool(8);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void concurrentCallersShareSingleComputation() throws Exception {
+    final RequestCoalescer<String, Integer> coalescer = new RequestCoalescer<>();
+    final AtomicInteger computations = new AtomicInteger();
+    final CountDownLatch release = new CountDownLatch(1);
+
+    final Future<Integer> first = executor.submit(() -> coalescer.execute("key", () -> {
+      computations.incrementAndGet();
+      await(release);
+      return 42;
+    }));
+    // Wait until the first computation is in flight before starting the others.
+    while (computations.get() == 0) {
+      Thread.sleep(10);
+    }
+    final List<Future<Integer>> others = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      others.add(executor.submit(() -> coalescer.execute("key", () -> {
+        computations.incrementAndGet();
+        return -1;
+      })));
+    }
+    Thread.sleep(100);
+    release.countDown();
+
+    assertEquals(42, first.get(10, TimeUnit.SECONDS));
+    for (final Future<Integer> other : others) {
+      assertEquals(42, other.get(10, TimeUnit.SECONDS));
+    }
+    assertEquals(1, computations.get());
+  }
+
+  @Test
+  void differentKeysAreNotCoalesced() {
+    final RequestCoalescer<String, Integer> coalescer = new RequestCoalescer<>();
+    assertEquals(1, coalescer.execute("a", () -> 1));
+    assertEquals(2, coalescer.execute("b", () -> 2));
+    // Completed computations are not remembered.
+    assertEquals(3, coalescer.execute("a", () -> 3));
+  }
+
+  @Test
+  void waitingCallersReceiveOriginalError() throws Exception {
+    final RequestCoalescer<String, Integer> coalescer = new RequestCoalescer<>();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final IllegalStateException error = new IllegalStateException("failed");
+
+    final Future<Integer> first = executor.submit(() -> coalescer.execute("key", () -> {
+      started.countDown();
+      await(release);
+      throw error;
+    }));
+    started.await();
+    final Future<Integer> second = executor.submit(() -> coalescer.execute("key", () -> 1));
+    Thread.sleep(100);
+    release.countDown();
+
+    final ExecutionException firstError = assertThrows(ExecutionException.class, first::get);
+    assertSame(error, firstError.getCause());
+    final ExecutionException secondError = assertThrows(ExecutionException.class, second::get);
+    assertSame(error, secondError.getCause());
+  }
+
+  @Test
+  void backgroundComputationIsNotDuplicated() throws Exception {
+    final RequestCoalescer<String, Integer> coalescer = new RequestCoalescer<>();
+    final AtomicInteger computations = new AtomicInteger();
+    final CountDownLatch release = new CountDownLatch(1);
+
+    assertTrue(coalescer.executeInBackground("key", () -> {
+      computations.incrementAndGet();
+      await(release);
+      return 1;
+    }, executor));
+    assertFalse(coalescer.executeInBackground("key", () -> {
+      computations.incrementAndGet();
+      return 2;
+    }, executor));
+
+    // A foreground caller waits for the background computation.
+    final Future<Integer> waiting = executor.submit(() -> coalescer.execute("key", () -> 3));
+    Thread.sleep(100);
+    release.countDown();
+    assertEquals(1, waiting.get(10, TimeUnit.SECONDS));
+    assertEquals(1, computations.get());
+  }
+
+  @Test
+  void rejectedBackgroundComputationIsNotInFlight() {
+    final RequestCoalescer<String, Integer> coalescer = new RequestCoalescer<>();
+    executor.shutdownNow();
+    assertFalse(coalescer.executeInBackground("key", () -> 1, executor));
+    assertEquals(2, coalescer.execute("key", () -> 2));
+  }
+
+  private static void await(final CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.terminology.caching;
+
+import static java.util.Objects.requireNonNull;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import au.csiro.pathling.fhirpath.encoding.ImmutableCoding;
+import au.csiro.pathling.terminology.TerminologyResult;
+import au.csiro.pathling.terminology.TerminologyService.Designation;
+import au.csiro.pathling.terminology.TerminologyService.Property;
+import au.csiro.pathling.terminology.TerminologyService.PropertyOrDesignation;
+import au.csiro.pathling.terminology.TerminologyService.Translation;
+import au.csiro.pathling.terminology.lookup.LookupParameters;
+import java.util.ArrayList;
+import java.util.List;
+import org.hl7.fhir.r4.model.BooleanType;
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.codesystems.ConceptMapEquivalence;
+import org.hl7.fhir.r4.model.codesystems.ConceptSubsumptionOutcome;
+import org.infinispan.commons.marshall.JavaSerializationMarshaller;
+import org.junit.jupiter.api.Test;
+
+class TerminologyCacheMarshallerTest {
+
+  static final String SNOMED_URI = "http://snomed.info/sct";
+
+  final TerminologyCacheMarshaller marshaller = new TerminologyCacheMarshaller();
+
+  @Test
+  void roundTripsKeys() throws Exception {
+    final CacheKey key = CacheKey.of(new LookupParameters(
+        ImmutableCoding.of(SNOMED_URI, "44054006", null), "parent", "en"));
+    assertEquals(key, roundTrip(key));
+  }
+
+  @Test
+  void roundTripsValidateCodeResults() throws Exception {
+    final TerminologyResult<Boolean> result = new TerminologyResult<>(true, "W/\"1\"",
+        1700000000000L, false);
+    assertEquals(result, roundTrip(result));
+  }
+
+  @Test
+  void roundTripsSubsumesResults() throws Exception {
+    final TerminologyResult<ConceptSubsumptionOutcome> result = new TerminologyResult<>(
+        ConceptSubsumptionOutcome.SUBSUMEDBY, null, null, true);
+    assertEquals(result, roundTrip(result));
+  }
+
+  @Test
+  void roundTripsTranslateResults() throws Exception {
+    final Coding concept = new Coding(SNOMED_URI, "45110008", "Chloroquine poisoning")
+        .setVersion("http://snomed.info/sct/32506021000036107/version/20220930");
+    final TerminologyResult<ArrayList<Translation>> result = new TerminologyResult<>(
+        new ArrayList<>(List.of(Translation.of(ConceptMapEquivalence.EQUAL, concept))), null,
+        1700000000000L, false);
+    final TerminologyResult<?> actual = roundTrip(result);
+    assertEquals(result, actual);
+    final Translation translation = (Translation) ((List<?>) actual.getData()).get(0);
+    assertEquals("Chloroquine poisoning", translation.getConcept().getDisplay());
+  }
+
+  @Test
+  void roundTripsLookupResults() throws Exception {
+    final TerminologyResult<ArrayList<PropertyOrDesignation>> result = lookupResult();
+    final TerminologyResult<?> actual = roundTrip(result);
+    assertEquals(result.getETag(), actual.getETag());
+    assertEquals(result.getExpires(), actual.getExpires());
+    assertEquals(result.getData(), actual.getData());
+  }
+
+  @Test
+  void isMuchSmallerThanJavaSerialization() throws Exception {
+    // Properties with complex values other than codings fall back to Java serialization, so they
+    // are left out of this comparison.
+    final TerminologyResult<ArrayList<PropertyOrDesignation>> fullResult = lookupResult();
+    final ArrayList<PropertyOrDesignation> data = new ArrayList<>(
+        requireNonNull(fullResult.getData()));
+    data.removeIf(item -> item instanceof Property
+        && ((Property) item).getValue() instanceof Quantity);
+    final TerminologyResult<ArrayList<PropertyOrDesignation>> result = new TerminologyResult<>(
+        data, fullResult.getETag(), fullResult.getExpires(), false);
+    final int binarySize = marshaller.objectToByteBuffer(result).length;
+    final int javaSize = new JavaSerializationMarshaller().objectToByteBuffer(result).length;
+    assertTrue(binarySize * 4 < javaSize,
+        "Binary size " + binarySize + " is not less than a quarter of " + javaSize);
+  }
+
+  private static TerminologyResult<ArrayList<PropertyOrDesignation>> lookupResult() {
+    final Coding use = new Coding(SNOMED_URI, "900000000000003001", "Fully specified name");
+    final Quantity quantity = new Quantity().setValue(5).setUnit("mg");
+    return new TerminologyResult<>(new ArrayList<>(List.of(
+        Property.of("parent", new CodeType("73211009")),
+        Property.of("inactive", new BooleanType(false)),
+        Property.of("effectiveTime", new DateTimeType("2020-01-31")),
+        Property.of("child", new Coding(SNOMED_URI, "44054006", "Type 2 diabetes mellitus")),
+        Property.of("strength", quantity),
+        Designation.of(use, "en", "Diabetes mellitus (disorder)"),
+        Designation.of(null, null, "Diabetes"))), "W/\"2\"", 1700000000000L, false);
+  }
+
+  private TerminologyResult<?> roundTrip(final TerminologyResult<?> result) throws Exception {
+    return (TerminologyResult<?>) marshaller.objectFromByteBuffer(
+        marshaller.objectToByteBuffer(result));
+  }
+
+  private CacheKey roundTrip(final CacheKey key) throws Exception {
+    return (CacheKey) marshaller.objectFromByteBuffer(marshaller.objectToByteBuffer(key));
+  }
+
+}
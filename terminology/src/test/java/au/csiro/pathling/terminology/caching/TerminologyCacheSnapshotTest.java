@@ -0,0 +1,236 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.terminology.caching;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import au.csiro.pathling.config.HttpClientCachingConfiguration;
+import au.csiro.pathling.config.TerminologyConfiguration;
+import au.csiro.pathling.fhir.TerminologyClient;
+import au.csiro.pathling.fhirpath.encoding.ImmutableCoding;
+import au.csiro.pathling.terminology.DefaultTerminologyServiceFactory;
+import au.csiro.pathling.terminology.TerminologyResult;
+import au.csiro.pathling.terminology.TerminologyService;
+import au.csiro.pathling.terminology.TerminologyService.Property;
+import au.csiro.pathling.terminology.TerminologyService.PropertyOrDesignation;
+import au.csiro.pathling.terminology.lookup.LookupParameters;
+import au.csiro.pathling.terminology.subsumes.SubsumesParameters;
+import au.csiro.pathling.terminology.validatecode.ValidateCodeParameters;
+import au.csiro.pathling.utilities.SerializableConfiguration;
+import ca.uhn.fhir.context.FhirVersionEnum;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.spark.broadcast.Broadcast;
+import org.hl7.fhir.r4.model.BooleanType;
+import org.hl7.fhir.r4.model.codesystems.ConceptSubsumptionOutcome;
+import org.infinispan.Cache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TerminologyCacheSnapshotTest {
+
+  static final String SNOMED_URI = "http://snomed.info/sct";
+  static final ImmutableCoding T2D_CODING = ImmutableCoding.of(SNOMED_URI, "44054006", null);
+  static final ImmutableCoding DIABETES_CODING = ImmutableCoding.of(SNOMED_URI, "73211009", null);
+  static final String ALL_CODES_VALUE_SET_URL = SNOMED_URI + "?fhir_vs";
+
+  static final CacheKey VALIDATE_CODE_KEY = CacheKey.of(
+      new ValidateCodeParameters(ALL_CODES_VALUE_SET_URL, T2D_CODING));
+  static final CacheKey SUBSUMES_KEY = CacheKey.of(
+      new SubsumesParameters(T2D_CODING, DIABETES_CODING));
+  static final CacheKey LOOKUP_KEY = CacheKey.of(
+      new LookupParameters(T2D_CODING, "inactive", null));
+
+  static final TerminologyResult<Boolean> VALIDATE_CODE_RESULT = new TerminologyResult<>(true,
+      "W/\"1\"", 1700000000000L, false);
+  static final TerminologyResult<ConceptSubsumptionOutcome> SUBSUMES_RESULT =
+      new TerminologyResult<>(ConceptSubsumptionOutcome.SUBSUMEDBY, null, null, false);
+  static final TerminologyResult<ArrayList<PropertyOrDesignation>> LOOKUP_RESULT =
+      new TerminologyResult<>(
+          new ArrayList<>(List.of(Property.of("inactive", new BooleanType(false)))), null, null,
+          false);
+
+  CachingTerminologyService source;
+  CachingTerminologyService target;
+
+  @BeforeEach
+  void setUp() {
+    source = newService();
+    target = newService();
+    source.validateCodeCache.put(VALIDATE_CODE_KEY, VALIDATE_CODE_RESULT);
+    source.subsumesCache.put(SUBSUMES_KEY, SUBSUMES_RESULT);
+    source.lookupCache.put(LOOKUP_KEY, LOOKUP_RESULT);
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    source.close();
+    target.close();
+  }
+
+  @Test
+  void roundTripsAllCaches() throws IOException {
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    assertEquals(3, TerminologyCacheSnapshot.write(source.getCaches(), output));
+    assertEquals(3, TerminologyCacheSnapshot.read(new ByteArrayInputStream(output.toByteArray()),
+        target.getCaches()));
+
+    assertEquals(VALIDATE_CODE_RESULT, target.validateCodeCache.get(VALIDATE_CODE_KEY));
+    assertEquals(SUBSUMES_RESULT, target.subsumesCache.get(SUBSUMES_KEY));
+    assertEquals(LOOKUP_RESULT, target.lookupCache.get(LOOKUP_KEY));
+    assertTrue(target.translateCache.isEmpty());
+  }
+
+  @Test
+  void doesNotReplaceExistingEntries() throws IOException {
+    final TerminologyResult<Boolean> existing = new TerminologyResult<>(false, null, null, false);
+    target.validateCodeCache.put(VALIDATE_CODE_KEY, existing);
+
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    TerminologyCacheSnapshot.write(source.getCaches(), output);
+    assertEquals(2, TerminologyCacheSnapshot.read(new ByteArrayInputStream(output.toByteArray()),
+        target.getCaches()));
+    assertEquals(existing, target.validateCodeCache.get(VALIDATE_CODE_KEY));
+  }
+
+  @Test
+  void rejectsOtherContent() {
+    final ByteArrayInputStream input = new ByteArrayInputStream(new byte[]{1, 2, 3, 4});
+    assertThrows(IOException.class,
+        () -> TerminologyCacheSnapshot.read(input, target.getCaches()));
+  }
+
+  @Test
+  void savesAndLoadsUsingPath(@TempDir final Path tempDir) throws IOException {
+    final String path = tempDir.resolve("snapshot").toUri().toString();
+    assertEquals(3, TerminologyCacheSnapshot.save(source, path, new Configuration()));
+    assertEquals(3, TerminologyCacheSnapshot.load(target, path, new Configuration()));
+    assertEquals(SUBSUMES_RESULT, target.subsumesCache.get(SUBSUMES_KEY));
+  }
+
+  @Test
+  void factoryLoadsConfiguredSnapshot(@TempDir final Path tempDir) throws IOException {
+    final String path = tempDir.resolve("snapshot").toUri().toString();
+    TerminologyCacheSnapshot.save(source, path, new Configuration());
+
+    final TerminologyConfiguration configuration = TerminologyConfiguration.builder()
+        .cache(HttpClientCachingConfiguration.builder()
+            .snapshotPath(path)
+            .build())
+        .build();
+    try {
+      final TerminologyService service = new DefaultTerminologyServiceFactory(FhirVersionEnum.R4,
+          configuration).build();
+      final CachingTerminologyService cachingService = assertInstanceOf(
+          CachingTerminologyService.class, service);
+      assertEquals(LOOKUP_RESULT, cachingService.lookupCache.get(LOOKUP_KEY));
+    } finally {
+      DefaultTerminologyServiceFactory.reset();
+    }
+  }
+
+  @Test
+  void factoryToleratesMissingSnapshot(@TempDir final Path tempDir) {
+    final TerminologyConfiguration configuration = TerminologyConfiguration.builder()
+        .cache(HttpClientCachingConfiguration.builder()
+            .snapshotPath(tempDir.resolve("missing").toUri().toString())
+            .build())
+        .build();
+    try {
+      final TerminologyService service = new DefaultTerminologyServiceFactory(FhirVersionEnum.R4,
+          configuration).build();
+      assertInstanceOf(CachingTerminologyService.class, service);
+    } finally {
+      DefaultTerminologyServiceFactory.reset();
+    }
+  }
+
+  @Test
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  void factoryToleratesCorruptSnapshot(@TempDir final Path tempDir) throws IOException {
+    // An entry with a result in place of its key cannot be unmarshalled into the cache.
+    ((Cache) source.lookupCache).put(VALIDATE_CODE_RESULT, LOOKUP_RESULT);
+    final String path = tempDir.resolve("snapshot").toUri().toString();
+    TerminologyCacheSnapshot.save(source, path, new Configuration());
+
+    final TerminologyConfiguration configuration = TerminologyConfiguration.builder()
+        .cache(HttpClientCachingConfiguration.builder()
+            .snapshotPath(path)
+            .build())
+        .build();
+    try {
+      final TerminologyService service = new DefaultTerminologyServiceFactory(FhirVersionEnum.R4,
+          configuration).build();
+      assertInstanceOf(CachingTerminologyService.class, service);
+    } finally {
+      DefaultTerminologyServiceFactory.reset();
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void factoryLoadsSnapshotUsingBroadcastConfiguration(@TempDir final Path tempDir)
+      throws IOException {
+    final String path = tempDir.resolve("snapshot").toUri().toString();
+    TerminologyCacheSnapshot.save(source, path, new Configuration());
+
+    final TerminologyConfiguration configuration = TerminologyConfiguration.builder()
+        .cache(HttpClientCachingConfiguration.builder()
+            .snapshotPath(path)
+            .build())
+        .build();
+    final Configuration hadoopConfiguration = new Configuration();
+    hadoopConfiguration.set("pathling.test.secret", "secret");
+    final Broadcast<SerializableConfiguration> broadcast = mock(Broadcast.class);
+    when(broadcast.value()).thenReturn(new SerializableConfiguration(hadoopConfiguration));
+    final DefaultTerminologyServiceFactory factory = new DefaultTerminologyServiceFactory(
+        FhirVersionEnum.R4, configuration, broadcast);
+
+    // The configuration is not part of the identity or the string representation of the factory.
+    assertEquals(new DefaultTerminologyServiceFactory(FhirVersionEnum.R4, configuration), factory);
+    assertFalse(factory.toString().contains("secret"));
+    try {
+      final CachingTerminologyService cachingService = assertInstanceOf(
+          CachingTerminologyService.class, factory.build());
+      assertEquals(LOOKUP_RESULT, cachingService.lookupCache.get(LOOKUP_KEY));
+      verify(broadcast).value();
+    } finally {
+      DefaultTerminologyServiceFactory.reset();
+    }
+  }
+
+  static CachingTerminologyService newService() {
+    return new InMemoryCachingTerminologyService(mock(TerminologyClient.class),
+        HttpClientCachingConfiguration.builder().build());
+  }
+
+}
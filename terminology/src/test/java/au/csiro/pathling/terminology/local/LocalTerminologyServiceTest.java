@@ -0,0 +1,252 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.terminology.local;
+
+import static org.hl7.fhir.r4.model.codesystems.ConceptSubsumptionOutcome.EQUIVALENT;
+import static org.hl7.fhir.r4.model.codesystems.ConceptSubsumptionOutcome.NOTSUBSUMED;
+import static org.hl7.fhir.r4.model.codesystems.ConceptSubsumptionOutcome.SUBSUMEDBY;
+import static org.hl7.fhir.r4.model.codesystems.ConceptSubsumptionOutcome.SUBSUMES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import au.csiro.pathling.config.TerminologyConfiguration;
+import au.csiro.pathling.terminology.DefaultTerminologyServiceFactory;
+import au.csiro.pathling.terminology.TerminologyService.Designation;
+import au.csiro.pathling.terminology.TerminologyService.Property;
+import au.csiro.pathling.terminology.TerminologyService.PropertyOrDesignation;
+import au.csiro.pathling.terminology.TerminologyService.Translation;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.FhirVersionEnum;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.hl7.fhir.r4.model.BooleanType;
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.StringType;
+import org.hl7.fhir.r4.model.codesystems.ConceptMapEquivalence;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+@TestInstance(Lifecycle.PER_CLASS)
+class LocalTerminologyServiceTest {
+
+  static final String RESOURCES_PATH = "src/test/resources/local-terminology";
+  static final String SYSTEM = "http://example.org/fhir/CodeSystem/conditions";
+  static final String SNOMED_URI = "http://snomed.info/sct";
+  static final String CONCEPT_MAP_URL = "http://example.org/fhir/ConceptMap/conditions-to-snomed";
+
+  static final Coding DISORDER = new Coding(SYSTEM, "disorder", null);
+  static final Coding DIABETES = new Coding(SYSTEM, "diabetes", null);
+  static final Coding T2DM = new Coding(SYSTEM, "t2dm", null);
+  static final Coding T1DM = new Coding(SYSTEM, "t1dm", null);
+  static final Coding ASTHMA = new Coding(SYSTEM, "asthma", null);
+  static final Coding POISONING = new Coding(SYSTEM, "poisoning", null);
+
+  LocalTerminologyService terminologyService;
+
+  @BeforeAll
+  void setUp() throws IOException {
+    final LocalTerminologyIndex index = new LocalTerminologyLoader(FhirContext.forR4(),
+        new Configuration()).load(Path.of(RESOURCES_PATH).toAbsolutePath().toUri().toString());
+    terminologyService = new LocalTerminologyService(index, null);
+  }
+
+  @Test
+  void validateCodeWithFilteredValueSet() {
+    final String valueSet = "http://example.org/fhir/ValueSet/diabetes";
+    assertTrue(terminologyService.validateCode(valueSet, DIABETES));
+    assertTrue(terminologyService.validateCode(valueSet, T2DM));
+    // Excluded from the value set.
+    assertFalse(terminologyService.validateCode(valueSet, T1DM));
+    assertFalse(terminologyService.validateCode(valueSet, ASTHMA));
+  }
+
+  @Test
+  void validateCodeWithEnumeratedValueSet() {
+    final String valueSet = "http://example.org/fhir/ValueSet/asthma-and-poisoning|1.0.0";
+    assertTrue(terminologyService.validateCode(valueSet, ASTHMA));
+    assertTrue(terminologyService.validateCode(valueSet, POISONING));
+    assertFalse(terminologyService.validateCode(valueSet, DIABETES));
+  }
+
+  @Test
+  void validateCodeWithPropertyFilter() {
+    final String valueSet = "http://example.org/fhir/ValueSet/high-severity";
+    assertTrue(terminologyService.validateCode(valueSet, DIABETES));
+    assertTrue(terminologyService.validateCode(valueSet, T2DM));
+    assertFalse(terminologyService.validateCode(valueSet, ASTHMA));
+  }
+
+  @Test
+  void validateCodeWithInFilterOnMultiValuedProperty() {
+    // The list contains a repeated value and surrounding whitespace.
+    final String valueSet = "http://example.org/fhir/ValueSet/site-in";
+    assertTrue(terminologyService.validateCode(valueSet, ASTHMA));
+    // Poisoning matches through one of its two site values.
+    assertTrue(terminologyService.validateCode(valueSet, POISONING));
+    assertFalse(terminologyService.validateCode(valueSet, DIABETES));
+  }
+
+  @Test
+  void validateCodeWithNotInFilterOnMultiValuedProperty() {
+    final String valueSet = "http://example.org/fhir/ValueSet/site-not-in";
+    assertFalse(terminologyService.validateCode(valueSet, ASTHMA));
+    // Poisoning has a site outside the list, but is excluded because of its other site.
+    assertFalse(terminologyService.validateCode(valueSet, POISONING));
+    // Codes without the property are included.
+    assertTrue(terminologyService.validateCode(valueSet, DIABETES));
+    assertTrue(terminologyService.validateCode(valueSet, T1DM));
+  }
+
+  @Test
+  void validateCodeWithExpandedValueSet() {
+    final String valueSet = "http://example.org/fhir/ValueSet/snomed-diabetes";
+    assertTrue(terminologyService.validateCode(valueSet, new Coding(SNOMED_URI, "44054006", null)));
+    assertFalse(
+        terminologyService.validateCode(valueSet, new Coding(SNOMED_URI, "46635009", null)));
+  }
+
+  @Test
+  void validateCodeWithImplicitValueSets() {
+    assertTrue(terminologyService.validateCode(SYSTEM + "?fhir_vs", ASTHMA));
+    assertFalse(terminologyService.validateCode(SYSTEM + "?fhir_vs",
+        new Coding(SYSTEM, "unknown", null)));
+    assertTrue(terminologyService.validateCode(SYSTEM + "?fhir_vs=isa/disorder", T1DM));
+    // Poisoning is a child of disorder through its parent property.
+    assertTrue(terminologyService.validateCode(SYSTEM + "?fhir_vs=isa/disorder", POISONING));
+    assertFalse(terminologyService.validateCode(SYSTEM + "?fhir_vs=isa/diabetes", ASTHMA));
+  }
+
+  @Test
+  void validateCodeWithUnknownValueSet() {
+    assertFalse(terminologyService.validateCode("http://example.org/fhir/ValueSet/unknown",
+        DIABETES));
+    assertFalse(terminologyService.validateCode(SNOMED_URI + "?fhir_vs",
+        new Coding(SNOMED_URI, "44054006", null)));
+  }
+
+  @Test
+  void subsumes() {
+    assertEquals(SUBSUMES, terminologyService.subsumes(DISORDER, T2DM));
+    assertEquals(SUBSUMEDBY, terminologyService.subsumes(T2DM, DIABETES));
+    assertEquals(SUBSUMEDBY, terminologyService.subsumes(POISONING, DISORDER));
+    assertEquals(NOTSUBSUMED, terminologyService.subsumes(T1DM, T2DM));
+    assertEquals(NOTSUBSUMED, terminologyService.subsumes(ASTHMA, POISONING));
+    assertEquals(EQUIVALENT, terminologyService.subsumes(ASTHMA, new Coding(SYSTEM, "asthma",
+        "Asthma")));
+  }
+
+  @Test
+  void subsumesWithDifferentOrUnknownSystems() {
+    assertEquals(NOTSUBSUMED,
+        terminologyService.subsumes(DISORDER, new Coding(SNOMED_URI, "t2dm", null)));
+    assertEquals(NOTSUBSUMED, terminologyService.subsumes(new Coding(SNOMED_URI, "73211009", null),
+        new Coding(SNOMED_URI, "44054006", null)));
+    assertEquals(NOTSUBSUMED, terminologyService.subsumes(DISORDER, new Coding(SYSTEM, null,
+        null)));
+  }
+
+  @Test
+  void translate() {
+    assertEquals(List.of(Translation.of(ConceptMapEquivalence.EQUIVALENT,
+            new Coding(SNOMED_URI, "44054006", "Type 2 diabetes mellitus"))),
+        terminologyService.translate(T2DM, CONCEPT_MAP_URL, false, null));
+    assertEquals(List.of(), terminologyService.translate(ASTHMA, CONCEPT_MAP_URL, false, null));
+    assertEquals(List.of(), terminologyService.translate(T2DM,
+        "http://example.org/fhir/ConceptMap/unknown", false, null));
+  }
+
+  @Test
+  void translateInReverse() {
+    // The equivalence of a reversed mapping is inverted.
+    assertEquals(List.of(
+            Translation.of(ConceptMapEquivalence.EQUIVALENT,
+                new Coding(SYSTEM, "diabetes", null)),
+            Translation.of(ConceptMapEquivalence.NARROWER, new Coding(SYSTEM, "t1dm", null))),
+        terminologyService.translate(new Coding(SNOMED_URI, "73211009", null), CONCEPT_MAP_URL,
+            true, null));
+  }
+
+  @Test
+  void translateWithTarget() {
+    assertEquals(2,
+        terminologyService.translate(T1DM, CONCEPT_MAP_URL, false, SNOMED_URI + "?fhir_vs")
+            .size());
+    assertEquals(List.of(Translation.of(ConceptMapEquivalence.WIDER,
+            new Coding(SNOMED_URI, "73211009", "Diabetes mellitus"))),
+        terminologyService.translate(T1DM, CONCEPT_MAP_URL, false,
+            "http://example.org/fhir/ValueSet/snomed-diabetes"));
+  }
+
+  @Test
+  void lookupAllProperties() {
+    final List<PropertyOrDesignation> result = terminologyService.lookup(T2DM, null);
+    assertEquals(List.of(
+        Property.of("name", new StringType("ExampleConditions")),
+        Property.of("version", new StringType("1.0.0")),
+        Property.of("display", new StringType("Type 2 diabetes mellitus")),
+        Property.of("severity", new StringType("high")),
+        Property.of("parent", new CodeType("diabetes"))
+    ), result);
+  }
+
+  @Test
+  void lookupSingleProperty() {
+    assertEquals(List.of(Property.of("inactive", new BooleanType(false))),
+        terminologyService.lookup(DIABETES, "inactive"));
+    assertEquals(List.of(Property.of("parent", new CodeType("disorder"))),
+        terminologyService.lookup(POISONING, "parent"));
+    assertEquals(List.of(), terminologyService.lookup(new Coding(SYSTEM, "unknown", null),
+        "display"));
+  }
+
+  @Test
+  void lookupDesignations() {
+    assertEquals(List.of(Designation.of(new Coding(SNOMED_URI, "900000000000013009", null), "de",
+        "Zuckerkrankheit")), terminologyService.lookup(DIABETES, Designation.PROPERTY_CODE));
+  }
+
+  @Test
+  void lookupDisplayInPreferredLanguage() {
+    assertEquals(List.of(Property.of("display", new StringType("Zuckerkrankheit"))),
+        terminologyService.lookup(DIABETES, "display", "de-AT,en;q=0.5"));
+    assertEquals(List.of(Property.of("display", new StringType("Diabetes mellitus"))),
+        terminologyService.lookup(DIABETES, "display", "fr"));
+  }
+
+  @Test
+  void factoryBuildsLocalServiceWhenConfigured() {
+    final TerminologyConfiguration configuration = TerminologyConfiguration.builder()
+        .localPath(RESOURCES_PATH)
+        .build();
+    try {
+      final LocalTerminologyService service = assertInstanceOf(LocalTerminologyService.class,
+          new DefaultTerminologyServiceFactory(FhirVersionEnum.R4, configuration).build());
+      assertTrue(service.validateCode(SYSTEM + "?fhir_vs", ASTHMA));
+    } finally {
+      DefaultTerminologyServiceFactory.reset();
+    }
+  }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.terminology.metrics;
+
+import static au.csiro.pathling.terminology.metrics.TerminologyMetrics.CACHE_METRIC;
+import static au.csiro.pathling.terminology.metrics.TerminologyMetrics.OPERATION_TAG;
+import static au.csiro.pathling.terminology.metrics.TerminologyMetrics.REQUEST_METRIC;
+import static au.csiro.pathling.terminology.metrics.TerminologyMetrics.RESULT_TAG;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import au.csiro.pathling.terminology.metrics.TerminologyMetrics.CacheResult;
+import au.csiro.pathling.terminology.metrics.TerminologyMetrics.Snapshot;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TerminologyMetricsTest {
+
+  private SimpleMeterRegistry registry;
+
+  @BeforeEach
+  void setUp() {
+    registry = new SimpleMeterRegistry();
+    Metrics.addRegistry(registry);
+  }
+
+  @AfterEach
+  void tearDown() {
+    TerminologyMetrics.disableForwarding();
+    Metrics.removeRegistry(registry);
+    registry.close();
+  }
+
+  @Test
+  void recordsCacheResultsAndRequests() {
+    TerminologyMetrics.recordCacheResult("lookup", CacheResult.MISS);
+    TerminologyMetrics.recordCacheResult("lookup", CacheResult.HIT);
+    TerminologyMetrics.recordCacheResult("lookup", CacheResult.HIT);
+    TerminologyMetrics.recordRequest("lookup", 1_000_000);
+
+    assertEquals(1.0, cacheCount("lookup", "miss"));
+    assertEquals(2.0, cacheCount("lookup", "hit"));
+    assertEquals(1, registry.get(REQUEST_METRIC).tag(OPERATION_TAG, "lookup").timer().count());
+  }
+
+  @Test
+  void drainIsEmptyWhenForwardingIsDisabled() {
+    TerminologyMetrics.recordCacheResult("translate", CacheResult.MISS);
+    assertTrue(TerminologyMetrics.drain().isEmpty());
+  }
+
+  @Test
+  void drainReturnsValuesRecordedSinceLastDrain() {
+    TerminologyMetrics.enableForwarding();
+    TerminologyMetrics.recordCacheResult("subsumes", CacheResult.EXPIRED);
+    TerminologyMetrics.recordCacheResult("subsumes", CacheResult.EXPIRED);
+    TerminologyMetrics.recordRequest("subsumes", 42);
+
+    final Snapshot snapshot = TerminologyMetrics.drain();
+    assertEquals(Map.of("subsumes", Map.of("expired", 2L)), snapshot.getCacheResults());
+    assertEquals(Map.of("subsumes", List.of(42L)), snapshot.getRequestDurations());
+
+    assertTrue(TerminologyMetrics.drain().isEmpty());
+  }
+
+  @Test
+  void applyAddsSnapshotValuesToRegistry() {
+    final Snapshot snapshot = new Snapshot(Map.of("validate-code", Map.of("hit", 5L)),
+        Map.of("validate-code", List.of(10L, 20L)));
+    TerminologyMetrics.apply(snapshot);
+
+    assertEquals(5.0, cacheCount("validate-code", "hit"));
+    assertEquals(2,
+        registry.get(REQUEST_METRIC).tag(OPERATION_TAG, "validate-code").timer().count());
+  }
+
+  private double cacheCount(final String operation, final String result) {
+    return registry.get(CACHE_METRIC)
+        .tag(OPERATION_TAG, operation)
+        .tag(RESULT_TAG, result)
+        .counter()
+        .count();
+  }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.utilities;
+
+import static java.util.Objects.requireNonNull;
+
+import io.opentelemetry.context.Context;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.spark.SparkContext;
+
+/**
+ * Runs a task for each of a set of keys (e.g. resource types) concurrently, so that Spark can
+ * schedule the jobs for small keys alongside those for large ones.
+ * <p>
+ * Each task runs within its own Spark job group, unless the calling thread is already part of a
+ * job group (e.g. an asynchronous request), in which case the job group is retained so that the
+ * tasks can still be tracked and cancelled along with the rest of the job. Cancelling a job group
+ * does not interrupt the threads that run its tasks. The tracing context of the calling thread is
+ * carried across to the threads that run the tasks.
+ *
+ * @author John Grimes
+ */
+@Slf4j
+public class ConcurrentJobRunner {
+
+  /**
+   * The Spark local property that holds the job group of the current thread.
+   */
+  public static final String JOB_GROUP_PROPERTY = "spark.jobGroup.id";
+
+  @Nonnull
+  private final SparkContext sparkContext;
+
+  @Nonnull
+  private final String name;
+
+  private final int parallelism;
+
+  @Nonnull
+  private final UnaryOperator<Runnable> taskDecorator;
+
+  /**
+   * @param sparkContext the {@link SparkContext} used to submit the jobs
+   * @param name the name of the activity, used within the names of job groups and threads
+   * @param parallelism the maximum number of tasks to run at the same time
+   */
+  public ConcurrentJobRunner(@Nonnull final SparkContext sparkContext, @Nonnull final String name,
+      final int parallelism) {
+    this(sparkContext, name, parallelism, UnaryOperator.identity());
+  }
+
+  /**
+   * @param sparkContext the {@link SparkContext} used to submit the jobs
+   * @param name the name of the activity, used within the names of job groups and threads
+   * @param parallelism the maximum number of tasks to run at the same time
+   * @param taskDecorator a function that wraps each task before it is submitted, e.g. to carry
+   * across context that is bound to the calling thread
+   */
+  public ConcurrentJobRunner(@Nonnull final SparkContext sparkContext, @Nonnull final String name,
+      final int parallelism, @Nonnull final UnaryOperator<Runnable> taskDecorator) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+    }
+    this.sparkContext = sparkContext;
+    this.name = name;
+    this.parallelism = parallelism;
+    this.taskDecorator = taskDecorator;
+  }
+
+  /**
+   * Runs the task for each of the supplied keys, and waits for all of them to finish.
+   * <p>
+   * If there is only one key or the parallelism is 1, the tasks are run in the calling thread, and
+   * the first failure is thrown straight away. Otherwise the failures are collected for all keys
+   * and returned once every task has finished.
+   *
+   * @param keys the keys to run the task for
+   * @param label a function that returns the label of a key, used within job group names and
+   * descriptions
+   * @param task the task to run for each key
+   * @param <K> the type of the keys
+   * @return the failures of the tasks, keyed by the key that they were run for
+   * @throws InterruptedException if the calling thread is interrupted while waiting, in which case
+   * the tasks that have not yet finished are cancelled
+   */
+  @Nonnull
+  public <K> Map<K, Throwable> run(@Nonnull final Collection<K> keys,
+      @Nonnull final Function<K, String> label, @Nonnull final Consumer<K> task)
+      throws InterruptedException {
+    if (parallelism == 1 || keys.size() <= 1) {
+      // There is nothing to be gained from a thread pool, so we run the tasks in the calling thread
+      // and fail fast.
+      keys.forEach(task);
+      return Map.of();
+    }
+
+    @Nullable final String parentJobGroup = sparkContext.getLocalProperty(JOB_GROUP_PROPERTY);
+    final ExecutorService executor = buildExecutor(Math.min(parallelism, keys.size()));
+    final Map<K, Future<?>> futures = new LinkedHashMap<>();
+    try {
+      for (final K key : keys) {
+        final Runnable runnable = () -> {
+          final String description = "pathling-" + name + "-" + label.apply(key);
+          if (parentJobGroup == null) {
+            sparkContext.setJobGroup(description, description, false);
+          } else {
+            sparkContext.setJobDescription(description);
+          }
+          try {
+            task.accept(key);
+          } finally {
+            if (parentJobGroup == null) {
+              sparkContext.clearJobGroup();
+            } else {
+              sparkContext.setJobDescription(null);
+            }
+          }
+        };
+        futures.put(key, executor.submit(Context.current().wrap(taskDecorator.apply(runnable))));
+      }
+
+      final Map<K, Throwable> failures = new LinkedHashMap<>();
+      for (final Map.Entry<K, Future<?>> entry : futures.entrySet()) {
+        try {
+          entry.getValue().get();
+        } catch (final ExecutionException e) {
+          log.warn("Failed to {} {}", name, label.apply(entry.getKey()), e.getCause());
+          failures.put(entry.getKey(), requireNonNull(e.getCause()));
+        } catch (final InterruptedException e) {
+          futures.values().forEach(future -> future.cancel(true));
+          throw e;
+        }
+      }
+      return failures;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Nonnull
+  private ExecutorService buildExecutor(final int threads) {
+    final AtomicInteger threadNumber = new AtomicInteger();
+    return Executors.newFixedThreadPool(threads, runnable -> {
+      final Thread thread = new Thread(runnable,
+          "pathling-" + name + "-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.utilities;
+
+import jakarta.annotation.Nonnull;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.spark.SparkContext;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.broadcast.Broadcast;
+
+/**
+ * A serializable wrapper for a Hadoop {@link Configuration}, used to make the Hadoop configuration
+ * of the driver available on the executors through a {@link Broadcast} variable.
+ * <p>
+ * The configuration can contain credentials, so it should only be sent to the executors by
+ * broadcasting it, rather than being captured within the closures of functions.
+ *
+ * @author John Grimes
+ */
+public class SerializableConfiguration implements Serializable {
+
+  private static final long serialVersionUID = -3629164815430745618L;
+
+  @Nonnull
+  private transient Configuration value;
+
+  /**
+   * @param value the Hadoop configuration to wrap
+   */
+  public SerializableConfiguration(@Nonnull final Configuration value) {
+    this.value = value;
+  }
+
+  /**
+   * @return the wrapped Hadoop configuration
+   */
+  @Nonnull
+  public Configuration get() {
+    return value;
+  }
+
+  /**
+   * Broadcasts the Hadoop configuration of a Spark context to the executors.
+   *
+   * @param sparkContext the Spark context
+   * @return a {@link Broadcast} variable containing a copy of the Hadoop configuration
+   */
+  @Nonnull
+  public static Broadcast<SerializableConfiguration> broadcast(
+      @Nonnull final SparkContext sparkContext) {
+    // The configuration is copied so that later changes to the session are not sent with it.
+    final Configuration copy = new Configuration(sparkContext.hadoopConfiguration());
+    return JavaSparkContext.fromSparkContext(sparkContext)
+        .broadcast(new SerializableConfiguration(copy));
+  }
+
+  private void writeObject(@Nonnull final ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    value.write(out);
+  }
+
+  private void readObject(@Nonnull final ObjectInputStream in)
+      throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    value = new Configuration(false);
+    value.readFields(in);
+  }
+
+}
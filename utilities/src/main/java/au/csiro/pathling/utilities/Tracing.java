@@ -0,0 +1,215 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.utilities;
+
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import org.apache.spark.SparkContext;
+import org.apache.spark.TaskContext;
+
+/**
+ * Utility functions for tracing using OpenTelemetry.
+ * <p>
+ * The trace context is propagated into Spark jobs using a local property on the Spark context,
+ * which Spark makes available to tasks on the executors. This means that spans created within UDFs
+ * can be linked to the request that caused them to be executed.
+ * <p>
+ * Spans are only recorded within a JVM where {@link #configure(OpenTelemetry)} has been called, or
+ * where the global instance has been registered. On an executor that runs in a separate JVM to the
+ * driver, this needs to be done when the executor starts, e.g. by a Spark executor plugin.
+ *
+ * @author John Grimes
+ */
+public abstract class Tracing {
+
+  /**
+   * The name used to identify the instrumentation library.
+   */
+  public static final String INSTRUMENTATION_NAME = "au.csiro.pathling";
+
+  /**
+   * The name of the Spark local property used to propagate the trace context.
+   */
+  public static final String TRACE_CONTEXT_PROPERTY = "pathling.traceContext";
+
+  private static final TextMapGetter<Map<String, String>> MAP_GETTER = new TextMapGetter<>() {
+    @Override
+    public Iterable<String> keys(@Nonnull final Map<String, String> carrier) {
+      return carrier.keySet();
+    }
+
+    @Nullable
+    @Override
+    public String get(@Nullable final Map<String, String> carrier, @Nonnull final String key) {
+      return carrier == null
+             ? null
+             : carrier.get(key);
+    }
+  };
+
+  @Nullable
+  private static volatile OpenTelemetry openTelemetry = null;
+
+  /**
+   * Sets the {@link OpenTelemetry} instance used for tracing. If this is not called, the global
+   * instance is used.
+   *
+   * @param instance the {@link OpenTelemetry} instance to use
+   */
+  public static void configure(@Nonnull final OpenTelemetry instance) {
+    openTelemetry = instance;
+  }
+
+  /**
+   * @return the {@link OpenTelemetry} instance used for tracing
+   */
+  @Nonnull
+  public static OpenTelemetry getOpenTelemetry() {
+    @Nullable final OpenTelemetry instance = openTelemetry;
+    return instance != null
+           ? instance
+           : GlobalOpenTelemetry.get();
+  }
+
+  /**
+   * @return the {@link Tracer} used to create spans
+   */
+  @Nonnull
+  public static Tracer getTracer() {
+    return getOpenTelemetry().getTracer(INSTRUMENTATION_NAME);
+  }
+
+  /**
+   * Runs a function within a new span, which is a child of the current context.
+   *
+   * @param name the name of the span
+   * @param body the function to run
+   * @param <T> the type of the result
+   * @return the result of the function
+   */
+  public static <T> T inSpan(@Nonnull final String name, @Nonnull final Supplier<T> body) {
+    final Span span = getTracer().spanBuilder(name)
+        .setParent(currentContext())
+        .startSpan();
+    try (final Scope ignored = span.makeCurrent()) {
+      return body.get();
+    } catch (final RuntimeException e) {
+      span.recordException(e);
+      span.setStatus(StatusCode.ERROR);
+      throw e;
+    } finally {
+      span.end();
+    }
+  }
+
+  /**
+   * Gets the current trace context. If there is no active span on the current thread and the
+   * thread is executing a Spark task, the context propagated from the driver is used.
+   *
+   * @return the current {@link Context}
+   */
+  @Nonnull
+  public static Context currentContext() {
+    if (Span.current().getSpanContext().isValid()) {
+      return Context.current();
+    }
+    @Nullable final TaskContext taskContext = TaskContext.get();
+    return Optional.ofNullable(taskContext)
+        .map(tc -> tc.getLocalProperty(TRACE_CONTEXT_PROPERTY))
+        .map(Tracing::deserialize)
+        .orElseGet(Context::current);
+  }
+
+  /**
+   * Sets the current trace context as a local property of the Spark context, so that it is
+   * propagated to jobs submitted from the current thread.
+   *
+   * @param sparkContext the {@link SparkContext} to update
+   */
+  public static void propagateToSpark(@Nonnull final SparkContext sparkContext) {
+    sparkContext.setLocalProperty(TRACE_CONTEXT_PROPERTY, serialize(Context.current()));
+  }
+
+  /**
+   * Removes any trace context from the local properties of the Spark context.
+   *
+   * @param sparkContext the {@link SparkContext} to update
+   */
+  public static void clearFromSpark(@Nonnull final SparkContext sparkContext) {
+    sparkContext.setLocalProperty(TRACE_CONTEXT_PROPERTY, null);
+  }
+
+  /**
+   * Serializes a trace context into a string.
+   *
+   * @param context the {@link Context} to serialize
+   * @return the serialized context, or null if the context does not contain a valid span
+   */
+  @Nullable
+  public static String serialize(@Nonnull final Context context) {
+    final Map<String, String> carrier = new HashMap<>();
+    getOpenTelemetry().getPropagators().getTextMapPropagator()
+        .inject(context, carrier, Map::put);
+    return carrier.entrySet().stream()
+        .map(e -> e.getKey() + "=" + e.getValue())
+        .reduce((a, b) -> a + ";" + b)
+        .orElse(null);
+  }
+
+  /**
+   * Deserializes a trace context that was serialized using {@link #serialize(Context)}.
+   *
+   * @param serialized the serialized context
+   * @return the deserialized {@link Context}
+   */
+  @Nonnull
+  public static Context deserialize(@Nonnull final String serialized) {
+    final Map<String, String> carrier = new HashMap<>();
+    for (final String entry : serialized.split(";")) {
+      final int separator = entry.indexOf('=');
+      if (separator > 0) {
+        carrier.put(entry.substring(0, separator), entry.substring(separator + 1));
+      }
+    }
+    return extract(carrier);
+  }
+
+  /**
+   * Extracts a trace context from a map of headers.
+   *
+   * @param headers the headers, keyed by lower-case header name
+   * @return the extracted {@link Context}
+   */
+  @Nonnull
+  public static Context extract(@Nonnull final Map<String, String> headers) {
+    return getOpenTelemetry().getPropagators().getTextMapPropagator()
+        .extract(Context.root(), headers, MAP_GETTER);
+  }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.csiro.pathling.utilities;
+
+import static au.csiro.pathling.utilities.ConcurrentJobRunner.JOB_GROUP_PROPERTY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import org.apache.spark.SparkContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentJobRunnerTest {
+
+  SparkContext sparkContext;
+
+  @BeforeEach
+  void setUp() {
+    sparkContext = mock(SparkContext.class);
+  }
+
+  @Test
+  void collectsFailuresForAllKeys() throws InterruptedException {
+    final ConcurrentJobRunner runner = new ConcurrentJobRunner(sparkContext, "test", 4);
+    final Set<String> completed = ConcurrentHashMap.newKeySet();
+    final RuntimeException error = new RuntimeException("b failed");
+
+    final Map<String, Throwable> failures = runner.run(List.of("a", "b", "c"),
+        Function.identity(), key -> {
+          if ("b".equals(key)) {
+            throw error;
+          }
+          completed.add(key);
+        });
+
+    assertEquals(Map.of("b", error), failures);
+    assertEquals(Set.of("a", "c"), completed);
+    // Cancelling the job group must not interrupt the threads that run the tasks.
+    verify(sparkContext).setJobGroup("pathling-test-a", "pathling-test-a", false);
+    verify(sparkContext).setJobGroup("pathling-test-b", "pathling-test-b", false);
+    verify(sparkContext).setJobGroup("pathling-test-c", "pathling-test-c", false);
+  }
+
+  @Test
+  void retainsParentJobGroup() throws InterruptedException {
+    when(sparkContext.getLocalProperty(JOB_GROUP_PROPERTY)).thenReturn("parent");
+    final ConcurrentJobRunner runner = new ConcurrentJobRunner(sparkContext, "test", 2);
+
+    final Map<String, Throwable> failures = runner.run(List.of("a", "b"), Function.identity(),
+        key -> {
+        });
+
+    assertTrue(failures.isEmpty());
+    verify(sparkContext, never()).setJobGroup(anyString(), anyString(), anyBoolean());
+    verify(sparkContext).setJobDescription("pathling-test-a");
+    verify(sparkContext).setJobDescription("pathling-test-b");
+  }
+
+  @Test
+  void appliesTaskDecorator() throws InterruptedException {
+    final Set<String> decorated = ConcurrentHashMap.newKeySet();
+    final UnaryOperator<Runnable> decorator = runnable -> () -> {
+      decorated.add(Thread.currentThread().getName());
+      runnable.run();
+    };
+    final ConcurrentJobRunner runner = new ConcurrentJobRunner(sparkContext, "test", 2, decorator);
+
+    runner.run(List.of("a", "b"), Function.identity(), key -> {
+    });
+
+    assertTrue(decorated.stream().allMatch(name -> name.startsWith("pathling-test-")));
+    assertFalse(decorated.isEmpty());
+  }
+
+  @Test
+  void runsSequentiallyInCallingThread() {
+    final ConcurrentJobRunner runner = new ConcurrentJobRunner(sparkContext, "test", 1);
+    final Thread caller = Thread.currentThread();
+    final RuntimeException error = new RuntimeException("a failed");
+
+    final RuntimeException result = assertThrows(RuntimeException.class,
+        () -> runner.run(List.of("a", "b"), Function.identity(), key -> {
+          assertSame(caller, Thread.currentThread());
+          throw error;
+        }));
+
+    assertSame(error, result);
+    verify(sparkContext, never()).setJobGroup(anyString(), anyString(), anyBoolean());
+  }
+
+  @Test
+  void rejectsInvalidParallelism() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new ConcurrentJobRunner(sparkContext, "test", 0));
+  }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2023 Commonwealth Scientific and Industrial Research
+ * Organisation (CSIRO) ABN 41 687 119 230.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.csiro.pathling.utilities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class TracingTest {
+
+  private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+  private static final String SPAN_ID = "00f067aa0ba902b7";
+
+  @BeforeAll
+  static void setUp() {
+    Tracing.configure(OpenTelemetry.propagating(
+        ContextPropagators.create(W3CTraceContextPropagator.getInstance())));
+  }
+
+  @Test
+  void serializedContextCanBeDeserialized() {
+    final SpanContext spanContext = SpanContext.create(TRACE_ID, SPAN_ID, TraceFlags.getSampled(),
+        TraceState.getDefault());
+    final Context context = Context.root().with(Span.wrap(spanContext));
+
+    final String serialized = Tracing.serialize(context);
+    assertEquals("traceparent=00-" + TRACE_ID + "-" + SPAN_ID + "-01", serialized);
+
+    final SpanContext result = Span.fromContext(Tracing.deserialize(serialized)).getSpanContext();
+    assertEquals(TRACE_ID, result.getTraceId());
+    assertEquals(SPAN_ID, result.getSpanId());
+    assertTrue(result.isRemote());
+  }
+
+  @Test
+  void emptyContextIsNotSerialized() {
+    assertNull(Tracing.serialize(Context.root()));
+  }
+
+  @Test
+  void contextIsExtractedFromHeaders() {
+    final Context context = Tracing.extract(
+        Map.of("traceparent", "00-" + TRACE_ID + "-" + SPAN_ID + "-01"));
+    assertEquals(TRACE_ID, Span.fromContext(context).getSpanContext().getTraceId());
+    assertFalse(Span.fromContext(Tracing.extract(Map.of())).getSpanContext().isValid());
+  }
+
+}